@@ -3,7 +3,6 @@ package org.opengis.cite.iso19136;
 import java.io.IOException;
 import java.net.URL;
 import java.net.URLConnection;
-import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.logging.Level;
@@ -11,12 +10,11 @@ import java.util.logging.Level;
 import javax.xml.namespace.QName;
 import javax.xml.transform.Result;
 import javax.xml.transform.Source;
-import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Validator;
-import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
+
+import net.sf.saxon.s9api.XdmNode;
 
 import org.apache.xerces.xs.XSAttributeDeclaration;
 import org.apache.xerces.xs.XSAttributeUse;
@@ -28,11 +26,13 @@ import org.apache.xerces.xs.XSModelGroup;
 import org.apache.xerces.xs.XSObjectList;
 import org.apache.xerces.xs.XSParticle;
 import org.apache.xerces.xs.XSTerm;
-import org.opengis.cite.iso19136.util.NamespaceBindings;
+import org.opengis.cite.iso19136.util.MappedDataSource;
+import org.opengis.cite.iso19136.util.SchemaModelIndex;
+import org.opengis.cite.iso19136.util.SchematronCache;
+import org.opengis.cite.iso19136.util.StreamingSchematronValidator;
 import org.opengis.cite.iso19136.util.TestSuiteLogger;
 import org.opengis.cite.iso19136.util.XMLSchemaModelUtils;
 import org.opengis.cite.iso19136.util.XMLUtils;
-import org.opengis.cite.validation.SchematronValidator;
 import org.opengis.cite.validation.ValidationErrorHandler;
 import org.testng.Assert;
 import org.w3c.dom.Document;
@@ -79,13 +79,9 @@ public class ETSAssert {
 		if (null == context) {
 			throw new NullPointerException("Context node is null.");
 		}
-		NamespaceBindings bindings = NamespaceBindings.withStandardBindings();
-		bindings.addAllBindings(namespaceBindings);
-		XPath xpath = XPathFactory.newInstance().newXPath();
-		xpath.setNamespaceContext(bindings);
 		Boolean result;
 		try {
-			result = (Boolean) xpath.evaluate(expr, context, XPathConstants.BOOLEAN);
+			result = (Boolean) XMLUtils.evaluateXPath(context, expr, namespaceBindings, XPathConstants.BOOLEAN);
 		}
 		catch (XPathExpressionException xpe) {
 			String msg = ErrorMessage.format(ErrorMessageKeys.XPATH_ERROR, expr);
@@ -121,19 +117,80 @@ public class ETSAssert {
 	 * @param xmlSource The XML Source to be validated.
 	 */
 	public static void assertSchematronValid(URL schemaRef, Source xmlSource) {
-		SchematronValidator validator;
+		Result result;
 		try {
-			validator = new SchematronValidator(new StreamSource(schemaRef.toString()), "#ALL");
+			result = SchematronCache.validate(schemaRef, "#ALL", xmlSource);
 		}
-		catch (Exception e) {
+		catch (IOException e) {
+			StringBuilder msg = new StringBuilder("Failed to process Schematron schema at ");
+			msg.append(schemaRef).append('\n');
+			msg.append(e.getMessage());
+			throw new AssertionError(msg);
+		}
+		assertNoRuleViolations(result);
+	}
+
+	/**
+	 * Asserts that a document in memory satisfies all applicable constraints specified in
+	 * a Schematron (ISO 19757-3) schema. The document is neither copied nor parsed again,
+	 * so it may be checked against several schemas at little cost. All patterns are
+	 * checked.
+	 * @param schemaRef A URL that denotes the location of a Schematron schema.
+	 * @param docNode The document to be validated (see
+	 * {@link org.opengis.cite.iso19136.util.SaxonXPath#toXdmNode(Document)}).
+	 */
+	public static void assertSchematronValid(URL schemaRef, XdmNode docNode) {
+		Result result;
+		try {
+			result = SchematronCache.validate(schemaRef, "#ALL", docNode);
+		}
+		catch (IOException e) {
 			StringBuilder msg = new StringBuilder("Failed to process Schematron schema at ");
 			msg.append(schemaRef).append('\n');
 			msg.append(e.getMessage());
 			throw new AssertionError(msg);
 		}
-		Result result = validator.validate(xmlSource);
-		Assert.assertFalse(validator.ruleViolationsDetected(), ErrorMessage.format(ErrorMessageKeys.NOT_SCHEMA_VALID,
-				validator.getRuleViolationCount(), XMLUtils.resultToString(result)));
+		assertNoRuleViolations(result);
+	}
+
+	/**
+	 * Asserts that an XML resource satisfies all applicable constraints specified in a
+	 * Schematron schema, without building the complete document tree for the patterns
+	 * that only refer to the neighborhood of their rule contexts (see
+	 * {@link StreamingSchematronValidator}). The schema is compiled only once.
+	 * @param schemaRef A URL that denotes the location of a Schematron schema.
+	 * @param dataSource The source of the XML resource to be validated.
+	 */
+	public static void assertSchematronValid(URL schemaRef, MappedDataSource dataSource) {
+		StreamingSchematronValidator validator;
+		try {
+			validator = StreamingSchematronValidator.getInstance(schemaRef, null);
+		}
+		catch (IOException e) {
+			StringBuilder msg = new StringBuilder("Failed to process Schematron schema at ");
+			msg.append(schemaRef).append('\n');
+			msg.append(e.getMessage());
+			throw new AssertionError(msg);
+		}
+		Result result;
+		try {
+			result = validator.validate(dataSource);
+		}
+		catch (IOException e) {
+			throw new AssertionError(ErrorMessage.format(ErrorMessageKeys.XML_ERROR, e.getMessage()));
+		}
+		assertNoRuleViolations(result);
+	}
+
+	/**
+	 * Asserts that an SVRL report does not contain any rule violations (failed assertions
+	 * or successful reports).
+	 * @param svrlReport A Result containing an SVRL report (as a DOM node).
+	 */
+	public static void assertNoRuleViolations(Result svrlReport) {
+		int ruleViolations = SchematronCache.countRuleViolations(svrlReport);
+		Assert.assertFalse(ruleViolations > 0, ErrorMessage.format(ErrorMessageKeys.NOT_SCHEMA_VALID, ruleViolations,
+				XMLUtils.resultToString(svrlReport)));
 	}
 
 	/**
@@ -344,11 +401,9 @@ public class ETSAssert {
 			XSComplexTypeDefinition propTypeDef, XSParticle xsParticle, boolean includeHead) {
 		if (null != head) {
 			XSElementDeclaration elemDecl = (XSElementDeclaration) xsParticle.getTerm();
-			List<XSElementDeclaration> elementsByAffiliation = XMLSchemaModelUtils.getElementsByAffiliation(model,
-					head);
-			if (includeHead)
-				elementsByAffiliation.add(head);
-			Assert.assertTrue(elementsByAffiliation.contains(elemDecl),
+			boolean substitutable = SchemaModelIndex.forModel(model).isSubstitutableFor(elemDecl, head)
+					|| (includeHead && elemDecl.equals(head));
+			Assert.assertTrue(substitutable,
 					ErrorMessage.format(ErrorMessageKeys.DISALLOWED_SUBSTITUTION, elemDecl, head,
 							XMLSchemaModelUtils.getQName(propTypeDef)));
 		}
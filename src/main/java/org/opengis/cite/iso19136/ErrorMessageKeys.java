@@ -32,6 +32,8 @@ public class ErrorMessageKeys {
 
 	public static final String XSD_INVALID = "XMLSchemaNotValid";
 
+	public static final String SCHEMA_TIMEOUT = "SchemaTimeout";
+
 	public static final String RELATIVE_NS = "RelativeNamespace";
 
 	public static final String UNEXPECTED_NS = "UnexpectedNamespace";
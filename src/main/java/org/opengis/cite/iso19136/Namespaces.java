@@ -22,4 +22,7 @@ public class Namespaces {
 	/** ISO 19757-3 (Schematron) */
 	public static final String SCH = "http://purl.oclc.org/dsdl/schematron";
 
+	/** Schematron Validation Report Language (ISO 19757-3, Annex D) */
+	public static final String SVRL = "http://purl.oclc.org/dsdl/svrl";
+
 }
@@ -7,6 +7,10 @@ import java.util.Set;
 import javax.xml.validation.Schema;
 import org.apache.xerces.xs.XSModel;
 import org.opengis.cite.iso19136.general.AppSchemaInfo;
+import org.opengis.cite.iso19136.util.CompileBudget;
+import org.opengis.cite.iso19136.util.GeometryIndex;
+import org.opengis.cite.iso19136.util.GmlDocument;
+import org.opengis.cite.iso19136.util.SchemaCompilation;
 
 /**
  * An enumerated type defining ISuite attributes that may be set to constitute a shared
@@ -24,10 +28,32 @@ public enum SuiteAttribute {
 	 * grammar-based schema language.
 	 */
 	SCHEMA("schema", Schema.class),
+	/**
+	 * A compilation of the application schema(s) that was started in the background as
+	 * soon as the schema locations were known.
+	 */
+	SCHEMA_COMPILATION("schema-compilation", SchemaCompilation.class),
+	/**
+	 * The time allowed for compiling the application schema(s).
+	 */
+	COMPILE_BUDGET("compile-budget", CompileBudget.class),
+	/**
+	 * The number of threads used for validating the GML data against the application
+	 * schema(s).
+	 */
+	VALIDATION_THREADS("validation-threads", Integer.class),
 	/**
 	 * A File containing GML data.
 	 */
 	GML("gml-data", File.class),
+	/**
+	 * Provides shared access to the parsed content of the GML data file.
+	 */
+	GML_DOCUMENT("gml-document", GmlDocument.class),
+	/**
+	 * An index of the geometry elements that occur in the GML data.
+	 */
+	GEOMETRY_INDEX("geometry-index", GeometryIndex.class),
 	/**
 	 * An absolute URI referring to a Schematron schema.
 	 */
@@ -1,13 +1,14 @@
 package org.opengis.cite.iso19136;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 
 import javax.xml.XMLConstants;
@@ -16,11 +17,24 @@ import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.events.StartElement;
-import javax.xml.transform.stream.StreamSource;
 
+import org.opengis.cite.iso19136.data.spatial.UnmarshallerLease;
+import org.opengis.cite.iso19136.util.CompileBudget;
+import org.opengis.cite.iso19136.util.DocumentModel;
+import org.opengis.cite.iso19136.util.DocumentProbe;
+import org.opengis.cite.iso19136.util.EntityCache;
+import org.opengis.cite.iso19136.util.GmlDocument;
+import org.opengis.cite.iso19136.util.GmlVersion;
+import org.opengis.cite.iso19136.util.GrammarPools;
+import org.opengis.cite.iso19136.util.MappedDataSource;
+import org.opengis.cite.iso19136.util.MemoryPolicy;
+import org.opengis.cite.iso19136.util.SchemaCache;
+import org.opengis.cite.iso19136.util.SchemaCompilation;
+import org.opengis.cite.iso19136.util.SchematronCache;
 import org.opengis.cite.iso19136.util.TestSuiteLogger;
 import org.opengis.cite.iso19136.util.URIUtils;
 import org.opengis.cite.iso19136.util.ValidationUtils;
+import org.opengis.cite.iso19136.util.XPathCache;
 import org.testng.ISuite;
 import org.testng.ISuiteListener;
 
@@ -40,16 +54,38 @@ public class SuiteFixtureListener implements ISuiteListener {
 
 	@Override
 	public void onStart(ISuite suite) {
+		EntityCache.beginRun();
 		TestSuiteLogger.log(Level.CONFIG,
 				String.format("[SuiteFixtureListener] All parameters:\n%s", suite.getXmlSuite().getAllParameters()));
 		processIUTParameter(suite);
 		processGmlReference(suite);
 		processSchematronSchema(suite);
 		processVersionParameter(suite);
+		processCompileBudget(suite);
+		processValidationThreads(suite);
 	}
 
 	@Override
 	public void onFinish(ISuite suite) {
+		Object gmlDoc = suite.getAttribute(SuiteAttribute.GML_DOCUMENT.getName());
+		if (gmlDoc instanceof GmlDocument) {
+			((GmlDocument) gmlDoc).release();
+		}
+		try {
+			EntityCache.endRun();
+		}
+		catch (IOException e) {
+			TestSuiteLogger.log(Level.WARNING, "Failed to release cached entities", e);
+		}
+		TestSuiteLogger.log(Level.CONFIG, XPathCache.getStatistics());
+		TestSuiteLogger.log(Level.CONFIG, UnmarshallerLease.getStatistics());
+		TestSuiteLogger.log(Level.CONFIG, SchemaCache.getDefault().getStatistics());
+		TestSuiteLogger.log(Level.CONFIG, SchematronCache.getStatistics());
+		int leased = UnmarshallerLease.getActiveCount();
+		if (leased > 0) {
+			TestSuiteLogger.log(Level.WARNING,
+					String.format("%d GML unmarshaller(s) not returned to the pool.", leased));
+		}
 		String reportDir = suite.getOutputDirectory();
 		TestSuiteLogger.log(Level.CONFIG, String.format("Test run directory: %s",
 				reportDir.substring(0, reportDir.lastIndexOf(File.separatorChar))));
@@ -70,8 +106,13 @@ public class SuiteFixtureListener implements ISuiteListener {
 			return;
 		}
 		try {
-			File iutFile = URIUtils.resolveURIAsFile(URI.create(iutRef));
-			if (isXMLSchema(iutFile)) {
+			AtomicReference<DocumentProbe> probe = new AtomicReference<>();
+			File iutFile = URIUtils.resolveURIAsFile(URI.create(iutRef), docProbe -> {
+				probe.set(docProbe);
+				startSchemaCompilation(suite, docProbe, iutRef);
+			});
+			boolean isSchema = (null != probe.get()) ? probe.get().isXMLSchema() : isXMLSchema(iutFile);
+			if (isSchema) {
 				params.put(TestRunArg.XSD.toString(), iutRef);
 			}
 			else {
@@ -87,7 +128,9 @@ public class SuiteFixtureListener implements ISuiteListener {
 	/**
 	 * Processes the {@link org.opengis.cite.iso19136.TestRunArg#VERSION} test suite
 	 * parameter that refers to a POSTed message entity. Its value is a String
-	 * representing the version of the GML to be tested.
+	 * representing the version of the GML to be tested. If application schemas are to be
+	 * checked, the bundled schemas for that version are pre-parsed in the background
+	 * (see {@link GrammarPools}).
 	 * @param suite An ISuite object representing a TestNG test suite.
 	 */
 	void processVersionParameter(ISuite suite) {
@@ -97,6 +140,10 @@ public class SuiteFixtureListener implements ISuiteListener {
 			versionRef = "3.2.2";
 		}
 		suite.setAttribute(SuiteAttribute.VERSION.getName(), versionRef);
+		if (null != suite.getAttribute(SuiteAttribute.SCHEMA_LOC_SET.getName())) {
+			// parse the bundled schemas while the remaining fixtures are set up
+			GrammarPools.preload(getGmlVersion(params));
+		}
 	}
 
 	/**
@@ -116,6 +163,7 @@ public class SuiteFixtureListener implements ISuiteListener {
 			// was submitted as iut argument value via POST
 			schemaURIs.add(URI.create(xsdURI));
 			suite.setAttribute(SuiteAttribute.SCHEMA_LOC_SET.getName(), schemaURIs);
+			startSchemaCompilation(suite, schemaURIs);
 			return;
 		}
 		String gmlURI = params.get(TestRunArg.GML.toString());
@@ -124,17 +172,32 @@ public class SuiteFixtureListener implements ISuiteListener {
 		}
 		File gmlFile = null;
 		try {
-			gmlFile = URIUtils.resolveURIAsFile(URI.create(gmlURI));
+			// the schema references are known as soon as the document element arrives
+			AtomicReference<DocumentProbe> probe = new AtomicReference<>();
+			gmlFile = URIUtils.resolveURIAsFile(URI.create(gmlURI), docProbe -> {
+				probe.set(docProbe);
+				startSchemaCompilation(suite, docProbe, gmlURI);
+			});
 			if (null == gmlFile || !gmlFile.exists()) {
 				throw new IllegalArgumentException("Failed to dereference URI: " + gmlURI);
 			}
-			if (isXMLSchema(gmlFile)) {
+			MappedDataSource gmlSource = new MappedDataSource(gmlFile);
+			DocumentProbe docProbe = probe.get();
+			boolean isSchema = (null != docProbe) ? docProbe.isXMLSchema() : isXMLSchema(gmlSource);
+			if (isSchema) {
 				params.put(TestRunArg.XSD.toString(), gmlURI);
 				schemaURIs.add(URI.create(gmlURI));
 			}
 			else {
-				schemaURIs.addAll(ValidationUtils.extractSchemaReferences(new StreamSource(gmlFile), gmlURI));
+				if (null != docProbe) {
+					schemaURIs.addAll(docProbe.getSchemaReferences(gmlURI));
+				}
+				else {
+					schemaURIs.addAll(ValidationUtils.extractSchemaReferences(gmlSource.getSource(), gmlURI));
+				}
 				suite.setAttribute(SuiteAttribute.GML.getName(), gmlFile);
+				suite.setAttribute(SuiteAttribute.GML_DOCUMENT.getName(),
+						new GmlDocument(gmlSource, getMemoryPolicy(params), getDocumentModel(params)));
 				TestSuiteLogger.log(Level.FINE, "Wrote GML document to " + gmlFile.getAbsolutePath());
 			}
 		}
@@ -148,6 +211,197 @@ public class SuiteFixtureListener implements ISuiteListener {
 		TestSuiteLogger.log(Level.FINE, String.format("Schema references: %s", schemaURIs));
 	}
 
+	/**
+	 * Starts compiling the schemas that apply to a resource as soon as its document
+	 * element has been read. Nothing is done if a compilation is already under way or if
+	 * the schema references cannot be determined.
+	 * @param suite An ISuite object representing a TestNG test suite.
+	 * @param probe A DocumentProbe describing the document element of the resource.
+	 * @param resourceRef The URI reference used to retrieve the resource.
+	 */
+	void startSchemaCompilation(ISuite suite, DocumentProbe probe, String resourceRef) {
+		Set<URI> schemaURIs = new HashSet<URI>();
+		if (probe.isXMLSchema()) {
+			schemaURIs.add(URI.create(resourceRef));
+		}
+		else if (null != probe.getSchemaLocation()) {
+			try {
+				schemaURIs.addAll(probe.getSchemaReferences(resourceRef));
+			}
+			catch (RuntimeException e) {
+				TestSuiteLogger.log(Level.FINE, "Cannot resolve schema references: " + probe, e);
+				return;
+			}
+		}
+		if (!schemaURIs.isEmpty()) {
+			startSchemaCompilation(suite, schemaURIs);
+		}
+	}
+
+	/**
+	 * Starts compiling the given schemas in the background; the result is collected by
+	 * {@link org.opengis.cite.iso19136.general.XMLSchemaTests#compileXMLSchema}. The
+	 * entity catalog is selected by the
+	 * {@link org.opengis.cite.iso19136.TestRunArg#VERSION} test suite parameter.
+	 * @param suite An ISuite object representing a TestNG test suite.
+	 * @param schemaURIs A Set of URI objects specifying schema locations.
+	 */
+	void startSchemaCompilation(ISuite suite, Set<URI> schemaURIs) {
+		if (null != suite.getAttribute(SuiteAttribute.SCHEMA_COMPILATION.getName())) {
+			return;
+		}
+		GmlVersion gmlVersion = getGmlVersion(suite.getXmlSuite().getParameters());
+		suite.setAttribute(SuiteAttribute.SCHEMA_COMPILATION.getName(),
+				SchemaCompilation.start(schemaURIs, gmlVersion));
+	}
+
+	/**
+	 * Determines the GML version from the
+	 * {@link org.opengis.cite.iso19136.TestRunArg#VERSION} test suite parameter.
+	 * @param params A Map containing the suite parameters.
+	 * @return The requested GmlVersion, or {@link GmlVersion#V322} if the parameter is
+	 * missing or has an unrecognized value.
+	 */
+	GmlVersion getGmlVersion(Map<String, String> params) {
+		String versionRef = params.get(TestRunArg.VERSION.toString());
+		if (null == versionRef || versionRef.isEmpty()) {
+			return GmlVersion.V322;
+		}
+		try {
+			return GmlVersion.fromString(versionRef.trim());
+		}
+		catch (IllegalArgumentException e) {
+			TestSuiteLogger.log(Level.FINE, "Unknown GML version: " + versionRef);
+			return GmlVersion.V322;
+		}
+	}
+
+	/**
+	 * Determines the memory policy for the parsed GML document from the
+	 * {@link org.opengis.cite.iso19136.TestRunArg#MEMORY_POLICY} test suite parameter.
+	 * @param params A Map containing the suite parameters.
+	 * @return The requested MemoryPolicy, or {@link MemoryPolicy#KEEP} if the parameter
+	 * is missing or has an unrecognized value.
+	 */
+	MemoryPolicy getMemoryPolicy(Map<String, String> params) {
+		String policyRef = params.get(TestRunArg.MEMORY_POLICY.toString());
+		if (null == policyRef || policyRef.isEmpty()) {
+			return MemoryPolicy.KEEP;
+		}
+		try {
+			return MemoryPolicy.fromString(policyRef.trim());
+		}
+		catch (IllegalArgumentException e) {
+			TestSuiteLogger.log(Level.WARNING, "Unknown memory policy: " + policyRef + ". Using default.");
+			return MemoryPolicy.KEEP;
+		}
+	}
+
+	/**
+	 * Determines the representation of the parsed GML document from the
+	 * {@link org.opengis.cite.iso19136.TestRunArg#DOCUMENT_MODEL} test suite parameter.
+	 * @param params A Map containing the suite parameters.
+	 * @return The requested DocumentModel, or {@link DocumentModel#DOM} if the parameter
+	 * is missing or has an unrecognized value.
+	 */
+	DocumentModel getDocumentModel(Map<String, String> params) {
+		String modelRef = params.get(TestRunArg.DOCUMENT_MODEL.toString());
+		if (null == modelRef || modelRef.isEmpty()) {
+			return DocumentModel.DOM;
+		}
+		try {
+			return DocumentModel.fromString(modelRef.trim());
+		}
+		catch (IllegalArgumentException e) {
+			TestSuiteLogger.log(Level.WARNING, "Unknown document model: " + modelRef + ". Using default.");
+			return DocumentModel.DOM;
+		}
+	}
+
+	/**
+	 * Sets the time allowed for compiling the application schema(s) from the
+	 * {@link org.opengis.cite.iso19136.TestRunArg#COMPILE_TIMEOUT} and
+	 * {@link org.opengis.cite.iso19136.TestRunArg#COMPILE_IDLE_TIMEOUT} test suite
+	 * parameters (in seconds). The attribute
+	 * {@link SuiteAttribute#COMPILE_BUDGET COMPILE_BUDGET} is set.
+	 * @param suite An ISuite object representing a TestNG test suite.
+	 */
+	void processCompileBudget(ISuite suite) {
+		Map<String, String> params = suite.getXmlSuite().getParameters();
+		long timeout = getTimeLimit(params, TestRunArg.COMPILE_TIMEOUT, CompileBudget.DEFAULT_TIMEOUT);
+		long idleTimeout = getTimeLimit(params, TestRunArg.COMPILE_IDLE_TIMEOUT, CompileBudget.DEFAULT_IDLE_TIMEOUT);
+		CompileBudget budget = new CompileBudget(timeout, idleTimeout);
+		suite.setAttribute(SuiteAttribute.COMPILE_BUDGET.getName(), budget);
+		TestSuiteLogger.log(Level.FINE, budget.toString());
+	}
+
+	/**
+	 * Sets the number of threads used for validating the GML data (see
+	 * {@link #getValidationThreads(Map)}). The attribute
+	 * {@link SuiteAttribute#VALIDATION_THREADS VALIDATION_THREADS} is set.
+	 * @param suite An ISuite object representing a TestNG test suite.
+	 */
+	void processValidationThreads(ISuite suite) {
+		int threads = getValidationThreads(suite.getXmlSuite().getParameters());
+		suite.setAttribute(SuiteAttribute.VALIDATION_THREADS.getName(), threads);
+	}
+
+	/**
+	 * Determines the number of threads used for validating the GML data from the
+	 * {@link org.opengis.cite.iso19136.TestRunArg#VALIDATION_THREADS} test suite
+	 * parameter.
+	 * @param params A Map containing the suite parameters.
+	 * @return The number of threads; the number of available processors if the value is
+	 * 0, or 1 if the parameter is missing or does not have a valid value.
+	 */
+	int getValidationThreads(Map<String, String> params) {
+		String threadsRef = params.get(TestRunArg.VALIDATION_THREADS.toString());
+		if (null == threadsRef || threadsRef.isEmpty()) {
+			return 1;
+		}
+		try {
+			int threads = Integer.parseInt(threadsRef.trim());
+			if (threads == 0) {
+				return Runtime.getRuntime().availableProcessors();
+			}
+			if (threads > 0) {
+				return threads;
+			}
+		}
+		catch (NumberFormatException e) {
+			// fall through
+		}
+		TestSuiteLogger.log(Level.WARNING,
+				"Invalid value for " + TestRunArg.VALIDATION_THREADS + ": " + threadsRef + ". Using default.");
+		return 1;
+	}
+
+	/**
+	 * Reads a time limit from the test suite parameters.
+	 * @param params A Map containing the suite parameters.
+	 * @param arg The test run argument that gives the limit in seconds.
+	 * @param defaultValue The limit (in milliseconds) that applies if the parameter is
+	 * missing or does not have a valid value.
+	 * @return The time limit in milliseconds.
+	 */
+	long getTimeLimit(Map<String, String> params, TestRunArg arg, long defaultValue) {
+		String limitRef = params.get(arg.toString());
+		if (null == limitRef || limitRef.isEmpty()) {
+			return defaultValue;
+		}
+		try {
+			long seconds = Long.parseLong(limitRef.trim());
+			if (seconds >= 0) {
+				return TimeUnit.SECONDS.toMillis(seconds);
+			}
+		}
+		catch (NumberFormatException e) {
+			// fall through
+		}
+		TestSuiteLogger.log(Level.WARNING, "Invalid value for " + arg + ": " + limitRef + ". Using default.");
+		return defaultValue;
+	}
+
 	/**
 	 * Adds a URI reference specifying the location of a Schematron schema.
 	 * @param suite An ISuite object representing a TestNG test suite.
@@ -171,11 +425,23 @@ public class SuiteFixtureListener implements ISuiteListener {
 		if (!file.exists() || (file.length() == 0)) {
 			return false;
 		}
+		return isXMLSchema(new MappedDataSource(file));
+	}
+
+	/**
+	 * Determines if the content read from the given source represents an XML Schema.
+	 * @param dataSource A MappedDataSource object.
+	 * @return {@code true} if the content is an XML Schema; {@code false} otherwise.
+	 */
+	boolean isXMLSchema(MappedDataSource dataSource) {
+		if (dataSource.getFile().length() == 0) {
+			return false;
+		}
 		QName docElemName = QName.valueOf("");
 		InputStream inStream = null;
 		XMLEventReader reader = null;
 		try {
-			inStream = new FileInputStream(file);
+			inStream = dataSource.openStream();
 			XMLInputFactory factory = XMLInputFactory.newInstance();
 			reader = factory.createXMLEventReader(inStream);
 			StartElement docElem = reader.nextTag().asStartElement();
@@ -0,0 +1,34 @@
+package org.opengis.cite.iso19136;
+
+import org.opengis.cite.iso19136.util.GmlDocument;
+import org.opengis.cite.iso19136.util.MemoryPolicy;
+import org.testng.ITestContext;
+import org.testng.ITestListener;
+
+/**
+ * A listener that performs tasks when a test set (a &lt;test&gt; element in the suite
+ * definition) finishes. It is mainly concerned with releasing shared fixture resources
+ * that are no longer needed.
+ *
+ * @see org.testng.ITestContext ITestContext interface
+ */
+public class TestContextListener implements ITestListener {
+
+	/**
+	 * Releases the parsed GML document if the {@link MemoryPolicy#DROP DROP} memory
+	 * policy applies and the test set that just finished made use of it.
+	 * @param testContext The test (set) context.
+	 */
+	@Override
+	public void onFinish(ITestContext testContext) {
+		Object attr = testContext.getSuite().getAttribute(SuiteAttribute.GML_DOCUMENT.getName());
+		if (!(attr instanceof GmlDocument)) {
+			return;
+		}
+		GmlDocument gmlDoc = (GmlDocument) attr;
+		if (gmlDoc.getMemoryPolicy() == MemoryPolicy.DROP && gmlDoc.isLoaded()) {
+			gmlDoc.release();
+		}
+	}
+
+}
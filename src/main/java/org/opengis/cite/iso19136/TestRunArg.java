@@ -20,13 +20,42 @@ public enum TestRunArg {
 	 */
 	SCH,
 	/**
-	 * An absolute URI referring to a GML data resource.
+	 * An absolute URI referring to a GML data resource. The resource may be compressed
+	 * (gzip, bzip2) or be a zip archive containing the data and its schemas.
 	 */
 	GML,
 	/**
 	 * Version of GML to be tested, e.g. 3.2.1 or 3.2.2
 	 */
-	VERSION;
+	VERSION,
+	/**
+	 * Determines how long the parsed GML document is kept in memory: "keep" (default),
+	 * "drop" (after the data tests have run), "spill" (reclaimable; reloaded from disk),
+	 * or "stream" (geometry elements are read one at a time from disk).
+	 */
+	MEMORY_POLICY,
+	/**
+	 * Determines how the parsed GML document is represented in memory: "dom" (default)
+	 * or "tinytree" (a compact Saxon tree; XPath expressions are evaluated natively).
+	 */
+	DOCUMENT_MODEL,
+	/**
+	 * The maximum time (in seconds) allowed for compiling the application schema(s);
+	 * 0 means no limit. The default is 60 s.
+	 */
+	COMPILE_TIMEOUT,
+	/**
+	 * The time (in seconds) after which the compilation of the application schema(s) is
+	 * abandoned if no progress is made (no schema content read, no grammar built); 0
+	 * means no limit. The default is 30 s.
+	 */
+	COMPILE_IDLE_TIMEOUT,
+	/**
+	 * The number of threads used to validate the members of a feature collection against
+	 * the application schema(s); 0 means one thread per processor. The default is 1 (the
+	 * whole document is validated on one thread).
+	 */
+	VALIDATION_THREADS;
 
 	@Override
 	public String toString() {
@@ -7,16 +7,13 @@ import javax.xml.namespace.QName;
 
 import org.apache.xerces.xs.XSComplexTypeDefinition;
 import org.apache.xerces.xs.XSElementDeclaration;
-import org.apache.xerces.xs.XSModel;
 import org.apache.xerces.xs.XSTypeDefinition;
 import org.opengis.cite.iso19136.ETSAssert;
 import org.opengis.cite.iso19136.ErrorMessage;
 import org.opengis.cite.iso19136.ErrorMessageKeys;
 import org.opengis.cite.iso19136.GML32;
-import org.opengis.cite.iso19136.SuiteAttribute;
-import org.opengis.cite.iso19136.general.AppSchemaInfo;
+import org.opengis.cite.iso19136.general.GMLObjectType;
 import org.opengis.cite.iso19136.general.SchemaModelFixture;
-import org.opengis.cite.iso19136.util.FeatureTypeFilter;
 import org.opengis.cite.iso19136.util.XMLSchemaModelUtils;
 import org.testng.Assert;
 import org.testng.ITestContext;
@@ -54,19 +51,14 @@ public class FeatureComponentTests extends SchemaModelFixture {
 	 */
 	@BeforeTest
 	public void hasFeatureComponents(ITestContext testContext) {
-		if (null == this.model) {
-			this.model = (XSModel) testContext.getSuite().getAttribute(SuiteAttribute.XSMODEL.getName());
-		}
-		Set<XSComplexTypeDefinition> complexTypes = XMLSchemaModelUtils.getReferencedComplexTypeDefinitions(this.model);
-		FeatureTypeFilter typeFilter = new FeatureTypeFilter();
-		typeFilter.filterSet(complexTypes);
-		if (complexTypes.isEmpty()) {
+		obtainSchemaModel(testContext);
+		Set<XSComplexTypeDefinition> featureDefs = schemaFacts.getFeatureDefinitions();
+		if (featureDefs.isEmpty()) {
 			throw new SkipException("No GML feature type definitions found in schema.");
 		}
-		if (null == this.schemaInfo) {
-			this.schemaInfo = (AppSchemaInfo) testContext.getSuite().getAttribute(SuiteAttribute.SCHEMA_INFO.getName());
+		if (null != this.schemaInfo) {
+			this.schemaInfo.setFeatureDefinitions(featureDefs);
 		}
-		this.schemaInfo.setFeatureDefinitions(complexTypes);
 	}
 
 	/**
@@ -78,8 +70,8 @@ public class FeatureComponentTests extends SchemaModelFixture {
 	@Test(description = "See ISO 19136: A.1.1.15")
 	public void substitutesForAbstractFeature() {
 		// find all members of gml:AbstractFeature substitution group
-		List<XSElementDeclaration> gmlFeatures = XMLSchemaModelUtils.getFeatureDeclarations(this.model);
-		Set<XSComplexTypeDefinition> featureDefs = this.schemaInfo.getFeatureDefinitions();
+		List<XSElementDeclaration> gmlFeatures = schemaFacts.getDeclarations(GMLObjectType.FEATURE_TYPE);
+		Set<XSComplexTypeDefinition> featureDefs = schemaFacts.getFeatureDefinitions();
 		for (XSComplexTypeDefinition typeDef : featureDefs) {
 			List<XSElementDeclaration> features = XMLSchemaModelUtils.getGlobalElementsByType(this.model, typeDef);
 			for (XSElementDeclaration feature : features) {
@@ -7,13 +7,12 @@ import javax.xml.namespace.QName;
 
 import org.apache.xerces.xs.XSConstants;
 import org.apache.xerces.xs.XSElementDeclaration;
-import org.apache.xerces.xs.XSModel;
 import org.apache.xerces.xs.XSTypeDefinition;
 import org.opengis.cite.iso19136.ETSAssert;
 import org.opengis.cite.iso19136.ErrorMessage;
 import org.opengis.cite.iso19136.ErrorMessageKeys;
 import org.opengis.cite.iso19136.GML32;
-import org.opengis.cite.iso19136.SuiteAttribute;
+import org.opengis.cite.iso19136.general.GMLObjectType;
 import org.opengis.cite.iso19136.general.SchemaModelFixture;
 import org.opengis.cite.iso19136.util.XMLSchemaModelUtils;
 import org.testng.Assert;
@@ -59,23 +58,21 @@ public class GeometryComponentTests extends SchemaModelFixture {
 	 */
 	@BeforeTest
 	public void hasGeometryComponents(ITestContext testContext) {
-		if (null == this.model) {
-			this.model = (XSModel) testContext.getSuite().getAttribute(SuiteAttribute.XSMODEL.getName());
-		}
+		obtainSchemaModel(testContext);
 		this.gmlGeomBaseType = this.model.getTypeDefinition(GML32.ABSTRACT_GEOMETRY_TYPE, GML32.NS_NAME);
-		// types derived by extension from gml:AbstractGeometryType
-		List<XSElementDeclaration> geomElements = XMLSchemaModelUtils.getGlobalElementsByType(this.model,
-				gmlGeomBaseType);
-		XSTypeDefinition geomPropBaseType = this.model.getTypeDefinition(GML32.GEOM_PROP_TYPE, GML32.NS_NAME);
-		// types that restrict gml:GeometryPropertyType
-		Set<XSTypeDefinition> geomPropTypes = XMLSchemaModelUtils.getDerivedTypeDefinitions(this.model,
-				geomPropBaseType, XSConstants.DERIVATION_RESTRICTION);
 		this.abstractGmlGeom = this.model.getElementDeclaration(GML32.ABSTRACT_GEOMETRY, GML32.NS_NAME);
-		// implicit geometry properties
-		List<XSElementDeclaration> geomProps = XMLSchemaModelUtils.getImplicitProperties(this.model, abstractGmlGeom);
-		// explicit geometry properties
-		geomProps.addAll(XMLSchemaModelUtils.getExplicitGeometryProperties(this.model));
-		if (geomElements.isEmpty() && geomPropTypes.isEmpty() && geomProps.isEmpty()) {
+		if (declaresGMLObjects(GMLObjectType.GEOMETRY)) {
+			return;
+		}
+		XSTypeDefinition geomPropBaseType = this.model.getTypeDefinition(GML32.GEOM_PROP_TYPE, GML32.NS_NAME);
+		// types derived by extension from gml:AbstractGeometryType; types that restrict
+		// gml:GeometryPropertyType; implicit and explicit geometry properties
+		if (schemaFacts.getGlobalElementsByType(GML32.ABSTRACT_GEOMETRY_TYPE).isEmpty()
+				&& XMLSchemaModelUtils
+					.getDerivedTypeDefinitions(this.model, geomPropBaseType, XSConstants.DERIVATION_RESTRICTION)
+					.isEmpty()
+				&& schemaFacts.getImplicitProperties(GML32.ABSTRACT_GEOMETRY).isEmpty()
+				&& schemaFacts.getExplicitGeometryProperties().isEmpty()) {
 			throw new SkipException(ErrorMessage.get(ErrorMessageKeys.NO_USERDEF_GEOM));
 		}
 	}
@@ -89,7 +86,7 @@ public class GeometryComponentTests extends SchemaModelFixture {
 	@Test(description = "See ISO 19136: 21.4.2.1")
 	public void substitutesForGMLGeometry() {
 		// find all members of gml:AbstractGeometry substitution group
-		List<XSElementDeclaration> geometries = XMLSchemaModelUtils.getGeometryDeclarations(this.model);
+		List<XSElementDeclaration> geometries = schemaFacts.getDeclarations(GMLObjectType.GEOMETRY);
 		Set<XSTypeDefinition> geomTypeDefs = XMLSchemaModelUtils.getDerivedTypeDefinitions(this.model, gmlGeomBaseType,
 				XSConstants.DERIVATION_EXTENSION);
 		for (XSTypeDefinition typeDef : geomTypeDefs) {
@@ -119,8 +116,7 @@ public class GeometryComponentTests extends SchemaModelFixture {
 	 */
 	@Test(description = "See ISO 19136: 9.5, 21.4.2.2, A.1.1.10")
 	public void validateImplicitGeometryProperty() {
-		XSElementDeclaration geometry = this.model.getElementDeclaration(GML32.ABSTRACT_GEOMETRY, GML32.NS_NAME);
-		List<XSElementDeclaration> geomProps = XMLSchemaModelUtils.getImplicitProperties(model, geometry);
+		List<XSElementDeclaration> geomProps = schemaFacts.getImplicitProperties(GML32.ABSTRACT_GEOMETRY);
 		for (XSElementDeclaration prop : geomProps) {
 			ETSAssert.assertValidPropertyType(model, prop, abstractGmlGeom);
 		}
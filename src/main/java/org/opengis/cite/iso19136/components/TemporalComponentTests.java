@@ -7,13 +7,12 @@ import javax.xml.namespace.QName;
 
 import org.apache.xerces.xs.XSConstants;
 import org.apache.xerces.xs.XSElementDeclaration;
-import org.apache.xerces.xs.XSModel;
 import org.apache.xerces.xs.XSTypeDefinition;
 import org.opengis.cite.iso19136.ETSAssert;
 import org.opengis.cite.iso19136.ErrorMessage;
 import org.opengis.cite.iso19136.ErrorMessageKeys;
 import org.opengis.cite.iso19136.GML32;
-import org.opengis.cite.iso19136.SuiteAttribute;
+import org.opengis.cite.iso19136.general.GMLObjectType;
 import org.opengis.cite.iso19136.general.SchemaModelFixture;
 import org.opengis.cite.iso19136.util.XMLSchemaModelUtils;
 import org.testng.Assert;
@@ -58,16 +57,15 @@ public class TemporalComponentTests extends SchemaModelFixture {
 	 */
 	@BeforeTest
 	public void hasTemporalComponents(ITestContext testContext) {
-		if (null == this.model) {
-			this.model = (XSModel) testContext.getSuite().getAttribute(SuiteAttribute.XSMODEL.getName());
-		}
+		obtainSchemaModel(testContext);
 		timeBaseType = this.model.getTypeDefinition(GML32.ABSTRACT_TIME_TYPE, GML32.NS_NAME);
-		// types derived by extension from gml:AbstractTimeObjectType
-		List<XSElementDeclaration> timeElements = XMLSchemaModelUtils.getGlobalElementsByType(this.model, timeBaseType);
-		XSElementDeclaration abstractTime = this.model.getElementDeclaration(GML32.ABSTRACT_TIME, GML32.NS_NAME);
-		// implicit temporal property types
-		List<XSElementDeclaration> timeProps = XMLSchemaModelUtils.getImplicitProperties(this.model, abstractTime);
-		if (timeElements.isEmpty() && timeProps.isEmpty()) {
+		if (declaresGMLObjects(GMLObjectType.TIME)) {
+			return;
+		}
+		// types derived by extension from gml:AbstractTimeObjectType; implicit temporal
+		// property types
+		if (schemaFacts.getGlobalElementsByType(GML32.ABSTRACT_TIME_TYPE).isEmpty()
+				&& schemaFacts.getImplicitProperties(GML32.ABSTRACT_TIME).isEmpty()) {
 			throw new SkipException("No temporal (property) components found in schema.");
 		}
 	}
@@ -80,7 +78,7 @@ public class TemporalComponentTests extends SchemaModelFixture {
 	 */
 	@Test(description = "See ISO 19136: 21.6.2.1")
 	public void substitutesForAbstractTimeObject() {
-		List<XSElementDeclaration> timeElems = XMLSchemaModelUtils.getTimeObjectDeclarations(this.model);
+		List<XSElementDeclaration> timeElems = schemaFacts.getDeclarations(GMLObjectType.TIME);
 		Set<XSTypeDefinition> timeTypeDefs = XMLSchemaModelUtils.getDerivedTypeDefinitions(this.model, timeBaseType,
 				XSConstants.DERIVATION_EXTENSION);
 		for (XSTypeDefinition typeDef : timeTypeDefs) {
@@ -109,8 +107,7 @@ public class TemporalComponentTests extends SchemaModelFixture {
 	 */
 	@Test(description = "See ISO 19136: 9.7, 21.6.2.2, A.1.1.12")
 	public void validateImplicitTemporalProperty() {
-		XSElementDeclaration temporal = this.model.getElementDeclaration(GML32.ABSTRACT_TIME, GML32.NS_NAME);
-		List<XSElementDeclaration> timeProps = XMLSchemaModelUtils.getImplicitProperties(model, temporal);
+		List<XSElementDeclaration> timeProps = schemaFacts.getImplicitProperties(GML32.ABSTRACT_TIME);
 		for (XSElementDeclaration prop : timeProps) {
 			ETSAssert.assertValidPropertyType(this.model, prop, null);
 		}
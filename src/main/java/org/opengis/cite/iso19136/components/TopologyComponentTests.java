@@ -7,13 +7,12 @@ import javax.xml.namespace.QName;
 
 import org.apache.xerces.xs.XSConstants;
 import org.apache.xerces.xs.XSElementDeclaration;
-import org.apache.xerces.xs.XSModel;
 import org.apache.xerces.xs.XSTypeDefinition;
 import org.opengis.cite.iso19136.ETSAssert;
 import org.opengis.cite.iso19136.ErrorMessage;
 import org.opengis.cite.iso19136.ErrorMessageKeys;
 import org.opengis.cite.iso19136.GML32;
-import org.opengis.cite.iso19136.SuiteAttribute;
+import org.opengis.cite.iso19136.general.GMLObjectType;
 import org.opengis.cite.iso19136.general.SchemaModelFixture;
 import org.opengis.cite.iso19136.util.XMLSchemaModelUtils;
 import org.testng.Assert;
@@ -55,16 +54,15 @@ public class TopologyComponentTests extends SchemaModelFixture {
 	 */
 	@BeforeTest
 	public void hasTopologyComponents(ITestContext testContext) {
-		if (null == this.model) {
-			this.model = (XSModel) testContext.getSuite().getAttribute(SuiteAttribute.XSMODEL.getName());
-		}
+		obtainSchemaModel(testContext);
 		topoBaseType = this.model.getTypeDefinition(GML32.ABSTRACT_TOPO_TYPE, GML32.NS_NAME);
-		// types derived by extension from gml:AbstractTopologyType
-		List<XSElementDeclaration> topoElements = XMLSchemaModelUtils.getGlobalElementsByType(this.model, topoBaseType);
-		XSElementDeclaration abstractTopo = this.model.getElementDeclaration(GML32.ABSTRACT_TOPO, GML32.NS_NAME);
-		// implicit topology property types
-		List<XSElementDeclaration> topoProps = XMLSchemaModelUtils.getImplicitProperties(this.model, abstractTopo);
-		if (topoElements.isEmpty() && topoProps.isEmpty()) {
+		if (declaresGMLObjects(GMLObjectType.TOPOLOGY)) {
+			return;
+		}
+		// types derived by extension from gml:AbstractTopologyType; implicit topology
+		// property types
+		if (schemaFacts.getGlobalElementsByType(GML32.ABSTRACT_TOPO_TYPE).isEmpty()
+				&& schemaFacts.getImplicitProperties(GML32.ABSTRACT_TOPO).isEmpty()) {
 			throw new SkipException("No GML topology (property) components found in schema.");
 		}
 	}
@@ -77,7 +75,7 @@ public class TopologyComponentTests extends SchemaModelFixture {
 	 */
 	@Test(description = "See ISO 19136: 21.5.2.1")
 	public void substitutesForGMLTopology() {
-		List<XSElementDeclaration> topoElems = XMLSchemaModelUtils.getTopologyDeclarations(this.model);
+		List<XSElementDeclaration> topoElems = schemaFacts.getDeclarations(GMLObjectType.TOPOLOGY);
 		Set<XSTypeDefinition> topoTypeDefs = XMLSchemaModelUtils.getDerivedTypeDefinitions(this.model, topoBaseType,
 				XSConstants.DERIVATION_EXTENSION);
 		for (XSTypeDefinition typeDef : topoTypeDefs) {
@@ -106,8 +104,7 @@ public class TopologyComponentTests extends SchemaModelFixture {
 	 */
 	@Test(description = "See ISO 19136: 9.6, 21.5.2.2, A.1.1.11")
 	public void validateImplicitTopologyProperty() {
-		XSElementDeclaration topology = this.model.getElementDeclaration(GML32.ABSTRACT_TOPO, GML32.NS_NAME);
-		List<XSElementDeclaration> topoProps = XMLSchemaModelUtils.getImplicitProperties(model, topology);
+		List<XSElementDeclaration> topoProps = schemaFacts.getImplicitProperties(GML32.ABSTRACT_TOPO);
 		for (XSElementDeclaration prop : topoProps) {
 			ETSAssert.assertValidPropertyType(model, prop, null);
 		}
@@ -1,18 +1,32 @@
 package org.opengis.cite.iso19136.data;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.logging.Level;
 
 import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.transform.Source;
 
 import org.apache.xerces.xs.XSModel;
 import org.opengis.cite.iso19136.GML32;
 import org.opengis.cite.iso19136.SuiteAttribute;
+import org.opengis.cite.iso19136.util.GeometryIndex;
+import org.opengis.cite.iso19136.util.GeometryKind;
+import org.opengis.cite.iso19136.util.GmlDocument;
+import org.opengis.cite.iso19136.util.MemoryPolicy;
+import org.opengis.cite.iso19136.util.StreamingElementList;
+import org.opengis.cite.iso19136.util.TestSuiteLogger;
 import org.testng.Assert;
+import org.testng.ISuite;
 import org.testng.ITestContext;
 import org.testng.annotations.BeforeClass;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
 
 /**
  * A supporting base class that provides a common fixture for validating data sets. The
@@ -25,11 +39,23 @@ public class DataFixture {
 	 */
 	protected File dataFile;
 
+	/**
+	 * Provides shared access to the parsed GML document.
+	 */
+	protected GmlDocument gmlDocument;
+
 	/**
 	 * An XSModel object representing a GML application schema.
 	 */
 	protected XSModel model;
 
+	/**
+	 * An index of the geometry elements occurring in the GML data.
+	 */
+	protected GeometryIndex geometryIndex;
+
+	private ISuite suite;
+
 	public DataFixture() {
 	}
 
@@ -44,6 +70,10 @@ public class DataFixture {
 	 * <li>Obtain the schema model from the test context. The suite attribute
 	 * {@link org.opengis.cite.iso19136.SuiteAttribute#XSMODEL model} should evaluate to
 	 * an {@code XSModel} object representing the GML application schema.</li>
+	 * <li>Obtain the shared document from the test context. The suite attribute
+	 * {@link org.opengis.cite.iso19136.SuiteAttribute#GML_DOCUMENT} should evaluate to a
+	 * {@code GmlDocument} object that wraps the data file; if it is not set a new one is
+	 * created.</li>
 	 * </ol>
 	 * @param testContext The test (group) context.
 	 */
@@ -51,8 +81,18 @@ public class DataFixture {
 	public void initDataFixture(ITestContext testContext) {
 		Assert.assertTrue(testContext.getSuite().getAttributeNames().contains(SuiteAttribute.GML.getName()),
 				"No GML data to validate.");
+		this.suite = testContext.getSuite();
 		this.dataFile = (File) testContext.getSuite().getAttribute(SuiteAttribute.GML.getName());
 		this.model = (XSModel) testContext.getSuite().getAttribute(SuiteAttribute.XSMODEL.getName());
+		Object gmlDoc = testContext.getSuite().getAttribute(SuiteAttribute.GML_DOCUMENT.getName());
+		if (gmlDoc instanceof GmlDocument) {
+			this.gmlDocument = (GmlDocument) gmlDoc;
+		}
+		else {
+			this.gmlDocument = new GmlDocument(this.dataFile);
+		}
+		this.geometryIndex = (GeometryIndex) testContext.getSuite()
+			.getAttribute(SuiteAttribute.GEOMETRY_INDEX.getName());
 	}
 
 	/**
@@ -62,6 +102,17 @@ public class DataFixture {
 	 */
 	public void setDataFile(File dataFile) {
 		this.dataFile = dataFile;
+		this.gmlDocument = new GmlDocument(dataFile);
+		this.geometryIndex = null;
+	}
+
+	/**
+	 * Returns the parsed GML document. The document tree is shared by all test classes
+	 * and must not be modified.
+	 * @return A DOM Document node representing the GML data.
+	 */
+	protected Document getDocument() {
+		return this.gmlDocument.getDocument();
 	}
 
 	/**
@@ -70,6 +121,80 @@ public class DataFixture {
 	 */
 	public void setSchemaModel(XSModel xsModel) {
 		this.model = xsModel;
+		this.geometryIndex = null;
+	}
+
+	/**
+	 * Returns the index of geometry elements occurring in the GML data. The index is
+	 * built on first use in a single pass over the data, and is then shared with other
+	 * test classes as the value of the suite attribute
+	 * {@link org.opengis.cite.iso19136.SuiteAttribute#GEOMETRY_INDEX}.
+	 * @return A GeometryIndex object.
+	 */
+	protected GeometryIndex getGeometryIndex() {
+		if (null == this.geometryIndex) {
+			try {
+				this.geometryIndex = GeometryIndex.build(openDataStream(), this.model);
+			}
+			catch (XMLStreamException | IOException e) {
+				throw new RuntimeException("Failed to index geometry elements in " + this.dataFile, e);
+			}
+			TestSuiteLogger.log(Level.FINE, this.geometryIndex.toString());
+			TestSuiteLogger.log(Level.FINE, this.geometryIndex.getIdIndex().toString());
+			if (null != this.suite) {
+				this.suite.setAttribute(SuiteAttribute.GEOMETRY_INDEX.getName(), this.geometryIndex);
+			}
+		}
+		return this.geometryIndex;
+	}
+
+	/**
+	 * Opens a stream for reading the GML data. The content is read from a shared,
+	 * memory-mapped view of the data file.
+	 * @return An InputStream positioned at the beginning of the data.
+	 * @throws IOException If the data file cannot be read.
+	 */
+	protected InputStream openDataStream() throws IOException {
+		return this.gmlDocument.getDataSource().openStream();
+	}
+
+	/**
+	 * Returns a Source for reading the GML data (see {@link #openDataStream()}). Its
+	 * system identifier refers to the data file.
+	 * @return A Source object.
+	 * @throws IOException If the data file cannot be read.
+	 */
+	protected Source getDataSource() throws IOException {
+		return this.gmlDocument.getDataSource().getSource();
+	}
+
+	/**
+	 * Returns the system identifier of the GML data, against which relative references
+	 * are resolved. It refers to the archive entry if the data was read from a zip
+	 * archive.
+	 * @return An absolute URI reference.
+	 */
+	protected String getDataSystemId() {
+		return this.gmlDocument.getDataSource().getSystemId();
+	}
+
+	/**
+	 * Finds all geometry elements of the given kind in the GML document. If the memory
+	 * policy is {@link MemoryPolicy#STREAM}, the elements are read from the data file one
+	 * subtree at a time (and must be accessed in document order); the complete document
+	 * tree is not built, and references to elements outside of a subtree are resolved
+	 * using the index of gml:id values.
+	 * @param kind The kind of geometry element.
+	 * @return A NodeList containing the matching elements in document order (it may be
+	 * empty).
+	 */
+	protected NodeList findGeometryElements(GeometryKind kind) {
+		GeometryIndex index = getGeometryIndex();
+		if (this.gmlDocument.getMemoryPolicy() == MemoryPolicy.STREAM) {
+			return new StreamingElementList(this.gmlDocument.getDataSource(), index.getElementNames(kind),
+					index.count(kind), index.getIdIndex());
+		}
+		return index.findElements(getDocument(), kind);
 	}
 
 	/**
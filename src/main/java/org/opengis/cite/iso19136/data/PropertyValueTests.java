@@ -1,9 +1,7 @@
 package org.opengis.cite.iso19136.data;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
-import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
 import java.util.logging.Level;
@@ -17,10 +15,6 @@ import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.events.Attribute;
 import javax.xml.stream.events.StartElement;
 import javax.xml.stream.events.XMLEvent;
-import javax.xml.transform.Source;
-import javax.xml.transform.stream.StreamSource;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpressionException;
 
 import org.opengis.cite.iso19136.ETSAssert;
 import org.opengis.cite.iso19136.ErrorMessage;
@@ -28,10 +22,9 @@ import org.opengis.cite.iso19136.ErrorMessageKeys;
 import org.opengis.cite.iso19136.GML32;
 import org.opengis.cite.iso19136.Namespaces;
 import org.opengis.cite.iso19136.util.TestSuiteLogger;
-import org.opengis.cite.iso19136.util.XMLUtils;
+import org.opengis.cite.iso19136.util.URIUtils;
 import org.testng.Assert;
 import org.testng.annotations.Test;
-import org.w3c.dom.NodeList;
 
 import jakarta.ws.rs.core.MediaType;
 
@@ -53,23 +46,29 @@ public class PropertyValueTests extends DataFixture {
 	 * <ul>
 	 * <li>ISO 19136:2007, cl. 9.4.2: locationName, locationReference</li>
 	 * </ul>
-	 * @throws FileNotFoundException If no data file is found.
-	 * @throws MalformedURLException If the codeSpace value is a malformed URL.
+	 * @throws IOException If the data cannot be read or a codeSpace value is a malformed
+	 * URL.
 	 */
 	@Test(description = "See ISO 19136: 9.4.2")
-	public void validateLocationName() throws FileNotFoundException, MalformedURLException {
-		Source source = new StreamSource(this.dataFile);
-		String xpath = "//gml:locationName/@codeSpace";
-		NodeList codeSpaceList;
-		try {
-			codeSpaceList = (NodeList) XMLUtils.evaluateXPath(source, xpath, null, XPathConstants.NODESET);
-		}
-		catch (XPathExpressionException xpe) {
-			throw new RuntimeException(xpe);
+	public void validateLocationName() throws IOException {
+		QName codeSpace = new QName("codeSpace");
+		try (InputStream inStream = openDataStream()) {
+			XMLEventReader reader = factory.createFilteredReader(factory.createXMLEventReader(inStream),
+					new GMLEventFilter("locationName"));
+			try {
+				while (reader.hasNext()) {
+					Attribute attr = reader.nextEvent().asStartElement().getAttributeByName(codeSpace);
+					if (null != attr) {
+						ETSAssert.assertURLIsResolvable(new URL(attr.getValue()), null);
+					}
+				}
+			}
+			finally {
+				reader.close();
+			}
 		}
-		for (int i = 0; i < codeSpaceList.getLength(); i++) {
-			URL url = new URL(codeSpaceList.item(i).getTextContent());
-			ETSAssert.assertURLIsResolvable(url, null);
+		catch (XMLStreamException e) {
+			throw new AssertionError(ErrorMessage.format(ErrorMessageKeys.XML_ERROR, e.getMessage()));
 		}
 	}
 
@@ -84,12 +83,12 @@ public class PropertyValueTests extends DataFixture {
 	 * <ul>
 	 * <li>ISO 19136:2007, cl. 9.4.2: locationName, locationReference</li>
 	 * </ul>
-	 * @throws FileNotFoundException If no data file is found.
-	 * @throws MalformedURLException If a location reference is a malformed URL.
+	 * @throws IOException If the data cannot be read or a location reference is a
+	 * malformed URL.
 	 */
 	@Test(description = "See ISO 19136: 9.4.2")
-	public void validateLocationReference() throws FileNotFoundException, MalformedURLException {
-		InputStream inStream = new FileInputStream(this.dataFile);
+	public void validateLocationReference() throws IOException {
+		InputStream inStream = openDataStream();
 		XMLEventReader reader = null;
 		try {
 			XMLEventReader baseReader = factory.createXMLEventReader(inStream);
@@ -102,7 +101,7 @@ public class PropertyValueTests extends DataFixture {
 						locationRef.getLocation().toString()));
 				URI uri = URI.create(href.getValue());
 				if (!uri.isAbsolute()) {
-					uri = this.dataFile.toURI().resolve(uri);
+					uri = URIUtils.resolveRelativeURI(getDataSystemId(), href.getValue());
 				}
 				ETSAssert.assertURLIsResolvable(uri.toURL(), MediaType.TEXT_PLAIN_TYPE);
 			}
@@ -1,7 +1,8 @@
 package org.opengis.cite.iso19136.data;
 
 import java.io.File;
-import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URL;
 import java.util.HashMap;
@@ -12,19 +13,21 @@ import java.util.logging.Level;
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.Result;
-import javax.xml.transform.Source;
-import javax.xml.transform.stream.StreamSource;
+
+import net.sf.saxon.s9api.XdmNode;
+import net.sf.saxon.s9api.XsltExecutable;
 
 import org.opengis.cite.iso19136.ETSAssert;
-import org.opengis.cite.iso19136.ErrorMessage;
-import org.opengis.cite.iso19136.ErrorMessageKeys;
 import org.opengis.cite.iso19136.Namespaces;
 import org.opengis.cite.iso19136.SuiteAttribute;
 import org.opengis.cite.iso19136.TestRunArg;
+import org.opengis.cite.iso19136.util.DocumentModel;
+import org.opengis.cite.iso19136.util.MappedDataSource;
+import org.opengis.cite.iso19136.util.MemoryPolicy;
+import org.opengis.cite.iso19136.util.SaxonXPath;
+import org.opengis.cite.iso19136.util.SchematronCache;
+import org.opengis.cite.iso19136.util.StreamingSchematronValidator;
 import org.opengis.cite.iso19136.util.TestSuiteLogger;
-import org.opengis.cite.iso19136.util.XMLUtils;
-import org.opengis.cite.validation.SchematronValidator;
-import org.testng.Assert;
 import org.testng.ITestContext;
 import org.testng.SkipException;
 import org.testng.annotations.BeforeClass;
@@ -73,7 +76,9 @@ import org.testng.log4testng.Logger;
  */
 public class SchematronTests extends DataFixture {
 
-	private SchematronValidator dataValidator;
+	private XsltExecutable dataValidator;
+
+	private StreamingSchematronValidator streamingValidator;
 
 	/**
 	 * Attempts to construct a Schematron validator from a schema reference given in (a)
@@ -82,10 +87,9 @@ public class SchematronTests extends DataFixture {
 	 */
 	@BeforeClass
 	public void createSchematronValidator(ITestContext testContext) {
-		Map<String, String> piData = getXmlModelPIData(this.dataFile);
+		Map<String, String> piData = getXmlModelPIData(this.gmlDocument.getDataSource());
 		String phase = "#ALL";
-		URI schematronURI;
-		Source schema = null;
+		URI schematronURI = null;
 		if (isSchematronReference(piData)) {
 			schematronURI = URI.create(piData.get("href"));
 			if (!schematronURI.isAbsolute()) {
@@ -94,7 +98,6 @@ public class SchematronTests extends DataFixture {
 				URI baseURI = URI.create(dataURI);
 				schematronURI = baseURI.resolve(schematronURI);
 			}
-			schema = new StreamSource(schematronURI.toString());
 			if (piData.containsKey("phase"))
 				phase = piData.get("phase");
 		}
@@ -102,12 +105,16 @@ public class SchematronTests extends DataFixture {
 			Set<String> suiteAttrs = testContext.getSuite().getAttributeNames();
 			if (suiteAttrs.contains(SuiteAttribute.SCHEMATRON.getName())) {
 				schematronURI = (URI) testContext.getSuite().getAttribute(SuiteAttribute.SCHEMATRON.getName());
-				schema = new StreamSource(schematronURI.toString());
 			}
 		}
-		if (null != schema) {
+		if (null != schematronURI) {
 			try {
-				this.dataValidator = new SchematronValidator(schema, phase);
+				if (this.gmlDocument.getMemoryPolicy() == MemoryPolicy.STREAM) {
+					this.streamingValidator = new StreamingSchematronValidator(schematronURI.toURL(), phase);
+				}
+				else {
+					this.dataValidator = SchematronCache.compile(schematronURI.toURL(), phase);
+				}
 			}
 			catch (Exception e) {
 				Logger.getLogger(getClass()).warn("Failed to create SchematronValidator.\n", e);
@@ -126,40 +133,74 @@ public class SchematronTests extends DataFixture {
 	 * <li><a href= "http://schemas.opengis.net/gml/3.2.1/SchematronConstraints.xml">
 	 * Schematron constraints for ISO 19136</a></li>
 	 * </ul>
+	 * @throws IOException If the GML data cannot be read.
 	 */
 	@Test(description = "Checks general Schematron rules specified in ISO 19136")
-	public void checkGMLSchematronConstraints() {
+	public void checkGMLSchematronConstraints() throws IOException {
 		URL schRef = this.getClass().getResource("/org/opengis/cite/iso19136/sch/gml-3.2.1.sch");
-		ETSAssert.assertSchematronValid(schRef, new StreamSource(this.dataFile));
+		assertSchematronValid(schRef);
 	}
 
 	/**
 	 * [{@code Test}] Checks for the presence of any deprecated GML elements. A warning is
 	 * issued for each occurrence.
+	 * @throws IOException If the GML data cannot be read.
 	 *
 	 * @see "ISO 19136, Annex I: Backwards compatibility with earlier versions of GML"
 	 */
 	@Test(description = "See ISO 19136: Annex I")
-	public void checkForDeprecatedGMLElements() {
+	public void checkForDeprecatedGMLElements() throws IOException {
 		URL schRef = this.getClass().getResource("/org/opengis/cite/iso19136/sch/gml-deprecated-3.2.1.sch");
-		ETSAssert.assertSchematronValid(schRef, new StreamSource(this.dataFile));
+		assertSchematronValid(schRef);
 	}
 
 	/**
 	 * [{@code Test}] Validates a GML document against a set of Schematron constraints
 	 * associated with it using either the {@code xml-model} processing instruction or the
 	 * {@code sch} test run argument.
+	 * @throws IOException If the GML data cannot be read.
 	 */
 	@Test(description = "Checks application-specific Schematron rules")
-	public void checkSchematronConstraints() {
-		if (null == this.dataValidator) {
+	public void checkSchematronConstraints() throws IOException {
+		Result result;
+		if (null != this.streamingValidator) {
+			result = streamingValidator.validate(this.gmlDocument.getDataSource());
+		}
+		else if (null != this.dataValidator) {
+			result = SchematronCache.validate(dataValidator, getSchematronTree());
+		}
+		else {
 			throw new SkipException("Schematron schema reference not found.");
 		}
-		Source gmlSource = new StreamSource(this.dataFile);
-		Result result = dataValidator.validate(gmlSource);
-		Assert.assertFalse(dataValidator.ruleViolationsDetected(),
-				ErrorMessage.format(ErrorMessageKeys.NOT_SCHEMA_VALID, dataValidator.getRuleViolationCount(),
-						XMLUtils.resultToString(result)));
+		ETSAssert.assertNoRuleViolations(result);
+	}
+
+	/**
+	 * Checks the GML data against one of the built-in Schematron schemas. If the document
+	 * may not be retained in memory, the rules that only refer to the neighborhood of
+	 * their context elements are checked while the data is streamed; otherwise the rules
+	 * are evaluated over the shared document tree.
+	 * @param schRef A URL that denotes the location of a Schematron schema.
+	 * @throws IOException If the GML data cannot be read.
+	 */
+	private void assertSchematronValid(URL schRef) throws IOException {
+		if (this.gmlDocument.getMemoryPolicy() == MemoryPolicy.STREAM) {
+			ETSAssert.assertSchematronValid(schRef, this.gmlDocument.getDataSource());
+		}
+		else {
+			ETSAssert.assertSchematronValid(schRef, getSchematronTree());
+		}
+	}
+
+	/**
+	 * Returns the document node against which the Schematron rule sets are evaluated. It
+	 * presents the shared document tree (of either {@link DocumentModel}) to the Saxon
+	 * processor that runs the compiled schemas, so all rule sets are evaluated against
+	 * the same tree: the data is parsed at most once, and the tree is never copied.
+	 * @return An XdmNode representing the GML document.
+	 */
+	XdmNode getSchematronTree() {
+		return SaxonXPath.toXdmNode(getDocument());
 	}
 
 	/**
@@ -183,11 +224,22 @@ public class SchematronTests extends DataFixture {
 	 * is not present.
 	 */
 	Map<String, String> getXmlModelPIData(File dataFile) {
+		return getXmlModelPIData(new MappedDataSource(dataFile));
+	}
+
+	/**
+	 * Extracts the data items from the {@code xml-model} processing instruction. The PI
+	 * must appear before the document element.
+	 * @param dataSource The source of the GML instance.
+	 * @return A Map containing the supplied pseudo-attributes, or {@code null} if the PI
+	 * is not present.
+	 */
+	Map<String, String> getXmlModelPIData(MappedDataSource dataSource) {
 		Map<String, String> piData = null;
 		XMLStreamReader reader = null;
-		FileInputStream input = null;
+		InputStream input = null;
 		try {
-			input = new FileInputStream(dataFile);
+			input = dataSource.openStream();
 			XMLInputFactory factory = XMLInputFactory.newInstance();
 			reader = factory.createXMLStreamReader(input);
 			int event = reader.getEventType();
@@ -208,7 +260,8 @@ public class SchematronTests extends DataFixture {
 			}
 		}
 		catch (Exception e) {
-			TestSuiteLogger.log(Level.WARNING, "Failed to parse document at " + dataFile.getAbsolutePath(), e);
+			TestSuiteLogger.log(Level.WARNING,
+					"Failed to parse document at " + dataSource.getFile().getAbsolutePath(), e);
 			return null; // not an XML document
 		}
 		finally {
@@ -1,13 +1,14 @@
 package org.opengis.cite.iso19136.data;
 
 import java.io.IOException;
-import javax.xml.transform.stream.StreamSource;
+import javax.xml.transform.Source;
 import javax.xml.validation.Schema;
 import javax.xml.validation.Validator;
 
 import org.opengis.cite.iso19136.ErrorMessage;
 import org.opengis.cite.iso19136.ErrorMessageKeys;
 import org.opengis.cite.iso19136.SuiteAttribute;
+import org.opengis.cite.iso19136.util.ParallelSchemaValidator;
 import org.opengis.cite.validation.ValidationErrorHandler;
 import org.testng.Assert;
 import org.testng.ITestContext;
@@ -32,6 +33,11 @@ public class XMLSchemaValidationTests extends DataFixture {
 	 */
 	private Schema appSchema;
 
+	/**
+	 * The number of threads used for validation.
+	 */
+	private int threadCount = 1;
+
 	/**
 	 * Obtains the GML application schema from the ISuite context. The value of the
 	 * {@link org.opengis.cite.iso19136.SuiteAttribute#SCHEMA} attribute is expected to be
@@ -41,11 +47,16 @@ public class XMLSchemaValidationTests extends DataFixture {
 	@BeforeClass
 	public void getXMLSchema(ITestContext testContext) {
 		this.appSchema = (Schema) testContext.getSuite().getAttribute(SuiteAttribute.SCHEMA.getName());
+		Object threads = testContext.getSuite().getAttribute(SuiteAttribute.VALIDATION_THREADS.getName());
+		if (threads instanceof Integer) {
+			this.threadCount = (Integer) threads;
+		}
 	}
 
 	/**
 	 * [{@code Test}] Verifies that a GML instance is valid with respect to its
-	 * application schema.
+	 * application schema. If several threads may be used, the members of a feature
+	 * collection are validated concurrently (see {@link ParallelSchemaValidator}).
 	 *
 	 * <p style="margin-bottom: 0.5em">
 	 * <strong>Sources</strong>
@@ -54,17 +65,25 @@ public class XMLSchemaValidationTests extends DataFixture {
 	 * <li>ISO 19136:2007, cl. A.3.4: Valid XML</li>
 	 * </ul>
 	 * @throws SAXException If a fatal error occurs (e.g. instance is not well-formed).
+	 * @throws IOException If the GML data cannot be read.
 	 */
 	@Test(description = "See ISO 19136: A.3.4")
-	public void isXMLSchemaValid() throws SAXException {
-		Validator validator = this.appSchema.newValidator();
+	public void isXMLSchemaValid() throws SAXException, IOException {
 		ValidationErrorHandler errHandler = new ValidationErrorHandler();
-		validator.setErrorHandler(errHandler);
-		try {
-			validator.validate(new StreamSource(this.dataFile));
+		if (this.threadCount > 1) {
+			new ParallelSchemaValidator(this.appSchema, this.threadCount).validate(this.gmlDocument.getDataSource(),
+					errHandler);
 		}
-		catch (IOException e) {
-			// ignore--not processing a SAXSource here (see API documentation)
+		else {
+			Source gmlSource = getDataSource();
+			Validator validator = this.appSchema.newValidator();
+			validator.setErrorHandler(errHandler);
+			try {
+				validator.validate(gmlSource);
+			}
+			catch (IOException e) {
+				// ignore--not processing a SAXSource here (see API documentation)
+			}
 		}
 		Assert.assertFalse(errHandler.errorsDetected(), ErrorMessage.format(ErrorMessageKeys.NOT_SCHEMA_VALID,
 				errHandler.getErrorCount(), errHandler.toString()));
@@ -1,20 +1,11 @@
 package org.opengis.cite.iso19136.data.spatial;
 
-import java.util.ArrayList;
-import java.util.List;
-
-import javax.xml.namespace.QName;
-import javax.xml.transform.Source;
-import javax.xml.transform.stream.StreamSource;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpressionException;
-
 import org.opengis.cite.geomatics.gml.GmlUtils;
-import org.opengis.cite.iso19136.GML32;
 import org.opengis.cite.iso19136.data.DataFixture;
-import org.opengis.cite.iso19136.util.XMLUtils;
+import org.opengis.cite.iso19136.util.GeometryKind;
 import org.testng.Assert;
 import org.testng.SkipException;
+import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 import org.w3c.dom.Element;
@@ -38,8 +29,6 @@ public class CompositeCurveTests extends DataFixture {
 
 	NodeList curveNodes;
 
-	List<QName> curveElems = new ArrayList<QName>();
-
 	/**
 	 * A configuration method ({@code BeforeClass}) that looks for gml:CompositeCurve
 	 * elements in the GML document under test. If none are found all test methods defined
@@ -47,19 +36,20 @@ public class CompositeCurveTests extends DataFixture {
 	 */
 	@BeforeClass(alwaysRun = true)
 	public void findCompositeCurves() {
-		Source data = new StreamSource(this.dataFile);
-		this.curveElems.add(new QName(GML32.NS_NAME, GML32.COMP_CURVE));
-		String xpath = "//gml:CompositeCurve";
-		try {
-			this.curveNodes = (NodeList) XMLUtils.evaluateXPath(data, xpath, null, XPathConstants.NODESET);
-		}
-		catch (XPathExpressionException xpe) { // won't happen
-			throw new RuntimeException(xpe);
-		}
+		this.curveNodes = findGeometryElements(GeometryKind.COMPOSITE_CURVE);
 		if (this.curveNodes.getLength() == 0)
 			throw new SkipException("No gml:CompositeCurve elements found.");
 	}
 
+	/**
+	 * A configuration method ({@code AfterClass}) that discards references to nodes in
+	 * the shared GML document so that the document tree may be released.
+	 */
+	@AfterClass(alwaysRun = true)
+	public void clearNodes() {
+		this.curveNodes = null;
+	}
+
 	/**
 	 * [{@code Test}] Verifies that the component curves of a gml:CompositeCurve element
 	 * are connected.
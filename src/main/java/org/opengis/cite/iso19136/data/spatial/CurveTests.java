@@ -1,33 +1,21 @@
 package org.opengis.cite.iso19136.data.spatial;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 import java.util.logging.Level;
-import javax.xml.namespace.QName;
-import javax.xml.transform.Source;
-import javax.xml.transform.stream.StreamSource;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpressionException;
 
 import jakarta.xml.bind.JAXBElement;
 import jakarta.xml.bind.JAXBException;
 import jakarta.xml.bind.Unmarshaller;
 
-import org.apache.xerces.xs.XSElementDeclaration;
-import org.apache.sis.xml.MarshallerPool;
 import org.geotoolkit.gml.xml.v321.CurveType;
-import org.geotoolkit.gml.xml.GMLMarshallerPool;
 
 import org.opengis.cite.geomatics.gml.GmlUtils;
 import org.opengis.cite.iso19136.GML32;
 import org.opengis.cite.iso19136.data.DataFixture;
+import org.opengis.cite.iso19136.util.GeometryKind;
 import org.opengis.cite.iso19136.util.TestSuiteLogger;
-import org.opengis.cite.iso19136.util.XMLSchemaModelUtils;
-import org.opengis.cite.iso19136.util.XMLUtils;
 import org.testng.Assert;
 import org.testng.SkipException;
+import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 import org.w3c.dom.Element;
@@ -55,8 +43,6 @@ public class CurveTests extends DataFixture {
 
 	NodeList curveNodes;
 
-	List<QName> curveElems = new ArrayList<QName>();
-
 	/**
 	 * A configuration method ({@code BeforeClass}) that looks for gml:Curve elements in
 	 * the GML document under test. If none are found all test methods defined in the
@@ -64,28 +50,21 @@ public class CurveTests extends DataFixture {
 	 */
 	@BeforeClass(alwaysRun = true)
 	public void findCurves() {
-		Source data = new StreamSource(this.dataFile);
-		this.curveElems.add(new QName(GML32.NS_NAME, GML32.CURVE));
-		if (null != this.model) {
-			XSElementDeclaration gmlCurve = this.model.getElementDeclaration(GML32.CURVE, GML32.NS_NAME);
-			List<XSElementDeclaration> curveDecls = XMLSchemaModelUtils.getElementsByAffiliation(this.model, gmlCurve);
-			for (XSElementDeclaration decl : curveDecls) {
-				this.curveElems.add(new QName(decl.getNamespace(), decl.getName()));
-			}
-		}
-		Map<String, String> namespaceBindings = new HashMap<String, String>();
-		String xpath = generateXPathExpression(this.curveElems, namespaceBindings);
-		try {
-			this.curveNodes = (NodeList) XMLUtils.evaluateXPath(data, xpath, namespaceBindings, XPathConstants.NODESET);
-		}
-		catch (XPathExpressionException xpe) { // won't happen
-			throw new RuntimeException(xpe);
-		}
+		this.curveNodes = findGeometryElements(GeometryKind.CURVE);
 		if (this.curveNodes.getLength() == 0) {
 			throw new SkipException("No gml:Curve elements were found.");
 		}
 	}
 
+	/**
+	 * A configuration method ({@code AfterClass}) that discards references to nodes in
+	 * the shared GML document so that the document tree may be released.
+	 */
+	@AfterClass(alwaysRun = true)
+	public void clearNodes() {
+		this.curveNodes = null;
+	}
+
 	/**
 	 * [{@code Test}] Verifies that a gml:Curve element has a valid CRS reference.
 	 *
@@ -123,32 +102,37 @@ public class CurveTests extends DataFixture {
 	 */
 	@Test(description = "See ISO 19136: 10.4.5")
 	public void validCurveSegments() {
-		Unmarshaller gmlUnmarshaller;
+		UnmarshallerLease lease;
 		try {
-			MarshallerPool pool = GMLMarshallerPool.getInstance();
-			gmlUnmarshaller = pool.acquireUnmarshaller();
+			lease = UnmarshallerLease.acquire();
 		}
 		catch (JAXBException jxe) {
 			throw new RuntimeException(jxe);
 		}
-		for (int i = 0; i < this.curveNodes.getLength(); i++) {
-			Element curveElem = (Element) this.curveNodes.item(i);
-			GmlUtils.findCRSReference(curveElem);
-			GeometryAssert.assertAllCurveSegmentsHaveRequiredLength(curveElem);
-			GeometryAssert.assertCurveSegmentsAreConnected(curveElem);
-			CurveType curve;
-			try {
-				JAXBElement<CurveType> result = gmlUnmarshaller.unmarshal(curveElem, CurveType.class);
-				curve = result.getValue();
-			}
-			catch (JAXBException e) {
-				TestSuiteLogger.log(Level.WARNING, "Failed to unmarshal curve geometry.", e);
-				continue;
+		try {
+			Unmarshaller gmlUnmarshaller = lease.getUnmarshaller();
+			for (int i = 0; i < this.curveNodes.getLength(); i++) {
+				Element curveElem = (Element) this.curveNodes.item(i);
+				GmlUtils.findCRSReference(curveElem);
+				GeometryAssert.assertAllCurveSegmentsHaveRequiredLength(curveElem);
+				GeometryAssert.assertCurveSegmentsAreConnected(curveElem);
+				CurveType curve;
+				try {
+					JAXBElement<CurveType> result = gmlUnmarshaller.unmarshal(curveElem, CurveType.class);
+					curve = result.getValue();
+				}
+				catch (JAXBException e) {
+					TestSuiteLogger.log(Level.WARNING, "Failed to unmarshal curve geometry.", e);
+					continue;
+				}
+				int nSegments = curve.getSegments().getJbAbstractCurveSegment().size();
+				Assert.assertFalse(nSegments == 0, String.format("%s[@gml:id='%s'] has no curve segments.",
+						curveElem.getLocalName(), curveElem.getAttributeNS(GML32.NS_NAME, "id")));
+				GeometryAssert.assertGeometryCoveredByValidArea(curve);
 			}
-			int nSegments = curve.getSegments().getJbAbstractCurveSegment().size();
-			Assert.assertFalse(nSegments == 0, String.format("%s[@gml:id='%s'] has no curve segments.",
-					curveElem.getLocalName(), curveElem.getAttributeNS(GML32.NS_NAME, "id")));
-			GeometryAssert.assertGeometryCoveredByValidArea(curve);
+		}
+		finally {
+			lease.close();
 		}
 	}
 
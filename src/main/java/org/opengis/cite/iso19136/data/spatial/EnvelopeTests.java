@@ -1,6 +1,6 @@
 package org.opengis.cite.iso19136.data.spatial;
 
-import java.io.FileInputStream;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import javax.xml.namespace.QName;
@@ -9,18 +9,16 @@ import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamReader;
 
 import jakarta.xml.bind.JAXBElement;
-import jakarta.xml.bind.JAXBException;
 import jakarta.xml.bind.Unmarshaller;
 
 import org.apache.sis.geometry.GeneralEnvelope;
 import org.apache.sis.referencing.CRS;
-import org.apache.sis.xml.MarshallerPool;
 import org.geotoolkit.gml.xml.v321.EnvelopeType;
-import org.geotoolkit.gml.xml.GMLMarshallerPool;
 
 import org.opengis.cite.geomatics.GeodesyUtils;
 import org.opengis.cite.iso19136.GML32;
 import org.opengis.cite.iso19136.data.DataFixture;
+import org.opengis.cite.iso19136.util.GeometryKind;
 import org.opengis.geometry.DirectPosition;
 import org.opengis.geometry.Envelope;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
@@ -64,17 +62,13 @@ public class EnvelopeTests extends DataFixture {
 	@BeforeClass()
 	public void findEnvelopes() {
 		this.envelopes = new ArrayList<Envelope>();
-		Unmarshaller unmarshaller;
-		try {
-			MarshallerPool pool = GMLMarshallerPool.getInstance();
-			unmarshaller = pool.acquireUnmarshaller();
-		}
-		catch (JAXBException jxb) {
-			throw new RuntimeException(jxb);
+		if (getGeometryIndex().count(GeometryKind.ENVELOPE) == 0) {
+			throw new SkipException("No gml:Envelope elements found.");
 		}
 		XMLInputFactory factory = XMLInputFactory.newInstance();
 		factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
-		try (FileInputStream gmlData = new FileInputStream(this.dataFile)) {
+		try (UnmarshallerLease lease = UnmarshallerLease.acquire(); InputStream gmlData = openDataStream()) {
+			Unmarshaller unmarshaller = lease.getUnmarshaller();
 			XMLStreamReader reader = factory.createXMLStreamReader(gmlData, "UTF-8");
 			while (reader.hasNext()) {
 				int eventType = reader.next();
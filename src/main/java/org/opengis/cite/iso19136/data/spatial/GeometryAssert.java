@@ -10,17 +10,14 @@ import javax.xml.xpath.XPathExpressionException;
 
 import jakarta.xml.bind.JAXBElement;
 import jakarta.xml.bind.JAXBException;
-import jakarta.xml.bind.Unmarshaller;
 
 import org.apache.sis.referencing.CRS;
-import org.apache.sis.xml.MarshallerPool;
 import org.geotoolkit.gml.xml.AbstractRing;
 import org.geotoolkit.gml.xml.v321.AbstractCurveSegmentType;
 import org.geotoolkit.gml.xml.v321.AbstractCurveType;
 import org.geotoolkit.gml.xml.v321.AbstractGeometryType;
 import org.geotoolkit.gml.xml.v321.AbstractSurfaceType;
 import org.geotoolkit.gml.xml.v321.CurveType;
-import org.geotoolkit.gml.xml.GMLMarshallerPool;
 
 import org.locationtech.jts.algorithm.CGAlgorithms;
 import org.locationtech.jts.geom.Coordinate;
@@ -46,6 +43,7 @@ import org.opengis.referencing.crs.CoordinateReferenceSystem;
 import org.opengis.util.FactoryException;
 import org.testng.Assert;
 import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
 /**
@@ -56,21 +54,19 @@ public class GeometryAssert {
 
 	private static final Logger LOGR = Logger.getLogger(GeometryAssert.class.getPackage().getName());
 
-	private static final Unmarshaller GML_UNMARSHALLER = initGmlUnmarshaller();
-
-	private static Unmarshaller initGmlUnmarshaller() {
-		Unmarshaller unmarshaller = null;
-		try {
-			MarshallerPool pool = GMLMarshallerPool.getInstance();
-			unmarshaller = pool.acquireUnmarshaller();
-		}
-		catch (JAXBException je) {
-			throw new RuntimeException(je);
-		}
-		return unmarshaller;
+	private GeometryAssert() {
 	}
 
-	private GeometryAssert() {
+	/**
+	 * Unmarshals a GML element using an unmarshaller leased from the shared pool.
+	 * @param node A GML element.
+	 * @return The resulting content tree.
+	 * @throws JAXBException If the element cannot be unmarshalled.
+	 */
+	private static Object unmarshal(Node node) throws JAXBException {
+		try (UnmarshallerLease lease = UnmarshallerLease.acquire()) {
+			return lease.getUnmarshaller().unmarshal(node);
+		}
 	}
 
 	/**
@@ -191,7 +187,7 @@ public class GeometryAssert {
 		GmlUtils.findCRSReference(gmlCurve);
 		CurveType curve;
 		try {
-			JAXBElement<CurveType> result = (JAXBElement<CurveType>) GML_UNMARSHALLER.unmarshal(gmlCurve);
+			JAXBElement<CurveType> result = (JAXBElement<CurveType>) unmarshal(gmlCurve);
 			curve = result.getValue();
 		}
 		catch (JAXBException je) {
@@ -240,7 +236,7 @@ public class GeometryAssert {
 			GmlUtils.findCRSReference(curveElem);
 			JAXBElement<AbstractCurveType> curveType;
 			try {
-				curveType = (JAXBElement<AbstractCurveType>) GML_UNMARSHALLER.unmarshal(curveElem);
+				curveType = (JAXBElement<AbstractCurveType>) unmarshal(curveElem);
 			}
 			catch (JAXBException je) {
 				throw new RuntimeException(je);
@@ -314,8 +310,7 @@ public class GeometryAssert {
 		AbstractSurfaceType surfaceType = null;
 		try {
 			@SuppressWarnings("unchecked")
-			JAXBElement<AbstractSurfaceType> jaxbSurface = (JAXBElement<AbstractSurfaceType>) GML_UNMARSHALLER
-				.unmarshal(surfaceElem);
+			JAXBElement<AbstractSurfaceType> jaxbSurface = (JAXBElement<AbstractSurfaceType>) unmarshal(surfaceElem);
 			surfaceType = jaxbSurface.getValue();
 			extCoordList = coordFactory.createCoordinateList(surfaceType);
 		}
@@ -385,8 +380,7 @@ public class GeometryAssert {
 		for (int i = 0; i < exteriorProps.getLength(); i++) {
 			Element extRingElem = (Element) XMLUtils.getPropertyValue(exteriorProps.item(i));
 			try {
-				JAXBElement<AbstractRing> jaxbRing = (JAXBElement<AbstractRing>) GML_UNMARSHALLER
-					.unmarshal(extRingElem);
+				JAXBElement<AbstractRing> jaxbRing = (JAXBElement<AbstractRing>) unmarshal(extRingElem);
 				gmlRing = jaxbRing.getValue();
 				gmlRing.setSrsName(surfaceElem.getAttribute(GML32.SRS));
 			}
@@ -402,8 +396,7 @@ public class GeometryAssert {
 		for (int j = 0; j < interiorProps.getLength(); j++) {
 			Element intRingElem = (Element) XMLUtils.getPropertyValue(interiorProps.item(j));
 			try {
-				JAXBElement<AbstractRing> jaxbRing = (JAXBElement<AbstractRing>) GML_UNMARSHALLER
-					.unmarshal(intRingElem);
+				JAXBElement<AbstractRing> jaxbRing = (JAXBElement<AbstractRing>) unmarshal(intRingElem);
 				gmlRing = jaxbRing.getValue();
 				gmlRing.setSrsName(surfaceElem.getAttribute(GML32.SRS));
 			}
@@ -1,32 +1,20 @@
 package org.opengis.cite.iso19136.data.spatial;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 import java.util.logging.Level;
-import javax.xml.namespace.QName;
-import javax.xml.transform.Source;
-import javax.xml.transform.stream.StreamSource;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpressionException;
 
 import jakarta.xml.bind.JAXBElement;
 import jakarta.xml.bind.JAXBException;
 import jakarta.xml.bind.Unmarshaller;
 
-import org.apache.xerces.xs.XSElementDeclaration;
-import org.apache.sis.xml.MarshallerPool;
 import org.geotoolkit.gml.xml.v321.LineStringType;
-import org.geotoolkit.gml.xml.GMLMarshallerPool;
 
 import org.opengis.cite.geomatics.gml.GmlUtils;
 import org.opengis.cite.iso19136.GML32;
 import org.opengis.cite.iso19136.data.DataFixture;
+import org.opengis.cite.iso19136.util.GeometryKind;
 import org.opengis.cite.iso19136.util.TestSuiteLogger;
-import org.opengis.cite.iso19136.util.XMLSchemaModelUtils;
-import org.opengis.cite.iso19136.util.XMLUtils;
 import org.testng.SkipException;
+import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 import org.w3c.dom.Element;
@@ -51,8 +39,6 @@ public class LineStringTests extends DataFixture {
 
 	NodeList lineNodes;
 
-	List<QName> lineElems = new ArrayList<QName>();
-
 	/**
 	 * A configuration method ({@code BeforeClass}) that looks for gml:LineString elements
 	 * in the GML document under test. If none are found all test methods defined in the
@@ -60,28 +46,21 @@ public class LineStringTests extends DataFixture {
 	 */
 	@BeforeClass(alwaysRun = true)
 	public void findLineStrings() {
-		Source data = new StreamSource(this.dataFile);
-		this.lineElems.add(new QName(GML32.NS_NAME, GML32.LINE_STRING));
-		if (null != this.model) {
-			XSElementDeclaration gmlCurve = this.model.getElementDeclaration(GML32.LINE_STRING, GML32.NS_NAME);
-			List<XSElementDeclaration> lineDecls = XMLSchemaModelUtils.getElementsByAffiliation(this.model, gmlCurve);
-			for (XSElementDeclaration decl : lineDecls) {
-				this.lineElems.add(new QName(decl.getNamespace(), decl.getName()));
-			}
-		}
-		Map<String, String> namespaceBindings = new HashMap<String, String>();
-		String xpath = generateXPathExpression(this.lineElems, namespaceBindings);
-		try {
-			this.lineNodes = (NodeList) XMLUtils.evaluateXPath(data, xpath, namespaceBindings, XPathConstants.NODESET);
-		}
-		catch (XPathExpressionException xpe) { // won't happen
-			throw new RuntimeException(xpe);
-		}
+		this.lineNodes = findGeometryElements(GeometryKind.LINE_STRING);
 		if (this.lineNodes.getLength() == 0) {
 			throw new SkipException("No gml:Curve elements were found.");
 		}
 	}
 
+	/**
+	 * A configuration method ({@code AfterClass}) that discards references to nodes in
+	 * the shared GML document so that the document tree may be released.
+	 */
+	@AfterClass(alwaysRun = true)
+	public void clearNodes() {
+		this.lineNodes = null;
+	}
+
 	/**
 	 * [{@code Test}] Verifies that a gml:LineString element has a valid CRS reference.
 	 *
@@ -114,36 +93,41 @@ public class LineStringTests extends DataFixture {
 	 */
 	@Test(description = "See ISO 19136: 10.4.4")
 	public void validLineString() {
-		Unmarshaller gmlUnmarshaller;
+		UnmarshallerLease lease;
 		try {
-			MarshallerPool pool = GMLMarshallerPool.getInstance();
-			gmlUnmarshaller = pool.acquireUnmarshaller();
+			lease = UnmarshallerLease.acquire();
 		}
 		catch (JAXBException jxe) {
 			throw new RuntimeException(jxe);
 		}
-		for (int i = 0; i < this.lineNodes.getLength(); i++) {
-			Element lineElem = (Element) this.lineNodes.item(i);
-			GmlUtils.findCRSReference(lineElem);
-			GeometryAssert.assertAllCurveSegmentsHaveRequiredLength(lineElem);
-			LineStringType line;
-			try {
-				JAXBElement<LineStringType> result = gmlUnmarshaller.unmarshal(lineElem, LineStringType.class);
-				line = result.getValue();
-				// Set srsDimension from data file if present.
-				NodeList posList = lineElem.getElementsByTagNameNS(GML32.NS_NAME, "posList");
-				if (posList.getLength() > 0) {
-					Element pos = (Element) posList.item(0);
-					if (null != pos && pos.getAttribute("srsDimension") != "") {
-						line.setSrsDimension(Integer.valueOf(pos.getAttribute("srsDimension")));
+		try {
+			Unmarshaller gmlUnmarshaller = lease.getUnmarshaller();
+			for (int i = 0; i < this.lineNodes.getLength(); i++) {
+				Element lineElem = (Element) this.lineNodes.item(i);
+				GmlUtils.findCRSReference(lineElem);
+				GeometryAssert.assertAllCurveSegmentsHaveRequiredLength(lineElem);
+				LineStringType line;
+				try {
+					JAXBElement<LineStringType> result = gmlUnmarshaller.unmarshal(lineElem, LineStringType.class);
+					line = result.getValue();
+					// Set srsDimension from data file if present.
+					NodeList posList = lineElem.getElementsByTagNameNS(GML32.NS_NAME, "posList");
+					if (posList.getLength() > 0) {
+						Element pos = (Element) posList.item(0);
+						if (null != pos && pos.getAttribute("srsDimension") != "") {
+							line.setSrsDimension(Integer.valueOf(pos.getAttribute("srsDimension")));
+						}
 					}
 				}
+				catch (JAXBException e) {
+					TestSuiteLogger.log(Level.WARNING, "Failed to unmarshal LineString geometry.", e);
+					continue;
+				}
+				GeometryAssert.assertGeometryCoveredByValidArea(line);
 			}
-			catch (JAXBException e) {
-				TestSuiteLogger.log(Level.WARNING, "Failed to unmarshal LineString geometry.", e);
-				continue;
-			}
-			GeometryAssert.assertGeometryCoveredByValidArea(line);
+		}
+		finally {
+			lease.close();
 		}
 	}
 
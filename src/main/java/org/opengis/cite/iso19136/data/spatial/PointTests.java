@@ -1,18 +1,7 @@
 package org.opengis.cite.iso19136.data.spatial;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 import java.util.logging.Level;
 
-import javax.xml.namespace.QName;
-import javax.xml.transform.Source;
-import javax.xml.transform.stream.StreamSource;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpressionException;
-
-import org.apache.xerces.xs.XSElementDeclaration;
 import org.apache.sis.geometry.GeneralDirectPosition;
 import org.apache.sis.geometry.ImmutableEnvelope;
 import org.apache.sis.referencing.CRS;
@@ -23,13 +12,13 @@ import org.opengis.cite.iso19136.ErrorMessage;
 import org.opengis.cite.iso19136.ErrorMessageKeys;
 import org.opengis.cite.iso19136.GML32;
 import org.opengis.cite.iso19136.data.DataFixture;
+import org.opengis.cite.iso19136.util.GeometryKind;
 import org.opengis.cite.iso19136.util.TestSuiteLogger;
-import org.opengis.cite.iso19136.util.XMLSchemaModelUtils;
-import org.opengis.cite.iso19136.util.XMLUtils;
 import org.opengis.geometry.DirectPosition;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 import org.opengis.util.FactoryException;
 import org.testng.Assert;
+import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 import org.w3c.dom.Element;
@@ -52,8 +41,6 @@ public class PointTests extends DataFixture {
 
 	NodeList points;
 
-	List<QName> pointElems = new ArrayList<QName>();
-
 	/**
 	 * A configuration method ({@code BeforeClass}) that looks for gml:Point elements in
 	 * the GML document under test. If none are found all test methods defined in the
@@ -61,26 +48,19 @@ public class PointTests extends DataFixture {
 	 */
 	@BeforeClass
 	public void findPoints() {
-		Source data = new StreamSource(this.dataFile);
-		this.pointElems.add(new QName(GML32.NS_NAME, GML32.POINT));
-		if (null != this.model) {
-			XSElementDeclaration gmlPoint = this.model.getElementDeclaration(GML32.POINT, GML32.NS_NAME);
-			List<XSElementDeclaration> pointDecls = XMLSchemaModelUtils.getElementsByAffiliation(this.model, gmlPoint);
-			for (XSElementDeclaration decl : pointDecls) {
-				this.pointElems.add(new QName(decl.getNamespace(), decl.getName()));
-			}
-		}
-		Map<String, String> namespaceBindings = new HashMap<String, String>();
-		String xpath = generateXPathExpression(this.pointElems, namespaceBindings);
-		try {
-			this.points = (NodeList) XMLUtils.evaluateXPath(data, xpath, namespaceBindings, XPathConstants.NODESET);
-		}
-		catch (XPathExpressionException xpe) { // won't happen
-			throw new RuntimeException(xpe);
-		}
+		this.points = findGeometryElements(GeometryKind.POINT);
 		Assert.assertFalse(this.points.getLength() == 0, "gml:Point elements not found.");
 	}
 
+	/**
+	 * A configuration method ({@code AfterClass}) that discards references to nodes in
+	 * the shared GML document so that the document tree may be released.
+	 */
+	@AfterClass(alwaysRun = true)
+	public void clearNodes() {
+		this.points = null;
+	}
+
 	/**
 	 * [{@code Test}] Verifies that a gml:Point element has a valid CRS reference.
 	 *
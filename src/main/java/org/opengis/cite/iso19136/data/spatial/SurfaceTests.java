@@ -1,22 +1,9 @@
 package org.opengis.cite.iso19136.data.spatial;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
-import javax.xml.namespace.QName;
-import javax.xml.transform.Source;
-import javax.xml.transform.stream.StreamSource;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpressionException;
-
-import org.apache.xerces.xs.XSElementDeclaration;
-import org.opengis.cite.iso19136.GML32;
 import org.opengis.cite.iso19136.data.DataFixture;
-import org.opengis.cite.iso19136.util.XMLSchemaModelUtils;
-import org.opengis.cite.iso19136.util.XMLUtils;
+import org.opengis.cite.iso19136.util.GeometryKind;
 import org.testng.SkipException;
+import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 import org.w3c.dom.Element;
@@ -48,8 +35,6 @@ public class SurfaceTests extends DataFixture {
 
 	NodeList surfaceNodes;
 
-	List<QName> surfaceElems = new ArrayList<QName>();
-
 	/**
 	 * A configuration method ({@code BeforeClass}) that looks for gml:Surface elements in
 	 * the GML document under test (including any elements in its substitution group). If
@@ -57,29 +42,21 @@ public class SurfaceTests extends DataFixture {
 	 */
 	@BeforeClass
 	public void findSurfaces() {
-		Source data = new StreamSource(this.dataFile);
-		if (null != this.model) {
-			XSElementDeclaration gmlSurface = this.model.getElementDeclaration(GML32.ABSTRACT_SURFACE, GML32.NS_NAME);
-			List<XSElementDeclaration> surfaceDecls = XMLSchemaModelUtils.getElementsByAffiliation(this.model,
-					gmlSurface);
-			for (XSElementDeclaration decl : surfaceDecls) {
-				this.surfaceElems.add(new QName(decl.getNamespace(), decl.getName()));
-			}
-		}
-		Map<String, String> namespaceBindings = new HashMap<String, String>();
-		String xpath = generateXPathExpression(this.surfaceElems, namespaceBindings);
-		try {
-			this.surfaceNodes = (NodeList) XMLUtils.evaluateXPath(data, xpath, namespaceBindings,
-					XPathConstants.NODESET);
-		}
-		catch (XPathExpressionException xpe) { // won't happen
-			throw new RuntimeException(xpe);
-		}
+		this.surfaceNodes = findGeometryElements(GeometryKind.SURFACE);
 		if (this.surfaceNodes.getLength() == 0) {
 			throw new SkipException("No surface elements (substitute for gml:AbstractSurface) found in GML data.");
 		}
 	}
 
+	/**
+	 * A configuration method ({@code AfterClass}) that discards references to nodes in
+	 * the shared GML document so that the document tree may be released.
+	 */
+	@AfterClass(alwaysRun = true)
+	public void clearNodes() {
+		this.surfaceNodes = null;
+	}
+
 	/**
 	 * [{@code Test}] Verifies that a gml:Surface element has a valid CRS reference.
 	 *
@@ -0,0 +1,148 @@
+package org.opengis.cite.iso19136.data.spatial;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Unmarshaller;
+
+import org.apache.sis.xml.MarshallerPool;
+import org.geotoolkit.gml.xml.GMLMarshallerPool;
+
+/**
+ * Grants the current thread exclusive use of a GML unmarshaller obtained from the shared
+ * {@link GMLMarshallerPool}. An Unmarshaller is not thread-safe, so it must not be
+ * shared; a lease ensures that it is returned to the pool when no longer needed:
+ *
+ * <pre>
+ * try (UnmarshallerLease lease = UnmarshallerLease.acquire()) {
+ * 	Object geom = lease.getUnmarshaller().unmarshal(node);
+ * }
+ * </pre>
+ *
+ * <p>
+ * Leases are re-entrant: if the current thread already holds a lease (for example, in a
+ * test method that calls {@link GeometryAssert} for each geometry), the same instance is
+ * returned and the unmarshaller is recycled only when the outermost lease is closed.
+ * Each acquisition must be matched by exactly one call to {@link #close()}.
+ * </p>
+ */
+public final class UnmarshallerLease implements AutoCloseable {
+
+	private static final ThreadLocal<UnmarshallerLease> CURRENT = new ThreadLocal<UnmarshallerLease>();
+
+	private static final AtomicInteger ACTIVE = new AtomicInteger();
+
+	private static final AtomicInteger PEAK = new AtomicInteger();
+
+	private static final AtomicLong ACQUIRED = new AtomicLong();
+
+	private static final AtomicLong RELEASED = new AtomicLong();
+
+	private final MarshallerPool pool;
+
+	private final Unmarshaller unmarshaller;
+
+	private final Thread owner;
+
+	private int holdCount;
+
+	private UnmarshallerLease(MarshallerPool pool) throws JAXBException {
+		this.pool = pool;
+		this.unmarshaller = pool.acquireUnmarshaller();
+		this.owner = Thread.currentThread();
+		ACQUIRED.incrementAndGet();
+		PEAK.accumulateAndGet(ACTIVE.incrementAndGet(), Math::max);
+	}
+
+	/**
+	 * Obtains a lease on a GML unmarshaller for the current thread.
+	 * @return An UnmarshallerLease that must be closed by the current thread.
+	 * @throws JAXBException If an unmarshaller cannot be created.
+	 */
+	public static UnmarshallerLease acquire() throws JAXBException {
+		UnmarshallerLease lease = CURRENT.get();
+		if (null == lease) {
+			lease = new UnmarshallerLease(GMLMarshallerPool.getInstance());
+			CURRENT.set(lease);
+		}
+		lease.holdCount++;
+		return lease;
+	}
+
+	/**
+	 * Returns the leased unmarshaller.
+	 * @return An Unmarshaller for GML content; it must not be used by another thread or
+	 * after the lease has been closed.
+	 * @throws IllegalStateException If the lease has been closed or the caller is not
+	 * the thread that holds it.
+	 */
+	public Unmarshaller getUnmarshaller() {
+		if (Thread.currentThread() != owner) {
+			throw new IllegalStateException("Unmarshaller is leased to " + owner.getName());
+		}
+		if (holdCount == 0) {
+			throw new IllegalStateException("Lease has been closed.");
+		}
+		return unmarshaller;
+	}
+
+	/**
+	 * Ends the lease. The unmarshaller is returned to the pool once all leases held by
+	 * the current thread have been closed.
+	 */
+	@Override
+	public void close() {
+		if (Thread.currentThread() != owner || holdCount == 0) {
+			return;
+		}
+		if (--holdCount == 0) {
+			CURRENT.remove();
+			pool.recycle(unmarshaller);
+			ACTIVE.decrementAndGet();
+			RELEASED.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Returns the number of unmarshallers currently leased (one per thread at most).
+	 * @return The number of unmarshallers not yet returned to the pool.
+	 */
+	public static int getActiveCount() {
+		return ACTIVE.get();
+	}
+
+	/**
+	 * Returns the largest number of unmarshallers that were leased at the same time.
+	 * @return The peak number of active leases.
+	 */
+	public static int getPeakCount() {
+		return PEAK.get();
+	}
+
+	/**
+	 * Returns the number of unmarshallers obtained from the pool.
+	 * @return The total number of acquisitions (excluding re-entrant ones).
+	 */
+	public static long getAcquireCount() {
+		return ACQUIRED.get();
+	}
+
+	/**
+	 * Returns the number of unmarshallers returned to the pool.
+	 * @return The total number of releases.
+	 */
+	public static long getReleaseCount() {
+		return RELEASED.get();
+	}
+
+	/**
+	 * Summarizes the pool occupancy.
+	 * @return A String containing the lease counts.
+	 */
+	public static String getStatistics() {
+		return String.format("GML unmarshallers: %d acquired, %d released, %d active (peak %d)", ACQUIRED.get(),
+				RELEASED.get(), ACTIVE.get(), PEAK.get());
+	}
+
+}
@@ -12,9 +12,18 @@ import org.apache.xerces.xs.XSElementDeclaration;
  * Provides information about the types of objects declared in a GML application schema.
  * Clause 21.2.1 in ISO 19136 requires a conforming schema to include specific types of
  * geographic objects.
+ *
+ * <p>
+ * If it is backed by {@link SchemaFacts}, the declarations of each type of object are
+ * only looked up when first needed (unless they have been set explicitly).
+ * </p>
  */
 public class AppSchemaInfo {
 
+	private final SchemaFacts facts;
+
+	private final Set<GMLObjectType> evaluated = EnumSet.noneOf(GMLObjectType.class);
+
 	private Set<GMLObjectType> gmlContentTypes = EnumSet.noneOf(GMLObjectType.class);
 
 	private List<XSElementDeclaration> featureTypes;
@@ -35,102 +44,149 @@ public class AppSchemaInfo {
 
 	private List<XSElementDeclaration> definitionTypes;
 
-	public Set<GMLObjectType> getGMLContentTypes() {
+	/**
+	 * Creates an object that only holds the information explicitly set.
+	 */
+	public AppSchemaInfo() {
+		this(null);
+	}
+
+	/**
+	 * Creates an object that obtains the declarations of GML objects from the given
+	 * schema facts as required.
+	 * @param facts The facts about the application schema (may be {@code null}).
+	 */
+	public AppSchemaInfo(SchemaFacts facts) {
+		this.facts = facts;
+	}
+
+	public synchronized Set<GMLObjectType> getGMLContentTypes() {
+		for (GMLObjectType type : GMLObjectType.values()) {
+			evaluate(type);
+		}
 		return gmlContentTypes;
 	}
 
-	public List<XSElementDeclaration> getFeatureTypes() {
+	/**
+	 * Indicates whether the application schema declares some type of GML object. Only
+	 * the declarations of that type are looked up.
+	 * @param type A type of GML object.
+	 * @return {@code true} if at least one such object is declared; {@code false}
+	 * otherwise.
+	 */
+	public synchronized boolean declares(GMLObjectType type) {
+		evaluate(type);
+		return gmlContentTypes.contains(type);
+	}
+
+	public synchronized List<XSElementDeclaration> getFeatureTypes() {
+		evaluate(GMLObjectType.FEATURE_TYPE);
 		return featureTypes;
 	}
 
-	public void setFeatureTypes(List<XSElementDeclaration> features) {
+	public synchronized void setFeatureTypes(List<XSElementDeclaration> features) {
+		evaluated.add(GMLObjectType.FEATURE_TYPE);
 		if (!features.isEmpty()) {
 			this.featureTypes = Collections.unmodifiableList(features);
 			gmlContentTypes.add(GMLObjectType.FEATURE_TYPE);
 		}
 	}
 
-	public Set<XSComplexTypeDefinition> getFeatureDefinitions() {
+	public synchronized Set<XSComplexTypeDefinition> getFeatureDefinitions() {
 		return featureDefinitions;
 	}
 
-	public void setFeatureDefinitions(Set<XSComplexTypeDefinition> typeDefs) {
+	public synchronized void setFeatureDefinitions(Set<XSComplexTypeDefinition> typeDefs) {
 		if (null != typeDefs) {
 			this.featureDefinitions = Collections.unmodifiableSet(typeDefs);
 		}
 	}
 
-	public List<XSElementDeclaration> getGeometryTypes() {
+	public synchronized List<XSElementDeclaration> getGeometryTypes() {
+		evaluate(GMLObjectType.GEOMETRY);
 		return geometryTypes;
 	}
 
-	public void setGeometryTypes(List<XSElementDeclaration> geometries) {
+	public synchronized void setGeometryTypes(List<XSElementDeclaration> geometries) {
+		evaluated.add(GMLObjectType.GEOMETRY);
 		if (!geometries.isEmpty()) {
 			this.geometryTypes = Collections.unmodifiableList(geometries);
 			gmlContentTypes.add(GMLObjectType.GEOMETRY);
 		}
 	}
 
-	public List<XSElementDeclaration> getTimeTypes() {
+	public synchronized List<XSElementDeclaration> getTimeTypes() {
+		evaluate(GMLObjectType.TIME);
 		return timeTypes;
 	}
 
-	public void setTimeTypes(List<XSElementDeclaration> timeTypes) {
+	public synchronized void setTimeTypes(List<XSElementDeclaration> timeTypes) {
+		evaluated.add(GMLObjectType.TIME);
 		if (!timeTypes.isEmpty()) {
 			this.timeTypes = Collections.unmodifiableList(timeTypes);
 			gmlContentTypes.add(GMLObjectType.TIME);
 		}
 	}
 
-	public List<XSElementDeclaration> getTopoTypes() {
+	public synchronized List<XSElementDeclaration> getTopoTypes() {
+		evaluate(GMLObjectType.TOPOLOGY);
 		return topoTypes;
 	}
 
-	public void setTopoTypes(List<XSElementDeclaration> topoTypes) {
+	public synchronized void setTopoTypes(List<XSElementDeclaration> topoTypes) {
+		evaluated.add(GMLObjectType.TOPOLOGY);
 		if (!topoTypes.isEmpty()) {
 			this.topoTypes = Collections.unmodifiableList(topoTypes);
 			gmlContentTypes.add(GMLObjectType.TOPOLOGY);
 		}
 	}
 
-	public List<XSElementDeclaration> getCoverageTypes() {
+	public synchronized List<XSElementDeclaration> getCoverageTypes() {
+		evaluate(GMLObjectType.COVERAGE);
 		return coverageTypes;
 	}
 
-	public void setCoverageTypes(List<XSElementDeclaration> coverageTypes) {
+	public synchronized void setCoverageTypes(List<XSElementDeclaration> coverageTypes) {
+		evaluated.add(GMLObjectType.COVERAGE);
 		if (!coverageTypes.isEmpty()) {
 			this.coverageTypes = Collections.unmodifiableList(coverageTypes);
 			gmlContentTypes.add(GMLObjectType.COVERAGE);
 		}
 	}
 
-	public List<XSElementDeclaration> getCrsTypes() {
+	public synchronized List<XSElementDeclaration> getCrsTypes() {
+		evaluate(GMLObjectType.CRS);
 		return crsTypes;
 	}
 
-	public void setCrsTypes(List<XSElementDeclaration> crsTypes) {
+	public synchronized void setCrsTypes(List<XSElementDeclaration> crsTypes) {
+		evaluated.add(GMLObjectType.CRS);
 		if (!crsTypes.isEmpty()) {
 			this.crsTypes = Collections.unmodifiableList(crsTypes);
 			gmlContentTypes.add(GMLObjectType.CRS);
 		}
 	}
 
-	public List<XSElementDeclaration> getDefinitionTypes() {
+	public synchronized List<XSElementDeclaration> getDefinitionTypes() {
+		evaluate(GMLObjectType.DEFINITION);
 		return definitionTypes;
 	}
 
-	public void setDefinitionTypes(List<XSElementDeclaration> definitionTypes) {
+	public synchronized void setDefinitionTypes(List<XSElementDeclaration> definitionTypes) {
+		evaluated.add(GMLObjectType.DEFINITION);
 		if (!definitionTypes.isEmpty()) {
 			this.definitionTypes = Collections.unmodifiableList(definitionTypes);
 			gmlContentTypes.add(GMLObjectType.DEFINITION);
 		}
 	}
 
-	public List<XSElementDeclaration> getObservationTypes() {
+	public synchronized List<XSElementDeclaration> getObservationTypes() {
+		evaluate(GMLObjectType.OBSERVATION);
 		return observationTypes;
 	}
 
-	public void setObservationTypes(List<XSElementDeclaration> obsTypes) {
+	public synchronized void setObservationTypes(List<XSElementDeclaration> obsTypes) {
+		evaluated.add(GMLObjectType.OBSERVATION);
 		if (!obsTypes.isEmpty()) {
 			this.observationTypes = Collections.unmodifiableList(obsTypes);
 			gmlContentTypes.add(GMLObjectType.OBSERVATION);
@@ -144,12 +200,58 @@ public class AppSchemaInfo {
 	 * @return {@code true} if the required schema components are present; {@code false}
 	 * otherwise.
 	 */
-	public boolean conforms() {
+	public synchronized boolean conforms() {
+		for (GMLObjectType type : GMLObjectType.values()) {
+			if (!gmlContentTypes.isEmpty()) {
+				break;
+			}
+			evaluate(type);
+		}
 		return !gmlContentTypes.isEmpty();
 	}
 
+	/**
+	 * Looks up the declarations of some type of GML object, unless this has already been
+	 * done or they have been set explicitly.
+	 * @param type A type of GML object.
+	 */
+	private void evaluate(GMLObjectType type) {
+		if (null == facts || !evaluated.add(type)) {
+			return;
+		}
+		List<XSElementDeclaration> elemDecls = facts.getDeclarations(type);
+		switch (type) {
+			case FEATURE_TYPE:
+				setFeatureTypes(elemDecls);
+				break;
+			case GEOMETRY:
+				setGeometryTypes(elemDecls);
+				break;
+			case TOPOLOGY:
+				setTopoTypes(elemDecls);
+				break;
+			case TIME:
+				setTimeTypes(elemDecls);
+				break;
+			case CRS:
+				setCrsTypes(elemDecls);
+				break;
+			case COVERAGE:
+				setCoverageTypes(elemDecls);
+				break;
+			case OBSERVATION:
+				setObservationTypes(elemDecls);
+				break;
+			case DEFINITION:
+				setDefinitionTypes(elemDecls);
+				break;
+			default:
+				// values are not examined
+		}
+	}
+
 	@Override
-	public String toString() {
+	public synchronized String toString() {
 		StringBuilder str = new StringBuilder("AppSchemaInfo [\n");
 		str.append("featureTypes: ").append(featureTypes).append('\n');
 		str.append("geometryTypes: ").append(geometryTypes).append('\n');
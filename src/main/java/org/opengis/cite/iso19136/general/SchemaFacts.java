@@ -0,0 +1,224 @@
+package org.opengis.cite.iso19136.general;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.apache.xerces.xs.XSComplexTypeDefinition;
+import org.apache.xerces.xs.XSElementDeclaration;
+import org.apache.xerces.xs.XSModel;
+import org.opengis.cite.iso19136.GML32;
+import org.opengis.cite.iso19136.util.FeatureTypeFilter;
+import org.opengis.cite.iso19136.util.XMLSchemaModelUtils;
+
+/**
+ * Provides facts about the GML content of an application schema, such as the feature
+ * types or the implicit geometry properties it declares. A fact is only determined when
+ * it is first requested, and at most once per schema model; the test classes that
+ * examine the same kind of content thus share the result.
+ *
+ * <p>
+ * All lists and sets returned are unmodifiable. The facts may be requested by several
+ * threads at once.
+ * </p>
+ */
+public class SchemaFacts {
+
+	private static final Map<GMLObjectType, Function<XSModel, List<XSElementDeclaration>>> FINDERS = new EnumMap<>(
+			GMLObjectType.class);
+
+	static {
+		FINDERS.put(GMLObjectType.FEATURE_TYPE, XMLSchemaModelUtils::getFeatureDeclarations);
+		FINDERS.put(GMLObjectType.GEOMETRY, XMLSchemaModelUtils::getGeometryDeclarations);
+		FINDERS.put(GMLObjectType.TOPOLOGY, XMLSchemaModelUtils::getTopologyDeclarations);
+		FINDERS.put(GMLObjectType.TIME, XMLSchemaModelUtils::getTimeObjectDeclarations);
+		FINDERS.put(GMLObjectType.CRS, XMLSchemaModelUtils::getCRSDeclarations);
+		FINDERS.put(GMLObjectType.COVERAGE, XMLSchemaModelUtils::getCoverageDeclarations);
+		FINDERS.put(GMLObjectType.OBSERVATION, XMLSchemaModelUtils::getObservationDeclarations);
+		FINDERS.put(GMLObjectType.DEFINITION, XMLSchemaModelUtils::getDefinitionDeclarations);
+	}
+
+	private static final Map<XSModel, SchemaFacts> FACTS = Collections
+		.synchronizedMap(new WeakHashMap<XSModel, SchemaFacts>());
+
+	/** The model is only weakly referenced so that it can be discarded. */
+	private final WeakReference<XSModel> modelRef;
+
+	private final ConcurrentMap<String, FutureTask<Object>> facts = new ConcurrentHashMap<>();
+
+	private SchemaFacts(XSModel model) {
+		this.modelRef = new WeakReference<XSModel>(model);
+	}
+
+	/**
+	 * Returns the facts about the given schema model.
+	 * @param model An XSModel object representing an application schema.
+	 * @return The SchemaFacts for the model (the same object for every request).
+	 */
+	public static SchemaFacts forModel(XSModel model) {
+		if (null == model) {
+			throw new IllegalArgumentException("Schema model is required.");
+		}
+		synchronized (FACTS) {
+			return FACTS.computeIfAbsent(model, SchemaFacts::new);
+		}
+	}
+
+	/**
+	 * Returns the element declarations for some type of GML object.
+	 * @param type A type of GML object.
+	 * @return A List of element declarations in an application namespace (it is empty
+	 * for {@link GMLObjectType#VALUE}, which is not examined).
+	 */
+	public List<XSElementDeclaration> getDeclarations(GMLObjectType type) {
+		Function<XSModel, List<XSElementDeclaration>> finder = FINDERS.get(type);
+		if (null == finder) {
+			return Collections.emptyList();
+		}
+		return get(type.name(), () -> Collections.unmodifiableList(finder.apply(getModel())));
+	}
+
+	/**
+	 * Supplies the element declarations for some type of GML object that were found
+	 * previously (e.g. in a saved snapshot of the schema model). They are ignored if the
+	 * declarations are already known.
+	 * @param type A type of GML object.
+	 * @param elemDecls A List of element declarations in an application namespace.
+	 */
+	public void putDeclarations(GMLObjectType type, List<XSElementDeclaration> elemDecls) {
+		List<XSElementDeclaration> value = Collections.unmodifiableList(elemDecls);
+		FutureTask<Object> task = new FutureTask<Object>(() -> value);
+		task.run();
+		facts.putIfAbsent(type.name(), task);
+	}
+
+	/**
+	 * Returns the element declarations found so far for each type of GML object.
+	 * @return A Map containing a List of element declarations for each GMLObjectType name
+	 * whose declarations are known.
+	 */
+	public Map<String, List<XSElementDeclaration>> getKnownDeclarations() {
+		Map<String, List<XSElementDeclaration>> declarations = new LinkedHashMap<>();
+		for (GMLObjectType type : FINDERS.keySet()) {
+			FutureTask<Object> task = facts.get(type.name());
+			if (null != task && task.isDone()) {
+				declarations.put(type.name(), getDeclarations(type));
+			}
+		}
+		return declarations;
+	}
+
+	/**
+	 * Returns the declarations of all GML objects (the elements that can substitute for
+	 * gml:AbstractGML).
+	 * @return A List of element declarations.
+	 */
+	public List<XSElementDeclaration> getGMLObjects() {
+		return get("gml-objects", () -> {
+			XSModel model = getModel();
+			XSElementDeclaration gmlObject = model.getElementDeclaration(GML32.ABSTRACT_GML, GML32.NS_NAME);
+			return Collections.unmodifiableList(XMLSchemaModelUtils.getElementsByAffiliation(model, gmlObject));
+		});
+	}
+
+	/**
+	 * Returns the global element declarations in an application namespace whose type is
+	 * (or derives by extension from) some GML type.
+	 * @param gmlTypeName The name of a type definition in the GML namespace (e.g.
+	 * "AbstractGeometryType").
+	 * @return A List of element declarations.
+	 */
+	public List<XSElementDeclaration> getGlobalElementsByType(String gmlTypeName) {
+		return get("elements-by-type:" + gmlTypeName, () -> {
+			XSModel model = getModel();
+			return Collections.unmodifiableList(XMLSchemaModelUtils.getGlobalElementsByType(model,
+					model.getTypeDefinition(gmlTypeName, GML32.NS_NAME)));
+		});
+	}
+
+	/**
+	 * Returns the implicit properties whose values substitute for some GML element (see
+	 * {@link XMLSchemaModelUtils#getImplicitProperties(XSModel, XSElementDeclaration)}).
+	 * @param gmlElementName The name of an element declaration in the GML namespace (e.g.
+	 * "AbstractGeometry").
+	 * @return A List of element declarations.
+	 */
+	public List<XSElementDeclaration> getImplicitProperties(String gmlElementName) {
+		return get("implicit-properties:" + gmlElementName, () -> {
+			XSModel model = getModel();
+			return Collections.unmodifiableList(XMLSchemaModelUtils.getImplicitProperties(model,
+					model.getElementDeclaration(gmlElementName, GML32.NS_NAME)));
+		});
+	}
+
+	/**
+	 * Returns the explicit geometry properties (see
+	 * {@link XMLSchemaModelUtils#getExplicitGeometryProperties(XSModel)}).
+	 * @return A List of element declarations.
+	 */
+	public List<XSElementDeclaration> getExplicitGeometryProperties() {
+		return get("explicit-geometry-properties",
+				() -> Collections.unmodifiableList(XMLSchemaModelUtils.getExplicitGeometryProperties(getModel())));
+	}
+
+	/**
+	 * Returns the referenced complex type definitions that define feature types.
+	 * @return A Set of complex type definitions.
+	 */
+	public Set<XSComplexTypeDefinition> getFeatureDefinitions() {
+		return get("feature-definitions", () -> {
+			Set<XSComplexTypeDefinition> complexTypes = new HashSet<XSComplexTypeDefinition>(
+					XMLSchemaModelUtils.getReferencedComplexTypeDefinitions(getModel()));
+			new FeatureTypeFilter().filterSet(complexTypes);
+			return Collections.unmodifiableSet(complexTypes);
+		});
+	}
+
+	private XSModel getModel() {
+		XSModel model = modelRef.get();
+		if (null == model) {
+			throw new IllegalStateException("Schema model is no longer available.");
+		}
+		return model;
+	}
+
+	/**
+	 * Returns a fact, determining it first if it is not yet known. If the fact is being
+	 * determined by another thread, the current thread waits for the result.
+	 * @param key The name of the fact.
+	 * @param supplier Determines the fact.
+	 * @return The value of the fact.
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> T get(String key, Supplier<T> supplier) {
+		FutureTask<Object> task = facts.computeIfAbsent(key, k -> new FutureTask<Object>(supplier::get));
+		task.run();
+		try {
+			return (T) task.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while examining schema model.", e);
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+}
@@ -4,9 +4,7 @@ import java.util.List;
 
 import org.apache.xerces.xs.XSElementDeclaration;
 import org.apache.xerces.xs.XSModel;
-import org.opengis.cite.iso19136.GML32;
 import org.opengis.cite.iso19136.SuiteAttribute;
-import org.opengis.cite.iso19136.util.XMLSchemaModelUtils;
 import org.testng.ITestContext;
 import org.testng.annotations.BeforeClass;
 
@@ -28,6 +26,12 @@ public class SchemaModelFixture {
 	 */
 	protected AppSchemaInfo schemaInfo;
 
+	/**
+	 * Provides facts about the GML content of the application schema; they are shared by
+	 * all test classes.
+	 */
+	protected SchemaFacts schemaFacts;
+
 	/**
 	 * A list of the GML objects declared in the application schema (these can substitute
 	 * for gml:AbstractGML).
@@ -42,14 +46,37 @@ public class SchemaModelFixture {
 	 */
 	@BeforeClass
 	public void initSchemaModelFixture(ITestContext testContext) {
+		obtainSchemaModel(testContext);
+		this.gmlObjects = schemaFacts.getGMLObjects();
+	}
+
+	/**
+	 * Obtains the schema model, the information about its content, and the facts about
+	 * it from the ISuite context unless they have already been set. A configuration
+	 * method that runs before {@link #initSchemaModelFixture} must call this first.
+	 * @param testContext The test (set) context.
+	 */
+	protected void obtainSchemaModel(ITestContext testContext) {
 		if (null == this.model) {
 			this.model = (XSModel) testContext.getSuite().getAttribute(SuiteAttribute.XSMODEL.getName());
 		}
 		if (null == this.schemaInfo) {
 			this.schemaInfo = (AppSchemaInfo) testContext.getSuite().getAttribute(SuiteAttribute.SCHEMA_INFO.getName());
 		}
-		XSElementDeclaration gmlObject = this.model.getElementDeclaration(GML32.ABSTRACT_GML, GML32.NS_NAME);
-		this.gmlObjects = XMLSchemaModelUtils.getElementsByAffiliation(this.model, gmlObject);
+		if (null == this.schemaFacts && null != this.model) {
+			this.schemaFacts = SchemaFacts.forModel(this.model);
+		}
+	}
+
+	/**
+	 * Indicates whether the application schema declares some type of GML object
+	 * according to the information about its content.
+	 * @param type A type of GML object.
+	 * @return {@code true} if such objects are declared; {@code false} if they are not,
+	 * or if no information is available.
+	 */
+	protected boolean declaresGMLObjects(GMLObjectType type) {
+		return null != this.schemaInfo && this.schemaInfo.declares(type);
 	}
 
 	/**
@@ -58,6 +85,7 @@ public class SchemaModelFixture {
 	 */
 	public void setSchemaModel(XSModel xsModel) {
 		this.model = xsModel;
+		this.schemaFacts = (null != xsModel) ? SchemaFacts.forModel(xsModel) : null;
 	}
 
 }
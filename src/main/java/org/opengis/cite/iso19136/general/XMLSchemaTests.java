@@ -5,6 +5,7 @@ import java.net.URI;
 import java.net.URL;
 import java.util.MissingResourceException;
 import java.util.Set;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -13,9 +14,10 @@ import javax.xml.validation.Schema;
 import org.opengis.cite.iso19136.ErrorMessage;
 import org.opengis.cite.iso19136.ErrorMessageKeys;
 import org.opengis.cite.iso19136.SuiteAttribute;
+import org.opengis.cite.iso19136.util.CompileBudget;
 import org.opengis.cite.iso19136.util.GmlVersion;
+import org.opengis.cite.iso19136.util.SchemaCompilation;
 import org.opengis.cite.validation.ValidationErrorHandler;
-import org.opengis.cite.validation.XmlSchemaCompiler;
 import org.testng.Assert;
 import org.testng.ITestContext;
 import org.testng.annotations.BeforeClass;
@@ -32,13 +34,8 @@ import org.xml.sax.SAXException;
  */
 public class XMLSchemaTests {
 
-	/** Timeout for compiling schemas /ms */
-	static final long COMPILE_TIMEOUT = 60000;
-
 	private final Logger logr = Logger.getLogger(this.getClass().getPackage().getName());
 
-	private static final String ETS_ROOT_PKG = "/org/opengis/cite/iso19136/";
-
 	private Set<URI> xsdLocations;
 
 	/**
@@ -73,8 +70,12 @@ public class XMLSchemaTests {
 	 * </p>
 	 *
 	 * <p>
-	 * A fail verdict is produced if it takes longer than {@value #COMPILE_TIMEOUT} ms to
-	 * compile the schema(s).
+	 * A fail verdict is produced if the schema(s) cannot be compiled within the time
+	 * budget given by the {@link SuiteAttribute#COMPILE_BUDGET compile budget} attribute
+	 * (by default, {@value org.opengis.cite.iso19136.util.CompileBudget#DEFAULT_TIMEOUT}
+	 * ms overall and
+	 * {@value org.opengis.cite.iso19136.util.CompileBudget#DEFAULT_IDLE_TIMEOUT} ms
+	 * without progress).
 	 * </p>
 	 *
 	 * @see "ISO 19136:2007, cl. A.1.1.4 (Valid XML Schema)"
@@ -82,7 +83,7 @@ public class XMLSchemaTests {
 	 * @throws SAXException If a schema cannot be read.
 	 * @throws IOException If a schema resource cannot be accessed for any reason.
 	 */
-	@Test(description = "See ISO 19136: A.1.1.4", timeOut = COMPILE_TIMEOUT)
+	@Test(description = "See ISO 19136: A.1.1.4")
 	public void compileXMLSchema(ITestContext testContext) throws SAXException, IOException {
 		logr.log(Level.INFO, "Compiling schemas...\n" + xsdLocations);
 
@@ -101,25 +102,31 @@ public class XMLSchemaTests {
 			logr.info("No GML version was provided. Version 3.2.2 will be used.");
 		}
 
-		URL entityCatalog = null;
-
-		switch (gmlVersion) {
-			case V321:
-				entityCatalog = this.getClass().getResource(ETS_ROOT_PKG + "schema-catalog-gml-3.2.1.xml");
-				break;
-			case V322:
-				entityCatalog = this.getClass().getResource(ETS_ROOT_PKG + "schema-catalog.xml");
-				break;
-			default:
-				entityCatalog = this.getClass().getResource(ETS_ROOT_PKG + "schema-catalog.xml");
-				break;
-		}
+		URL entityCatalog = gmlVersion.getSchemaCatalog();
 		Assert.assertNotNull(entityCatalog, "Could not create EntityCatalog URI for Version: " + gmlVersion);
 
-		XmlSchemaCompiler xsdCompiler = new XmlSchemaCompiler(entityCatalog);
-		Schema schema = xsdCompiler.compileXmlSchema(xsdLocations.toArray(new URI[xsdLocations.size()]));
+		// possibly started while the GML data was being retrieved
+		SchemaCompilation pending = (SchemaCompilation) testContext.getSuite()
+			.getAttribute(SuiteAttribute.SCHEMA_COMPILATION.getName());
+		if (null == pending || !pending.matches(xsdLocations, gmlVersion)) {
+			pending = SchemaCompilation.start(xsdLocations, gmlVersion);
+		}
+		CompileBudget budget = (CompileBudget) testContext.getSuite()
+			.getAttribute(SuiteAttribute.COMPILE_BUDGET.getName());
+		Schema schema;
+		try {
+			schema = pending.getSchema((null != budget) ? budget : CompileBudget.getDefault());
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while compiling schemas.", e);
+		}
+		catch (TimeoutException e) {
+			throw new AssertionError(
+					ErrorMessage.format(ErrorMessageKeys.SCHEMA_TIMEOUT, xsdLocations, e.getMessage()));
+		}
+		ValidationErrorHandler errHandler = pending.getErrorHandler();
 		Assert.assertNotNull(schema, ErrorMessage.format(ErrorMessageKeys.SCHEMA_ERROR, xsdLocations));
-		ValidationErrorHandler errHandler = xsdCompiler.getErrorHandler();
 		Assert.assertFalse(errHandler.errorsDetected(),
 				ErrorMessage.format(ErrorMessageKeys.XSD_INVALID, errHandler.getErrorCount(), errHandler.toString()));
 		if (null != schema) {
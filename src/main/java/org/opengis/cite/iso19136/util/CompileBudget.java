@@ -0,0 +1,66 @@
+package org.opengis.cite.iso19136.util;
+
+/**
+ * The time allowed for compiling the application schema(s). A compilation is abandoned
+ * when the overall time limit is exceeded, or earlier if it has made no progress (no
+ * schema content read, no grammar built) for some time, as happens when a schema
+ * resource cannot be retrieved from an unresponsive server. A limit of zero means that
+ * no limit applies.
+ */
+public class CompileBudget {
+
+	/** The default overall time limit /ms */
+	public static final long DEFAULT_TIMEOUT = 60000;
+
+	/** The default time limit without progress /ms */
+	public static final long DEFAULT_IDLE_TIMEOUT = 30000;
+
+	private final long timeout;
+
+	private final long idleTimeout;
+
+	/**
+	 * Creates a compile budget.
+	 * @param timeout The overall time limit in milliseconds (0 if unlimited).
+	 * @param idleTimeout The time limit without progress in milliseconds (0 if
+	 * unlimited).
+	 */
+	public CompileBudget(long timeout, long idleTimeout) {
+		if (timeout < 0 || idleTimeout < 0) {
+			throw new IllegalArgumentException("Time limit must not be negative.");
+		}
+		this.timeout = timeout;
+		this.idleTimeout = idleTimeout;
+	}
+
+	/**
+	 * Returns the default compile budget ({@value #DEFAULT_TIMEOUT} ms overall,
+	 * {@value #DEFAULT_IDLE_TIMEOUT} ms without progress).
+	 * @return A CompileBudget object.
+	 */
+	public static CompileBudget getDefault() {
+		return new CompileBudget(DEFAULT_TIMEOUT, DEFAULT_IDLE_TIMEOUT);
+	}
+
+	/**
+	 * Returns the overall time limit.
+	 * @return The time limit in milliseconds, or 0 if there is no limit.
+	 */
+	public long getTimeout() {
+		return timeout;
+	}
+
+	/**
+	 * Returns the time limit without progress.
+	 * @return The time limit in milliseconds, or 0 if there is no limit.
+	 */
+	public long getIdleTimeout() {
+		return idleTimeout;
+	}
+
+	@Override
+	public String toString() {
+		return "CompileBudget [timeout=" + timeout + " ms, idleTimeout=" + idleTimeout + " ms]";
+	}
+
+}
@@ -0,0 +1,235 @@
+package org.opengis.cite.iso19136.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the progress of a schema compilation: the number of schema documents
+ * fetched, the number of bytes read from them, and the number of grammars built. The
+ * counters may be updated by several threads at once and read at any time (e.g. by a
+ * thread waiting for the result).
+ *
+ * <p>
+ * A compilation can be aborted; any attempt to read from a schema document is then
+ * refused, so that the compiler gives up as soon as it next needs input. A remote schema
+ * document is read with connect and read timeouts derived from the
+ * {@link #setBudget(CompileBudget) time budget}, so that a compiler waiting for an
+ * unresponsive server does not outlast the compilation.
+ * </p>
+ */
+public class CompileProgress {
+
+	private final AtomicInteger documents = new AtomicInteger();
+
+	private final AtomicLong bytes = new AtomicLong();
+
+	private final AtomicInteger grammars = new AtomicInteger();
+
+	/** The time of the last progress (in nanoseconds), or zero if there was none yet. */
+	private volatile long lastActivity;
+
+	private volatile String abortReason;
+
+	private volatile CompileBudget budget = CompileBudget.getDefault();
+
+	/**
+	 * Returns the number of schema documents fetched so far.
+	 * @return The number of documents opened for reading.
+	 */
+	public int getDocumentCount() {
+		return documents.get();
+	}
+
+	/**
+	 * Returns the number of bytes read from schema documents so far.
+	 * @return The number of bytes read.
+	 */
+	public long getByteCount() {
+		return bytes.get();
+	}
+
+	/**
+	 * Returns the number of grammars built so far (one for each target namespace).
+	 * @return The number of application grammars.
+	 */
+	public int getGrammarCount() {
+		return grammars.get();
+	}
+
+	/**
+	 * Returns the time elapsed since the compilation last made progress. The idle clock
+	 * starts when the compiler first reads input (or obtains the shared grammars), so the
+	 * time spent waiting to start (e.g. while the schema locations are being resolved)
+	 * does not count.
+	 * @return The idle time in milliseconds.
+	 */
+	public long getIdleTime() {
+		long last = lastActivity;
+		return (0 == last) ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - last);
+	}
+
+	/**
+	 * Sets the time budget of the compilation. It applies to schema documents that are
+	 * opened from now on.
+	 * @param budget The time allowed for the compilation.
+	 */
+	public void setBudget(CompileBudget budget) {
+		this.budget = budget;
+	}
+
+	/**
+	 * Returns the time allowed for connecting to, and waiting for data from, the source
+	 * of a schema document: twice the idle timeout, or else the overall timeout. The
+	 * margin lets a stalled compilation be reported as such (by the thread waiting for the
+	 * result) before the read fails.
+	 * @return A timeout value in milliseconds; zero means no time limit.
+	 */
+	int getReadTimeout() {
+		CompileBudget current = this.budget;
+		long timeout = (current.getIdleTimeout() > 0) ? 2 * current.getIdleTimeout() : current.getTimeout();
+		return (int) Math.min(timeout, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Aborts the compilation. Subsequent attempts to read a schema document fail.
+	 * @param reason A brief description of the reason.
+	 */
+	public void abort(String reason) {
+		this.abortReason = reason;
+	}
+
+	/**
+	 * Indicates whether the compilation has been aborted.
+	 * @return {@code true} if {@link #abort(String)} was called; {@code false} otherwise.
+	 */
+	public boolean isAborted() {
+		return null != abortReason;
+	}
+
+	/**
+	 * Records some progress that is not otherwise counted (e.g. a shared grammar was
+	 * obtained).
+	 */
+	void advance() {
+		long now = System.nanoTime();
+		lastActivity = (0 == now) ? 1 : now;
+	}
+
+	/**
+	 * Records that grammars have been built.
+	 * @param count The number of new grammars.
+	 */
+	void grammarsBuilt(int count) {
+		grammars.addAndGet(count);
+		advance();
+	}
+
+	/**
+	 * Returns a stream for reading the schema document at the given location. The
+	 * resource is not accessed until the stream is first read, and the bytes read are
+	 * added to the counters. A document held in the {@link LocalSchemaCatalog#getDefault()
+	 * local schema catalog} is read from its local copy.
+	 * @param systemId The absolute location of a schema document.
+	 * @return An InputStream for reading the document.
+	 */
+	InputStream open(String systemId) {
+		return new MonitoredInputStream(systemId);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d documents fetched (%d bytes), %d grammars built", getDocumentCount(),
+				getByteCount(), getGrammarCount());
+	}
+
+	private void checkAborted() throws IOException {
+		String reason = abortReason;
+		if (null != reason) {
+			throw new IOException("Schema compilation aborted: " + reason);
+		}
+	}
+
+	/**
+	 * Opens a resource on first use and counts the bytes read from it.
+	 */
+	private class MonitoredInputStream extends InputStream {
+
+		private final String systemId;
+
+		private InputStream delegate;
+
+		private boolean closed;
+
+		MonitoredInputStream(String systemId) {
+			this.systemId = systemId;
+		}
+
+		private InputStream delegate() throws IOException {
+			checkAborted();
+			if (closed) {
+				throw new IOException("Stream closed: " + systemId);
+			}
+			if (null == delegate) {
+				advance();
+				LocalSchemaCatalog catalog = LocalSchemaCatalog.getDefault();
+				File localCopy = (null != catalog) ? catalog.resolve(systemId) : null;
+				delegate = (null != localCopy) ? new FileInputStream(localCopy) : openConnection(systemId);
+				documents.incrementAndGet();
+				advance();
+			}
+			return delegate;
+		}
+
+		private InputStream openConnection(String location) throws IOException {
+			URLConnection connection = new URL(location).openConnection();
+			int timeout = getReadTimeout();
+			connection.setConnectTimeout(timeout);
+			connection.setReadTimeout(timeout);
+			return connection.getInputStream();
+		}
+
+		private int count(int n) {
+			if (n > 0) {
+				bytes.addAndGet(n);
+				advance();
+			}
+			return n;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = delegate().read();
+			if (b >= 0) {
+				count(1);
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			return count(delegate().read(buffer, offset, length));
+		}
+
+		@Override
+		public int available() throws IOException {
+			return delegate().available();
+		}
+
+		@Override
+		public void close() throws IOException {
+			closed = true;
+			if (null != delegate) {
+				delegate.close();
+			}
+		}
+
+	}
+
+}
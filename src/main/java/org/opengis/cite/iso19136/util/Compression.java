@@ -0,0 +1,158 @@
+package org.opengis.cite.iso19136.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+
+/**
+ * The compression or archive format of a data resource. The format is recognized by the
+ * leading bytes of the content (the "magic number"), not by the file name, since a
+ * resource retrieved from a remote service is stored under a generated name.
+ *
+ * <ul>
+ * <li>{@link #NONE}: plain content.</li>
+ * <li>{@link #GZIP}: a gzip stream (e.g. <code>data.gml.gz</code>).</li>
+ * <li>{@link #BZIP2}: a bzip2 stream (e.g. <code>data.xml.bz2</code>).</li>
+ * <li>{@link #ZIP}: a zip archive containing a GML document, possibly along with the
+ * application schemas it refers to.</li>
+ * </ul>
+ *
+ * <p>
+ * In all cases the content is decompressed while it is read; it is never expanded to a
+ * temporary file.
+ * </p>
+ */
+public enum Compression {
+
+	/**
+	 * Uncompressed content.
+	 */
+	NONE,
+	/**
+	 * A gzip stream (RFC 1952).
+	 */
+	GZIP,
+	/**
+	 * A bzip2 stream.
+	 */
+	BZIP2,
+	/**
+	 * A zip archive.
+	 */
+	ZIP;
+
+	/** Size of the buffer used by a decompressing stream. */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Determines the format from the leading bytes of some content.
+	 * @param header A byte array containing (at least) the first few bytes.
+	 * @param length The number of valid bytes in the array.
+	 * @return The format of the content; {@link #NONE} if it is not recognized.
+	 */
+	public static Compression detect(byte[] header, int length) {
+		if (length >= 2 && (header[0] & 0xFF) == 0x1F && (header[1] & 0xFF) == 0x8B) {
+			return GZIP;
+		}
+		if (length >= 3 && header[0] == 'B' && header[1] == 'Z' && header[2] == 'h') {
+			return BZIP2;
+		}
+		if (length >= 4 && header[0] == 'P' && header[1] == 'K' && header[2] == 3 && header[3] == 4) {
+			return ZIP;
+		}
+		return NONE;
+	}
+
+	/**
+	 * Determines the format of the content of the given file.
+	 * @param file A local File.
+	 * @return The format of the content; {@link #NONE} if it is not recognized.
+	 * @throws IOException If the file cannot be read.
+	 */
+	public static Compression detect(File file) throws IOException {
+		byte[] header = new byte[4];
+		int length = 0;
+		try (InputStream inStream = new FileInputStream(file)) {
+			int n;
+			while (length < header.length && (n = inStream.read(header, length, header.length - length)) > 0) {
+				length += n;
+			}
+		}
+		return detect(header, length);
+	}
+
+	/**
+	 * Finds the entry in a zip archive that contains the data. Directories, XML Schema
+	 * resources and hidden files are ignored; a *.gml entry is preferred over a *.xml
+	 * entry, which in turn is preferred over any other remaining entry.
+	 * @param file A File containing a zip archive.
+	 * @return The name of the data entry.
+	 * @throws IOException If the archive cannot be read or contains no data entry.
+	 */
+	public static String findDataEntry(File file) throws IOException {
+		String dataEntry = null;
+		int rank = Integer.MAX_VALUE;
+		try (ZipFile zip = new ZipFile(file)) {
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				String name = entry.getName();
+				String fileName = name.substring(name.lastIndexOf('/') + 1).toLowerCase(Locale.ROOT);
+				if (entry.isDirectory() || fileName.isEmpty() || fileName.startsWith(".")
+						|| name.startsWith("__MACOSX/") || fileName.endsWith(".xsd")) {
+					continue;
+				}
+				int entryRank = fileName.endsWith(".gml") ? 0 : fileName.endsWith(".xml") ? 1 : 2;
+				if (entryRank < rank) {
+					dataEntry = name;
+					rank = entryRank;
+				}
+			}
+		}
+		if (null == dataEntry) {
+			throw new IOException("No data entry found in zip archive " + file);
+		}
+		return dataEntry;
+	}
+
+	/**
+	 * Wraps the given stream so that the decompressed content is read from it.
+	 * @param inStream An InputStream positioned at the beginning of the compressed
+	 * content.
+	 * @param entryName The name of the archive entry to read (only used if the format is
+	 * {@link #ZIP}).
+	 * @return An InputStream for reading the decompressed content; for {@link #NONE}
+	 * this is the given stream.
+	 * @throws IOException If the compressed content cannot be read, or if the entry is
+	 * not found.
+	 */
+	public InputStream decode(InputStream inStream, String entryName) throws IOException {
+		switch (this) {
+			case GZIP:
+				return new GZIPInputStream(inStream, BUFFER_SIZE);
+			case BZIP2:
+				return new BZip2CompressorInputStream(inStream, true);
+			case ZIP:
+				ZipInputStream zipStream = new ZipInputStream(inStream);
+				ZipEntry entry;
+				while (null != (entry = zipStream.getNextEntry())) {
+					if (entry.getName().equals(entryName)) {
+						return zipStream;
+					}
+				}
+				throw new IOException("Entry not found in zip archive: " + entryName);
+			default:
+				return inStream;
+		}
+	}
+
+}
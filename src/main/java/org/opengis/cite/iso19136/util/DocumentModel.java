@@ -0,0 +1,56 @@
+package org.opengis.cite.iso19136.util;
+
+/**
+ * Determines how the GML document is represented in memory.
+ *
+ * <ul>
+ * <li>{@link #DOM}: a (mutable) Xerces DOM tree; XPath expressions are evaluated using
+ * the JAXP XPath API.</li>
+ * <li>{@link #TINYTREE}: a Saxon TinyTree, which takes up considerably less memory than
+ * a DOM tree. Test classes access it through a read-only DOM view; XPath expressions
+ * are compiled once and evaluated natively by Saxon, which is much faster for the
+ * descendant axis.</li>
+ * </ul>
+ */
+public enum DocumentModel {
+
+	/**
+	 * Build a DOM tree.
+	 */
+	DOM("dom"),
+	/**
+	 * Build a Saxon TinyTree.
+	 */
+	TINYTREE("tinytree");
+
+	private final String stringRepresentation;
+
+	DocumentModel(String stringRepresentation) {
+		this.stringRepresentation = stringRepresentation;
+	}
+
+	public final String getStringRepresentation() {
+		return stringRepresentation;
+	}
+
+	/**
+	 * Returns the document model having the given name (case is ignored).
+	 * @param model The name of a document model (e.g. "tinytree").
+	 * @return The matching DocumentModel.
+	 * @throws IllegalArgumentException If no such model exists.
+	 */
+	public static DocumentModel fromString(String model) {
+		for (DocumentModel m : DocumentModel.values()) {
+			if (m.getStringRepresentation().equalsIgnoreCase(model)) {
+				return m;
+			}
+		}
+		throw new IllegalArgumentException(model);
+	}
+
+	@Override
+	public String toString() {
+		return stringRepresentation;
+	}
+
+}
@@ -0,0 +1,135 @@
+package org.opengis.cite.iso19136.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Set;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Summarizes the document element of an XML resource: its name and the value of the
+ * xsi:schemaLocation attribute (if present). This is enough to tell whether a resource
+ * is an XML Schema or an instance document, and to locate the schemas that apply to an
+ * instance. Only the beginning of the resource is read.
+ */
+public class DocumentProbe {
+
+	private final QName rootName;
+
+	private final String schemaLocation;
+
+	private final String systemId;
+
+	DocumentProbe(QName rootName, String schemaLocation, String systemId) {
+		this.rootName = rootName;
+		this.schemaLocation = schemaLocation;
+		this.systemId = systemId;
+	}
+
+	/**
+	 * Reads the document element from the given stream. Reading stops as soon as the
+	 * start tag has been parsed.
+	 * @param inStream An InputStream for reading an XML resource (it is not closed).
+	 * @param systemId The system identifier (location) of the resource; it may be
+	 * {@code null}.
+	 * @return A DocumentProbe describing the document element.
+	 * @throws XMLStreamException If the content is not well-formed, or if it ends before
+	 * the start tag of the document element is complete.
+	 */
+	public static DocumentProbe read(InputStream inStream, String systemId) throws XMLStreamException {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		XMLStreamReader reader = (null != systemId) ? factory.createXMLStreamReader(systemId, inStream)
+				: factory.createXMLStreamReader(inStream);
+		try {
+			while (reader.getEventType() != XMLStreamConstants.START_ELEMENT) {
+				if (!reader.hasNext()) {
+					throw new XMLStreamException("Document element not found.");
+				}
+				reader.next();
+			}
+			String schemaLoc = reader.getAttributeValue(XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI, "schemaLocation");
+			return new DocumentProbe(reader.getName(), schemaLoc, systemId);
+		}
+		finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Reads the document element from the given file. If the file is compressed, the
+	 * document element is read from the decompressed content (see {@link Compression});
+	 * for a zip archive, the system identifier refers to the data entry.
+	 * @param file A File containing an XML resource.
+	 * @return A DocumentProbe describing the document element.
+	 * @throws IOException If the file cannot be read.
+	 * @throws XMLStreamException If the content is not well-formed.
+	 */
+	public static DocumentProbe read(File file) throws IOException, XMLStreamException {
+		MappedDataSource dataSource = new MappedDataSource(file);
+		try (InputStream inStream = dataSource.openStream()) {
+			return read(inStream, dataSource.getSystemId());
+		}
+	}
+
+	/**
+	 * Returns the name of the document element.
+	 * @return A qualified name.
+	 */
+	public QName getRootName() {
+		return rootName;
+	}
+
+	/**
+	 * Returns the value of the xsi:schemaLocation attribute on the document element.
+	 * @return The attribute value, or {@code null} if it is not present.
+	 */
+	public String getSchemaLocation() {
+		return schemaLocation;
+	}
+
+	/**
+	 * Returns the system identifier (location) of the resource.
+	 * @return A URI reference, or {@code null} if unknown.
+	 */
+	public String getSystemId() {
+		return systemId;
+	}
+
+	/**
+	 * Indicates whether or not the resource is an XML Schema. The document element must
+	 * be in the XML Schema namespace.
+	 * @return {@code true} if the resource is an XML Schema; {@code false} otherwise.
+	 */
+	public boolean isXMLSchema() {
+		return rootName.getNamespaceURI().equals(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+	}
+
+	/**
+	 * Returns the locations of the schemas referenced by the xsi:schemaLocation
+	 * attribute. Relative references are resolved against the system identifier.
+	 * @param baseURI An alternative base URI to use if a relative reference cannot be
+	 * resolved to an existing local file; it may be {@code null}.
+	 * @return A Set containing absolute URI references.
+	 * @throws RuntimeException If the attribute is missing or contains an odd number of
+	 * values.
+	 *
+	 * @see ValidationUtils#resolveSchemaReferences(String, String, String)
+	 */
+	public Set<URI> getSchemaReferences(String baseURI) {
+		return ValidationUtils.resolveSchemaReferences(schemaLocation, systemId, baseURI);
+	}
+
+	@Override
+	public String toString() {
+		return "DocumentProbe [root=" + rootName + ", schemaLocation=" + schemaLocation + "]";
+	}
+
+}
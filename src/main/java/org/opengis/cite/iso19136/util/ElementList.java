@@ -0,0 +1,51 @@
+package org.opengis.cite.iso19136.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * A NodeList backed by an ordinary List of elements. Unlike a live DOM NodeList, its
+ * content does not change when the document is modified.
+ */
+public class ElementList implements NodeList {
+
+	private final List<Element> elements;
+
+	/**
+	 * Creates an empty ElementList.
+	 */
+	public ElementList() {
+		this.elements = new ArrayList<Element>();
+	}
+
+	/**
+	 * Creates an ElementList containing the given elements.
+	 * @param elements A List of elements (in document order).
+	 */
+	public ElementList(List<Element> elements) {
+		this.elements = new ArrayList<Element>(elements);
+	}
+
+	/**
+	 * Appends an element to the end of the list.
+	 * @param element An Element node.
+	 */
+	public void add(Element element) {
+		this.elements.add(element);
+	}
+
+	@Override
+	public Node item(int index) {
+		return (index >= 0 && index < elements.size()) ? elements.get(index) : null;
+	}
+
+	@Override
+	public int getLength() {
+		return elements.size();
+	}
+
+}
@@ -0,0 +1,629 @@
+package org.opengis.cite.iso19136.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+import javax.xml.stream.XMLStreamException;
+
+import jakarta.ws.rs.ProcessingException;
+import jakarta.ws.rs.client.Client;
+import jakarta.ws.rs.client.ClientBuilder;
+import jakarta.ws.rs.client.Invocation;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * A local, size-bounded cache of resource representations retrieved from remote
+ * locations. Each entry is keyed by the resource URI and records the validators (ETag,
+ * Last-Modified) that accompanied the representation; a cached entry is revalidated
+ * with a conditional GET request, so that an unchanged resource is not downloaded
+ * again. The content itself is stored under a name derived from its SHA-256 digest, so
+ * identical representations obtained from different URIs share a single file.
+ *
+ * <p>
+ * The cache is kept on disk and persists across test runs. When its total size exceeds
+ * the configured limit the least recently used entries are evicted. The location of the
+ * default cache is given by the system property {@value #CACHE_DIR_PROPERTY} (if unset,
+ * a subdirectory of the default temporary file directory is used); its size limit (in
+ * bytes) is given by the system property {@value #CACHE_SIZE_PROPERTY}.
+ * </p>
+ *
+ * <p>
+ * A cache directory may be shared by several processes. Changes to the directory are
+ * made while holding an exclusive lock on a lock file, and each cache instance records
+ * the entries it has used in a run file that stays locked until the instance is closed
+ * (or the process ends). An entry that is in use by a live cache instance is never
+ * evicted, even if the size limit is exceeded. The entries used by the default cache are
+ * released whenever no test run is in progress (see {@link #beginRun()}).
+ * </p>
+ *
+ * <p>
+ * Different resources may be retrieved concurrently. Requests for the same resource are
+ * served one at a time, so that a representation is not transferred twice; only the
+ * changes to the cache directory are made while holding a lock shared by all resources.
+ * </p>
+ */
+public class EntityCache implements Closeable {
+
+	/** System property that specifies the location of the cache directory. */
+	public static final String CACHE_DIR_PROPERTY = "ets.gml32.cache.dir";
+
+	/** System property that specifies the maximum size of the cache (in bytes). */
+	public static final String CACHE_SIZE_PROPERTY = "ets.gml32.cache.maxSize";
+
+	/** Default maximum size of the cache (1 GiB). */
+	public static final long DEFAULT_MAX_SIZE = 1L << 30;
+
+	private static final String ENTRY_SUFFIX = ".entry";
+
+	private static final String CONTENT_SUFFIX = ".xml";
+
+	private static final String RUN_SUFFIX = ".run";
+
+	private static final String LOCK_FILE = ".lock";
+
+	/** The position of the byte that is locked to mark a run file as live. */
+	private static final long LIVE_MARKER = Long.MAX_VALUE - 1;
+
+	private static final String URI_KEY = "uri";
+
+	private static final String ETAG_KEY = "etag";
+
+	private static final String LAST_MODIFIED_KEY = "lastModified";
+
+	private static final String CONTENT_KEY = "content";
+
+	private static EntityCache defaultCache;
+
+	private static Client client;
+
+	/** The number of test runs in progress that use the default cache. */
+	private static int activeRuns;
+
+	/**
+	 * The names of the files in use by the cache instances in this JVM, by run file. It
+	 * also serves to serialize access to the lock files within the JVM.
+	 */
+	private static final Map<File, Set<String>> LOCAL_RUNS = new HashMap<File, Set<String>>();
+
+	private final File cacheDir;
+
+	private final long maxSize;
+
+	private final AtomicInteger downloadCount = new AtomicInteger();
+
+	/** The locks that serialize requests for the same resource, by URI. */
+	private final ConcurrentMap<URI, Object> resourceLocks = new ConcurrentHashMap<URI, Object>();
+
+	/** The names of the entry and content files used by this instance (guarded by LOCAL_RUNS). */
+	private final Set<String> namesInUse = new HashSet<String>();
+
+	private File runFile;
+
+	private FileChannel runChannel;
+
+	/**
+	 * Creates an entity cache in the given directory.
+	 * @param cacheDir The directory in which entries are stored; it is created if it
+	 * does not exist.
+	 * @param maxSize The maximum total size of the cached content (in bytes).
+	 */
+	public EntityCache(File cacheDir, long maxSize) {
+		if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+			throw new IllegalArgumentException("Cannot create cache directory at " + cacheDir);
+		}
+		this.cacheDir = cacheDir;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Returns the cache that is shared by all test runs in this JVM.
+	 * @return The default EntityCache.
+	 */
+	public static synchronized EntityCache getDefault() {
+		if (null == defaultCache) {
+			String dirName = System.getProperty(CACHE_DIR_PROPERTY);
+			File dir = (null != dirName) ? new File(dirName)
+					: new File(System.getProperty("java.io.tmpdir"), "ets-gml32" + File.separator + "entities");
+			long size = Long.getLong(CACHE_SIZE_PROPERTY, DEFAULT_MAX_SIZE);
+			defaultCache = new EntityCache(dir, size);
+		}
+		return defaultCache;
+	}
+
+	/**
+	 * Records that a test run has started. The entries used by the default cache are
+	 * kept until every test run that has started has also ended.
+	 */
+	public static synchronized void beginRun() {
+		activeRuns++;
+	}
+
+	/**
+	 * Records that a test run has ended. If no other test run is in progress, the entries
+	 * used by the default cache are released (see {@link #close()}).
+	 * @throws IOException If the entries cannot be released.
+	 */
+	public static synchronized void endRun() throws IOException {
+		if (activeRuns > 0) {
+			activeRuns--;
+		}
+		if (0 == activeRuns && null != defaultCache) {
+			defaultCache.close();
+		}
+	}
+
+	/**
+	 * Returns the HTTP client shared by all cache instances. The client (and its
+	 * connection pool) is reused for every request.
+	 * @return A JAX-RS Client.
+	 */
+	static synchronized Client getClient() {
+		if (null == client) {
+			client = ClientBuilder.newClient();
+		}
+		return client;
+	}
+
+	/**
+	 * Returns the directory in which cache entries are stored.
+	 * @return A File denoting a directory.
+	 */
+	public File getCacheDirectory() {
+		return cacheDir;
+	}
+
+	/**
+	 * Returns the number of times a representation has been transferred from a remote
+	 * location (that is, not validated with a "304 Not Modified" response).
+	 * @return The number of downloads performed by this cache.
+	 */
+	public int getDownloadCount() {
+		return downloadCount.get();
+	}
+
+	/**
+	 * Obtains a local copy of the representation of the resource identified by the
+	 * given URI. If a cached copy exists it is revalidated using a conditional request;
+	 * if the origin server cannot be reached or returns an error status, the cached copy
+	 * is used as is. Only a successful (2xx) response replaces a cached copy.
+	 * @param uri An absolute 'http' or 'https' URI.
+	 * @return A File containing the resource representation (it may be empty if the
+	 * response contained no entity). The file must not be modified.
+	 * @throws IOException If the resource cannot be retrieved (or the response has an
+	 * error status) and no cached copy exists.
+	 */
+	public File resolve(URI uri) throws IOException {
+		return resolve(uri, null);
+	}
+
+	/**
+	 * Obtains a local copy of the representation of the resource identified by the
+	 * given URI, and inspects the document element of the (XML) content. If the
+	 * representation is transferred, the handler is notified as soon as the start tag
+	 * of the document element has been received, while the remaining content is still
+	 * being downloaded; otherwise the start tag is read from the cached copy.
+	 * @param uri An absolute 'http' or 'https' URI.
+	 * @param probeHandler Receives a description of the document element; it may be
+	 * {@code null}. It is not notified if the content is not XML. It must not wait for
+	 * another request for the same resource.
+	 * @return A File containing the resource representation. The file must not be
+	 * modified.
+	 * @throws IOException If the resource cannot be retrieved (or the response has an
+	 * error status) and no cached copy exists.
+	 */
+	public File resolve(URI uri, Consumer<DocumentProbe> probeHandler) throws IOException {
+		synchronized (resourceLocks.computeIfAbsent(uri, key -> new Object())) {
+			return resolveEntry(uri, probeHandler);
+		}
+	}
+
+	private File resolveEntry(URI uri, Consumer<DocumentProbe> probeHandler) throws IOException {
+		File entryFile = getEntryFile(uri);
+		Properties entry = withDirectoryLock(() -> useEntry(entryFile));
+		File cachedContent = (null != entry) ? new File(cacheDir, entry.getProperty(CONTENT_KEY)) : null;
+		Invocation.Builder request = getClient().target(uri).request();
+		if (null != entry) {
+			if (entry.containsKey(ETAG_KEY)) {
+				request.header(HttpHeaders.IF_NONE_MATCH, entry.getProperty(ETAG_KEY));
+			}
+			if (entry.containsKey(LAST_MODIFIED_KEY)) {
+				request.header(HttpHeaders.IF_MODIFIED_SINCE, entry.getProperty(LAST_MODIFIED_KEY));
+			}
+		}
+		Response rsp;
+		try {
+			rsp = request.get();
+		}
+		catch (ProcessingException e) {
+			if (null != cachedContent) {
+				TestSuiteLogger.log(Level.WARNING, "Failed to revalidate cached entity for " + uri, e);
+				touch(entryFile);
+				probe(cachedContent, uri, probeHandler);
+				return cachedContent;
+			}
+			throw new IOException("Failed to retrieve " + uri, e);
+		}
+		try {
+			int status = rsp.getStatus();
+			if (status == Response.Status.NOT_MODIFIED.getStatusCode() && null != cachedContent) {
+				TestSuiteLogger.log(Level.FINE, "Using cached entity for " + uri);
+				touch(entryFile);
+				probe(cachedContent, uri, probeHandler);
+				return cachedContent;
+			}
+			if (rsp.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL) {
+				// an error response never replaces a cached copy
+				if (null != cachedContent) {
+					TestSuiteLogger.log(Level.WARNING,
+							String.format("Using cached entity for %s (status %d)", uri, status));
+					touch(entryFile);
+					probe(cachedContent, uri, probeHandler);
+					return cachedContent;
+				}
+				throw new IOException(String.format("Failed to retrieve %s (status %d)", uri, status));
+			}
+			File content = store(rsp, uri, probeHandler);
+			downloadCount.incrementAndGet();
+			Properties newEntry = new Properties();
+			newEntry.setProperty(URI_KEY, uri.toString());
+			newEntry.setProperty(CONTENT_KEY, content.getName());
+			String etag = rsp.getHeaderString(HttpHeaders.ETAG);
+			if (null != etag) {
+				newEntry.setProperty(ETAG_KEY, etag);
+			}
+			String lastModified = rsp.getHeaderString(HttpHeaders.LAST_MODIFIED);
+			if (null != lastModified) {
+				newEntry.setProperty(LAST_MODIFIED_KEY, lastModified);
+			}
+			withDirectoryLock(() -> {
+				writeEntry(entryFile, newEntry);
+				pin(entryFile.getName());
+				evict();
+				return null;
+			});
+			TestSuiteLogger.log(Level.FINE,
+					"Wrote " + content.length() + " bytes to file at " + content.getAbsolutePath());
+			return content;
+		}
+		finally {
+			rsp.close();
+		}
+	}
+
+	/**
+	 * Releases the entries used by this cache instance, so that they may be evicted.
+	 * Files previously obtained from this instance must no longer be read; the instance
+	 * may still be used to resolve resources.
+	 * @throws IOException If the run file cannot be removed.
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (LOCAL_RUNS) {
+			if (null == runFile) {
+				return;
+			}
+			LOCAL_RUNS.remove(runFile);
+			runChannel.close();
+			Files.deleteIfExists(runFile.toPath());
+			runFile = null;
+			namesInUse.clear();
+		}
+	}
+
+	/**
+	 * Indicates whether this cache instance currently uses any entries.
+	 * @return {@code true} if some entries are pinned by this instance; {@code false}
+	 * otherwise.
+	 */
+	boolean hasEntriesInUse() {
+		synchronized (LOCAL_RUNS) {
+			return !namesInUse.isEmpty();
+		}
+	}
+
+	/**
+	 * Reads the entry for a resource and marks it (and its content) as being in use. The
+	 * directory lock must be held.
+	 * @return The entry, or {@code null} if there is no entry or its content is missing.
+	 */
+	private Properties useEntry(File entryFile) throws IOException {
+		Properties entry = readEntry(entryFile);
+		if (null == entry || !new File(cacheDir, entry.getProperty(CONTENT_KEY)).isFile()) {
+			return null;
+		}
+		pin(entryFile.getName(), entry.getProperty(CONTENT_KEY));
+		return entry;
+	}
+
+	/**
+	 * Writes the response entity to a file whose name is the SHA-256 digest of its
+	 * content.
+	 */
+	private File store(Response rsp, URI uri, Consumer<DocumentProbe> probeHandler) throws IOException {
+		File tempFile = File.createTempFile("entity-", ".tmp", cacheDir);
+		MessageDigest digest = newDigest();
+		if (rsp.hasEntity()) {
+			InputStream entity = rsp.readEntity(InputStream.class);
+			if (null != probeHandler) {
+				entity = new SniffingInputStream(entity, uri.toString(), probeHandler);
+			}
+			try (InputStream is = new DigestInputStream(entity, digest);
+					OutputStream os = new FileOutputStream(tempFile)) {
+				byte[] buffer = new byte[8 * 1024];
+				int bytesRead;
+				while ((bytesRead = is.read(buffer)) != -1) {
+					os.write(buffer, 0, bytesRead);
+				}
+			}
+		}
+		File content = new File(cacheDir, toHex(digest.digest()) + CONTENT_SUFFIX);
+		return withDirectoryLock(() -> {
+			pin(content.getName());
+			if (content.isFile()) {
+				Files.delete(tempFile.toPath());
+			}
+			else {
+				Files.move(tempFile.toPath(), content.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			return content;
+		});
+	}
+
+	/**
+	 * Removes the least recently used entries until the total size of the cached
+	 * content no longer exceeds the limit. Entries that are in use by a live cache
+	 * instance (in any process) are never evicted. The directory lock must be held.
+	 */
+	private void evict() {
+		File[] entryFiles = cacheDir.listFiles((dir, name) -> name.endsWith(ENTRY_SUFFIX));
+		if (null == entryFiles) {
+			return;
+		}
+		Map<String, List<File>> referrers = new HashMap<String, List<File>>();
+		List<File> entries = new ArrayList<File>();
+		for (File entryFile : entryFiles) {
+			Properties entry = readEntry(entryFile);
+			if (null == entry) {
+				continue;
+			}
+			String content = entry.getProperty(CONTENT_KEY);
+			List<File> refs = referrers.get(content);
+			if (null == refs) {
+				refs = new ArrayList<File>();
+				referrers.put(content, refs);
+			}
+			refs.add(entryFile);
+			entries.add(entryFile);
+		}
+		long totalSize = 0;
+		for (String content : referrers.keySet()) {
+			totalSize += new File(cacheDir, content).length();
+		}
+		if (totalSize <= maxSize) {
+			return;
+		}
+		Set<String> inUse = getNamesInUse();
+		Collections.sort(entries, Comparator.comparingLong(File::lastModified));
+		for (File entryFile : entries) {
+			if (totalSize <= maxSize) {
+				break;
+			}
+			Properties entry = readEntry(entryFile);
+			String content = entry.getProperty(CONTENT_KEY);
+			if (inUse.contains(entryFile.getName()) || inUse.contains(content)) {
+				continue;
+			}
+			entryFile.delete();
+			List<File> refs = referrers.get(content);
+			refs.remove(entryFile);
+			if (refs.isEmpty()) {
+				File contentFile = new File(cacheDir, content);
+				totalSize -= contentFile.length();
+				contentFile.delete();
+				TestSuiteLogger.log(Level.FINE, "Evicted cached entity " + entry.getProperty(URI_KEY));
+			}
+		}
+	}
+
+	/**
+	 * Collects the names of the files that are in use by live cache instances. Run files
+	 * left behind by terminated processes are removed.
+	 */
+	private Set<String> getNamesInUse() {
+		Set<String> names = new HashSet<String>();
+		for (Set<String> localNames : LOCAL_RUNS.values()) {
+			names.addAll(localNames);
+		}
+		File[] runFiles = cacheDir.listFiles((dir, name) -> name.endsWith(RUN_SUFFIX));
+		if (null == runFiles) {
+			return names;
+		}
+		for (File file : runFiles) {
+			// a run file of this JVM must not be opened (closing it would release its lock)
+			if (LOCAL_RUNS.containsKey(file)) {
+				continue;
+			}
+			try {
+				if (isLive(file)) {
+					names.addAll(Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+				}
+				else {
+					Files.deleteIfExists(file.toPath());
+					TestSuiteLogger.log(Level.FINE, "Removed stale run file " + file);
+				}
+			}
+			catch (IOException e) {
+				TestSuiteLogger.log(Level.WARNING, "Failed to read run file " + file, e);
+			}
+		}
+		return names;
+	}
+
+	/**
+	 * Determines whether the process that created a run file is still using the cache.
+	 */
+	private static boolean isLive(File runFile) throws IOException {
+		try (FileChannel channel = FileChannel.open(runFile.toPath(), StandardOpenOption.READ)) {
+			FileLock lock = channel.tryLock(LIVE_MARKER, 1, true);
+			if (null == lock) {
+				return true;
+			}
+			lock.release();
+			return false;
+		}
+		catch (OverlappingFileLockException e) {
+			return true;
+		}
+		catch (NoSuchFileException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Records that the given files are in use by this instance. The run file is created
+	 * on first use. The directory lock must be held.
+	 */
+	private void pin(String... names) throws IOException {
+		if (null == runFile) {
+			File file = File.createTempFile("run-", RUN_SUFFIX, cacheDir);
+			file.deleteOnExit();
+			runChannel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+			// the lock is released when the channel is closed or the process ends
+			runChannel.lock(LIVE_MARKER, 1, false);
+			runFile = file;
+			LOCAL_RUNS.put(runFile, namesInUse);
+		}
+		StringBuilder lines = new StringBuilder();
+		for (String name : names) {
+			if (namesInUse.add(name)) {
+				lines.append(name).append('\n');
+			}
+		}
+		if (lines.length() > 0) {
+			runChannel.write(ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8)));
+		}
+	}
+
+	/**
+	 * Performs an action while holding an exclusive lock on the cache directory.
+	 */
+	private <T> T withDirectoryLock(LockedAction<T> action) throws IOException {
+		synchronized (LOCAL_RUNS) {
+			File lockFile = new File(cacheDir, LOCK_FILE);
+			try (FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE); FileLock lock = channel.lock()) {
+				return action.run();
+			}
+		}
+	}
+
+	/**
+	 * Reads the document element from a cached copy and notifies the handler.
+	 */
+	private static void probe(File content, URI uri, Consumer<DocumentProbe> probeHandler) {
+		if (null == probeHandler) {
+			return;
+		}
+		try (InputStream inStream = new FileInputStream(content)) {
+			probeHandler.accept(DocumentProbe.read(inStream, uri.toString()));
+		}
+		catch (IOException | XMLStreamException e) {
+			TestSuiteLogger.log(Level.FINE, "Document element not found in cached entity for " + uri);
+		}
+	}
+
+	private File getEntryFile(URI uri) {
+		MessageDigest digest = newDigest();
+		byte[] hash = digest.digest(uri.toString().getBytes(StandardCharsets.UTF_8));
+		return new File(cacheDir, toHex(hash) + ENTRY_SUFFIX);
+	}
+
+	private static Properties readEntry(File entryFile) {
+		if (!entryFile.isFile()) {
+			return null;
+		}
+		Properties entry = new Properties();
+		try (InputStream in = new FileInputStream(entryFile)) {
+			entry.load(in);
+		}
+		catch (IOException e) {
+			TestSuiteLogger.log(Level.WARNING, "Failed to read cache entry " + entryFile, e);
+			return null;
+		}
+		return entry.containsKey(CONTENT_KEY) ? entry : null;
+	}
+
+	private static void writeEntry(File entryFile, Properties entry) throws IOException {
+		try (OutputStream out = new FileOutputStream(entryFile)) {
+			entry.store(out, null);
+		}
+	}
+
+	/**
+	 * Records an access to an entry (the modification time of the entry file is used to
+	 * determine the least recently used entries).
+	 */
+	private static void touch(File entryFile) {
+		entryFile.setLastModified(System.currentTimeMillis());
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException e) { // always supported
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder str = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			str.append(String.format("%02x", b));
+		}
+		return str.toString();
+	}
+
+	/**
+	 * An action performed while the cache directory is locked.
+	 */
+	private interface LockedAction<T> {
+
+		T run() throws IOException;
+
+	}
+
+}
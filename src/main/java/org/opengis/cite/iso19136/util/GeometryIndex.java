@@ -0,0 +1,330 @@
+package org.opengis.cite.iso19136.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.xerces.xs.XSElementDeclaration;
+import org.apache.xerces.xs.XSModel;
+import org.opengis.cite.iso19136.GML32;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * An index of the geometry elements that occur in a GML document. The index is built in
+ * a single streaming pass over the document; it records the name, kind, and location of
+ * every element that is checked by the spatial data tests. The set of element names is
+ * determined by the substitution groups defined in the application schema.
+ *
+ * <p>
+ * Each entry also records the position of the element among all elements having the
+ * same name (in document order), so that the corresponding DOM node can be retrieved
+ * directly without evaluating an XPath expression.
+ * </p>
+ */
+public class GeometryIndex {
+
+	private final Map<QName, Set<GeometryKind>> elementKinds;
+
+	private final Map<GeometryKind, List<Entry>> entries = new EnumMap<GeometryKind, List<Entry>>(
+			GeometryKind.class);
+
+	private final GmlIdIndex idIndex = new GmlIdIndex();
+
+	private int size;
+
+	GeometryIndex(Map<QName, Set<GeometryKind>> elementKinds) {
+		this.elementKinds = elementKinds;
+		for (GeometryKind kind : GeometryKind.values()) {
+			this.entries.put(kind, new ArrayList<Entry>());
+		}
+	}
+
+	/**
+	 * Builds an index of the geometry elements occurring in the given GML document.
+	 * @param dataFile A File containing GML data (it may be compressed).
+	 * @param model An XSModel representing the application schema; if {@code null}, only
+	 * elements in the GML namespace are indexed.
+	 * @return A new GeometryIndex.
+	 * @throws XMLStreamException If the document is not well-formed.
+	 * @throws IOException If the file cannot be read.
+	 */
+	public static GeometryIndex build(File dataFile, XSModel model) throws XMLStreamException, IOException {
+		try (InputStream inStream = new MappedDataSource(dataFile).openStream()) {
+			return build(inStream, model);
+		}
+	}
+
+	/**
+	 * Builds an index of the geometry elements occurring in the GML document read from
+	 * the given stream. The stream is not closed.
+	 * @param inStream An InputStream for reading GML data.
+	 * @param model An XSModel representing the application schema; if {@code null}, only
+	 * elements in the GML namespace are indexed.
+	 * @return A new GeometryIndex.
+	 * @throws XMLStreamException If the document is not well-formed.
+	 */
+	public static GeometryIndex build(InputStream inStream, XSModel model) throws XMLStreamException {
+		GeometryIndex index = new GeometryIndex(getGeometryElementNames(model));
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		XMLStreamReader reader = factory.createXMLStreamReader(inStream);
+		try {
+			index.addElements(reader);
+		}
+		finally {
+			reader.close();
+		}
+		return index;
+	}
+
+	/**
+	 * Determines which elements are indexed, and the kind of geometry each represents.
+	 * The GML elements are always included; the members of the relevant substitution
+	 * groups are added if a schema model is available.
+	 * @param model An XSModel representing the application schema (may be
+	 * {@code null}).
+	 * @return A Map where each key is an element name and the value is the set of
+	 * geometry kinds it belongs to.
+	 */
+	public static Map<QName, Set<GeometryKind>> getGeometryElementNames(XSModel model) {
+		Map<QName, Set<GeometryKind>> kinds = new HashMap<QName, Set<GeometryKind>>();
+		addElementKind(kinds, new QName(GML32.NS_NAME, GML32.POINT), GeometryKind.POINT);
+		addElementKind(kinds, new QName(GML32.NS_NAME, GML32.CURVE), GeometryKind.CURVE);
+		addElementKind(kinds, new QName(GML32.NS_NAME, GML32.LINE_STRING), GeometryKind.LINE_STRING);
+		addElementKind(kinds, new QName(GML32.NS_NAME, GML32.COMP_CURVE), GeometryKind.COMPOSITE_CURVE);
+		addElementKind(kinds, new QName(GML32.NS_NAME, GML32.ENVELOPE), GeometryKind.ENVELOPE);
+		if (null != model) {
+			addSubstitutionGroup(kinds, model, GML32.POINT, GeometryKind.POINT);
+			addSubstitutionGroup(kinds, model, GML32.CURVE, GeometryKind.CURVE);
+			addSubstitutionGroup(kinds, model, GML32.LINE_STRING, GeometryKind.LINE_STRING);
+			addSubstitutionGroup(kinds, model, GML32.ABSTRACT_SURFACE, GeometryKind.SURFACE);
+		}
+		return kinds;
+	}
+
+	/**
+	 * Returns the entries for all indexed elements of the given kind.
+	 * @param kind The kind of geometry element.
+	 * @return An unmodifiable List of index entries (in document order); it may be
+	 * empty.
+	 */
+	public List<Entry> getEntries(GeometryKind kind) {
+		return Collections.unmodifiableList(entries.get(kind));
+	}
+
+	/**
+	 * Returns the names of the elements that are indexed as the given kind.
+	 * @param kind The kind of geometry element.
+	 * @return A Set of qualified element names.
+	 */
+	public Set<QName> getElementNames(GeometryKind kind) {
+		Set<QName> names = new HashSet<QName>();
+		for (Map.Entry<QName, Set<GeometryKind>> entry : elementKinds.entrySet()) {
+			if (entry.getValue().contains(kind)) {
+				names.add(entry.getKey());
+			}
+		}
+		return names;
+	}
+
+	/**
+	 * Returns the number of elements of the given kind.
+	 * @param kind The kind of geometry element.
+	 * @return The number of matching elements in the document.
+	 */
+	public int count(GeometryKind kind) {
+		return entries.get(kind).size();
+	}
+
+	/**
+	 * Returns the total number of indexed elements (an element of several kinds is only
+	 * counted once).
+	 * @return The number of indexed elements.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the index of the gml:id values that was built in the same pass over the
+	 * document.
+	 * @return A GmlIdIndex covering all elements in the document.
+	 */
+	public GmlIdIndex getIdIndex() {
+		return idIndex;
+	}
+
+	/**
+	 * Retrieves the DOM elements of the given kind from a parsed representation of the
+	 * indexed document.
+	 * @param doc A DOM Document created from the same data as the index.
+	 * @param kind The kind of geometry element.
+	 * @return A NodeList containing the matching elements in document order.
+	 */
+	public NodeList findElements(Document doc, GeometryKind kind) {
+		ElementList elements = new ElementList();
+		Map<QName, NodeList> nodesByName = new HashMap<QName, NodeList>();
+		for (Entry entry : entries.get(kind)) {
+			QName name = entry.getName();
+			NodeList nodes = nodesByName.get(name);
+			if (null == nodes) {
+				nodes = doc.getElementsByTagNameNS(name.getNamespaceURI(), name.getLocalPart());
+				nodesByName.put(name, nodes);
+			}
+			Element elem = (Element) nodes.item(entry.getOrdinal());
+			if (null != elem) {
+				elements.add(elem);
+			}
+		}
+		return elements;
+	}
+
+	void addElements(XMLStreamReader reader) throws XMLStreamException {
+		Map<QName, Integer> counts = new HashMap<QName, Integer>();
+		while (reader.hasNext()) {
+			if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+				continue;
+			}
+			idIndex.addElement(reader);
+			QName name = reader.getName();
+			Set<GeometryKind> kinds = elementKinds.get(name);
+			if (null == kinds) {
+				continue;
+			}
+			Integer ordinal = counts.get(name);
+			ordinal = (null == ordinal) ? 0 : ordinal + 1;
+			counts.put(name, ordinal);
+			Location loc = reader.getLocation();
+			Entry entry = new Entry(name, kinds, ordinal, loc.getLineNumber(), loc.getColumnNumber(),
+					loc.getCharacterOffset());
+			for (GeometryKind kind : kinds) {
+				entries.get(kind).add(entry);
+			}
+			size++;
+		}
+	}
+
+	private static void addSubstitutionGroup(Map<QName, Set<GeometryKind>> kinds, XSModel model, String headName,
+			GeometryKind kind) {
+		XSElementDeclaration head = model.getElementDeclaration(headName, GML32.NS_NAME);
+		for (XSElementDeclaration decl : XMLSchemaModelUtils.getElementsByAffiliation(model, head)) {
+			addElementKind(kinds, new QName(decl.getNamespace(), decl.getName()), kind);
+		}
+	}
+
+	private static void addElementKind(Map<QName, Set<GeometryKind>> kinds, QName name, GeometryKind kind) {
+		Set<GeometryKind> kindSet = kinds.get(name);
+		if (null == kindSet) {
+			kindSet = EnumSet.noneOf(GeometryKind.class);
+			kinds.put(name, kindSet);
+		}
+		kindSet.add(kind);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder str = new StringBuilder("GeometryIndex [");
+		for (GeometryKind kind : GeometryKind.values()) {
+			str.append(kind).append(": ").append(count(kind)).append(", ");
+		}
+		str.append("total: ").append(size).append(']');
+		return str.toString();
+	}
+
+	/**
+	 * An entry in the geometry index that records the name, kind, and location of a
+	 * geometry element.
+	 */
+	public static class Entry {
+
+		private final QName name;
+
+		private final Set<GeometryKind> kinds;
+
+		private final int ordinal;
+
+		private final int lineNumber;
+
+		private final int columnNumber;
+
+		private final int characterOffset;
+
+		Entry(QName name, Set<GeometryKind> kinds, int ordinal, int lineNumber, int columnNumber,
+				int characterOffset) {
+			this.name = name;
+			this.kinds = kinds;
+			this.ordinal = ordinal;
+			this.lineNumber = lineNumber;
+			this.columnNumber = columnNumber;
+			this.characterOffset = characterOffset;
+		}
+
+		/**
+		 * @return The qualified name of the element.
+		 */
+		public QName getName() {
+			return name;
+		}
+
+		/**
+		 * @return An unmodifiable set of the geometry kinds the element belongs to.
+		 */
+		public Set<GeometryKind> getKinds() {
+			return Collections.unmodifiableSet(kinds);
+		}
+
+		/**
+		 * @return The position of the element among all elements with the same name
+		 * (starting at 0, in document order).
+		 */
+		public int getOrdinal() {
+			return ordinal;
+		}
+
+		/**
+		 * @return The line number at which the start tag ends, or -1 if not available.
+		 */
+		public int getLineNumber() {
+			return lineNumber;
+		}
+
+		/**
+		 * @return The column number at which the start tag ends, or -1 if not available.
+		 */
+		public int getColumnNumber() {
+			return columnNumber;
+		}
+
+		/**
+		 * @return The character offset at which the start tag ends, or -1 if not
+		 * available.
+		 */
+		public int getCharacterOffset() {
+			return characterOffset;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s[%d] (line %d, column %d)", name, ordinal, lineNumber, columnNumber);
+		}
+
+	}
+
+}
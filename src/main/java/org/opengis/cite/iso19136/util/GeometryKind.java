@@ -0,0 +1,20 @@
+package org.opengis.cite.iso19136.util;
+
+/**
+ * Denotes a kind of geometry element that is checked by the data tests. Each kind
+ * corresponds to a GML element and the members of its substitution group.
+ *
+ * <ul>
+ * <li>{@link #POINT}: gml:Point</li>
+ * <li>{@link #CURVE}: gml:Curve</li>
+ * <li>{@link #LINE_STRING}: gml:LineString</li>
+ * <li>{@link #COMPOSITE_CURVE}: gml:CompositeCurve</li>
+ * <li>{@link #SURFACE}: gml:AbstractSurface</li>
+ * <li>{@link #ENVELOPE}: gml:Envelope</li>
+ * </ul>
+ */
+public enum GeometryKind {
+
+	POINT, CURVE, LINE_STRING, COMPOSITE_CURVE, SURFACE, ENVELOPE;
+
+}
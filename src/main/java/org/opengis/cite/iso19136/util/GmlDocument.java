@@ -0,0 +1,222 @@
+package org.opengis.cite.iso19136.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.logging.Level;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import net.sf.saxon.s9api.SaxonApiException;
+
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+/**
+ * Provides shared access to the parsed content of a GML document. The document is parsed
+ * at most once (unless it has been released) and the resulting DOM tree is made
+ * available to all test classes that inspect the data. How long the tree is retained is
+ * determined by a {@link MemoryPolicy}; its representation is determined by a
+ * {@link DocumentModel}.
+ *
+ * <p>
+ * <strong>Note:</strong> A DOM Document is not thread-safe, even for read access. The
+ * tree obtained from {@link #getDocument()} must not be modified or accessed
+ * concurrently.
+ * </p>
+ */
+public class GmlDocument {
+
+	private final File dataFile;
+
+	private final MappedDataSource dataSource;
+
+	private final MemoryPolicy policy;
+
+	private final DocumentModel model;
+
+	private Document document;
+
+	private SoftReference<Document> softDocument;
+
+	private int parseCount;
+
+	/**
+	 * Creates a GmlDocument that retains the document tree until it is explicitly
+	 * released.
+	 * @param dataFile A File containing GML data.
+	 */
+	public GmlDocument(File dataFile) {
+		this(dataFile, MemoryPolicy.KEEP);
+	}
+
+	/**
+	 * Creates a GmlDocument that manages the document tree according to the given
+	 * policy.
+	 * @param dataFile A File containing GML data.
+	 * @param policy The memory policy to apply; if {@code null} the default
+	 * ({@link MemoryPolicy#KEEP}) is used.
+	 */
+	public GmlDocument(File dataFile, MemoryPolicy policy) {
+		this(new MappedDataSource(dataFile), policy);
+	}
+
+	/**
+	 * Creates a GmlDocument that reads the data from the given source and manages the
+	 * document tree according to the given policy.
+	 * @param dataSource A MappedDataSource providing the GML data.
+	 * @param policy The memory policy to apply; if {@code null} the default
+	 * ({@link MemoryPolicy#KEEP}) is used.
+	 */
+	public GmlDocument(MappedDataSource dataSource, MemoryPolicy policy) {
+		this(dataSource, policy, DocumentModel.DOM);
+	}
+
+	/**
+	 * Creates a GmlDocument that reads the data from the given source and builds a tree
+	 * of the given kind.
+	 * @param dataSource A MappedDataSource providing the GML data.
+	 * @param policy The memory policy to apply; if {@code null} the default
+	 * ({@link MemoryPolicy#KEEP}) is used.
+	 * @param model The document model to build; if {@code null} the default
+	 * ({@link DocumentModel#DOM}) is used.
+	 */
+	public GmlDocument(MappedDataSource dataSource, MemoryPolicy policy, DocumentModel model) {
+		if (null == dataSource) {
+			throw new IllegalArgumentException("Data source is null.");
+		}
+		this.dataSource = dataSource;
+		this.dataFile = dataSource.getFile();
+		this.policy = (null != policy) ? policy : MemoryPolicy.KEEP;
+		this.model = (null != model) ? model : DocumentModel.DOM;
+	}
+
+	/**
+	 * Returns the file containing the GML data.
+	 * @return A File object.
+	 */
+	public File getFile() {
+		return dataFile;
+	}
+
+	/**
+	 * Returns the (memory-mapped) source of the GML data. Consumers that read the data
+	 * as a stream should obtain it from here rather than open the file again.
+	 * @return A MappedDataSource object.
+	 */
+	public MappedDataSource getDataSource() {
+		return dataSource;
+	}
+
+	/**
+	 * Returns the memory policy that applies to the document tree.
+	 * @return A MemoryPolicy value.
+	 */
+	public MemoryPolicy getMemoryPolicy() {
+		return policy;
+	}
+
+	/**
+	 * Returns the model used to represent the document in memory.
+	 * @return A DocumentModel value.
+	 */
+	public DocumentModel getDocumentModel() {
+		return model;
+	}
+
+	/**
+	 * Returns the parsed GML document. The file is parsed on first access and whenever
+	 * the tree has been released (or reclaimed) since the last access. The document URI
+	 * is set to the location of the data file so that relative references can be
+	 * resolved.
+	 * @return A DOM Document node; if the document model is
+	 * {@link DocumentModel#TINYTREE TINYTREE}, this is a read-only view of a Saxon tree.
+	 * @throws RuntimeException If the data cannot be read or is not well-formed.
+	 */
+	public synchronized Document getDocument() {
+		Document doc = this.document;
+		if (null == doc && null != this.softDocument) {
+			doc = this.softDocument.get();
+		}
+		if (null == doc) {
+			doc = parse();
+			if (this.policy == MemoryPolicy.SPILL || this.policy == MemoryPolicy.STREAM) {
+				this.softDocument = new SoftReference<Document>(doc);
+			}
+			else {
+				this.document = doc;
+			}
+		}
+		return doc;
+	}
+
+	/**
+	 * Indicates whether or not a parsed document tree is currently held in memory.
+	 * @return {@code true} if the tree is available without parsing the data again;
+	 * {@code false} otherwise.
+	 */
+	public synchronized boolean isLoaded() {
+		return (null != this.document) || (null != this.softDocument && null != this.softDocument.get());
+	}
+
+	/**
+	 * Returns the number of times the data file has been parsed.
+	 * @return The number of parse operations performed so far.
+	 */
+	public synchronized int getParseCount() {
+		return parseCount;
+	}
+
+	/**
+	 * Discards the document tree so that it may be garbage collected. The data will be
+	 * parsed again if the document is subsequently requested.
+	 */
+	public synchronized void release() {
+		if (isLoaded()) {
+			TestSuiteLogger.log(Level.FINE, "Releasing parsed document " + dataFile.getAbsolutePath());
+		}
+		this.document = null;
+		this.softDocument = null;
+	}
+
+	private Document parse() {
+		Document doc = (this.model == DocumentModel.TINYTREE) ? buildTinyTree() : parseDOM();
+		this.parseCount++;
+		TestSuiteLogger.log(Level.FINE, String.format("Parsed %s (parse count: %d, memory policy: %s, model: %s)",
+				dataFile.getAbsolutePath(), parseCount, policy, model));
+		return doc;
+	}
+
+	private Document parseDOM() {
+		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware(true);
+		Document doc;
+		try {
+			DocumentBuilder builder = factory.newDocumentBuilder();
+			doc = builder.parse(this.dataSource.openStream(), this.dataSource.getSystemId());
+		}
+		catch (ParserConfigurationException | SAXException | IOException e) {
+			throw new RuntimeException("Failed to parse GML document at " + dataFile.getAbsolutePath(), e);
+		}
+		doc.setDocumentURI(this.dataSource.getSystemId());
+		return doc;
+	}
+
+	private Document buildTinyTree() {
+		try {
+			return SaxonXPath.toDocument(SaxonXPath.buildDocument(this.dataSource.getSource()));
+		}
+		catch (SaxonApiException | IOException e) {
+			throw new RuntimeException("Failed to parse GML document at " + dataFile.getAbsolutePath(), e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "GmlDocument [file=" + dataFile + ", policy=" + policy + ", model=" + model + ", loaded=" + isLoaded()
+				+ "]";
+	}
+
+}
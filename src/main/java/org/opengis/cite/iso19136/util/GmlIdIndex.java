@@ -0,0 +1,404 @@
+package org.opengis.cite.iso19136.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLStreamReader;
+
+import net.sf.saxon.dom.NodeOverNodeInfo;
+import net.sf.saxon.om.NodeInfo;
+import net.sf.saxon.tinytree.TinyDocumentImpl;
+import net.sf.saxon.tinytree.TinyNodeImpl;
+
+import org.opengis.cite.iso19136.GML32;
+import org.opengis.cite.iso19136.Namespaces;
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * An index of the elements in a GML document that have a <code>gml:id</code> attribute,
+ * keyed by identifier. The index is built in a single pass, either over a DOM tree or
+ * while the document is read as a stream (see {@link GeometryIndex}); in the latter case
+ * each entry records the name and position of the element, so that the DOM node can be
+ * retrieved without a search if the document is parsed later.
+ *
+ * <p>
+ * Only the first element with a given identifier is indexed. The identifiers that occur
+ * more than once, and the local references (<code>xlink:href="#id"</code>) without a
+ * matching element, are recorded as well.
+ * </p>
+ *
+ * <p>
+ * An index built from a stream may be attached to a document containing a detached
+ * subtree of the indexed data (see {@link StreamingElementList}); an element outside of
+ * that subtree is then read from the data source when it is looked up. The most recently
+ * used referents are retained, so that repeated references do not read the data again.
+ * </p>
+ *
+ * <p>
+ * A read-only view of a Saxon tree does not support user data, so the index of such a
+ * document is kept in a weak map keyed by the underlying document node. Its entries
+ * record node numbers rather than DOM nodes, which would keep the tree reachable.
+ * </p>
+ */
+public class GmlIdIndex {
+
+	/** The key under which an index is attached to a DOM Document (as user data). */
+	private static final String USER_DATA_KEY = GmlIdIndex.class.getName();
+
+	/** The key under which the source of a detached subtree is attached to its Document. */
+	private static final String SOURCE_KEY = USER_DATA_KEY + ".source";
+
+	/** The indexes of Saxon (tiny) trees, keyed by document node. */
+	private static final Map<TinyDocumentImpl, GmlIdIndex> TREE_INDEXES = Collections
+		.synchronizedMap(new WeakHashMap<TinyDocumentImpl, GmlIdIndex>());
+
+	/** The maximum number of elements read from a data source that are retained. */
+	private static final int MAX_REFERENTS = 256;
+
+	private final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+	/** Elements read from a data source, by gml:id (least recently used first). */
+	private final Map<String, Element> referents = new LinkedHashMap<String, Element>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Element> eldest) {
+			return size() > MAX_REFERENTS;
+		}
+	};
+
+	private final Set<String> duplicateIds = new LinkedHashSet<String>();
+
+	private final Set<String> localReferences = new LinkedHashSet<String>();
+
+	/** The number of elements read so far, by name. */
+	private final Map<QName, Integer> counts = new HashMap<QName, Integer>();
+
+	GmlIdIndex() {
+	}
+
+	/**
+	 * Returns the index for the given document. The index is built on first use and is
+	 * then kept with the document, if the DOM implementation supports user data, or with
+	 * the underlying Saxon tree; the document must not be modified afterwards.
+	 * @param doc A DOM Document containing GML data.
+	 * @return A GmlIdIndex for the document.
+	 */
+	public static GmlIdIndex forDocument(Document doc) {
+		TinyDocumentImpl tree = getTinyDocument(doc);
+		if (null != tree) {
+			return TREE_INDEXES.computeIfAbsent(tree, key -> build(doc));
+		}
+		Object index = null;
+		try {
+			index = doc.getUserData(USER_DATA_KEY);
+		}
+		catch (UnsupportedOperationException | DOMException e) {
+			// not supported by a read-only DOM view
+		}
+		if (index instanceof GmlIdIndex) {
+			return (GmlIdIndex) index;
+		}
+		GmlIdIndex newIndex = build(doc);
+		try {
+			doc.setUserData(USER_DATA_KEY, newIndex, null);
+		}
+		catch (UnsupportedOperationException | DOMException e) {
+			TestSuiteLogger.log(Level.FINER, "gml:id index not retained for " + doc.getDocumentURI());
+		}
+		return newIndex;
+	}
+
+	/**
+	 * Builds an index of the elements in the given document.
+	 * @param doc A DOM Document containing GML data.
+	 * @return A new GmlIdIndex.
+	 */
+	public static GmlIdIndex build(Document doc) {
+		GmlIdIndex index = new GmlIdIndex();
+		Node node = doc.getDocumentElement();
+		while (null != node) {
+			if (node.getNodeType() == Node.ELEMENT_NODE) {
+				index.addElement((Element) node);
+			}
+			// visit nodes in document order without recursion
+			Node next = node.getFirstChild();
+			while (null == next && null != node) {
+				next = node.getNextSibling();
+				if (null == next) {
+					node = node.getParentNode();
+					if (node == doc) {
+						node = null;
+					}
+				}
+			}
+			node = next;
+		}
+		return index;
+	}
+
+	private void addElement(Element elem) {
+		QName name = new QName((null != elem.getNamespaceURI()) ? elem.getNamespaceURI() : "", elem.getLocalName());
+		int ordinal = nextOrdinal(name);
+		String id = elem.getAttributeNS(GML32.NS_NAME, "id");
+		if (!id.isEmpty()) {
+			NodeInfo node = (elem instanceof NodeOverNodeInfo) ? ((NodeOverNodeInfo) elem).getUnderlyingNodeInfo()
+					: null;
+			if (node instanceof TinyNodeImpl) {
+				addEntry(id, new Entry(name, ordinal, -1, -1, null, ((TinyNodeImpl) node).getNodeNumber()));
+			}
+			else {
+				addEntry(id, new Entry(name, ordinal, -1, -1, elem, -1));
+			}
+		}
+		addReference(elem.getAttributeNS(Namespaces.XLINK, "href"));
+	}
+
+	/**
+	 * Adds the element at the current position of the reader (which must be at a start
+	 * tag) to the index.
+	 * @param reader An XMLStreamReader positioned at a START_ELEMENT event.
+	 */
+	void addElement(XMLStreamReader reader) {
+		QName name = reader.getName();
+		int ordinal = nextOrdinal(name);
+		String id = reader.getAttributeValue(GML32.NS_NAME, "id");
+		if (null != id && !id.isEmpty()) {
+			Location loc = reader.getLocation();
+			addEntry(id, new Entry(name, ordinal, loc.getLineNumber(), loc.getColumnNumber(), null, -1));
+		}
+		addReference(reader.getAttributeValue(Namespaces.XLINK, "href"));
+	}
+
+	private int nextOrdinal(QName name) {
+		Integer count = counts.get(name);
+		int ordinal = (null == count) ? 0 : count;
+		counts.put(name, ordinal + 1);
+		return ordinal;
+	}
+
+	private void addEntry(String id, Entry entry) {
+		if (null == entries.putIfAbsent(id, entry)) {
+			return;
+		}
+		duplicateIds.add(id);
+	}
+
+	private void addReference(String href) {
+		// only shorthand pointers to the same document
+		if (null != href && href.startsWith("#") && href.indexOf('(') < 0) {
+			localReferences.add(href.substring(1));
+		}
+	}
+
+	/**
+	 * Returns the index entry for the element with the given identifier.
+	 * @param id A gml:id value.
+	 * @return The Entry for the (first) matching element, or {@code null} if there is
+	 * none.
+	 */
+	public Entry getEntry(String id) {
+		return entries.get(id);
+	}
+
+	/**
+	 * Attaches this index to a document that contains a detached subtree of the indexed
+	 * data, so that references to elements outside of the subtree can be resolved.
+	 * @param subtreeDoc A Document containing part of the indexed data.
+	 * @param dataSource The source of the indexed data.
+	 */
+	void attachTo(Document subtreeDoc, MappedDataSource dataSource) {
+		subtreeDoc.setUserData(USER_DATA_KEY, this, null);
+		subtreeDoc.setUserData(SOURCE_KEY, dataSource, null);
+	}
+
+	/**
+	 * Retrieves the element with the given identifier from a parsed representation of
+	 * the indexed document. If the index is attached to a document containing a detached
+	 * subtree and the element is not within it, the element is read from the data
+	 * source (as the root of a new subtree), unless it was read recently.
+	 * @param doc A DOM Document created from the same data as the index.
+	 * @param id A gml:id value.
+	 * @return The (first) matching Element, or {@code null} if there is none.
+	 */
+	public Element findElement(Document doc, String id) {
+		Entry entry = entries.get(id);
+		if (null == entry) {
+			return null;
+		}
+		if (null != entry.element) {
+			return entry.element;
+		}
+		TinyDocumentImpl tree = getTinyDocument(doc);
+		if (null != tree && entry.nodeNumber >= 0) {
+			return (Element) NodeOverNodeInfo.wrap(tree.getTree().getNode(entry.nodeNumber));
+		}
+		QName name = entry.getName();
+		NodeList nodes = doc.getElementsByTagNameNS(name.getNamespaceURI(), name.getLocalPart());
+		MappedDataSource dataSource = getDataSource(doc);
+		if (null == dataSource) {
+			Node node = nodes.item(entry.getOrdinal());
+			return (node instanceof Element) ? (Element) node : null;
+		}
+		for (int i = 0; i < nodes.getLength(); i++) {
+			Element elem = (Element) nodes.item(i);
+			if (id.equals(elem.getAttributeNS(GML32.NS_NAME, "id"))) {
+				return elem;
+			}
+		}
+		synchronized (referents) {
+			Element referent = referents.get(id);
+			if (null != referent) {
+				return referent;
+			}
+		}
+		StreamingElementList elements = new StreamingElementList(dataSource, Collections.singleton(name),
+				entry.getOrdinal() + 1, this);
+		Element referent;
+		try {
+			referent = (Element) elements.item(entry.getOrdinal());
+		}
+		finally {
+			elements.close();
+		}
+		if (null != referent) {
+			synchronized (referents) {
+				referents.put(id, referent);
+			}
+		}
+		return referent;
+	}
+
+	private static TinyDocumentImpl getTinyDocument(Document doc) {
+		if (!SaxonXPath.isSaxonNode(doc)) {
+			return null;
+		}
+		NodeInfo docNode = ((NodeOverNodeInfo) doc).getUnderlyingNodeInfo();
+		return (docNode instanceof TinyDocumentImpl) ? (TinyDocumentImpl) docNode : null;
+	}
+
+	private static MappedDataSource getDataSource(Document doc) {
+		try {
+			Object source = doc.getUserData(SOURCE_KEY);
+			return (source instanceof MappedDataSource) ? (MappedDataSource) source : null;
+		}
+		catch (UnsupportedOperationException | DOMException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the number of distinct identifiers.
+	 * @return The number of indexed elements.
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns the identifiers that are assigned to more than one element.
+	 * @return An unmodifiable Set of gml:id values (in document order); it may be empty.
+	 */
+	public Set<String> getDuplicateIds() {
+		return Collections.unmodifiableSet(duplicateIds);
+	}
+
+	/**
+	 * Returns the local references (shorthand pointers in xlink:href attributes) that do
+	 * not refer to any element in the document.
+	 * @return A Set of unresolved identifiers (in document order); it may be empty.
+	 */
+	public Set<String> getDanglingReferences() {
+		Set<String> dangling = new LinkedHashSet<String>();
+		for (String ref : localReferences) {
+			if (!entries.containsKey(ref)) {
+				dangling.add(ref);
+			}
+		}
+		return dangling;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("GmlIdIndex [ids: %d, duplicate ids: %s, dangling references: %s]", entries.size(),
+				duplicateIds, getDanglingReferences());
+	}
+
+	/**
+	 * An entry in the index that records the name and location of an element with a
+	 * gml:id attribute.
+	 */
+	public static class Entry {
+
+		private final QName name;
+
+		private final int ordinal;
+
+		private final int lineNumber;
+
+		private final int columnNumber;
+
+		/** The element itself, if the index was built from a DOM tree. */
+		private final Element element;
+
+		/** The node number of the element, if the index was built from a Saxon tree. */
+		private final int nodeNumber;
+
+		Entry(QName name, int ordinal, int lineNumber, int columnNumber, Element element, int nodeNumber) {
+			this.name = name;
+			this.ordinal = ordinal;
+			this.lineNumber = lineNumber;
+			this.columnNumber = columnNumber;
+			this.element = element;
+			this.nodeNumber = nodeNumber;
+		}
+
+		/**
+		 * @return The qualified name of the element.
+		 */
+		public QName getName() {
+			return name;
+		}
+
+		/**
+		 * @return The position of the element among all elements with the same name
+		 * (starting at 0, in document order).
+		 */
+		public int getOrdinal() {
+			return ordinal;
+		}
+
+		/**
+		 * @return The line number at which the start tag ends, or -1 if not available.
+		 */
+		public int getLineNumber() {
+			return lineNumber;
+		}
+
+		/**
+		 * @return The column number at which the start tag ends, or -1 if not available.
+		 */
+		public int getColumnNumber() {
+			return columnNumber;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s[%d] (line %d, column %d)", name, ordinal, lineNumber, columnNumber);
+		}
+
+	}
+
+}
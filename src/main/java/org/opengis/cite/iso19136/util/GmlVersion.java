@@ -1,24 +1,40 @@
 package org.opengis.cite.iso19136.util;
 
+import java.net.URL;
+
 public enum GmlVersion {
 
 	/**
 	 * Version 3.2.1
 	 */
-	V321("3.2.1"),
+	V321("3.2.1", "schema-catalog-gml-3.2.1.xml"),
 	/**
 	 * Version 3.2.2
 	 */
-	V322("3.2.2");
+	V322("3.2.2", "schema-catalog.xml");
+
+	private static final String ETS_ROOT_PKG = "/org/opengis/cite/iso19136/";
 
 	private final String stringRepresentation;
 
+	private final String schemaCatalog;
+
 	public final String getStringRepresentation() {
 		return stringRepresentation;
 	}
 
-	GmlVersion(String stringRepresentation) {
+	GmlVersion(String stringRepresentation, String schemaCatalog) {
 		this.stringRepresentation = stringRepresentation;
+		this.schemaCatalog = schemaCatalog;
+	}
+
+	/**
+	 * Returns the entity catalog that maps the GML schemas of this version to local
+	 * copies.
+	 * @return A URL referring to an OASIS XML catalog (a class path resource).
+	 */
+	public URL getSchemaCatalog() {
+		return GmlVersion.class.getResource(ETS_ROOT_PKG + schemaCatalog);
 	}
 
 	public static GmlVersion fromString(String version) {
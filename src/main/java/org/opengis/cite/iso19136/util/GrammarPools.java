@@ -0,0 +1,188 @@
+package org.opengis.cite.iso19136.util;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.logging.Level;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.xerces.parsers.XMLGrammarPreparser;
+import org.apache.xerces.util.ErrorHandlerWrapper;
+import org.apache.xerces.util.XMLCatalogResolver;
+import org.apache.xerces.util.XMLGrammarPoolImpl;
+import org.apache.xerces.xni.XNIException;
+import org.apache.xerces.xni.grammars.XMLGrammarDescription;
+import org.apache.xerces.xni.grammars.XMLGrammarPool;
+import org.apache.xerces.xni.parser.XMLEntityResolver;
+import org.apache.xerces.xni.parser.XMLInputSource;
+import org.opengis.cite.validation.ValidationErrorHandler;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXException;
+
+/**
+ * Provides pools of pre-parsed grammars for the schemas bundled with the test suite
+ * (GML, ISO 19139, xlink, xml). There is one pool for each GML version: it contains the
+ * schemas listed (as system entries) in the {@link GmlVersion#getSchemaCatalog() entity
+ * catalog} for that version. A pool is loaded once per JVM, either when it is first
+ * requested or in the background by {@link #preload(GmlVersion)}; it is then locked
+ * so that it can be safely shared by all test runs.
+ *
+ * @see PooledSchemaCompiler
+ */
+public class GrammarPools {
+
+	private static final String CATALOG_NS = "urn:oasis:names:tc:entity:xmlns:xml:catalog";
+
+	private static final ConcurrentMap<GmlVersion, FutureTask<XMLGrammarPool>> POOLS = new ConcurrentHashMap<>();
+
+	private GrammarPools() {
+	}
+
+	/**
+	 * Starts loading the grammar pool for the given GML version in the background. Nothing
+	 * is done if it has already been requested.
+	 * @param version A GML version.
+	 */
+	public static void preload(GmlVersion version) {
+		FutureTask<XMLGrammarPool> task = new FutureTask<XMLGrammarPool>(() -> load(version));
+		if (null == POOLS.putIfAbsent(version, task)) {
+			Thread thread = new Thread(task, "grammar-preload-" + version);
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	/**
+	 * Returns the grammar pool for the given GML version. If the pool is not yet
+	 * available it is loaded by the current thread, or, if it is already being loaded
+	 * by another thread, the current thread waits for it.
+	 * @param version A GML version.
+	 * @return A locked XMLGrammarPool, or {@code null} if the bundled schemas could not
+	 * be loaded.
+	 * @throws InterruptedException If the current thread is interrupted while waiting.
+	 */
+	public static XMLGrammarPool get(GmlVersion version) throws InterruptedException {
+		FutureTask<XMLGrammarPool> task = POOLS.computeIfAbsent(version,
+				v -> new FutureTask<XMLGrammarPool>(() -> load(v)));
+		task.run();
+		try {
+			return task.get();
+		}
+		catch (ExecutionException e) {
+			TestSuiteLogger.log(Level.WARNING, "Failed to load grammar pool for GML " + version, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Parses the schemas listed in the entity catalog for the given GML version.
+	 * @param version A GML version.
+	 * @return A locked XMLGrammarPool, or {@code null} if any schema could not be read or
+	 * contains errors.
+	 */
+	static XMLGrammarPool load(GmlVersion version) {
+		long startTime = System.currentTimeMillis();
+		URL catalog = version.getSchemaCatalog();
+		XMLGrammarPoolImpl pool = new XMLGrammarPoolImpl();
+		ValidationErrorHandler errHandler = new ValidationErrorHandler();
+		XMLCatalogResolver resolver = newCatalogResolver(catalog);
+		XMLGrammarPreparser preparser = newPreparser(resolver, pool, errHandler);
+		try {
+			for (String systemId : getSchemaSystemIds(catalog)) {
+				// the entity resolver is not consulted for the initial schema document
+				String location = resolver.resolveSystem(systemId);
+				preparser.preparseGrammar(XMLGrammarDescription.XML_SCHEMA,
+						new XMLInputSource(null, (null != location) ? location : systemId, null));
+			}
+		}
+		catch (IOException | SAXException | XNIException e) {
+			TestSuiteLogger.log(Level.WARNING, "Failed to parse bundled schemas for GML " + version, e);
+			return null;
+		}
+		if (errHandler.errorsDetected()) {
+			TestSuiteLogger.log(Level.WARNING,
+					String.format("Errors found in bundled schemas for GML %s:\n%s", version, errHandler));
+			return null;
+		}
+		pool.lockPool();
+		TestSuiteLogger.log(Level.CONFIG,
+				String.format("Loaded %d grammars for GML %s in %d ms", pool.retrieveInitialGrammarSet(
+						XMLGrammarDescription.XML_SCHEMA).length, version, System.currentTimeMillis() - startTime));
+		return pool;
+	}
+
+	/**
+	 * Creates an entity resolver that uses the given catalog.
+	 * @param catalog A URL referring to an OASIS XML catalog.
+	 * @return An XMLCatalogResolver object.
+	 */
+	static XMLCatalogResolver newCatalogResolver(URL catalog) {
+		XMLCatalogResolver resolver = new XMLCatalogResolver();
+		resolver.setCatalogList(new String[] { catalog.toString() });
+		return resolver;
+	}
+
+	/**
+	 * Creates a grammar preparser for compiling XML Schema resources.
+	 * @param resolver An entity resolver for locating schema resources.
+	 * @param pool The pool that receives the resulting grammars.
+	 * @param errHandler The handler that collects the errors found in the schemas.
+	 * @return An XMLGrammarPreparser object.
+	 */
+	static XMLGrammarPreparser newPreparser(XMLEntityResolver resolver, XMLGrammarPool pool,
+			ErrorHandler errHandler) {
+		XMLGrammarPreparser preparser = new XMLGrammarPreparser();
+		preparser.registerPreparser(XMLGrammarDescription.XML_SCHEMA, null);
+		preparser.setFeature("http://xml.org/sax/features/namespaces", true);
+		preparser.setFeature("http://xml.org/sax/features/validation", true);
+		preparser.setFeature("http://apache.org/xml/features/validation/schema", true);
+		preparser.setFeature("http://apache.org/xml/features/validation/schema-full-checking", true);
+		preparser.setGrammarPool(pool);
+		preparser.setEntityResolver(resolver);
+		preparser.setErrorHandler(new ErrorHandlerWrapper(errHandler));
+		return preparser;
+	}
+
+	/**
+	 * Reads the system identifiers of the schemas listed in an entity catalog. If
+	 * several identifiers are mapped to the same resource only the first one is kept.
+	 * @param catalog A URL referring to an OASIS XML catalog.
+	 * @return A List of system identifiers (absolute URIs).
+	 * @throws IOException If the catalog cannot be read.
+	 * @throws SAXException If the catalog is not well-formed.
+	 */
+	static List<String> getSchemaSystemIds(URL catalog) throws IOException, SAXException {
+		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware(true);
+		NodeList entries;
+		try {
+			entries = factory.newDocumentBuilder()
+				.parse(catalog.toString())
+				.getElementsByTagNameNS(CATALOG_NS, "system");
+		}
+		catch (ParserConfigurationException e) {
+			throw new RuntimeException(e);
+		}
+		Map<String, String> schemas = new LinkedHashMap<String, String>();
+		for (int i = 0; i < entries.getLength(); i++) {
+			Element entry = (Element) entries.item(i);
+			String systemId = entry.getAttribute("systemId");
+			if (systemId.endsWith(".xsd")) {
+				schemas.putIfAbsent(entry.getAttribute("uri"), systemId);
+			}
+		}
+		return new ArrayList<String>(schemas.values());
+	}
+
+}
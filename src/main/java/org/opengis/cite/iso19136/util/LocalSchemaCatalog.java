@@ -0,0 +1,205 @@
+package org.opengis.cite.iso19136.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.logging.Level;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.xerces.util.XMLCatalogResolver;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * A secondary entity catalog that maps remote schema documents (other than those bundled
+ * with the test suite) to local copies, typically obtained by the
+ * {@link SchemaPrefetcher}. When a catalog is configured, a mapped schema document is
+ * read from its local copy instead of being retrieved from the network; the original
+ * location is still used as its system identifier, so that relative references and error
+ * messages are not affected.
+ *
+ * <p>
+ * The catalog resides in a directory specified by the system property
+ * {@value #CATALOG_DIR_PROPERTY}; it is an OASIS XML catalog named
+ * {@value #CATALOG_FILE} that contains a <code>system</code> entry for each document.
+ * The catalog is read again if it is modified.
+ * </p>
+ */
+public class LocalSchemaCatalog {
+
+	/** System property that specifies the location of the catalog directory. */
+	public static final String CATALOG_DIR_PROPERTY = "ets.gml32.catalog.dir";
+
+	/** The name of the catalog file. */
+	public static final String CATALOG_FILE = "catalog.xml";
+
+	private static final String CATALOG_NS = "urn:oasis:names:tc:entity:xmlns:xml:catalog";
+
+	private static LocalSchemaCatalog defaultCatalog;
+
+	private final File catalogDir;
+
+	private final File catalogFile;
+
+	private XMLCatalogResolver resolver;
+
+	private long lastModified;
+
+	/**
+	 * Creates a catalog that resides in the given directory.
+	 * @param catalogDir The catalog directory (it need not exist yet).
+	 */
+	public LocalSchemaCatalog(File catalogDir) {
+		this.catalogDir = catalogDir;
+		this.catalogFile = new File(catalogDir, CATALOG_FILE);
+	}
+
+	/**
+	 * Returns the catalog specified by the system property {@value #CATALOG_DIR_PROPERTY}.
+	 * @return The default LocalSchemaCatalog, or {@code null} if none is configured.
+	 */
+	public static synchronized LocalSchemaCatalog getDefault() {
+		String dirName = System.getProperty(CATALOG_DIR_PROPERTY);
+		if (null == dirName || dirName.isEmpty()) {
+			return null;
+		}
+		File dir = new File(dirName);
+		if (null == defaultCatalog || !defaultCatalog.catalogDir.equals(dir)) {
+			defaultCatalog = new LocalSchemaCatalog(dir);
+		}
+		return defaultCatalog;
+	}
+
+	/**
+	 * Returns the directory in which the catalog and the local copies are stored.
+	 * @return A File denoting a directory.
+	 */
+	public File getDirectory() {
+		return catalogDir;
+	}
+
+	/**
+	 * Returns the catalog file.
+	 * @return A File denoting an OASIS XML catalog (it may not exist).
+	 */
+	public File getCatalogFile() {
+		return catalogFile;
+	}
+
+	/**
+	 * Looks up the local copy of a schema document.
+	 * @param systemId The (absolute) location of a schema document.
+	 * @return A File containing a copy of the document, or {@code null} if the catalog
+	 * does not map the location to an existing file.
+	 */
+	public synchronized File resolve(String systemId) {
+		if (!catalogFile.isFile()) {
+			return null;
+		}
+		if (null == resolver || catalogFile.lastModified() != lastModified) {
+			this.lastModified = catalogFile.lastModified();
+			this.resolver = new XMLCatalogResolver(new String[] { catalogFile.toURI().toString() });
+		}
+		try {
+			String location = resolver.resolveSystem(systemId);
+			if (null == location) {
+				return null;
+			}
+			File file = new File(URI.create(location));
+			return file.isFile() ? file : null;
+		}
+		catch (IOException | IllegalArgumentException e) {
+			TestSuiteLogger.log(Level.FINE, "Failed to resolve " + systemId + " in local catalog", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Reads the entries in the catalog.
+	 * @return A SortedMap in which each key is a system identifier and the corresponding
+	 * value is the location of the local copy (relative to the catalog directory); it is
+	 * empty if the catalog does not exist.
+	 * @throws IOException If the catalog cannot be read.
+	 */
+	public synchronized SortedMap<String, String> getEntries() throws IOException {
+		SortedMap<String, String> entries = new TreeMap<String, String>();
+		if (!catalogFile.isFile()) {
+			return entries;
+		}
+		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware(true);
+		NodeList systemEntries;
+		try {
+			systemEntries = factory.newDocumentBuilder()
+				.parse(catalogFile)
+				.getElementsByTagNameNS(CATALOG_NS, "system");
+		}
+		catch (ParserConfigurationException e) {
+			throw new RuntimeException(e);
+		}
+		catch (SAXException e) {
+			throw new IOException("Invalid catalog at " + catalogFile, e);
+		}
+		for (int i = 0; i < systemEntries.getLength(); i++) {
+			Element entry = (Element) systemEntries.item(i);
+			entries.put(entry.getAttribute("systemId"), entry.getAttribute("uri"));
+		}
+		return entries;
+	}
+
+	/**
+	 * Adds entries to the catalog, replacing any existing entries for the same system
+	 * identifiers.
+	 * @param entries A Map in which each key is a system identifier and the corresponding
+	 * value is the location of the local copy (relative to the catalog directory).
+	 * @throws IOException If the catalog cannot be written.
+	 */
+	public synchronized void addEntries(Map<String, String> entries) throws IOException {
+		SortedMap<String, String> allEntries = getEntries();
+		allEntries.putAll(entries);
+		if (!catalogDir.isDirectory() && !catalogDir.mkdirs()) {
+			throw new IOException("Cannot create catalog directory at " + catalogDir);
+		}
+		File tempFile = File.createTempFile("catalog-", ".tmp", catalogDir);
+		try (OutputStream out = new FileOutputStream(tempFile)) {
+			XMLStreamWriter writer = XMLOutputFactory.newInstance()
+				.createXMLStreamWriter(out, StandardCharsets.UTF_8.name());
+			writer.writeStartDocument(StandardCharsets.UTF_8.name(), "1.0");
+			writer.writeCharacters("\n");
+			writer.writeStartElement("", "catalog", CATALOG_NS);
+			writer.writeDefaultNamespace(CATALOG_NS);
+			writer.writeAttribute("prefer", "system");
+			for (Map.Entry<String, String> entry : allEntries.entrySet()) {
+				writer.writeCharacters("\n  ");
+				writer.writeEmptyElement("", "system", CATALOG_NS);
+				writer.writeAttribute("systemId", entry.getKey());
+				writer.writeAttribute("uri", entry.getValue());
+			}
+			writer.writeCharacters("\n");
+			writer.writeEndElement();
+			writer.writeCharacters("\n");
+			writer.writeEndDocument();
+			writer.close();
+		}
+		catch (XMLStreamException e) {
+			throw new IOException("Failed to write catalog at " + catalogFile, e);
+		}
+		Files.move(tempFile.toPath(), catalogFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		this.resolver = null;
+	}
+
+}
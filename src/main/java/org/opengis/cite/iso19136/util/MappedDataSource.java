@@ -0,0 +1,261 @@
+package org.opengis.cite.iso19136.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.stream.StreamSource;
+
+/**
+ * Provides repeated read access to the content of a local file. The file is mapped into
+ * memory once (using {@link FileChannel#map}) and each consumer obtains an independent,
+ * read-only stream over the mapped content. Reading the data thus avoids a system call
+ * and a copy from the page cache for each block read; the pages are shared by all
+ * streams and loaded on demand by the operating system, so they do not count against
+ * the Java heap.
+ *
+ * <p>
+ * Since a single mapped region cannot exceed {@link Integer#MAX_VALUE} bytes, a large
+ * file is mapped in several segments. A mapping is released when the MappedDataSource is
+ * garbage collected (there is no portable way to unmap a buffer explicitly).
+ * </p>
+ *
+ * <p>
+ * If the file is compressed or is a zip archive (see {@link Compression}), the streams
+ * deliver the decompressed content: the compressed bytes are mapped and decoded as they
+ * are read. The system identifier of content read from a zip archive refers to the
+ * archive entry (using the 'jar' URI scheme), so that references to schemas packaged in
+ * the same archive can be resolved.
+ * </p>
+ */
+public class MappedDataSource {
+
+	/** Maximum size of a mapped segment (1 GiB). */
+	static final int SEGMENT_SIZE = 1 << 30;
+
+	private final File file;
+
+	private final int segmentSize;
+
+	private ByteBuffer[] segments;
+
+	private Compression compression;
+
+	private String entryName;
+
+	/**
+	 * Creates a data source for the given file. The file is not mapped until its content
+	 * is first requested.
+	 * @param file A local File.
+	 */
+	public MappedDataSource(File file) {
+		this(file, SEGMENT_SIZE);
+	}
+
+	MappedDataSource(File file, int segmentSize) {
+		if (null == file) {
+			throw new IllegalArgumentException("File is null.");
+		}
+		this.file = file;
+		this.segmentSize = segmentSize;
+	}
+
+	/**
+	 * Returns the file that provides the content.
+	 * @return A File object.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Returns the system identifier of the content (the location of the file), which
+	 * may be used to resolve relative references.
+	 * @return A String representation of an absolute 'file' URI or, if the content is
+	 * read from a zip archive, an absolute 'jar' URI referring to the data entry.
+	 */
+	public String getSystemId() {
+		String fileURI = file.toURI().toString();
+		if (getCompression() != Compression.ZIP) {
+			return fileURI;
+		}
+		try {
+			String entryPath = new URI(null, null, "/" + entryName, null).getRawPath();
+			return "jar:" + fileURI + "!" + entryPath;
+		}
+		catch (URISyntaxException e) {
+			throw new IllegalArgumentException("Invalid entry name: " + entryName, e);
+		}
+	}
+
+	/**
+	 * Returns the compression format of the file. It is determined when first needed by
+	 * inspecting the leading bytes.
+	 * @return The Compression format ({@link Compression#NONE} if the file cannot be
+	 * read).
+	 */
+	public synchronized Compression getCompression() {
+		if (null == this.compression) {
+			try {
+				Compression format = file.isFile() ? Compression.detect(file) : Compression.NONE;
+				if (format == Compression.ZIP) {
+					this.entryName = Compression.findDataEntry(file);
+				}
+				this.compression = format;
+			}
+			catch (IOException e) {
+				TestSuiteLogger.log(Level.WARNING, "Failed to inspect " + file.getAbsolutePath(), e);
+				this.compression = Compression.NONE;
+			}
+		}
+		return this.compression;
+	}
+
+	/**
+	 * Opens a new stream for reading the content of the file. The stream does not need
+	 * to be closed, but doing so is harmless. Compressed content is decompressed as it
+	 * is read (such a stream does not support {@link InputStream#mark(int) mark}).
+	 * @return An InputStream positioned at the beginning of the content.
+	 * @throws IOException If the file cannot be mapped or decompressed.
+	 */
+	public InputStream openStream() throws IOException {
+		ByteBuffer[] mapped = getSegments();
+		ByteBuffer[] views = new ByteBuffer[mapped.length];
+		for (int i = 0; i < mapped.length; i++) {
+			views[i] = mapped[i].duplicate();
+		}
+		return getCompression().decode(new ByteBufferInputStream(views), entryName);
+	}
+
+	/**
+	 * Returns a Source for reading the content of the file. The system identifier is set
+	 * so that relative references can be resolved.
+	 * @return A StreamSource object.
+	 * @throws IOException If the file cannot be mapped.
+	 */
+	public Source getSource() throws IOException {
+		return new StreamSource(openStream(), getSystemId());
+	}
+
+	private synchronized ByteBuffer[] getSegments() throws IOException {
+		if (null == this.segments) {
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				long size = channel.size();
+				int count = (int) Math.max(1, (size + segmentSize - 1) / segmentSize);
+				ByteBuffer[] mapped = new ByteBuffer[count];
+				for (int i = 0; i < count; i++) {
+					long position = (long) i * segmentSize;
+					MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position,
+							Math.min(segmentSize, size - position));
+					mapped[i] = buffer;
+				}
+				this.segments = mapped;
+				TestSuiteLogger.log(Level.FINE,
+						String.format("Mapped %s (%d bytes, %d segment(s))", file.getAbsolutePath(), size, count));
+			}
+		}
+		return this.segments;
+	}
+
+	@Override
+	public String toString() {
+		return "MappedDataSource [file=" + file + ", compression=" + compression + ", mapped=" + (null != segments)
+				+ "]";
+	}
+
+	/**
+	 * An InputStream that reads from a sequence of byte buffers.
+	 */
+	static class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer[] buffers;
+
+		private int current;
+
+		private int markIndex = -1;
+
+		private int markPosition;
+
+		ByteBufferInputStream(ByteBuffer[] buffers) {
+			this.buffers = buffers;
+		}
+
+		private ByteBuffer nextBuffer() {
+			while (current < buffers.length && !buffers[current].hasRemaining()) {
+				current++;
+			}
+			return (current < buffers.length) ? buffers[current] : null;
+		}
+
+		@Override
+		public int read() {
+			ByteBuffer buffer = nextBuffer();
+			return (null == buffer) ? -1 : buffer.get() & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] bytes, int off, int len) {
+			if (len == 0) {
+				return 0;
+			}
+			ByteBuffer buffer = nextBuffer();
+			if (null == buffer) {
+				return -1;
+			}
+			int count = Math.min(len, buffer.remaining());
+			buffer.get(bytes, off, count);
+			return count;
+		}
+
+		@Override
+		public long skip(long n) {
+			long skipped = 0;
+			ByteBuffer buffer;
+			while (skipped < n && null != (buffer = nextBuffer())) {
+				int count = (int) Math.min(n - skipped, buffer.remaining());
+				buffer.position(buffer.position() + count);
+				skipped += count;
+			}
+			return skipped;
+		}
+
+		@Override
+		public int available() {
+			ByteBuffer buffer = nextBuffer();
+			return (null == buffer) ? 0 : buffer.remaining();
+		}
+
+		@Override
+		public boolean markSupported() {
+			return true;
+		}
+
+		@Override
+		public synchronized void mark(int readLimit) {
+			ByteBuffer buffer = nextBuffer();
+			markIndex = (null == buffer) ? buffers.length : current;
+			markPosition = (null == buffer) ? 0 : buffer.position();
+		}
+
+		@Override
+		public synchronized void reset() throws IOException {
+			if (markIndex < 0) {
+				throw new IOException("Stream has not been marked.");
+			}
+			for (int i = markIndex; i < buffers.length && i <= current; i++) {
+				buffers[i].position((i == markIndex) ? markPosition : 0);
+			}
+			current = markIndex;
+		}
+
+	}
+
+}
@@ -0,0 +1,69 @@
+package org.opengis.cite.iso19136.util;
+
+/**
+ * Determines how long the parsed representation of a GML document is kept in memory
+ * during a test run.
+ *
+ * <ul>
+ * <li>{@link #KEEP}: the document tree is retained until the test run ends.</li>
+ * <li>{@link #DROP}: the document tree is discarded as soon as the test set (the "GML
+ * Documents" conformance class) that uses it has finished.</li>
+ * <li>{@link #SPILL}: the document tree may be reclaimed by the garbage collector when
+ * memory runs low; it is then parsed again from the local copy of the data on disk
+ * when it is next requested.</li>
+ * <li>{@link #STREAM}: the geometry checks read one geometry element at a time from
+ * the data file without building a tree for the whole document; as with
+ * {@link #SPILL}, a tree built for other checks may be reclaimed when memory runs
+ * low.</li>
+ * </ul>
+ */
+public enum MemoryPolicy {
+
+	/**
+	 * Retain the document tree for the duration of the test run.
+	 */
+	KEEP("keep"),
+	/**
+	 * Discard the document tree when the data tests have finished.
+	 */
+	DROP("drop"),
+	/**
+	 * Let the document tree be reclaimed under memory pressure and reload it from disk.
+	 */
+	SPILL("spill"),
+	/**
+	 * Stream geometry elements from disk instead of building the complete document tree.
+	 */
+	STREAM("stream");
+
+	private final String stringRepresentation;
+
+	MemoryPolicy(String stringRepresentation) {
+		this.stringRepresentation = stringRepresentation;
+	}
+
+	public final String getStringRepresentation() {
+		return stringRepresentation;
+	}
+
+	/**
+	 * Returns the policy having the given name (case is ignored).
+	 * @param policy The name of a memory policy (e.g. "drop").
+	 * @return The matching MemoryPolicy.
+	 * @throws IllegalArgumentException If no such policy exists.
+	 */
+	public static MemoryPolicy fromString(String policy) {
+		for (MemoryPolicy p : MemoryPolicy.values()) {
+			if (p.getStringRepresentation().equalsIgnoreCase(policy)) {
+				return p;
+			}
+		}
+		throw new IllegalArgumentException(policy);
+	}
+
+	@Override
+	public String toString() {
+		return stringRepresentation;
+	}
+
+}
@@ -0,0 +1,787 @@
+package org.opengis.cite.iso19136.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Level;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.Validator;
+
+import org.opengis.cite.iso19136.GML32;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+/**
+ * Validates a large feature collection against an application schema on several threads.
+ * The document is read as a stream and cut at member boundaries: each chunk consists of a
+ * copy of the start tag of the document element (with all its namespace declarations),
+ * any content that precedes the first member, and a run of consecutive members. The
+ * members of a <code>featureMembers</code> property are cut in the same way; the start
+ * tag of the property is then repeated in each chunk. The chunks are validated
+ * concurrently, each by a {@link Validator} taken from a pool of validators created from
+ * the shared Schema.
+ *
+ * <p>
+ * If a chunk grows beyond a limit without reaching a member boundary (for example, if
+ * the document is not a feature collection), the document is instead validated as a
+ * whole by a single validator, so that it never has to be held in memory.
+ * </p>
+ *
+ * <p>
+ * The errors reported for a chunk are mapped back to their location in the original
+ * document, and all errors are reported in document order. An error in the leading
+ * content (or in the start tag of the document element) is only reported once, as is an
+ * error in the content model of the document element that is detected at its end tag.
+ * </p>
+ *
+ * <p>
+ * The uniqueness of the <code>gml:id</code> attribute values is checked for the entire
+ * document while it is being cut; an IDREF that cannot be resolved within a chunk is only
+ * reported if it does not refer to some <code>gml:id</code> in the document. Other
+ * identity constraints (xs:key, xs:keyref, xs:unique) declared for the document element
+ * are only checked within each chunk.
+ * </p>
+ */
+public class ParallelSchemaValidator {
+
+	/** The approximate size of a chunk, in characters. */
+	static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+	/** The size (in characters) at which a chunk without a member boundary is abandoned. */
+	static final int DEFAULT_MAX_CHUNK_SIZE = 8 * DEFAULT_CHUNK_SIZE;
+
+	/** The local names of the member properties at which the document is cut. */
+	private static final Set<String> MEMBER_NAMES = new HashSet<String>(
+			Arrays.asList("member", "featureMember", "featureMembers"));
+
+	/** The local names of the member properties whose children may be cut apart. */
+	private static final Set<String> WRAPPER_NAMES = new HashSet<String>(Arrays.asList("featureMembers"));
+
+	private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(task -> {
+		Thread thread = new Thread(task, "schema-validator");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final Schema schema;
+
+	private final int threadCount;
+
+	private final Queue<Validator> validators = new ConcurrentLinkedQueue<Validator>();
+
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+	private int maxChunkSize = DEFAULT_MAX_CHUNK_SIZE;
+
+	private volatile int chunkCount;
+
+	/**
+	 * Creates a validator for the given schema.
+	 * @param schema An (immutable) Schema object.
+	 * @param threadCount The number of chunks that may be validated at the same time.
+	 */
+	public ParallelSchemaValidator(Schema schema, int threadCount) {
+		if (threadCount < 1) {
+			throw new IllegalArgumentException("Thread count must be positive: " + threadCount);
+		}
+		this.schema = schema;
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * Sets the approximate size of a chunk. A chunk is completed at the end of the first
+	 * member that makes it reach this size.
+	 * @param chunkSize The number of characters in a chunk.
+	 */
+	void setChunkSize(int chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Sets the size at which a chunk that has not reached a member boundary is
+	 * abandoned; the document is then validated as a whole.
+	 * @param maxChunkSize The maximum number of characters in a chunk.
+	 */
+	void setMaxChunkSize(int maxChunkSize) {
+		this.maxChunkSize = maxChunkSize;
+	}
+
+	/**
+	 * Returns the number of chunks into which the last document was cut.
+	 * @return The number of chunks, or 0 if the document was validated as a whole.
+	 */
+	int getChunkCount() {
+		return chunkCount;
+	}
+
+	/**
+	 * Validates the given GML data. The problems found are passed on to the error handler
+	 * once all chunks have been validated.
+	 * @param dataSource The source of the GML data.
+	 * @param errHandler The error handler that receives the problems found.
+	 * @throws SAXException If the data is not well-formed, or the error handler throws
+	 * an exception.
+	 * @throws IOException If the data cannot be read.
+	 */
+	public void validate(MappedDataSource dataSource, ErrorHandler errHandler) throws SAXException, IOException {
+		Splitter splitter = new Splitter(dataSource.getSystemId());
+		try (InputStream inStream = dataSource.openStream()) {
+			splitter.split(inStream);
+		}
+		finally {
+			splitter.awaitChunks();
+		}
+		if (splitter.aborted) {
+			chunkCount = 0;
+			TestSuiteLogger.log(Level.FINE, String.format(
+					"No member boundary found within %d characters; validating %s on a single thread",
+					maxChunkSize, dataSource.getSystemId()));
+			validateWhole(dataSource, errHandler);
+			return;
+		}
+		chunkCount = splitter.chunks.size();
+		List<Problem> problems = new ArrayList<Problem>(splitter.duplicateIds);
+		List<Chunk> chunks = splitter.chunks;
+		Set<String> firstMemberErrors = new HashSet<String>();
+		Set<String> idRefs = new HashSet<String>();
+		for (Chunk chunk : chunks) {
+			boolean isLast = chunk.index == chunks.size() - 1;
+			for (Problem problem : chunk.problems) {
+				String idValue = problem.getIdValue();
+				if (null != idValue) {
+					if (splitter.ids.contains(idValue)) {
+						continue; // resolved in another chunk, or duplicate already reported
+					}
+					if (problem.exception.getMessage().startsWith("cvc-id.1")) {
+						// reported at the end of the document, once for each IDREF value
+						if (idRefs.add(idValue)) {
+							problems.add(problem.relocate(splitter.endLine, splitter.endColumn));
+						}
+						continue;
+					}
+				}
+				if (chunk.index > 0 && problem.position < chunk.bodyStart) {
+					continue; // header: reported for first chunk
+				}
+				if (problem.position == chunk.firstMemberTag) {
+					// an error in the header may also be detected at the first member
+					if (chunk.index == 0) {
+						firstMemberErrors.add(problem.exception.getMessage());
+					}
+					else if (firstMemberErrors.contains(problem.exception.getMessage())) {
+						continue;
+					}
+				}
+				if (!isLast && problem.position > chunk.bodyEnd) {
+					continue; // end tag of document element: reported for last chunk
+				}
+				problems.add(problem);
+			}
+		}
+		problems.sort(Comparator.comparingInt((Problem p) -> p.exception.getLineNumber())
+			.thenComparingInt(p -> p.exception.getColumnNumber()));
+		for (Problem problem : problems) {
+			problem.replay(errHandler);
+		}
+		TestSuiteLogger.log(Level.FINE, String.format("Validated %s in %d chunk(s) on up to %d threads",
+				dataSource.getSystemId(), chunks.size(), threadCount));
+	}
+
+	/**
+	 * Validates the entire document using a pooled validator, which reads it as a
+	 * stream.
+	 */
+	private void validateWhole(MappedDataSource dataSource, ErrorHandler errHandler)
+			throws SAXException, IOException {
+		Validator validator = validators.poll();
+		if (null == validator) {
+			validator = schema.newValidator();
+		}
+		validator.setErrorHandler(errHandler);
+		try {
+			validator.validate(dataSource.getSource());
+		}
+		finally {
+			validator.reset();
+			validators.offer(validator);
+		}
+	}
+
+	/**
+	 * Validates a chunk using a pooled validator. The problems reported by the validator
+	 * are recorded in the chunk, and its content (and position map) is then discarded.
+	 */
+	private void validateChunk(Chunk chunk, String systemId) {
+		Validator validator = validators.poll();
+		if (null == validator) {
+			validator = schema.newValidator();
+		}
+		validator.setErrorHandler(new ChunkErrorHandler(chunk, systemId));
+		try {
+			validator.validate(new StreamSource(new StringReader(chunk.content.toString()), systemId));
+		}
+		catch (SAXException | IOException e) {
+			// fatal error already reported to error handler
+		}
+		finally {
+			chunk.content = null;
+			chunk.positions = null;
+			validator.reset();
+			validators.offer(validator);
+		}
+	}
+
+	/**
+	 * Encodes a location (line, column) as a single comparable value.
+	 */
+	static long position(int line, int column) {
+		return ((long) line << 32) | (column & 0xFFFFFFFFL);
+	}
+
+	private enum Severity {
+
+		WARNING, ERROR, FATAL
+
+	}
+
+	/**
+	 * A problem reported for some location in the original document.
+	 */
+	private static class Problem {
+
+		final Severity severity;
+
+		final SAXParseException exception;
+
+		/** The position in the chunk, if reported for a chunk. */
+		final long position;
+
+		Problem(Severity severity, SAXParseException exception, long position) {
+			this.severity = severity;
+			this.exception = exception;
+			this.position = position;
+		}
+
+		/**
+		 * Returns the value an ID-related error refers to ("cvc-id.1": IDREF without
+		 * matching ID; "cvc-id.2": duplicate ID).
+		 * @return The ID value, or {@code null} if this is some other problem.
+		 */
+		String getIdValue() {
+			String message = exception.getMessage();
+			if (null == message || !(message.startsWith("cvc-id.1") || message.startsWith("cvc-id.2"))) {
+				return null;
+			}
+			int start = message.indexOf('\'');
+			int end = message.lastIndexOf('\'');
+			return (start >= 0 && end > start) ? message.substring(start + 1, end) : null;
+		}
+
+		Problem relocate(int line, int column) {
+			SAXParseException relocated = new SAXParseException(exception.getMessage(), exception.getPublicId(),
+					exception.getSystemId(), line, column, exception.getException());
+			return new Problem(severity, relocated, position);
+		}
+
+		void replay(ErrorHandler handler) throws SAXException {
+			switch (severity) {
+				case WARNING:
+					handler.warning(exception);
+					break;
+				case ERROR:
+					handler.error(exception);
+					break;
+				default:
+					handler.fatalError(exception);
+			}
+		}
+
+	}
+
+	/**
+	 * A fragment of the document to be validated on its own.
+	 */
+	private static class Chunk {
+
+		final int index;
+
+		StringBuilder content = new StringBuilder();
+
+		/** The current position (line, column) in the chunk. */
+		int line = 1;
+
+		int column = 1;
+
+		/**
+		 * The position map: for each tag written, the position in the chunk and the
+		 * corresponding position in the document (four values per tag).
+		 */
+		int[] positions = new int[64];
+
+		int positionCount;
+
+		/** The position where the members (after the header) start. */
+		long bodyStart;
+
+		/** The position at the end of the start tag of the first member. */
+		long firstMemberTag = -1;
+
+		/** The position before the end tag of the document element. */
+		long bodyEnd = Long.MAX_VALUE;
+
+		final List<Problem> problems = new ArrayList<Problem>();
+
+		Chunk(int index) {
+			this.index = index;
+		}
+
+		void append(String text) {
+			content.append(text);
+			for (int i = 0; i < text.length(); i++) {
+				if (text.charAt(i) == '\n') {
+					line++;
+					column = 1;
+				}
+				else {
+					column++;
+				}
+			}
+		}
+
+		/**
+		 * Records that the current position in the chunk corresponds to the given
+		 * location in the document.
+		 */
+		void mark(Location location) {
+			mark(location.getLineNumber(), location.getColumnNumber());
+		}
+
+		void mark(int documentLine, int documentColumn) {
+			if (positionCount + 4 > positions.length) {
+				positions = Arrays.copyOf(positions, positions.length * 2);
+			}
+			positions[positionCount++] = line;
+			positions[positionCount++] = column;
+			positions[positionCount++] = documentLine;
+			positions[positionCount++] = documentColumn;
+		}
+
+		/**
+		 * Maps a location in the chunk to the corresponding location in the document,
+		 * relative to the nearest preceding tag.
+		 * @return An array containing the line and column numbers.
+		 */
+		int[] map(int chunkLine, int chunkColumn) {
+			long target = position(chunkLine, chunkColumn);
+			int low = 0;
+			int high = positionCount / 4 - 1;
+			int found = -1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				if (position(positions[mid * 4], positions[mid * 4 + 1]) <= target) {
+					found = mid;
+					low = mid + 1;
+				}
+				else {
+					high = mid - 1;
+				}
+			}
+			if (found < 0 || chunkLine < 0) {
+				return new int[] { chunkLine, chunkColumn };
+			}
+			int i = found * 4;
+			if (chunkLine == positions[i]) {
+				return new int[] { positions[i + 2], positions[i + 3] + (chunkColumn - positions[i + 1]) };
+			}
+			return new int[] { positions[i + 2] + (chunkLine - positions[i]), chunkColumn };
+		}
+
+		/**
+		 * Starts a new chunk with the given header.
+		 */
+		static Chunk withHeader(Chunk header, int index) {
+			Chunk chunk = new Chunk(index);
+			chunk.content.append(header.content);
+			chunk.line = header.line;
+			chunk.column = header.column;
+			chunk.positions = Arrays.copyOf(header.positions, Math.max(64, header.positionCount * 2));
+			chunk.positionCount = header.positionCount;
+			chunk.bodyStart = position(chunk.line, chunk.column);
+			return chunk;
+		}
+
+	}
+
+	/**
+	 * Records the problems reported for a chunk, at their location in the document.
+	 */
+	private static class ChunkErrorHandler implements ErrorHandler {
+
+		private final Chunk chunk;
+
+		private final String systemId;
+
+		ChunkErrorHandler(Chunk chunk, String systemId) {
+			this.chunk = chunk;
+			this.systemId = systemId;
+		}
+
+		@Override
+		public void warning(SAXParseException exception) {
+			record(Severity.WARNING, exception);
+		}
+
+		@Override
+		public void error(SAXParseException exception) {
+			record(Severity.ERROR, exception);
+		}
+
+		@Override
+		public void fatalError(SAXParseException exception) {
+			record(Severity.FATAL, exception);
+		}
+
+		private void record(Severity severity, SAXParseException exception) {
+			int line = exception.getLineNumber();
+			int column = exception.getColumnNumber();
+			int[] location = chunk.map(line, column);
+			SAXParseException mapped = new SAXParseException(exception.getMessage(), exception.getPublicId(),
+					systemId, location[0], location[1], exception);
+			chunk.problems.add(new Problem(severity, mapped, position(line, column)));
+		}
+
+	}
+
+	/**
+	 * Reads the document and submits the chunks for validation as they are completed.
+	 * At most one chunk per thread is pending at any time, and reading stops if a chunk
+	 * exceeds the maximum size, so the memory required does not depend on the size of
+	 * the document.
+	 */
+	private class Splitter {
+
+		private final String systemId;
+
+		private final Semaphore pending = new Semaphore(threadCount);
+
+		private final List<Future<?>> results = new ArrayList<Future<?>>();
+
+		final List<Chunk> chunks = new ArrayList<Chunk>();
+
+		final Set<String> ids = new HashSet<String>();
+
+		final List<Problem> duplicateIds = new ArrayList<Problem>();
+
+		private XMLStreamReader reader;
+
+		private QName rootName;
+
+		/** The header (start tag of document element and leading content). */
+		private Chunk header;
+
+		private Chunk current;
+
+		private int depth;
+
+		private boolean inBody;
+
+		/** Indicates whether the current chunk is completed before the next member. */
+		private boolean isFull;
+
+		/** The start tag of the open wrapper property (featureMembers), if any. */
+		private String wrapperTag;
+
+		private QName wrapperName;
+
+		private int wrapperLine;
+
+		private int wrapperColumn;
+
+		/** Indicates that no member boundary was found within the maximum chunk size. */
+		volatile boolean aborted;
+
+		/** The location of the end of the document element. */
+		int endLine = -1;
+
+		int endColumn = -1;
+
+		Splitter(String systemId) {
+			this.systemId = systemId;
+		}
+
+		void split(InputStream inStream) throws SAXException {
+			try {
+				reader = XMLInputFactory.newInstance().createXMLStreamReader(systemId, inStream);
+				try {
+					while (!aborted && reader.hasNext()) {
+						switch (reader.next()) {
+							case XMLStreamConstants.START_ELEMENT:
+								startElement();
+								break;
+							case XMLStreamConstants.END_ELEMENT:
+								endElement();
+								break;
+							case XMLStreamConstants.CHARACTERS:
+							case XMLStreamConstants.CDATA:
+							case XMLStreamConstants.SPACE:
+								if (depth > 0) {
+									current.append(escape(reader.getText(), false));
+								}
+								break;
+							default:
+								break;
+						}
+						if (null != current && current.content.length() > maxChunkSize) {
+							aborted = true;
+						}
+					}
+				}
+				finally {
+					reader.close();
+				}
+			}
+			catch (XMLStreamException e) {
+				Location location = e.getLocation();
+				throw new SAXParseException(e.getMessage(), null, systemId,
+						(null != location) ? location.getLineNumber() : -1,
+						(null != location) ? location.getColumnNumber() : -1, e);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new SAXException("Interrupted while validating " + systemId, e);
+			}
+		}
+
+		private void startElement() throws InterruptedException {
+			checkId();
+			boolean isMember = isMember(reader.getLocalName());
+			if (depth == 0) {
+				rootName = reader.getName();
+				header = new Chunk(0);
+				current = header;
+			}
+			else if (isMember) {
+				if (!inBody) {
+					inBody = true;
+					current = Chunk.withHeader(header, 0);
+				}
+				else if (isFull) {
+					completeChunk();
+				}
+			}
+			String tag = startTag();
+			current.append(tag);
+			current.mark(reader.getLocation());
+			if ((depth == 1 || isMember) && inBody && current.firstMemberTag < 0) {
+				current.firstMemberTag = position(current.line, current.column);
+			}
+			if (depth == 1 && WRAPPER_NAMES.contains(reader.getLocalName())) {
+				wrapperTag = tag;
+				wrapperName = reader.getName();
+				wrapperLine = reader.getLocation().getLineNumber();
+				wrapperColumn = reader.getLocation().getColumnNumber();
+			}
+			depth++;
+		}
+
+		/**
+		 * Determines whether the element at the current depth is a member at which the
+		 * document may be cut: a member property of the document element, or a child of
+		 * a wrapper property.
+		 */
+		private boolean isMember(String localName) {
+			return (depth == 1 && MEMBER_NAMES.contains(localName)) || (depth == 2 && null != wrapperTag);
+		}
+
+		/**
+		 * Completes the current chunk (by closing the open wrapper property and the
+		 * document element) and starts the next one.
+		 */
+		private void completeChunk() throws InterruptedException {
+			Chunk completed = current;
+			current = Chunk.withHeader(header, completed.index + 1);
+			isFull = false;
+			completed.bodyEnd = position(completed.line, completed.column);
+			if (depth == 2) {
+				completed.append("</" + qualifiedName(wrapperName) + ">");
+				// the repeated start tag is part of the header
+				current.append(wrapperTag);
+				current.mark(wrapperLine, wrapperColumn);
+				current.bodyStart = position(current.line, current.column);
+			}
+			completed.append("</" + qualifiedName(rootName) + ">");
+			submit(completed);
+		}
+
+		private void endElement() throws InterruptedException {
+			depth--;
+			if (depth == 0) {
+				endLine = reader.getLocation().getLineNumber();
+				endColumn = reader.getLocation().getColumnNumber();
+				if (!inBody) {
+					current = Chunk.withHeader(header, 0);
+				}
+				current.bodyEnd = position(current.line, current.column);
+				current.append(endTag());
+				current.mark(reader.getLocation());
+				submit(current);
+				// the content is released once the chunk has been validated
+				current = null;
+				return;
+			}
+			current.append(endTag());
+			current.mark(reader.getLocation());
+			if (inBody && isMember(reader.getLocalName()) && current.content.length() >= chunkSize) {
+				isFull = true;
+			}
+			if (depth == 1 && null != wrapperTag) {
+				wrapperTag = null;
+			}
+		}
+
+		private void submit(Chunk chunk) throws InterruptedException {
+			chunks.add(chunk);
+			pending.acquire();
+			results.add(EXECUTOR.submit(() -> {
+				try {
+					if (aborted) {
+						chunk.content = null;
+					}
+					else {
+						validateChunk(chunk, systemId);
+					}
+				}
+				finally {
+					pending.release();
+				}
+			}));
+		}
+
+		/**
+		 * Waits until all submitted chunks have been validated.
+		 */
+		void awaitChunks() throws SAXException {
+			for (Future<?> result : results) {
+				try {
+					result.get();
+				}
+				catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					throw new SAXException("Failed to validate chunk of " + systemId,
+							(cause instanceof Exception) ? (Exception) cause : e);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new SAXException("Interrupted while validating " + systemId, e);
+				}
+			}
+		}
+
+		/**
+		 * Checks that a gml:id value does not occur more than once in the document.
+		 */
+		private void checkId() {
+			String id = reader.getAttributeValue(GML32.NS_NAME, "id");
+			if (null != id && !ids.add(id)) {
+				Location location = reader.getLocation();
+				SAXParseException exception = new SAXParseException(
+						"cvc-id.2: There are multiple occurrences of ID value '" + id + "'.", null, systemId,
+						location.getLineNumber(), location.getColumnNumber());
+				duplicateIds.add(new Problem(Severity.ERROR, exception, 0));
+			}
+		}
+
+		private String startTag() {
+			StringBuilder tag = new StringBuilder("<").append(qualifiedName(reader.getName()));
+			for (int i = 0; i < reader.getNamespaceCount(); i++) {
+				String prefix = reader.getNamespacePrefix(i);
+				String nsURI = reader.getNamespaceURI(i);
+				tag.append((null == prefix || prefix.isEmpty()) ? " xmlns" : " xmlns:" + prefix);
+				tag.append("=\"").append(escape((null != nsURI) ? nsURI : "", true)).append('"');
+			}
+			for (int i = 0; i < reader.getAttributeCount(); i++) {
+				tag.append(' ').append(qualifiedName(reader.getAttributeName(i)));
+				tag.append("=\"").append(escape(reader.getAttributeValue(i), true)).append('"');
+			}
+			return tag.append('>').toString();
+		}
+
+		private String endTag() {
+			return "</" + qualifiedName(reader.getName()) + ">";
+		}
+
+	}
+
+	private static String qualifiedName(QName name) {
+		String prefix = name.getPrefix();
+		return (null == prefix || prefix.isEmpty()) ? name.getLocalPart() : prefix + ':' + name.getLocalPart();
+	}
+
+	/**
+	 * Escapes markup characters. In attribute values white space characters other than
+	 * the space are also escaped, so that their values are preserved and every tag is
+	 * written on a single line.
+	 */
+	static String escape(String text, boolean isAttribute) {
+		StringBuilder escaped = null;
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			String replacement = null;
+			switch (c) {
+				case '&':
+					replacement = "&amp;";
+					break;
+				case '<':
+					replacement = "&lt;";
+					break;
+				case '>':
+					replacement = "&gt;";
+					break;
+				case '\r':
+					replacement = "&#13;";
+					break;
+				case '"':
+					replacement = isAttribute ? "&quot;" : null;
+					break;
+				case '\n':
+					replacement = isAttribute ? "&#10;" : null;
+					break;
+				case '\t':
+					replacement = isAttribute ? "&#9;" : null;
+					break;
+				default:
+					break;
+			}
+			if (null != replacement && null == escaped) {
+				escaped = new StringBuilder(text.length() + 16).append(text, 0, i);
+			}
+			if (null != escaped) {
+				escaped.append((null != replacement) ? replacement : String.valueOf(c));
+			}
+		}
+		return (null != escaped) ? escaped.toString() : text;
+	}
+
+}
@@ -0,0 +1,612 @@
+package org.opengis.cite.iso19136.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+
+import javax.xml.validation.Schema;
+
+import org.apache.xerces.jaxp.validation.XMLSchemaFactory;
+import org.apache.xerces.jaxp.validation.XSGrammarPoolContainer;
+import org.apache.xerces.parsers.XMLGrammarPreparser;
+import org.apache.xerces.util.XMLCatalogResolver;
+import org.apache.xerces.util.XMLGrammarPoolImpl;
+import org.apache.xerces.xni.XMLResourceIdentifier;
+import org.apache.xerces.xni.XNIException;
+import org.apache.xerces.xni.grammars.Grammar;
+import org.apache.xerces.xni.grammars.XMLGrammarDescription;
+import org.apache.xerces.xni.grammars.XMLGrammarPool;
+import org.apache.xerces.xni.grammars.XSGrammar;
+import org.apache.xerces.xni.parser.XMLEntityResolver;
+import org.apache.xerces.xni.parser.XMLInputSource;
+import org.apache.xerces.xs.StringList;
+import org.apache.xerces.xs.XSNamespaceItem;
+import org.opengis.cite.validation.ValidationErrorHandler;
+import org.opengis.cite.validation.XmlSchemaCompiler;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+/**
+ * Compiles application schemas on top of the pre-parsed grammars of the bundled schemas
+ * (see {@link GrammarPools}), so that only the application-specific schemas are parsed
+ * in each test run. It is a replacement for {@link XmlSchemaCompiler}; if the shared
+ * grammar pool is unavailable the schemas are compiled by XmlSchemaCompiler instead.
+ *
+ * <p>
+ * A pre-parsed grammar is used only if the referring schema would have obtained the
+ * very same schema from the entity catalog (that is, if the schema location, or the
+ * namespace name in the absence of a location, is listed in the catalog). A reference to
+ * some other resource (e.g. a single GML schema document) is still resolved and parsed
+ * as given.
+ * </p>
+ *
+ * <p>
+ * If several schemas are given, those that do not depend on each other (see
+ * {@link SchemaDependencyGraph}) are compiled concurrently and their grammars are then
+ * combined into a single schema. A schema can also be recompiled after some of its
+ * documents have changed, reusing the grammars that are not affected by the change.
+ * </p>
+ */
+public class PooledSchemaCompiler {
+
+	private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(task -> {
+		Thread thread = new Thread(task, "schema-compiler");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final GmlVersion gmlVersion;
+
+	private ValidationErrorHandler errHandler;
+
+	private final CompileProgress progress = new CompileProgress();
+
+	/**
+	 * Creates a compiler that uses the bundled schemas for the given GML version.
+	 * @param gmlVersion A GML version.
+	 */
+	public PooledSchemaCompiler(GmlVersion gmlVersion) {
+		this.gmlVersion = gmlVersion;
+		this.errHandler = new ValidationErrorHandler();
+	}
+
+	/**
+	 * Returns the error handler that collects the errors found while compiling the
+	 * schemas.
+	 * @return A ValidationErrorHandler object.
+	 */
+	public ValidationErrorHandler getErrorHandler() {
+		return errHandler;
+	}
+
+	/**
+	 * Returns the progress of the compilation. Schema documents are only counted if the
+	 * shared grammar pool is available.
+	 * @return A CompileProgress object that is updated while the schemas are compiled.
+	 */
+	public CompileProgress getProgress() {
+		return progress;
+	}
+
+	/**
+	 * Compiles the given schemas.
+	 * @param xsdRefs An array of URI values that refer to schema resources.
+	 * @return An immutable Schema object, or {@code null} if it could not be created.
+	 * @throws SAXException If a schema cannot be read.
+	 * @throws IOException If a schema resource cannot be accessed.
+	 */
+	public Schema compileXmlSchema(URI[] xsdRefs) throws SAXException, IOException {
+		URL entityCatalog = gmlVersion.getSchemaCatalog();
+		XMLGrammarPool sharedPool;
+		try {
+			sharedPool = GrammarPools.get(gmlVersion);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			sharedPool = null;
+		}
+		progress.advance();
+		if (null == sharedPool) {
+			XmlSchemaCompiler compiler = new XmlSchemaCompiler(entityCatalog);
+			Schema schema = compiler.compileXmlSchema(xsdRefs);
+			this.errHandler = compiler.getErrorHandler();
+			return schema;
+		}
+		XMLCatalogResolver resolver = GrammarPools.newCatalogResolver(entityCatalog);
+		List<List<URI>> groups = (xsdRefs.length > 1) ? new SchemaDependencyGraph(resolver).partition(xsdRefs)
+				: Collections.singletonList(Arrays.asList(xsdRefs));
+		ApplicationGrammarPool pool = null;
+		if (groups.size() > 1) {
+			pool = compileGroups(sharedPool, entityCatalog, groups);
+		}
+		if (null == pool) {
+			pool = new ApplicationGrammarPool(sharedPool, resolver);
+			preparse(GrammarPools.newPreparser(new MonitoringEntityResolver(resolver, progress), pool, errHandler),
+					pool, Arrays.asList(xsdRefs));
+		}
+		pool.lockPool();
+		TestSuiteLogger.log(Level.FINE, String.format("Compiled %d application grammars (%d shared grammars used)",
+				pool.getLocalGrammarCount(), pool.sharedGrammars.size()));
+		return new XMLSchemaFactory().newSchema(pool);
+	}
+
+	/**
+	 * Recompiles the given schemas after some of their documents have changed. The
+	 * application grammars of the previous schema are reused, except for those built from
+	 * a changed document and those that (directly or indirectly) import such a grammar;
+	 * only the schemas that contribute to the latter are parsed again.
+	 * @param xsdRefs An array of URI values that refer to schema resources.
+	 * @param previous A Schema previously compiled (without errors) from the same
+	 * references.
+	 * @param changedDocuments The locations of the schema documents that have changed
+	 * since then.
+	 * @return An immutable Schema object, or {@code null} if no grammar can be reused (the
+	 * schemas must then be compiled from scratch).
+	 * @throws SAXException If a schema cannot be read.
+	 * @throws IOException If a schema resource cannot be accessed.
+	 */
+	public Schema recompileXmlSchema(URI[] xsdRefs, Schema previous, Set<String> changedDocuments)
+			throws SAXException, IOException {
+		XMLGrammarPool sharedPool;
+		try {
+			sharedPool = GrammarPools.get(gmlVersion);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			sharedPool = null;
+		}
+		progress.advance();
+		if (null == sharedPool || !(previous instanceof XSGrammarPoolContainer)) {
+			return null;
+		}
+		Map<String, Grammar> bundledGrammars = new HashMap<String, Grammar>();
+		Map<String, XSNamespaceItem> appGrammars = new LinkedHashMap<String, XSNamespaceItem>();
+		Map<String, String> namespaces = new HashMap<String, String>();
+		for (Grammar grammar : ((XSGrammarPoolContainer) previous).getGrammarPool()
+			.retrieveInitialGrammarSet(XMLGrammarDescription.XML_SCHEMA)) {
+			String namespace = String.valueOf(grammar.getGrammarDescription().getNamespace());
+			if (sharedPool.retrieveGrammar(grammar.getGrammarDescription()) == grammar) {
+				bundledGrammars.put(namespace, grammar);
+				continue;
+			}
+			if (!(grammar instanceof XSNamespaceItem)) {
+				return null;
+			}
+			XSNamespaceItem nsItem = (XSNamespaceItem) grammar;
+			appGrammars.put(namespace, nsItem);
+			StringList locations = nsItem.getDocumentLocations();
+			for (int i = 0; i < locations.getLength(); i++) {
+				namespaces.put(locations.item(i), namespace);
+			}
+		}
+		Set<String> changedNamespaces = new HashSet<String>();
+		for (String location : changedDocuments) {
+			String namespace = namespaces.get(location);
+			if (null == namespace) {
+				return null;
+			}
+			changedNamespaces.add(namespace);
+		}
+		ApplicationGrammarPool pool = new ApplicationGrammarPool(sharedPool,
+				GrammarPools.newCatalogResolver(gmlVersion.getSchemaCatalog()));
+		Map<String, Grammar> reusedGrammars = new HashMap<String, Grammar>();
+		for (Map.Entry<String, XSNamespaceItem> appGrammar : appGrammars.entrySet()) {
+			// the model of a grammar includes all grammars it imports
+			StringList imported = ((XSGrammar) appGrammar.getValue()).toXSModel().getNamespaces();
+			boolean affected = false;
+			for (int i = 0; i < imported.getLength() && !affected; i++) {
+				affected = changedNamespaces.contains(String.valueOf(imported.item(i)));
+			}
+			if (affected) {
+				continue;
+			}
+			Grammar grammar = (Grammar) appGrammar.getValue();
+			reusedGrammars.put(appGrammar.getKey(), grammar);
+			pool.localGrammars.putGrammar(grammar);
+			for (int i = 0; i < imported.getLength(); i++) {
+				Grammar bundledGrammar = bundledGrammars.get(String.valueOf(imported.item(i)));
+				if (null != bundledGrammar) {
+					pool.sharedGrammars.putIfAbsent(String.valueOf(imported.item(i)), bundledGrammar);
+				}
+			}
+		}
+		if (reusedGrammars.isEmpty()) {
+			return null;
+		}
+		List<URI> affectedRefs = new ArrayList<URI>();
+		for (URI xsdRef : xsdRefs) {
+			String namespace = namespaces.get(xsdRef.toString());
+			if (null == namespace) {
+				return null;
+			}
+			if (!reusedGrammars.containsKey(namespace)) {
+				affectedRefs.add(xsdRef);
+			}
+		}
+		ValidationErrorHandler handler = new ValidationErrorHandler();
+		preparse(GrammarPools.newPreparser(new MonitoringEntityResolver(
+				GrammarPools.newCatalogResolver(gmlVersion.getSchemaCatalog()), progress), pool, handler), pool,
+				affectedRefs);
+		for (Grammar grammar : reusedGrammars.values()) {
+			// a changed document may now contribute to the namespace of a reused grammar
+			if (pool.localGrammars.retrieveGrammar(grammar.getGrammarDescription()) != grammar) {
+				TestSuiteLogger.log(Level.FINE, "Reused grammar was replaced; compiling schemas from scratch.");
+				return null;
+			}
+		}
+		this.errHandler = handler;
+		pool.lockPool();
+		TestSuiteLogger.log(Level.FINE, String.format("Recompiled %d application grammars (%d reused)",
+				pool.getLocalGrammarCount() - reusedGrammars.size(), reusedGrammars.size()));
+		return new XMLSchemaFactory().newSchema(pool);
+	}
+
+	/**
+	 * Compiles independent groups of schemas concurrently, each into a grammar pool of
+	 * its own, and then combines the resulting grammars. The errors reported for each
+	 * group are passed on to the error handler in group order.
+	 * @param sharedPool The pool containing the grammars of the bundled schemas.
+	 * @param entityCatalog The entity catalog for the bundled schemas.
+	 * @param groups A List of (at least two) groups of schema references.
+	 * @return A grammar pool containing the grammars of all groups, or {@code null} if
+	 * the groups turned out to define some namespace more than once (in which case they
+	 * must be compiled together).
+	 * @throws SAXException If a schema cannot be read.
+	 * @throws IOException If a schema resource cannot be accessed.
+	 */
+	private ApplicationGrammarPool compileGroups(XMLGrammarPool sharedPool, URL entityCatalog,
+			List<List<URI>> groups) throws SAXException, IOException {
+		List<Future<ApplicationGrammarPool>> results = new ArrayList<Future<ApplicationGrammarPool>>();
+		List<RecordingErrorHandler> handlers = new ArrayList<RecordingErrorHandler>();
+		for (List<URI> group : groups) {
+			RecordingErrorHandler handler = new RecordingErrorHandler();
+			handlers.add(handler);
+			results.add(EXECUTOR.submit(() -> {
+				XMLCatalogResolver resolver = GrammarPools.newCatalogResolver(entityCatalog);
+				ApplicationGrammarPool pool = new ApplicationGrammarPool(sharedPool, resolver);
+				preparse(GrammarPools.newPreparser(new MonitoringEntityResolver(resolver, progress), pool, handler),
+						pool, group);
+				return pool;
+			}));
+		}
+		ApplicationGrammarPool combinedPool = new ApplicationGrammarPool(sharedPool,
+				GrammarPools.newCatalogResolver(entityCatalog));
+		Exception failure = null;
+		boolean combined = true;
+		for (int i = 0; i < groups.size(); i++) {
+			try {
+				ApplicationGrammarPool pool = results.get(i).get();
+				combined = combined && combinedPool.addAll(pool);
+			}
+			catch (ExecutionException e) {
+				if (null == failure) {
+					failure = (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+				}
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new SAXException("Interrupted while compiling schemas", e);
+			}
+		}
+		if (null == failure && !combined) {
+			TestSuiteLogger.log(Level.FINE, "Schema groups overlap; compiling them together instead.");
+			return null;
+		}
+		for (RecordingErrorHandler handler : handlers) {
+			handler.replay(errHandler);
+		}
+		if (failure instanceof SAXException) {
+			throw (SAXException) failure;
+		}
+		if (failure instanceof IOException) {
+			throw (IOException) failure;
+		}
+		if (null != failure) {
+			throw new SAXException(failure.getMessage(), failure);
+		}
+		TestSuiteLogger.log(Level.FINE, String.format("Compiled %d independent groups of schemas", groups.size()));
+		return combinedPool;
+	}
+
+	/**
+	 * Preparses the given schemas into a grammar pool.
+	 * @param preparser A grammar preparser that puts grammars in the pool.
+	 * @param pool The pool that receives the resulting grammars.
+	 * @param xsdRefs A List of schema references.
+	 * @throws SAXException If a schema cannot be read.
+	 * @throws IOException If a schema resource cannot be accessed.
+	 */
+	private void preparse(XMLGrammarPreparser preparser, ApplicationGrammarPool pool, List<URI> xsdRefs)
+			throws SAXException, IOException {
+		try {
+			for (URI xsdRef : xsdRefs) {
+				int grammarCount = pool.getLocalGrammarCount();
+				String systemId = xsdRef.toString();
+				preparser.preparseGrammar(XMLGrammarDescription.XML_SCHEMA,
+						new XMLInputSource(null, systemId, null, progress.open(systemId), null));
+				progress.grammarsBuilt(pool.getLocalGrammarCount() - grammarCount);
+			}
+		}
+		catch (XNIException e) {
+			Exception cause = e.getException();
+			throw (cause instanceof SAXException) ? (SAXException) cause : new SAXException(e.getMessage(), cause);
+		}
+	}
+
+	/**
+	 * An entity resolver that reads schema documents through streams that update the
+	 * progress of the compilation. The entity catalog is consulted first; if it refers to
+	 * a local file that does not exist, the schema location given in the document is used
+	 * instead.
+	 */
+	static class MonitoringEntityResolver implements XMLEntityResolver {
+
+		private final XMLCatalogResolver resolver;
+
+		private final CompileProgress progress;
+
+		MonitoringEntityResolver(XMLCatalogResolver resolver, CompileProgress progress) {
+			this.resolver = resolver;
+			this.progress = progress;
+		}
+
+		@Override
+		public XMLInputSource resolveEntity(XMLResourceIdentifier resourceId) throws XNIException, IOException {
+			XMLInputSource source = resolver.resolveEntity(resourceId);
+			if (null != source && (null != source.getByteStream() || null != source.getCharacterStream())) {
+				return source;
+			}
+			String systemId = (null != source) ? source.getSystemId() : resourceId.getExpandedSystemId();
+			if (null != source && !isAvailable(systemId) && null != resourceId.getExpandedSystemId()) {
+				TestSuiteLogger.log(Level.FINE, String.format("Catalog entry %s not found, reading %s instead",
+						systemId, resourceId.getExpandedSystemId()));
+				systemId = resourceId.getExpandedSystemId();
+			}
+			if (null == systemId) {
+				return source;
+			}
+			return new XMLInputSource(resourceId.getPublicId(), systemId, resourceId.getBaseSystemId(),
+					progress.open(systemId), null);
+		}
+
+		/**
+		 * Indicates whether or not a resource is known to be accessible. Only local files
+		 * are checked; any other resource is presumed to exist.
+		 * @param systemId An absolute URI reference.
+		 * @return {@code false} if the URI refers to a file that does not exist;
+		 * {@code true} otherwise.
+		 */
+		static boolean isAvailable(String systemId) {
+			if (null == systemId || !systemId.startsWith("file:")) {
+				return true;
+			}
+			try {
+				return new File(URI.create(systemId)).isFile();
+			}
+			catch (IllegalArgumentException e) {
+				return true;
+			}
+		}
+
+	}
+
+	/**
+	 * An error handler that records the reported problems so that they can be passed on
+	 * to another handler later.
+	 */
+	static class RecordingErrorHandler implements ErrorHandler {
+
+		private enum Severity {
+
+			WARNING, ERROR, FATAL
+
+		}
+
+		private final List<Severity> severities = new ArrayList<Severity>();
+
+		private final List<SAXParseException> problems = new ArrayList<SAXParseException>();
+
+		@Override
+		public void warning(SAXParseException exception) {
+			record(Severity.WARNING, exception);
+		}
+
+		@Override
+		public void error(SAXParseException exception) {
+			record(Severity.ERROR, exception);
+		}
+
+		@Override
+		public void fatalError(SAXParseException exception) {
+			record(Severity.FATAL, exception);
+		}
+
+		private synchronized void record(Severity severity, SAXParseException exception) {
+			severities.add(severity);
+			problems.add(exception);
+		}
+
+		synchronized void replay(ErrorHandler handler) throws SAXException {
+			for (int i = 0; i < problems.size(); i++) {
+				switch (severities.get(i)) {
+					case WARNING:
+						handler.warning(problems.get(i));
+						break;
+					case ERROR:
+						handler.error(problems.get(i));
+						break;
+					default:
+						handler.fatalError(problems.get(i));
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * A grammar pool that holds the grammars of the application schemas; it takes the
+	 * grammars of the bundled schemas from a shared (locked) pool. Only the shared
+	 * grammars that were actually used are included in the initial grammar set, so the
+	 * resulting schema contains the same components as one compiled from scratch.
+	 */
+	static class ApplicationGrammarPool implements XMLGrammarPool {
+
+		private final XMLGrammarPool sharedPool;
+
+		private final XMLCatalogResolver resolver;
+
+		final XMLGrammarPoolImpl localGrammars = new XMLGrammarPoolImpl();
+
+		/** The shared grammars in use, by namespace name. */
+		final Map<String, Grammar> sharedGrammars = new LinkedHashMap<String, Grammar>();
+
+		private volatile boolean locked;
+
+		ApplicationGrammarPool(XMLGrammarPool sharedPool, XMLCatalogResolver resolver) {
+			this.sharedPool = sharedPool;
+			this.resolver = resolver;
+		}
+
+		int getLocalGrammarCount() {
+			return localGrammars.retrieveInitialGrammarSet(XMLGrammarDescription.XML_SCHEMA).length;
+		}
+
+		/**
+		 * Adds the grammars of another pool, which was compiled independently of this
+		 * one.
+		 * @param pool An ApplicationGrammarPool.
+		 * @return {@code false} if some namespace is defined by different grammars in both
+		 * pools; {@code true} otherwise.
+		 */
+		boolean addAll(ApplicationGrammarPool pool) {
+			Map<String, Grammar> grammars = new LinkedHashMap<String, Grammar>();
+			for (Grammar grammar : localGrammars.retrieveInitialGrammarSet(XMLGrammarDescription.XML_SCHEMA)) {
+				grammars.put(String.valueOf(grammar.getGrammarDescription().getNamespace()), grammar);
+			}
+			grammars.putAll(sharedGrammars);
+			boolean consistent = true;
+			for (Grammar grammar : pool.localGrammars.retrieveInitialGrammarSet(XMLGrammarDescription.XML_SCHEMA)) {
+				String namespace = String.valueOf(grammar.getGrammarDescription().getNamespace());
+				consistent &= grammars.putIfAbsent(namespace, grammar) == null;
+				localGrammars.putGrammar(grammar);
+			}
+			for (Map.Entry<String, Grammar> entry : pool.sharedGrammars.entrySet()) {
+				Grammar grammar = grammars.putIfAbsent(entry.getKey(), entry.getValue());
+				consistent &= (null == grammar || grammar == entry.getValue());
+				sharedGrammars.putIfAbsent(entry.getKey(), entry.getValue());
+			}
+			return consistent;
+		}
+
+		@Override
+		public Grammar[] retrieveInitialGrammarSet(String grammarType) {
+			List<Grammar> grammars = new ArrayList<Grammar>(
+					Arrays.asList(localGrammars.retrieveInitialGrammarSet(grammarType)));
+			if (XMLGrammarDescription.XML_SCHEMA.equals(grammarType)) {
+				synchronized (sharedGrammars) {
+					grammars.addAll(sharedGrammars.values());
+				}
+			}
+			return grammars.toArray(new Grammar[grammars.size()]);
+		}
+
+		@Override
+		public Grammar retrieveGrammar(XMLGrammarDescription desc) {
+			Grammar grammar = localGrammars.retrieveGrammar(desc);
+			if (null != grammar || !XMLGrammarDescription.XML_SCHEMA.equals(desc.getGrammarType())) {
+				return grammar;
+			}
+			String namespace = String.valueOf(desc.getNamespace());
+			synchronized (sharedGrammars) {
+				grammar = sharedGrammars.get(namespace);
+				if (null == grammar && !locked && isBundledSchema(desc)) {
+					grammar = sharedPool.retrieveGrammar(desc);
+					if (null != grammar) {
+						sharedGrammars.put(namespace, grammar);
+					}
+				}
+			}
+			return grammar;
+		}
+
+		@Override
+		public void cacheGrammars(String grammarType, Grammar[] grammars) {
+			if (locked) {
+				return;
+			}
+			for (Grammar grammar : grammars) {
+				XMLGrammarDescription desc = grammar.getGrammarDescription();
+				if (sharedPool.retrieveGrammar(desc) == grammar) {
+					synchronized (sharedGrammars) {
+						sharedGrammars.putIfAbsent(String.valueOf(desc.getNamespace()), grammar);
+					}
+				}
+				else {
+					localGrammars.putGrammar(grammar);
+				}
+			}
+		}
+
+		/**
+		 * Indicates whether the schema being looked for would be obtained from the entity
+		 * catalog, in which case it is the same as the one in the shared pool.
+		 * @param desc A description of the schema (target namespace and location).
+		 * @return {@code true} if the schema location (or the namespace name, if no
+		 * location is given) is listed in the catalog; {@code false} otherwise.
+		 */
+		boolean isBundledSchema(XMLGrammarDescription desc) {
+			String location = desc.getLiteralSystemId();
+			try {
+				if (null == location || location.isEmpty()) {
+					return null != desc.getNamespace() && null != resolver.resolveURI(desc.getNamespace());
+				}
+				String baseURI = desc.getBaseSystemId();
+				if (null != baseURI && !baseURI.isEmpty()) {
+					location = URIUtils.resolveRelativeURI(baseURI, location).toString();
+				}
+				return null != resolver.resolveSystem(location);
+			}
+			catch (IOException | RuntimeException e) {
+				return false;
+			}
+		}
+
+		@Override
+		public void lockPool() {
+			locked = true;
+			localGrammars.lockPool();
+		}
+
+		@Override
+		public void unlockPool() {
+			locked = false;
+			localGrammars.unlockPool();
+		}
+
+		@Override
+		public void clear() {
+			localGrammars.clear();
+			synchronized (sharedGrammars) {
+				sharedGrammars.clear();
+			}
+		}
+
+	}
+
+}
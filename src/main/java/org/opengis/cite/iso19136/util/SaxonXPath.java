@@ -0,0 +1,287 @@
+package org.opengis.cite.iso19136.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.namespace.QName;
+import javax.xml.transform.Source;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpressionException;
+
+import net.sf.saxon.dom.DocumentWrapper;
+import net.sf.saxon.dom.NodeOverNodeInfo;
+import net.sf.saxon.om.NodeInfo;
+import net.sf.saxon.s9api.Processor;
+import net.sf.saxon.s9api.SaxonApiException;
+import net.sf.saxon.s9api.XPathCompiler;
+import net.sf.saxon.s9api.XPathExecutable;
+import net.sf.saxon.s9api.XPathSelector;
+import net.sf.saxon.s9api.XdmItem;
+import net.sf.saxon.s9api.XdmNode;
+import net.sf.saxon.s9api.XdmValue;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Evaluates XPath expressions over Saxon trees. A single {@link Processor} is shared by
+ * the test suite: documents built by it (TinyTree instances) and the expressions it
+ * compiles belong to the same configuration, so they can be freely combined. Compiled
+ * expressions are thread-safe; they are cached (per set of namespace bindings) up to
+ * {@link XPathCache#MAX_SIZE} entries, after which the cache is cleared.
+ *
+ * <p>
+ * Nodes in a TinyTree are exposed to test classes as read-only DOM nodes (see
+ * {@link NodeOverNodeInfo}). {@link XMLUtils#evaluateXPath(Node, String, Map, QName)}
+ * recognizes such nodes and delegates to this class.
+ * </p>
+ */
+public class SaxonXPath {
+
+	private static final Processor PROCESSOR = new Processor(false);
+
+	private static final ConcurrentMap<String, XPathExecutable> EXPRESSIONS = new ConcurrentHashMap<>();
+
+	/** The key under which a wrapper is attached to a DOM Document (as user data). */
+	private static final String USER_DATA_KEY = SaxonXPath.class.getName();
+
+	private SaxonXPath() {
+	}
+
+	/**
+	 * Returns the Processor shared by the test suite.
+	 * @return A Saxon Processor (without schema-awareness).
+	 */
+	public static Processor getProcessor() {
+		return PROCESSOR;
+	}
+
+	/**
+	 * Builds a TinyTree from the given source.
+	 * @param source A Source for reading an XML document; its system identifier should
+	 * be set.
+	 * @return An XdmNode representing the document node.
+	 * @throws SaxonApiException If the document cannot be read or is not well-formed.
+	 */
+	public static XdmNode buildDocument(Source source) throws SaxonApiException {
+		return PROCESSOR.newDocumentBuilder().build(source);
+	}
+
+	/**
+	 * Returns a read-only DOM view of a document built by {@link #buildDocument}.
+	 * @param docNode A document node.
+	 * @return A DOM Document that wraps the given node; any attempt to modify it will
+	 * fail.
+	 */
+	public static Document toDocument(XdmNode docNode) {
+		return (Document) NodeOverNodeInfo.wrap(docNode.getUnderlyingNode());
+	}
+
+	/**
+	 * Presents a document as an XdmNode that can be processed by stylesheets and
+	 * expressions compiled by the shared Processor. The tree is neither copied nor
+	 * rebuilt: a read-only view of a Saxon tree refers to the underlying document node,
+	 * and a DOM Document is wrapped. The wrapper is kept with the DOM document (as user
+	 * data), so the same node is returned whenever the document is presented again; the
+	 * document must not be modified afterwards.
+	 * @param doc A DOM Document, or a view of a Saxon document (see
+	 * {@link #toDocument(XdmNode)}).
+	 * @return An XdmNode representing the document node.
+	 */
+	public static XdmNode toXdmNode(Document doc) {
+		if (isSaxonNode(doc)) {
+			return wrapNode(((NodeOverNodeInfo) doc).getUnderlyingNodeInfo());
+		}
+		Object wrapper = doc.getUserData(USER_DATA_KEY);
+		if (wrapper instanceof XdmNode) {
+			return (XdmNode) wrapper;
+		}
+		XdmNode docNode = wrapNode(new DocumentWrapper(doc, doc.getDocumentURI(), PROCESSOR.getUnderlyingConfiguration()));
+		doc.setUserData(USER_DATA_KEY, docNode, null);
+		return docNode;
+	}
+
+	/**
+	 * Presents a Saxon node as an XdmNode. The node is neither copied nor rebuilt; note
+	 * that {@link net.sf.saxon.s9api.DocumentBuilder#wrap(Object)} only accepts nodes
+	 * from an external object model.
+	 * @param node A node belonging to a tree built by the shared Processor.
+	 * @return An XdmNode that refers to the given node.
+	 */
+	public static XdmNode wrapNode(NodeInfo node) {
+		return new WrappedNode(node);
+	}
+
+	/**
+	 * Indicates whether the given node is a view of a Saxon node.
+	 * @param node A DOM node.
+	 * @return {@code true} if XPath expressions should be evaluated using this class;
+	 * {@code false} otherwise.
+	 */
+	public static boolean isSaxonNode(Node node) {
+		return node instanceof NodeOverNodeInfo;
+	}
+
+	/**
+	 * Compiles the given XPath expression, or returns a previously compiled one.
+	 * @param expr An XPath (2.0) expression.
+	 * @param nsBindings A collection of namespace bindings, where each entry maps a
+	 * namespace URI (key) to a prefix (value); it may be {@code null}. Standard bindings
+	 * do not need to be declared (see {@link NamespaceBindings#withStandardBindings()}).
+	 * @return An XPathExecutable object.
+	 * @throws SaxonApiException If the expression cannot be compiled.
+	 */
+	public static XPathExecutable compile(String expr, Map<String, String> nsBindings) throws SaxonApiException {
+		NamespaceBindings bindings = NamespaceBindings.withStandardBindings();
+		bindings.addAllBindings(nsBindings);
+		Map<String, String> declarations = new TreeMap<String, String>(bindings.getAllBindings());
+		String key = expr + '\u0000' + declarations;
+		XPathExecutable executable = EXPRESSIONS.get(key);
+		if (null != executable) {
+			XPathCache.recordHit();
+		}
+		else {
+			XPathCache.recordMiss();
+			if (EXPRESSIONS.size() >= XPathCache.MAX_SIZE) {
+				EXPRESSIONS.clear();
+			}
+			XPathCompiler compiler = PROCESSOR.newXPathCompiler();
+			for (Map.Entry<String, String> binding : declarations.entrySet()) {
+				compiler.declareNamespace(binding.getValue(), binding.getKey());
+			}
+			executable = compiler.compile(expr);
+			EXPRESSIONS.putIfAbsent(key, executable);
+		}
+		return executable;
+	}
+
+	/**
+	 * Evaluates an XPath expression using the given context item.
+	 * @param context The context item (usually a node).
+	 * @param expr An XPath (2.0) expression.
+	 * @param nsBindings A collection of namespace bindings (see
+	 * {@link #compile(String, Map)}); it may be {@code null}.
+	 * @return An XdmValue representing a sequence of zero or more items.
+	 * @throws SaxonApiException If the expression cannot be compiled or evaluated.
+	 */
+	public static XdmValue evaluate(XdmItem context, String expr, Map<String, String> nsBindings)
+			throws SaxonApiException {
+		XPathSelector selector = compile(expr, nsBindings).load();
+		selector.setContextItem(context);
+		return selector.evaluate();
+	}
+
+	/**
+	 * Evaluates an XPath expression using a Saxon node as the context and returns the
+	 * result as the specified type. The result is converted in the same manner as the
+	 * JAXP XPath API does for an XPath 1.0 expression.
+	 * @param context A DOM view of a Saxon node (see {@link #isSaxonNode(Node)}).
+	 * @param expr An XPath expression.
+	 * @param nsBindings A collection of namespace bindings (see
+	 * {@link #compile(String, Map)}); it may be {@code null}.
+	 * @param returnType The desired return type (as declared in {@link XPathConstants}).
+	 * @return The result converted to the desired return type; nodes are presented as
+	 * read-only DOM nodes.
+	 * @throws XPathExpressionException If the expression cannot be evaluated for any
+	 * reason.
+	 */
+	public static Object evaluate(Node context, String expr, Map<String, String> nsBindings, QName returnType)
+			throws XPathExpressionException {
+		if (!isSaxonNode(context)) {
+			throw new IllegalArgumentException("Not a Saxon node: " + context);
+		}
+		String query = expr;
+		if (XPathConstants.STRING.equals(returnType)) {
+			query = "string((" + expr + ")[1])";
+		}
+		else if (XPathConstants.NUMBER.equals(returnType)) {
+			query = "number((" + expr + ")[1])";
+		}
+		else if (XPathConstants.BOOLEAN.equals(returnType)) {
+			query = "boolean(" + expr + ")";
+		}
+		XdmValue value;
+		try {
+			value = evaluate(wrapNode(((NodeOverNodeInfo) context).getUnderlyingNodeInfo()), query, nsBindings);
+		}
+		catch (SaxonApiException e) {
+			throw new XPathExpressionException(e);
+		}
+		if (XPathConstants.NODESET.equals(returnType) || XPathConstants.NODE.equals(returnType)) {
+			List<Node> nodes = new ArrayList<Node>();
+			for (XdmItem item : value) {
+				if (item.isAtomicValue()) {
+					throw new XPathExpressionException("Expression does not evaluate to a node-set: " + expr);
+				}
+				nodes.add(NodeOverNodeInfo.wrap(((XdmNode) item).getUnderlyingNode()));
+			}
+			if (XPathConstants.NODE.equals(returnType)) {
+				return nodes.isEmpty() ? null : nodes.get(0);
+			}
+			return new NodeListImpl(nodes);
+		}
+		String result = (value.size() > 0) ? value.itemAt(0).getStringValue() : "";
+		if (XPathConstants.BOOLEAN.equals(returnType)) {
+			return Boolean.valueOf(result);
+		}
+		if (XPathConstants.NUMBER.equals(returnType)) {
+			return toDouble(result);
+		}
+		return result;
+	}
+
+	private static Double toDouble(String value) {
+		if (value.equals("INF")) {
+			return Double.POSITIVE_INFINITY;
+		}
+		if (value.equals("-INF")) {
+			return Double.NEGATIVE_INFINITY;
+		}
+		try {
+			return Double.valueOf(value);
+		}
+		catch (NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+
+	/**
+	 * An XdmNode that refers to an existing Saxon node (the constructor is not public).
+	 */
+	private static final class WrappedNode extends XdmNode {
+
+		WrappedNode(NodeInfo node) {
+			super(node);
+		}
+
+	}
+
+	/**
+	 * A NodeList backed by an ordinary List of nodes.
+	 */
+	static class NodeListImpl implements NodeList {
+
+		private final List<Node> nodes;
+
+		NodeListImpl(List<Node> nodes) {
+			this.nodes = nodes;
+		}
+
+		@Override
+		public Node item(int index) {
+			return (index >= 0 && index < nodes.size()) ? nodes.get(index) : null;
+		}
+
+		@Override
+		public int getLength() {
+			return nodes.size();
+		}
+
+	}
+
+}
@@ -0,0 +1,511 @@
+package org.opengis.cite.iso19136.util;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import javax.xml.validation.Schema;
+
+import org.apache.xerces.jaxp.validation.XSGrammarPoolContainer;
+import org.apache.xerces.xni.grammars.Grammar;
+import org.apache.xerces.xni.grammars.XMLGrammarDescription;
+import org.apache.xerces.xni.grammars.XSGrammar;
+import org.apache.xerces.xs.StringList;
+import org.apache.xerces.xs.XSModel;
+import org.apache.xerces.xs.XSNamespaceItem;
+import org.apache.xerces.xs.XSNamespaceItemList;
+import org.xml.sax.SAXException;
+
+/**
+ * An in-memory cache of compiled application schemas that is shared by all test runs in
+ * the JVM. An entry is keyed by the GML version and the set of schema locations along
+ * with the SHA-256 digest of each schema document; it also records the digests of the
+ * other (non-bundled) schema documents that were read. An entry is used only if none of
+ * these documents has changed; otherwise it is discarded.
+ *
+ * <p>
+ * When some of the schema documents have changed, the schema is recompiled
+ * incrementally: the grammars of the most recent entry for the same schema locations that
+ * are not affected by the changes are reused (see
+ * {@link PooledSchemaCompiler#recompileXmlSchema(URI[], Schema, Set)}).
+ * </p>
+ *
+ * <p>
+ * Only schemas compiled without errors are cached. The XSModel objects built from a
+ * cached schema are kept along with it. When the number of entries exceeds the limit
+ * given by the system property {@value #MAX_ENTRIES_PROPERTY} the least recently used
+ * entry is evicted.
+ * </p>
+ */
+public class SchemaCache {
+
+	/** The name of the system property that limits the number of cached schemas. */
+	public static final String MAX_ENTRIES_PROPERTY = "ets.gml32.schemaCache.maxEntries";
+
+	/** The default maximum number of cached schemas. */
+	public static final int DEFAULT_MAX_ENTRIES = 16;
+
+	private static SchemaCache defaultCache;
+
+	private final Map<Key, Entry> entries;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private final AtomicLong recompilations = new AtomicLong();
+
+	/**
+	 * Creates an empty cache.
+	 * @param maxEntries The maximum number of schemas to keep.
+	 */
+	public SchemaCache(final int maxEntries) {
+		this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Returns the cache shared by all test runs.
+	 * @return The default SchemaCache.
+	 */
+	public static synchronized SchemaCache getDefault() {
+		if (null == defaultCache) {
+			defaultCache = new SchemaCache(Integer.getInteger(MAX_ENTRIES_PROPERTY, DEFAULT_MAX_ENTRIES));
+		}
+		return defaultCache;
+	}
+
+	/**
+	 * Returns the cached schema for the given schema locations, or compiles them if there
+	 * is no (up-to-date) entry. If an earlier version of the schema is in the cache, only
+	 * the grammars affected by the changed documents are rebuilt. The result is cached if
+	 * no errors were found.
+	 * @param schemaLocations A Set of URI objects specifying schema locations.
+	 * @param version The GML version.
+	 * @param compiler The compiler to use if the schemas must be compiled; its error
+	 * handler reports no errors if a cached schema is returned.
+	 * @return An immutable Schema object, or {@code null} if it could not be created.
+	 * @throws SAXException If a schema cannot be read.
+	 * @throws IOException If a schema resource cannot be accessed.
+	 */
+	public Schema getOrCompile(Set<URI> schemaLocations, GmlVersion version, PooledSchemaCompiler compiler)
+			throws SAXException, IOException {
+		Entry previous = findPrevious(schemaLocations, version);
+		Schema schema = getSchema(schemaLocations, version);
+		if (null == schema) {
+			URI[] xsdRefs = schemaLocations.toArray(new URI[schemaLocations.size()]);
+			if (null != previous) {
+				schema = recompile(xsdRefs, previous, compiler);
+			}
+			if (null == schema) {
+				schema = compiler.compileXmlSchema(xsdRefs);
+			}
+			if (null != schema && !compiler.getErrorHandler().errorsDetected()) {
+				putSchema(schemaLocations, version, schema);
+			}
+		}
+		return schema;
+	}
+
+	/**
+	 * Recompiles a schema, reusing the grammars of an earlier entry that are not affected
+	 * by the schema documents changed since then.
+	 * @return A Schema object, or {@code null} if it must be compiled from scratch.
+	 */
+	private Schema recompile(URI[] xsdRefs, Entry previous, PooledSchemaCompiler compiler)
+			throws SAXException, IOException {
+		Set<String> changedDocuments = previous.getChangedDocuments();
+		if (changedDocuments.isEmpty()) {
+			return null;
+		}
+		Schema schema = compiler.recompileXmlSchema(xsdRefs, previous.schema, changedDocuments);
+		if (null != schema) {
+			recompilations.incrementAndGet();
+			TestSuiteLogger.log(Level.FINE, "Recompiled schema incrementally (changed documents: "
+					+ changedDocuments + ")");
+		}
+		return schema;
+	}
+
+	/**
+	 * Looks up the compiled schema for the given schema locations.
+	 * @param schemaLocations A Set of URI objects specifying schema locations.
+	 * @param version The GML version.
+	 * @return A Schema object, or {@code null} if there is no entry or if any of the
+	 * schema documents has changed since it was compiled.
+	 */
+	public Schema getSchema(Set<URI> schemaLocations, GmlVersion version) {
+		Key key;
+		try {
+			key = new Key(version, digestAll(schemaLocations));
+		}
+		catch (IOException e) {
+			TestSuiteLogger.log(Level.FINE, "Failed to read schema: " + e.getMessage());
+			misses.incrementAndGet();
+			return null;
+		}
+		Entry entry;
+		synchronized (this) {
+			entry = entries.get(key);
+		}
+		if (null != entry && !entry.isCurrent()) {
+			TestSuiteLogger.log(Level.FINE, "Discarding compiled schema (a schema document has changed): "
+					+ schemaLocations);
+			synchronized (this) {
+				entries.remove(key, entry);
+			}
+			entry = null;
+		}
+		if (null == entry) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		TestSuiteLogger.log(Level.FINE, "Using compiled schema from cache: " + schemaLocations);
+		return entry.schema;
+	}
+
+	/**
+	 * Adds a compiled schema to the cache.
+	 * @param schemaLocations A Set of URI objects specifying the schema locations.
+	 * @param version The GML version.
+	 * @param schema The Schema object compiled from the given locations (without
+	 * errors).
+	 */
+	public void putSchema(Set<URI> schemaLocations, GmlVersion version, Schema schema) {
+		Entry entry;
+		Key key;
+		try {
+			key = new Key(version, digestAll(schemaLocations));
+			entry = new Entry(schema, key, digestDependencies(schema, schemaLocations, version));
+		}
+		catch (IOException e) {
+			TestSuiteLogger.log(Level.FINE, "Compiled schema not cached: " + e.getMessage());
+			return;
+		}
+		synchronized (this) {
+			entries.put(key, entry);
+		}
+	}
+
+	/**
+	 * Returns a value that identifies the content of a cached schema: it is derived from
+	 * the GML version and the digests of all (non-bundled) schema documents, so it
+	 * remains the same across JVM instances as long as none of them changes.
+	 * @param schema A Schema object obtained from this cache.
+	 * @return A hexadecimal string, or {@code null} if the schema is not in the cache.
+	 */
+	public String getFingerprint(Schema schema) {
+		Entry entry = findEntry(schema);
+		return (null != entry) ? entry.fingerprint : null;
+	}
+
+	/**
+	 * Returns a schema model built from a cached schema.
+	 * @param schema A Schema object obtained from this cache.
+	 * @param namespace The target namespace of the model.
+	 * @return An XSModel object, or {@code null} if none is available.
+	 */
+	public XSModel getModel(Schema schema, String namespace) {
+		Entry entry = findEntry(schema);
+		return (null != entry) ? entry.models.get(namespace) : null;
+	}
+
+	/**
+	 * Keeps a schema model along with the schema it was built from. Nothing is done if
+	 * the schema is not in the cache.
+	 * @param schema A Schema object obtained from this cache.
+	 * @param namespace The target namespace of the model.
+	 * @param model An XSModel built from the schema.
+	 */
+	public void putModel(Schema schema, String namespace, XSModel model) {
+		Entry entry = findEntry(schema);
+		if (null != entry) {
+			// the model may be read concurrently by later test runs
+			SchemaModelIndex.forModel(model);
+			entry.models.putIfAbsent(namespace, model);
+		}
+	}
+
+	/**
+	 * Discards all entries that include any of the given schema locations.
+	 * @param schemaLocations A Set of URI objects specifying schema locations.
+	 */
+	public synchronized void invalidate(Set<URI> schemaLocations) {
+		Iterator<Key> keys = entries.keySet().iterator();
+		while (keys.hasNext()) {
+			Set<String> locations = keys.next().digests.keySet();
+			for (URI location : schemaLocations) {
+				if (locations.contains(location.toString())) {
+					keys.remove();
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Discards all entries.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * Returns the number of cached schemas.
+	 * @return The number of entries.
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Summarizes the cache activity.
+	 * @return A String containing the hit and miss counts.
+	 */
+	public String getStatistics() {
+		return String.format("Schema cache: %d hits, %d misses (%d recompiled incrementally), %d entries", hits.get(),
+				misses.get(), recompilations.get(), size());
+	}
+
+	/**
+	 * Finds the most recently used entry for the given schema locations, whether or not
+	 * it is up to date.
+	 */
+	private synchronized Entry findPrevious(Set<URI> schemaLocations, GmlVersion version) {
+		Set<String> locations = new HashSet<String>();
+		for (URI location : schemaLocations) {
+			locations.add(location.toString());
+		}
+		Entry previous = null;
+		for (Map.Entry<Key, Entry> entry : entries.entrySet()) {
+			Key key = entry.getKey();
+			if (key.version == version && key.digests.keySet().equals(locations)) {
+				previous = entry.getValue();
+			}
+		}
+		return previous;
+	}
+
+	private synchronized Entry findEntry(Schema schema) {
+		for (Entry entry : entries.values()) {
+			if (entry.schema == schema) {
+				return entry;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Computes the digests of the schema documents read while compiling a schema, other
+	 * than the given (top-level) ones and those bundled with the test suite.
+	 */
+	private static Map<String, String> digestDependencies(Schema schema, Set<URI> schemaLocations,
+			GmlVersion version) throws IOException {
+		Map<String, String> digests = new HashMap<String, String>();
+		if (!(schema instanceof XSGrammarPoolContainer)) {
+			return digests;
+		}
+		String catalog = version.getSchemaCatalog().toString();
+		String bundledBase = catalog.substring(0, catalog.lastIndexOf('/') + 1);
+		Grammar[] grammars = ((XSGrammarPoolContainer) schema).getGrammarPool()
+			.retrieveInitialGrammarSet(XMLGrammarDescription.XML_SCHEMA);
+		for (Grammar grammar : grammars) {
+			XSNamespaceItemList nsItems = ((XSGrammar) grammar).toXSModel().getNamespaceItems();
+			for (int i = 0; i < nsItems.getLength(); i++) {
+				XSNamespaceItem nsItem = nsItems.item(i);
+				StringList locations = nsItem.getDocumentLocations();
+				for (int j = 0; j < locations.getLength(); j++) {
+					String location = locations.item(j);
+					if (null == location || location.startsWith(bundledBase) || digests.containsKey(location)) {
+						continue;
+					}
+					URI uri;
+					try {
+						uri = new URI(location);
+					}
+					catch (URISyntaxException e) {
+						throw new IOException("Invalid schema location: " + location, e);
+					}
+					if (!schemaLocations.contains(uri)) {
+						digests.put(location, digest(uri));
+					}
+				}
+			}
+		}
+		return digests;
+	}
+
+	private static SortedMap<String, String> digestAll(Set<URI> locations) throws IOException {
+		SortedMap<String, String> digests = new TreeMap<String, String>();
+		for (URI location : locations) {
+			digests.put(location.toString(), digest(location));
+		}
+		return digests;
+	}
+
+	/**
+	 * Computes the SHA-256 digest of a schema document. A remote resource is obtained
+	 * through the entity cache, so an unchanged resource is not downloaded again.
+	 */
+	static String digest(URI location) throws IOException {
+		MessageDigest digest = newDigest();
+		String scheme = String.valueOf(location.getScheme()).toLowerCase();
+		boolean resolvable = scheme.equals("file") || scheme.equals("http") || scheme.equals("https");
+		try (InputStream inStream = resolvable ? new FileInputStream(URIUtils.resolveURIAsFile(location))
+				: location.toURL().openStream()) {
+			byte[] buffer = new byte[8192];
+			int n;
+			while ((n = inStream.read(buffer)) > 0) {
+				digest.update(buffer, 0, n);
+			}
+		}
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * Computes the SHA-256 digest of a string.
+	 * @param value A String value.
+	 * @return The digest of its UTF-8 encoding, as a hexadecimal string.
+	 */
+	static String digest(String value) {
+		return toHex(newDigest().digest(value.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException e) { // always supported
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder str = new StringBuilder();
+		for (byte b : bytes) {
+			str.append(String.format("%02x", b));
+		}
+		return str.toString();
+	}
+
+	private static final class Key {
+
+		private final GmlVersion version;
+
+		private final SortedMap<String, String> digests;
+
+		Key(GmlVersion version, SortedMap<String, String> digests) {
+			this.version = version;
+			this.digests = digests;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return version == other.version && digests.equals(other.digests);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(version, digests);
+		}
+
+	}
+
+	private static final class Entry {
+
+		private final Schema schema;
+
+		private final Key key;
+
+		private final Map<String, String> dependencies;
+
+		private final String fingerprint;
+
+		private final Map<String, XSModel> models = new ConcurrentHashMap<String, XSModel>();
+
+		Entry(Schema schema, Key key, Map<String, String> dependencies) {
+			this.schema = schema;
+			this.key = key;
+			this.dependencies = Collections.unmodifiableMap(dependencies);
+			StringBuilder content = new StringBuilder(key.version.name()).append('\n');
+			for (String digest : key.digests.values()) {
+				content.append(digest).append('\n');
+			}
+			for (String digest : new TreeMap<String, String>(dependencies).values()) {
+				content.append(digest).append('\n');
+			}
+			this.fingerprint = digest(content.toString());
+		}
+
+		/**
+		 * Checks that none of the other schema documents has changed.
+		 */
+		boolean isCurrent() {
+			for (Map.Entry<String, String> dependency : dependencies.entrySet()) {
+				try {
+					if (!dependency.getValue().equals(digest(URI.create(dependency.getKey())))) {
+						return false;
+					}
+				}
+				catch (IOException | IllegalArgumentException e) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Finds the schema documents (top-level or other) that have changed, or that can
+		 * no longer be read.
+		 */
+		Set<String> getChangedDocuments() {
+			Set<String> changed = new HashSet<String>();
+			for (Map<String, String> digests : Arrays.asList(key.digests, dependencies)) {
+				for (Map.Entry<String, String> document : digests.entrySet()) {
+					try {
+						if (!document.getValue().equals(digest(URI.create(document.getKey())))) {
+							changed.add(document.getKey());
+						}
+					}
+					catch (IOException | IllegalArgumentException e) {
+						changed.add(document.getKey());
+					}
+				}
+			}
+			return changed;
+		}
+
+	}
+
+}
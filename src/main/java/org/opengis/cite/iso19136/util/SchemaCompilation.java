@@ -0,0 +1,205 @@
+package org.opengis.cite.iso19136.util;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+
+import javax.xml.validation.Schema;
+
+import org.opengis.cite.validation.ValidationErrorHandler;
+import org.xml.sax.SAXException;
+
+/**
+ * A schema compilation that runs in the background. It allows the application schema(s)
+ * to be compiled as soon as their locations are known (for example, while the rest of a
+ * large GML document is still being retrieved); the result is collected later by the
+ * test that checks the schemas. A schema found in the {@link SchemaCache} is not
+ * compiled again.
+ */
+public class SchemaCompilation {
+
+	/** The interval between progress reports /ms */
+	private static final long REPORT_INTERVAL = 5000;
+
+	private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(task -> {
+		Thread thread = new Thread(task, "schema-compilation");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final Set<URI> schemaLocations;
+
+	private final GmlVersion gmlVersion;
+
+	private final PooledSchemaCompiler compiler;
+
+	private final Future<Schema> result;
+
+	private SchemaCompilation(Set<URI> schemaLocations, GmlVersion gmlVersion) {
+		this.schemaLocations = Collections.unmodifiableSet(new HashSet<URI>(schemaLocations));
+		this.gmlVersion = gmlVersion;
+		this.compiler = new PooledSchemaCompiler(gmlVersion);
+		this.result = EXECUTOR
+			.submit(() -> SchemaCache.getDefault().getOrCompile(this.schemaLocations, gmlVersion, compiler));
+	}
+
+	/**
+	 * Starts compiling the given schemas in the background.
+	 * @param schemaLocations A Set of URI objects specifying schema locations.
+	 * @param gmlVersion The GML version (determines the bundled schemas used to resolve
+	 * the GML schemas).
+	 * @return A SchemaCompilation representing the pending result.
+	 */
+	public static SchemaCompilation start(Set<URI> schemaLocations, GmlVersion gmlVersion) {
+		TestSuiteLogger.log(Level.FINE, "Started compiling schemas in background: " + schemaLocations);
+		return new SchemaCompilation(schemaLocations, gmlVersion);
+	}
+
+	/**
+	 * Returns the locations of the schemas being compiled.
+	 * @return An unmodifiable Set of URI objects.
+	 */
+	public Set<URI> getSchemaLocations() {
+		return schemaLocations;
+	}
+
+	/**
+	 * Returns the GML version whose bundled schemas are used to resolve schema
+	 * references.
+	 * @return A GML version.
+	 */
+	public GmlVersion getGmlVersion() {
+		return gmlVersion;
+	}
+
+	/**
+	 * Indicates whether this compilation matches the given settings.
+	 * @param locations A Set of URI objects specifying schema locations.
+	 * @param version A GML version.
+	 * @return {@code true} if the same schemas are compiled for the same GML version;
+	 * {@code false} otherwise.
+	 */
+	public boolean matches(Set<URI> locations, GmlVersion version) {
+		return schemaLocations.equals(locations) && gmlVersion == version;
+	}
+
+	/**
+	 * Waits for the compilation to finish and returns the resulting schema.
+	 * @return An immutable Schema object, or {@code null} if it could not be created.
+	 * @throws SAXException If a schema cannot be read.
+	 * @throws IOException If a schema resource cannot be accessed.
+	 * @throws InterruptedException If the current thread is interrupted while waiting.
+	 */
+	public Schema getSchema() throws SAXException, IOException, InterruptedException {
+		try {
+			return result.get();
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof SAXException) {
+				throw (SAXException) cause;
+			}
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new RuntimeException(cause);
+		}
+		catch (CancellationException e) {
+			return null;
+		}
+		catch (InterruptedException e) {
+			result.cancel(true);
+			throw e;
+		}
+	}
+
+	/**
+	 * Waits for the compilation to finish within the given time budget and returns the
+	 * resulting schema. The progress of a lengthy compilation is reported periodically.
+	 * If the budget is exhausted the compilation is aborted.
+	 * @param budget The time allowed for the compilation (including any time already
+	 * spent without progress).
+	 * @return An immutable Schema object, or {@code null} if it could not be created.
+	 * @throws SAXException If a schema cannot be read.
+	 * @throws IOException If a schema resource cannot be accessed.
+	 * @throws InterruptedException If the current thread is interrupted while waiting.
+	 * @throws TimeoutException If the compilation did not finish within the budget.
+	 */
+	public Schema getSchema(CompileBudget budget)
+			throws SAXException, IOException, InterruptedException, TimeoutException {
+		getProgress().setBudget(budget);
+		long start = System.nanoTime();
+		long pollInterval = REPORT_INTERVAL;
+		if (budget.getIdleTimeout() > 0) {
+			pollInterval = Math.min(pollInterval, Math.max(budget.getIdleTimeout() / 4, 10));
+		}
+		long lastReport = 0;
+		while (true) {
+			long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			long wait = pollInterval;
+			if (budget.getTimeout() > 0) {
+				wait = Math.max(Math.min(wait, budget.getTimeout() - elapsed), 0);
+			}
+			try {
+				result.get(wait, TimeUnit.MILLISECONDS);
+				return getSchema();
+			}
+			catch (TimeoutException e) {
+				CompileProgress progress = getProgress();
+				elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+				if (elapsed - lastReport >= REPORT_INTERVAL) {
+					TestSuiteLogger.log(Level.INFO, "Compiling schemas: " + progress);
+					lastReport = elapsed;
+				}
+				String reason = null;
+				if (budget.getTimeout() > 0 && elapsed >= budget.getTimeout()) {
+					reason = String.format("not completed in %d ms", elapsed);
+				}
+				else if (budget.getIdleTimeout() > 0 && progress.getIdleTime() >= budget.getIdleTimeout()) {
+					reason = String.format("no progress in %d ms", progress.getIdleTime());
+				}
+				if (null != reason) {
+					progress.abort(reason);
+					result.cancel(true);
+					throw new TimeoutException(reason + " (" + progress + ")");
+				}
+			}
+			catch (ExecutionException e) {
+				return getSchema();
+			}
+		}
+	}
+
+	/**
+	 * Returns the progress of the compilation.
+	 * @return A CompileProgress object.
+	 */
+	public CompileProgress getProgress() {
+		return compiler.getProgress();
+	}
+
+	/**
+	 * Returns the error handler that collects the errors found while compiling the
+	 * schemas. It should only be consulted after {@link #getSchema()} has returned.
+	 * @return A ValidationErrorHandler object.
+	 */
+	public ValidationErrorHandler getErrorHandler() {
+		return compiler.getErrorHandler();
+	}
+
+	@Override
+	public String toString() {
+		return "SchemaCompilation [locations=" + schemaLocations + ", done=" + result.isDone() + "]";
+	}
+
+}
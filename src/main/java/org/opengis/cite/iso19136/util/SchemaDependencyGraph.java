@@ -0,0 +1,203 @@
+package org.opengis.cite.iso19136.util;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.xerces.util.XMLCatalogResolver;
+
+/**
+ * Divides a set of schemas into groups that can be compiled independently of each
+ * other. Two schemas belong to the same group if they (directly or indirectly) import,
+ * include or redefine a common schema document, or if any of their documents have the
+ * same target namespace. Schemas bundled with the test suite (those listed in the entity
+ * catalog) are ignored, since their grammars are shared anyway.
+ *
+ * <p>
+ * Only the schema references at the start of each document are read. If a reference
+ * cannot be followed (e.g. a document cannot be read, or a non-bundled namespace is
+ * imported without a schema location) the outcome of a separate compilation cannot be
+ * predicted, so all schemas are put in a single group.
+ * </p>
+ */
+public class SchemaDependencyGraph {
+
+	private static final String[] REFERENCES = { "import", "include", "redefine", "override" };
+
+	private final XMLCatalogResolver resolver;
+
+	private final XMLInputFactory factory;
+
+	/**
+	 * Creates a dependency graph that uses the given entity catalog to identify bundled
+	 * schemas.
+	 * @param resolver An entity resolver that uses the catalog of bundled schemas.
+	 */
+	public SchemaDependencyGraph(XMLCatalogResolver resolver) {
+		this.resolver = resolver;
+		this.factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+	}
+
+	/**
+	 * Divides the given schemas into independent groups.
+	 * @param xsdRefs An array of URI values that refer to schema resources.
+	 * @return A List of groups, each containing one or more of the given schema
+	 * references (in their original order); the groups are ordered by their first
+	 * member.
+	 */
+	public List<List<URI>> partition(URI[] xsdRefs) {
+		int[] parent = new int[xsdRefs.length];
+		Map<URI, Integer> documents = new HashMap<URI, Integer>();
+		Map<String, Integer> namespaces = new HashMap<String, Integer>();
+		for (int i = 0; i < xsdRefs.length; i++) {
+			parent[i] = i;
+			Deque<URI> pending = new ArrayDeque<URI>();
+			pending.push(xsdRefs[i].normalize());
+			while (!pending.isEmpty()) {
+				URI document = pending.pop();
+				Integer owner = documents.putIfAbsent(document, i);
+				if (null != owner) {
+					union(parent, owner, i);
+					continue;
+				}
+				List<URI> references = new ArrayList<URI>();
+				String targetNamespace;
+				try {
+					targetNamespace = readReferences(document, references);
+				}
+				catch (IOException | XMLStreamException | IllegalArgumentException e) {
+					TestSuiteLogger.log(Level.FINE, "Cannot plan separate compilation: " + e.getMessage());
+					return single(xsdRefs);
+				}
+				if (null == targetNamespace) {
+					return single(xsdRefs);
+				}
+				owner = namespaces.putIfAbsent(targetNamespace, i);
+				if (null != owner) {
+					union(parent, owner, i);
+				}
+				for (URI reference : references) {
+					pending.push(reference);
+				}
+			}
+		}
+		Map<Integer, List<URI>> groups = new LinkedHashMap<Integer, List<URI>>();
+		for (int i = 0; i < xsdRefs.length; i++) {
+			groups.computeIfAbsent(find(parent, i), root -> new ArrayList<URI>()).add(xsdRefs[i]);
+		}
+		return new ArrayList<List<URI>>(groups.values());
+	}
+
+	/**
+	 * Reads the schema references in a schema document.
+	 * @param document The location of a schema document.
+	 * @param references A List to which the (absolute) locations of the referenced
+	 * documents are added, except for bundled schemas.
+	 * @return The target namespace of the document (an empty string if it has none), or
+	 * {@code null} if some reference cannot be followed.
+	 */
+	private String readReferences(URI document, List<URI> references) throws IOException, XMLStreamException {
+		String scheme = String.valueOf(document.getScheme()).toLowerCase();
+		boolean resolvable = scheme.equals("file") || scheme.equals("http") || scheme.equals("https");
+		try (InputStream inStream = resolvable ? new FileInputStream(URIUtils.resolveURIAsFile(document))
+				: document.toURL().openStream()) {
+			XMLStreamReader reader = factory.createXMLStreamReader(document.toString(), inStream);
+			try {
+				reader.nextTag();
+				String targetNamespace = reader.getAttributeValue(null, "targetNamespace");
+				while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+					if (!XMLConstants.W3C_XML_SCHEMA_NS_URI.equals(reader.getNamespaceURI())) {
+						break;
+					}
+					String name = reader.getLocalName();
+					if (name.equals("annotation")) {
+						skipElement(reader);
+						continue;
+					}
+					if (!isReference(name)) {
+						break; // references precede all other components
+					}
+					String location = reader.getAttributeValue(null, "schemaLocation");
+					if (null == location || location.isEmpty()) {
+						String namespace = reader.getAttributeValue(null, "namespace");
+						if (null == namespace || null == resolver.resolveURI(namespace)) {
+							return null;
+						}
+					}
+					else {
+						URI reference = URIUtils.resolveRelativeURI(document.toString(), location).normalize();
+						if (null == resolver.resolveSystem(reference.toString())) {
+							references.add(reference);
+						}
+					}
+					skipElement(reader);
+				}
+				return (null != targetNamespace) ? targetNamespace : "";
+			}
+			finally {
+				reader.close();
+			}
+		}
+	}
+
+	private static boolean isReference(String name) {
+		for (String reference : REFERENCES) {
+			if (reference.equals(name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			}
+			else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+	}
+
+	private static List<List<URI>> single(URI[] xsdRefs) {
+		List<List<URI>> groups = new ArrayList<List<URI>>();
+		groups.add(Arrays.asList(xsdRefs));
+		return groups;
+	}
+
+	private static int find(int[] parent, int i) {
+		while (parent[i] != i) {
+			parent[i] = parent[parent[i]];
+			i = parent[i];
+		}
+		return i;
+	}
+
+	private static void union(int[] parent, int i, int j) {
+		int rootI = find(parent, i);
+		int rootJ = find(parent, j);
+		// the group is identified by its first member
+		parent[Math.max(rootI, rootJ)] = Math.min(rootI, rootJ);
+	}
+
+}
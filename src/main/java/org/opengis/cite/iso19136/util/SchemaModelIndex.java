@@ -0,0 +1,367 @@
+package org.opengis.cite.iso19136.util;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+
+import org.apache.xerces.xs.StringList;
+import org.apache.xerces.xs.XSComplexTypeDefinition;
+import org.apache.xerces.xs.XSConstants;
+import org.apache.xerces.xs.XSElementDeclaration;
+import org.apache.xerces.xs.XSModel;
+import org.apache.xerces.xs.XSNamedMap;
+import org.apache.xerces.xs.XSObject;
+import org.apache.xerces.xs.XSObjectList;
+import org.apache.xerces.xs.XSTypeDefinition;
+import org.opengis.cite.iso19136.SchemaComponentFilter;
+
+/**
+ * An index of the substitution groups, type hierarchy and element declarations in a
+ * schema model. It is built once for each model (see {@link #forModel(XSModel)}) and
+ * then answers the queries made by {@link XMLSchemaModelUtils} without scanning all
+ * application namespaces again.
+ *
+ * <p>
+ * The element declarations and type definitions in the application namespaces are
+ * indexed by every type in their chain of base types. A query for a given type only
+ * inspects the components indexed by that type, which are then checked in the same
+ * manner as before (e.g. using
+ * {@link XSTypeDefinition#derivedFromType(XSTypeDefinition, short)}), so the results are
+ * unchanged. The members of a substitution group are kept in a hash set when first
+ * requested.
+ * </p>
+ *
+ * <p>
+ * The namespaces are indexed in parallel. Before that, all the component maps of the
+ * model are built (see {@link #prepareForConcurrentAccess(XSModel)}), so an indexed model
+ * may safely be read by several threads.
+ * </p>
+ */
+public class SchemaModelIndex {
+
+	private static final short[] COMPONENT_TYPES = { XSConstants.ELEMENT_DECLARATION, XSConstants.TYPE_DEFINITION,
+			XSTypeDefinition.COMPLEX_TYPE, XSTypeDefinition.SIMPLE_TYPE, XSConstants.ATTRIBUTE_DECLARATION,
+			XSConstants.ATTRIBUTE_GROUP, XSConstants.MODEL_GROUP_DEFINITION, XSConstants.NOTATION_DECLARATION };
+
+	private static final Map<XSModel, SchemaModelIndex> INDEXES = Collections
+		.synchronizedMap(new WeakHashMap<XSModel, SchemaModelIndex>());
+
+	/** The model is not strongly referenced, so that it can be removed from INDEXES. */
+	private final WeakReference<XSModel> modelRef;
+
+	private final Set<String> appNamespaces;
+
+	/** Every type is derived from xs:anyType, even if it is not in its chain of base types. */
+	private final XSTypeDefinition anyType;
+
+	private final ConcurrentMap<XSElementDeclaration, Set<XSElementDeclaration>> substitutionGroups;
+
+	/** Global type definitions in application namespaces, by ancestor type. */
+	private final Map<XSTypeDefinition, List<XSTypeDefinition>> typesByAncestor = new HashMap<>();
+
+	/** Global element declarations in application namespaces, by ancestor type. */
+	private final Map<XSTypeDefinition, List<XSElementDeclaration>> globalElementsByAncestor = new HashMap<>();
+
+	/** Local element declarations in application namespaces, by ancestor type. */
+	private final Map<XSTypeDefinition, List<LocalElement>> localElementsByAncestor = new HashMap<>();
+
+	private SchemaModelIndex(XSModel model) {
+		prepareForConcurrentAccess(model);
+		this.modelRef = new WeakReference<XSModel>(model);
+		this.substitutionGroups = new ConcurrentHashMap<>();
+		this.appNamespaces = XMLSchemaModelUtils.getApplicationNamespaces(model);
+		this.anyType = model.getTypeDefinition("anyType", XMLConstants.W3C_XML_SCHEMA_NS_URI);
+		// namespaces are indexed in parallel, then merged in iteration order
+		List<Partition> partitions = appNamespaces.parallelStream()
+			.map(nsName -> indexNamespace(model, nsName))
+			.collect(Collectors.toList());
+		for (Partition partition : partitions) {
+			merge(typesByAncestor, partition.typesByAncestor);
+			merge(globalElementsByAncestor, partition.globalElementsByAncestor);
+			merge(localElementsByAncestor, partition.localElementsByAncestor);
+		}
+	}
+
+	/**
+	 * Builds the part of the index that covers the components in one namespace.
+	 */
+	@SuppressWarnings("unchecked")
+	private Partition indexNamespace(XSModel model, String nsName) {
+		Partition partition = new Partition();
+		XSNamedMap typeDefs = model.getComponentsByNamespace(XSConstants.TYPE_DEFINITION, nsName);
+		for (int i = 0; i < typeDefs.getLength(); i++) {
+			XSTypeDefinition typeDef = (XSTypeDefinition) typeDefs.item(i);
+			for (XSTypeDefinition ancestor : getTypeHierarchy(typeDef)) {
+				partition.typesByAncestor.computeIfAbsent(ancestor, key -> new ArrayList<>()).add(typeDef);
+			}
+		}
+		// same sources as XMLSchemaModelUtils.getLocalElementsByType
+		Map<QName, XSObject> complexTypes = new LinkedHashMap<QName, XSObject>();
+		complexTypes.putAll(model.getComponentsByNamespace(XSTypeDefinition.COMPLEX_TYPE, nsName));
+		XSNamedMap globalElemDecls = model.getComponentsByNamespace(XSConstants.ELEMENT_DECLARATION, nsName);
+		for (int i = 0; i < globalElemDecls.getLength(); i++) {
+			XSElementDeclaration elemDecl = (XSElementDeclaration) globalElemDecls.item(i);
+			for (XSTypeDefinition ancestor : getTypeHierarchy(elemDecl.getTypeDefinition())) {
+				partition.globalElementsByAncestor.computeIfAbsent(ancestor, key -> new ArrayList<>()).add(elemDecl);
+			}
+			if (elemDecl.getTypeDefinition().getTypeCategory() == XSTypeDefinition.SIMPLE_TYPE) {
+				continue;
+			}
+			if (elemDecl.getTypeDefinition().getAnonymous()) {
+				complexTypes.put(new QName(nsName, "anon-" + i), elemDecl.getTypeDefinition());
+			}
+		}
+		for (Map.Entry<QName, XSObject> complexType : complexTypes.entrySet()) {
+			XSComplexTypeDefinition type = (XSComplexTypeDefinition) complexType.getValue();
+			for (XSElementDeclaration elemDecl : XMLSchemaModelUtils.getAllElementsInParticle(type.getParticle())) {
+				if (elemDecl.getScope() == XSConstants.SCOPE_GLOBAL) {
+					continue;
+				}
+				LocalElement localElem = new LocalElement(complexType.getKey(), type, elemDecl);
+				for (XSTypeDefinition ancestor : getTypeHierarchy(elemDecl.getTypeDefinition())) {
+					partition.localElementsByAncestor.computeIfAbsent(ancestor, key -> new ArrayList<>())
+						.add(localElem);
+				}
+			}
+		}
+		return partition;
+	}
+
+	private static <T> void merge(Map<XSTypeDefinition, List<T>> index, Map<XSTypeDefinition, List<T>> partition) {
+		for (Map.Entry<XSTypeDefinition, List<T>> entry : partition.entrySet()) {
+			index.computeIfAbsent(entry.getKey(), key -> new ArrayList<>()).addAll(entry.getValue());
+		}
+	}
+
+	/**
+	 * Builds all the component maps of a schema model that Xerces otherwise creates
+	 * lazily (and without synchronization) on first access. The model can then be read
+	 * by several threads at the same time.
+	 * @param model An XSModel object.
+	 */
+	static void prepareForConcurrentAccess(XSModel model) {
+		StringList namespaces = model.getNamespaces();
+		for (short type : COMPONENT_TYPES) {
+			touch(model.getComponents(type));
+			for (int i = 0; i < namespaces.getLength(); i++) {
+				touch(model.getComponentsByNamespace(type, namespaces.item(i)));
+			}
+		}
+	}
+
+	private static void touch(XSNamedMap components) {
+		if (components.getLength() > 0) {
+			components.item(0);
+			components.entrySet();
+		}
+	}
+
+	/**
+	 * Returns the index of the given schema model. The index is built when first
+	 * requested and is released along with the model.
+	 * @param model An XSModel object.
+	 * @return The SchemaModelIndex for the model.
+	 */
+	public static SchemaModelIndex forModel(XSModel model) {
+		SchemaModelIndex index = INDEXES.get(model);
+		if (null == index) {
+			// not built while holding the lock, since the work is done by other threads
+			SchemaModelIndex newIndex = new SchemaModelIndex(model);
+			index = INDEXES.computeIfAbsent(model, key -> newIndex);
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the members of a substitution group.
+	 * @param head The head of the substitution group.
+	 * @return An unmodifiable Set of element declarations that may substitute for the
+	 * head, directly or indirectly (in the order reported by the model); it is empty if
+	 * the head is {@code null}.
+	 */
+	public Set<XSElementDeclaration> getSubstitutionGroup(XSElementDeclaration head) {
+		if (null == head) {
+			return Collections.emptySet();
+		}
+		return substitutionGroups.computeIfAbsent(head, key -> {
+			Set<XSElementDeclaration> members = new LinkedHashSet<XSElementDeclaration>();
+			XSObjectList subGroupMembers = getModel().getSubstitutionGroup(key);
+			for (Object xsObject : subGroupMembers) {
+				members.add((XSElementDeclaration) xsObject);
+			}
+			return Collections.unmodifiableSet(members);
+		});
+	}
+
+	/**
+	 * Indicates whether an element declaration belongs to a substitution group.
+	 * @param elemDecl An element declaration.
+	 * @param head The head of the substitution group.
+	 * @return {@code true} if the element may substitute for the head (directly or
+	 * indirectly); {@code false} otherwise.
+	 */
+	public boolean isSubstitutableFor(XSElementDeclaration elemDecl, XSElementDeclaration head) {
+		return getSubstitutionGroup(head).contains(elemDecl);
+	}
+
+	/**
+	 * Returns the global element declarations in the application namespaces whose type
+	 * definition either matches the given type or derives from it by extension.
+	 * @param typeDef A simple or complex type definition.
+	 * @return A new List of element declarations (possibly empty).
+	 */
+	public List<XSElementDeclaration> getGlobalElementsByType(XSTypeDefinition typeDef) {
+		List<XSElementDeclaration> elems = new ArrayList<XSElementDeclaration>();
+		for (XSElementDeclaration elemDecl : globalElementsByAncestor.getOrDefault(typeDef,
+				Collections.emptyList())) {
+			if (hasType(elemDecl, typeDef)) {
+				elems.add(elemDecl);
+			}
+		}
+		return elems;
+	}
+
+	/**
+	 * Returns the local element declarations in the application namespaces whose type
+	 * definition either matches the given type or derives from it by extension.
+	 * @param typeDef A simple or complex type definition.
+	 * @param typeFilter A schema component filter that determines which enclosing type
+	 * definitions will be examined; it may be {@code null}.
+	 * @return A new List of element declarations (possibly empty).
+	 * @see XMLSchemaModelUtils#getLocalElementsByType(XSModel, XSTypeDefinition,
+	 * SchemaComponentFilter)
+	 */
+	public List<XSElementDeclaration> getLocalElementsByType(XSTypeDefinition typeDef,
+			SchemaComponentFilter typeFilter) {
+		List<LocalElement> candidates = new ArrayList<LocalElement>();
+		for (LocalElement localElem : localElementsByAncestor.getOrDefault(typeDef, Collections.emptyList())) {
+			if (hasType(localElem.elemDecl, typeDef)) {
+				candidates.add(localElem);
+			}
+		}
+		Set<QName> enclosingTypes = null;
+		if (null != typeFilter && !candidates.isEmpty()) {
+			Map<QName, XSObject> types = new HashMap<QName, XSObject>();
+			for (LocalElement localElem : candidates) {
+				types.put(localElem.enclosingTypeName, localElem.enclosingType);
+			}
+			enclosingTypes = typeFilter.doFilter(types).keySet();
+		}
+		List<XSElementDeclaration> elemsByType = new ArrayList<XSElementDeclaration>();
+		for (LocalElement localElem : candidates) {
+			if (null == enclosingTypes || enclosingTypes.contains(localElem.enclosingTypeName)) {
+				elemsByType.add(localElem.elemDecl);
+			}
+		}
+		return elemsByType;
+	}
+
+	/**
+	 * Returns the global type definitions in the application namespaces that are derived
+	 * from the given base type using the specified method.
+	 * @param baseType The base (ancestor) type.
+	 * @param derivationMethod A bit combination representing a subset of {
+	 * DERIVATION_RESTRICTION, DERIVATION_EXTENSION, DERIVATION_UNION, DERIVATION_LIST }.
+	 * @return A new Set of type definitions (possibly empty).
+	 */
+	public Set<XSTypeDefinition> getDerivedTypeDefinitions(XSTypeDefinition baseType, short derivationMethod) {
+		Set<XSTypeDefinition> typeDefs = new HashSet<XSTypeDefinition>();
+		if ((derivationMethod & (XSConstants.DERIVATION_LIST | XSConstants.DERIVATION_UNION)) != 0) {
+			// list item and union member types are not in the chain of base types
+			for (String nsName : appNamespaces) {
+				XSNamedMap components = getModel().getComponentsByNamespace(XSConstants.TYPE_DEFINITION, nsName);
+				for (int i = 0; i < components.getLength(); i++) {
+					XSTypeDefinition typeDef = (XSTypeDefinition) components.item(i);
+					if (typeDef.derivedFromType(baseType, derivationMethod)) {
+						typeDefs.add(typeDef);
+					}
+				}
+			}
+			return typeDefs;
+		}
+		for (XSTypeDefinition typeDef : typesByAncestor.getOrDefault(baseType, Collections.emptyList())) {
+			if (typeDef.derivedFromType(baseType, derivationMethod)) {
+				typeDefs.add(typeDef);
+			}
+		}
+		return typeDefs;
+	}
+
+	private XSModel getModel() {
+		XSModel model = modelRef.get();
+		if (null == model) {
+			throw new IllegalStateException("Schema model is no longer available.");
+		}
+		return model;
+	}
+
+	private static boolean hasType(XSElementDeclaration elemDecl, XSTypeDefinition typeDef) {
+		return elemDecl.getTypeDefinition().equals(typeDef)
+				|| elemDecl.getTypeDefinition().derivedFromType(typeDef, XSConstants.DERIVATION_EXTENSION);
+	}
+
+	/**
+	 * Returns the given type definition followed by its chain of base types, always
+	 * ending with xs:anyType (the chain of a simple type ends with xs:anySimpleType).
+	 */
+	private List<XSTypeDefinition> getTypeHierarchy(XSTypeDefinition typeDef) {
+		List<XSTypeDefinition> hierarchy = new ArrayList<XSTypeDefinition>();
+		XSTypeDefinition type = typeDef;
+		while (null != type && !hierarchy.contains(type)) {
+			hierarchy.add(type);
+			type = type.getBaseType();
+		}
+		if (null != anyType && !hierarchy.contains(anyType)) {
+			hierarchy.add(anyType);
+		}
+		return hierarchy;
+	}
+
+	/**
+	 * The entries of the index for a single namespace.
+	 */
+	private static final class Partition {
+
+		private final Map<XSTypeDefinition, List<XSTypeDefinition>> typesByAncestor = new HashMap<>();
+
+		private final Map<XSTypeDefinition, List<XSElementDeclaration>> globalElementsByAncestor = new HashMap<>();
+
+		private final Map<XSTypeDefinition, List<LocalElement>> localElementsByAncestor = new HashMap<>();
+
+	}
+
+	/**
+	 * A local element declaration along with the complex type in whose content model it
+	 * occurs.
+	 */
+	private static final class LocalElement {
+
+		private final QName enclosingTypeName;
+
+		private final XSObject enclosingType;
+
+		private final XSElementDeclaration elemDecl;
+
+		LocalElement(QName enclosingTypeName, XSObject enclosingType, XSElementDeclaration elemDecl) {
+			this.enclosingTypeName = enclosingTypeName;
+			this.enclosingType = enclosingType;
+			this.elemDecl = elemDecl;
+		}
+
+	}
+
+}
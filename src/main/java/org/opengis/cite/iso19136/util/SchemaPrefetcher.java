@@ -0,0 +1,233 @@
+package org.opengis.cite.iso19136.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.xerces.util.XMLCatalogResolver;
+
+/**
+ * Retrieves the remote schema documents that a set of application schemas import,
+ * include or redefine (directly or indirectly), and stores them in a
+ * {@link LocalSchemaCatalog}. Once this has been done, the application schemas can be
+ * compiled without network access, and always with the same content. Schemas bundled
+ * with the test suite are not retrieved.
+ *
+ * <p>
+ * The prefetcher can be run from the command line; the first argument specifies the
+ * catalog directory and the remaining ones the locations of the application schemas
+ * (absolute URIs or file paths):
+ * </p>
+ *
+ * <pre>
+ * java -cp ets-gml32-aio.jar org.opengis.cite.iso19136.util.SchemaPrefetcher DIR SCHEMA...
+ * </pre>
+ *
+ * <p>
+ * The catalog is then used if the system property
+ * {@value LocalSchemaCatalog#CATALOG_DIR_PROPERTY} refers to the same directory. Running
+ * the prefetcher again refreshes the local copies.
+ * </p>
+ */
+public class SchemaPrefetcher {
+
+	private static final String[] REFERENCES = { "import", "include", "redefine", "override" };
+
+	private final LocalSchemaCatalog catalog;
+
+	private final List<XMLCatalogResolver> bundledResolvers = new ArrayList<XMLCatalogResolver>();
+
+	private final XMLInputFactory factory;
+
+	/**
+	 * Creates a prefetcher that stores schema documents in the given catalog.
+	 * @param catalog A LocalSchemaCatalog.
+	 */
+	public SchemaPrefetcher(LocalSchemaCatalog catalog) {
+		this.catalog = catalog;
+		for (GmlVersion version : GmlVersion.values()) {
+			bundledResolvers.add(GrammarPools.newCatalogResolver(version.getSchemaCatalog()));
+		}
+		this.factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+	}
+
+	/**
+	 * Retrieves the remote schema documents referenced by the given schemas (including
+	 * the schemas themselves if they are remote) and adds them to the catalog.
+	 * @param schemaLocations A Collection of URI objects specifying schema locations.
+	 * @return A List containing the locations of the documents stored, in the order in
+	 * which they were retrieved.
+	 * @throws IOException If a schema document cannot be retrieved or stored.
+	 */
+	public List<URI> prefetch(Collection<URI> schemaLocations) throws IOException {
+		Deque<URI> pending = new ArrayDeque<URI>();
+		for (URI location : schemaLocations) {
+			pending.add(location.normalize());
+		}
+		Set<URI> visited = new HashSet<URI>();
+		Map<String, String> entries = new LinkedHashMap<String, String>();
+		List<URI> stored = new ArrayList<URI>();
+		while (!pending.isEmpty()) {
+			URI document = pending.poll();
+			if (!visited.add(document)) {
+				continue;
+			}
+			File content;
+			String scheme = String.valueOf(document.getScheme()).toLowerCase();
+			if (scheme.equals("file")) {
+				content = new File(document);
+			}
+			else if (scheme.equals("http") || scheme.equals("https")) {
+				String path = getLocalPath(document);
+				content = new File(catalog.getDirectory(), path);
+				if (!content.getParentFile().isDirectory() && !content.getParentFile().mkdirs()) {
+					throw new IOException("Cannot create directory at " + content.getParentFile());
+				}
+				Files.copy(EntityCache.getDefault().resolve(document).toPath(), content.toPath(),
+						StandardCopyOption.REPLACE_EXISTING);
+				entries.put(document.toString(), path);
+				stored.add(document);
+				TestSuiteLogger.log(Level.FINE, "Prefetched " + document);
+			}
+			else {
+				throw new IOException("Cannot prefetch schema at " + document);
+			}
+			for (URI reference : readReferences(document, content)) {
+				if (!isBundled(reference)) {
+					pending.add(reference);
+				}
+			}
+		}
+		if (!entries.isEmpty()) {
+			catalog.addEntries(entries);
+		}
+		return stored;
+	}
+
+	/**
+	 * Reads the schema references in a schema document. A reference without a schema
+	 * location cannot be followed; it is reported unless the namespace is bundled.
+	 * @param document The location of a schema document.
+	 * @param content A File containing the document.
+	 * @return A List of (absolute) schema locations.
+	 */
+	private List<URI> readReferences(URI document, File content) throws IOException {
+		List<URI> references = new ArrayList<URI>();
+		try (InputStream inStream = new FileInputStream(content)) {
+			XMLStreamReader reader = factory.createXMLStreamReader(document.toString(), inStream);
+			try {
+				while (reader.hasNext()) {
+					if (reader.next() != XMLStreamConstants.START_ELEMENT
+							|| !XMLConstants.W3C_XML_SCHEMA_NS_URI.equals(reader.getNamespaceURI())
+							|| !Arrays.asList(REFERENCES).contains(reader.getLocalName())) {
+						continue;
+					}
+					String location = reader.getAttributeValue(null, "schemaLocation");
+					if (null != location && !location.isEmpty()) {
+						references.add(URIUtils.resolveRelativeURI(document.toString(), location).normalize());
+						continue;
+					}
+					String namespace = reader.getAttributeValue(null, "namespace");
+					if (null != namespace && !isBundledNamespace(namespace)) {
+						TestSuiteLogger.log(Level.WARNING, String.format(
+								"Cannot prefetch schema for namespace %s (imported by %s without location)", namespace,
+								document));
+					}
+				}
+			}
+			finally {
+				reader.close();
+			}
+		}
+		catch (XMLStreamException e) {
+			throw new IOException("Failed to read schema at " + document, e);
+		}
+		return references;
+	}
+
+	private boolean isBundled(URI location) throws IOException {
+		for (XMLCatalogResolver resolver : bundledResolvers) {
+			if (null != resolver.resolveSystem(location.toString())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean isBundledNamespace(String namespace) throws IOException {
+		for (XMLCatalogResolver resolver : bundledResolvers) {
+			if (null != resolver.resolveURI(namespace)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Determines where the copy of a remote document is stored. The path mirrors the
+	 * host and path of the URI, unless these cannot be used safely as a file name.
+	 * @param uri An absolute 'http' or 'https' URI.
+	 * @return A path relative to the catalog directory.
+	 */
+	static String getLocalPath(URI uri) {
+		String host = String.valueOf(uri.getHost()) + ((uri.getPort() > 0) ? "_" + uri.getPort() : "");
+		String path = uri.getPath();
+		if (null == uri.getQuery() && null != path && path.matches("(/[A-Za-z0-9_~-][A-Za-z0-9._~-]*)+")) {
+			return host + path;
+		}
+		return host + "/" + SchemaCache.digest(uri.toString()) + ".xsd";
+	}
+
+	/**
+	 * Prefetches the schemas referenced by the given application schemas.
+	 * @param args The catalog directory, followed by the locations of one or more
+	 * application schemas.
+	 * @throws IOException If a schema document cannot be retrieved or stored.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: SchemaPrefetcher DIR SCHEMA...");
+			System.exit(1);
+		}
+		LocalSchemaCatalog catalog = new LocalSchemaCatalog(new File(args[0]));
+		List<URI> locations = new ArrayList<URI>();
+		for (String arg : Arrays.asList(args).subList(1, args.length)) {
+			URI uri;
+			try {
+				uri = URI.create(arg);
+			}
+			catch (IllegalArgumentException e) {
+				uri = null;
+			}
+			// a single-letter scheme denotes a drive letter
+			boolean isURI = null != uri && uri.isAbsolute() && uri.getScheme().length() > 1;
+			locations.add(isURI ? uri : new File(arg).toURI());
+		}
+		List<URI> stored = new SchemaPrefetcher(catalog).prefetch(locations);
+		System.out.println(String.format("Stored %d schema documents in %s", stored.size(),
+				catalog.getCatalogFile().getAbsolutePath()));
+	}
+
+}
@@ -0,0 +1,238 @@
+package org.opengis.cite.iso19136.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+import javax.xml.namespace.QName;
+import javax.xml.validation.Schema;
+
+import org.apache.xerces.xs.XSElementDeclaration;
+import org.apache.xerces.xs.XSModel;
+
+/**
+ * A compact, read-only record of facts derived from a schema model, stored on disk so
+ * that it outlives the JVM. It contains named lists of element declarations (e.g. the
+ * feature types found in an application schema), which would otherwise be found by
+ * examining every component in the model.
+ *
+ * <p>
+ * Schema components are recorded by name. Since a schema model cannot itself be
+ * persisted, the components are looked up by name in a model built from the same
+ * schema (see {@link #getElementDeclarations(String, XSModel)}). A snapshot file is named
+ * after the {@link SchemaCache#getFingerprint(Schema) fingerprint} of the schema and the
+ * target namespace, so a snapshot is never used with a different version of the schema
+ * documents. Snapshot files are written to the directory given by the system property
+ * {@value #SNAPSHOT_DIR_PROPERTY} (if unset, a subdirectory of the default temporary
+ * file directory is used) and are memory-mapped when read.
+ * </p>
+ */
+public class SchemaSnapshot {
+
+	/** System property that specifies the location of the snapshot directory. */
+	public static final String SNAPSHOT_DIR_PROPERTY = "ets.gml32.schemaCache.dir";
+
+	private static final int MAGIC = 0x47534e50;
+
+	private static final int FORMAT_VERSION = 2;
+
+	private static final String SUFFIX = ".snapshot";
+
+	private final Map<String, List<QName>> elementLists;
+
+	private SchemaSnapshot(Map<String, List<QName>> elementLists) {
+		this.elementLists = elementLists;
+	}
+
+	/**
+	 * Creates a snapshot that records the given lists of element declarations.
+	 * @param elementLists A collection of named lists of element declarations.
+	 * @return A new SchemaSnapshot.
+	 */
+	public static SchemaSnapshot create(Map<String, ? extends Collection<XSElementDeclaration>> elementLists) {
+		Map<String, List<QName>> lists = new LinkedHashMap<String, List<QName>>();
+		for (Map.Entry<String, ? extends Collection<XSElementDeclaration>> list : elementLists.entrySet()) {
+			lists.put(list.getKey(), toNames(list.getValue()));
+		}
+		return new SchemaSnapshot(lists);
+	}
+
+	/**
+	 * Returns the directory that holds the snapshots shared by all test runs.
+	 * @return A File denoting a directory (which may not exist yet).
+	 */
+	public static File getDefaultDirectory() {
+		String dirName = System.getProperty(SNAPSHOT_DIR_PROPERTY);
+		return (null != dirName) ? new File(dirName)
+				: new File(System.getProperty("java.io.tmpdir"), "ets-gml32" + File.separator + "schemas");
+	}
+
+	/**
+	 * Returns the file that holds the snapshot of a schema model.
+	 * @param dir The snapshot directory.
+	 * @param fingerprint The fingerprint of the schema (see
+	 * {@link SchemaCache#getFingerprint(Schema)}).
+	 * @param namespace The target namespace of the model.
+	 * @return A File (which may not exist).
+	 */
+	public static File getSnapshotFile(File dir, String fingerprint, String namespace) {
+		return new File(dir, SchemaCache.digest(fingerprint + ' ' + namespace) + SUFFIX);
+	}
+
+	/**
+	 * Reads the snapshot of a schema model.
+	 * @param file A snapshot file.
+	 * @return A SchemaSnapshot, or {@code null} if the file does not exist or cannot be
+	 * read.
+	 */
+	public static SchemaSnapshot read(File file) {
+		if (!file.isFile()) {
+			return null;
+		}
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+				TestSuiteLogger.log(Level.FINE, "Ignoring snapshot in unknown format: " + file);
+				return null;
+			}
+			String[] strings = new String[buffer.getInt()];
+			for (int i = 0; i < strings.length; i++) {
+				byte[] bytes = new byte[buffer.getInt()];
+				buffer.get(bytes);
+				strings[i] = new String(bytes, StandardCharsets.UTF_8);
+			}
+			Map<String, List<QName>> lists = new LinkedHashMap<String, List<QName>>();
+			for (int i = buffer.getInt(); i > 0; i--) {
+				lists.put(strings[buffer.getInt()], readNames(buffer, strings));
+			}
+			return new SchemaSnapshot(lists);
+		}
+		catch (IOException | BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+			TestSuiteLogger.log(Level.WARNING, "Failed to read schema snapshot from " + file, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Writes this snapshot to a file. The file is replaced atomically, so concurrent
+	 * readers never see a partially written snapshot.
+	 * @param file The destination file; its parent directory is created if necessary.
+	 * @throws IOException If the snapshot cannot be written.
+	 */
+	public void write(File file) throws IOException {
+		File dir = file.getAbsoluteFile().getParentFile();
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("Cannot create snapshot directory at " + dir);
+		}
+		Map<String, Integer> strings = new LinkedHashMap<String, Integer>();
+		for (Map.Entry<String, List<QName>> list : elementLists.entrySet()) {
+			intern(strings, list.getKey());
+			list.getValue().forEach(name -> intern(strings, name));
+		}
+		File tempFile = File.createTempFile("snapshot-", ".tmp", dir);
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeInt(strings.size());
+			for (String str : strings.keySet()) {
+				byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+			out.writeInt(elementLists.size());
+			for (Map.Entry<String, List<QName>> list : elementLists.entrySet()) {
+				out.writeInt(strings.get(list.getKey()));
+				writeNames(out, list.getValue(), strings);
+			}
+		}
+		Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Returns the element declarations in a named list.
+	 * @param listName The name of the list.
+	 * @param model A model of the schema the snapshot was created from.
+	 * @return A List of (global) element declarations, or {@code null} if the snapshot
+	 * does not contain a list with that name or if any of the elements is not declared in
+	 * the model.
+	 */
+	public List<XSElementDeclaration> getElementDeclarations(String listName, XSModel model) {
+		List<QName> names = elementLists.get(listName);
+		if (null == names) {
+			return null;
+		}
+		List<XSElementDeclaration> elemDecls = new ArrayList<XSElementDeclaration>(names.size());
+		for (QName name : names) {
+			XSElementDeclaration elemDecl = model.getElementDeclaration(name.getLocalPart(),
+					emptyToNull(name.getNamespaceURI()));
+			if (null == elemDecl) {
+				return null;
+			}
+			elemDecls.add(elemDecl);
+		}
+		return elemDecls;
+	}
+
+	private static List<QName> toNames(Collection<XSElementDeclaration> elemDecls) {
+		List<QName> names = new ArrayList<QName>(elemDecls.size());
+		for (XSElementDeclaration elemDecl : elemDecls) {
+			names.add(XMLSchemaModelUtils.getQName(elemDecl));
+		}
+		return names;
+	}
+
+	private static String emptyToNull(String namespace) {
+		return namespace.isEmpty() ? null : namespace;
+	}
+
+	private static void intern(Map<String, Integer> strings, String str) {
+		strings.putIfAbsent(str, strings.size());
+	}
+
+	private static void intern(Map<String, Integer> strings, QName name) {
+		intern(strings, name.getNamespaceURI());
+		intern(strings, name.getLocalPart());
+	}
+
+	private static void writeNames(DataOutputStream out, List<QName> names, Map<String, Integer> strings)
+			throws IOException {
+		out.writeInt(names.size());
+		for (QName name : names) {
+			out.writeInt(strings.get(name.getNamespaceURI()));
+			out.writeInt(strings.get(name.getLocalPart()));
+		}
+	}
+
+	private static QName readName(ByteBuffer buffer, String[] strings) {
+		String namespace = strings[buffer.getInt()];
+		return new QName(namespace, strings[buffer.getInt()]);
+	}
+
+	private static List<QName> readNames(ByteBuffer buffer, String[] strings) {
+		int count = buffer.getInt();
+		List<QName> names = new ArrayList<QName>(count);
+		for (int i = 0; i < count; i++) {
+			names.add(readName(buffer, strings));
+		}
+		return names;
+	}
+
+}
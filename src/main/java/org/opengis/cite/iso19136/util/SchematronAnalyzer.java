@@ -0,0 +1,796 @@
+package org.opengis.cite.iso19136.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Level;
+
+import javax.xml.XMLConstants;
+
+import org.opengis.cite.iso19136.Namespaces;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Determines which patterns in a Schematron schema can be checked while the instance
+ * document is streamed. A pattern is <em>streamable</em> if each of its rules only
+ * inspects the context element and a bounded number of levels beneath it:
+ *
+ * <ul>
+ * <li>the rule context is a single step (e.g. <code>gml:Envelope</code> or
+ * <code>*[@gml:id]</code>), possibly a union of such steps;</li>
+ * <li>the expressions never leave the subtree of the context element: absolute paths,
+ * the descendant, ancestor, sibling and preceding/following axes, variables, and
+ * functions such as <code>id()</code>, <code>document()</code> or
+ * <code>position()</code> are not supported;</li>
+ * <li>the string value of an element is never required, since that would require the
+ * complete subtree (attribute values are always available).</li>
+ * </ul>
+ *
+ * <p>
+ * The analysis is conservative: an expression it does not recognize makes the pattern
+ * non-streamable, in which case it is checked against the complete document tree. For a
+ * streamable pattern, the analyzer also determines which elements need to be retained at
+ * each level beneath the context element.
+ * </p>
+ */
+public class SchematronAnalyzer {
+
+	/** Denotes text nodes in the set of names retained at some level. */
+	static final String TEXT = "#text";
+
+	/** Denotes any element in the set of names retained at some level. */
+	static final String ANY = "*";
+
+	private static final Set<String> DENIED_FUNCTIONS = new HashSet<String>(Arrays.asList("root", "id", "idref",
+			"element-with-id", "key", "doc", "document", "doc-available", "collection", "uri-collection", "current",
+			"position", "last", "base-uri", "document-uri", "lang", "unparsed-text", "unparsed-text-lines",
+			"unparsed-text-available", "generate-id", "path"));
+
+	/** Functions whose node arguments are not atomized. */
+	private static final Set<String> NODE_FUNCTIONS = new HashSet<String>(Arrays.asList("count", "exists", "empty",
+			"not", "boolean", "name", "local-name", "namespace-uri", "node-name"));
+
+	/** Functions that atomize the context item if called without arguments. */
+	private static final Set<String> CONTEXT_FUNCTIONS = new HashSet<String>(
+			Arrays.asList("string", "number", "normalize-space", "string-length", "data"));
+
+	private static final Set<String> ATOMIZING_OPERATORS = new HashSet<String>(Arrays.asList("=", "!=", "<", "<=",
+			">", ">=", "+", "-", "*", "div", "mod", "idiv", "eq", "ne", "lt", "le", "gt", "ge", "to"));
+
+	private static final Set<String> MESSAGE_ELEMENTS = new HashSet<String>(
+			Arrays.asList("name", "value-of", "emph", "dir", "span"));
+
+	private final Map<String, String> namespaces = new LinkedHashMap<String, String>();
+
+	private final List<Pattern> patterns = new ArrayList<Pattern>();
+
+	/**
+	 * Analyzes the active patterns in a Schematron schema.
+	 * @param schema A Document containing a Schematron schema.
+	 * @param phase The name of the phase to invoke; if {@code null} or "#ALL" then all
+	 * patterns are active.
+	 * @throws IllegalArgumentException If the schema does not define the phase.
+	 */
+	public SchematronAnalyzer(Document schema, String phase) {
+		Element schemaElem = schema.getDocumentElement();
+		namespaces.put("xml", XMLConstants.XML_NS_URI);
+		String schemaReason = null;
+		for (Element child : childElements(schemaElem)) {
+			if (!Namespaces.SCH.equals(child.getNamespaceURI())) {
+				continue;
+			}
+			if (child.getLocalName().equals("ns")) {
+				namespaces.put(child.getAttribute("prefix"), child.getAttribute("uri"));
+			}
+			else if (child.getLocalName().equals("let") || child.getLocalName().equals("include")) {
+				schemaReason = "schema contains sch:" + child.getLocalName();
+			}
+		}
+		if (!schemaElem.getAttribute("queryBinding").matches("|xslt|xslt2|xpath|xpath2")) {
+			schemaReason = "unsupported query binding";
+		}
+		Set<String> activePatterns = findActivePatterns(schemaElem, phase);
+		if (null != activePatterns && activePatterns.contains(null)) {
+			schemaReason = "phase contains sch:let";
+		}
+		int index = 0;
+		for (Element patternElem : childElements(schemaElem)) {
+			if (!Namespaces.SCH.equals(patternElem.getNamespaceURI())
+					|| !patternElem.getLocalName().equals("pattern")) {
+				continue;
+			}
+			index++;
+			String id = patternElem.getAttribute("id");
+			if (null != activePatterns && !activePatterns.contains(id)) {
+				continue;
+			}
+			Pattern pattern = new Pattern(id.isEmpty() ? "pattern-" + index : id, patternElem);
+			try {
+				if (null != schemaReason) {
+					throw new IllegalArgumentException(schemaReason);
+				}
+				analyzePattern(pattern);
+				pattern.streamable = true;
+			}
+			catch (IllegalArgumentException e) {
+				pattern.reason = e.getMessage();
+				TestSuiteLogger.log(Level.FINE,
+						String.format("Schematron pattern %s is not streamable: %s", pattern.id, pattern.reason));
+			}
+			patterns.add(pattern);
+		}
+	}
+
+	/**
+	 * Returns the identifiers of the active patterns that can be checked while the
+	 * document is streamed. A pattern without an id is identified by its position (e.g.
+	 * "pattern-2").
+	 * @return A List of pattern identifiers, in schema order.
+	 */
+	public List<String> getStreamablePatterns() {
+		List<String> ids = new ArrayList<String>();
+		for (Pattern pattern : patterns) {
+			if (pattern.streamable) {
+				ids.add(pattern.id);
+			}
+		}
+		return ids;
+	}
+
+	/**
+	 * Returns the identifiers of the active patterns that must be checked against the
+	 * complete document tree.
+	 * @return A List of pattern identifiers, in schema order.
+	 */
+	public List<String> getFullTreePatterns() {
+		List<String> ids = new ArrayList<String>();
+		for (Pattern pattern : patterns) {
+			if (!pattern.streamable) {
+				ids.add(pattern.id);
+			}
+		}
+		return ids;
+	}
+
+	/**
+	 * Returns the namespace bindings declared in the schema.
+	 * @return A Map in which each key is a prefix and the value is the namespace name
+	 * bound to it.
+	 */
+	Map<String, String> getNamespaces() {
+		return Collections.unmodifiableMap(namespaces);
+	}
+
+	/**
+	 * Returns the active patterns.
+	 * @return A List of patterns, in schema order.
+	 */
+	List<Pattern> getPatterns() {
+		return Collections.unmodifiableList(patterns);
+	}
+
+	/**
+	 * Returns the name tests for the elements and text nodes retained at each level
+	 * beneath the context element of a streamable pattern.
+	 * @param patternId The identifier of a pattern.
+	 * @return A Map whose key is the level (0 for the context element itself), or an
+	 * empty map if there is no such streamable pattern.
+	 */
+	Map<Integer, Set<String>> getLevels(String patternId) {
+		for (Pattern pattern : patterns) {
+			if (pattern.id.equals(patternId) && pattern.streamable) {
+				return pattern.levels;
+			}
+		}
+		return new HashMap<Integer, Set<String>>();
+	}
+
+	/**
+	 * Determines the patterns that are active in the given phase.
+	 * @return A Set of pattern identifiers, or {@code null} if all patterns are active; it
+	 * contains {@code null} if the phase declares variables.
+	 */
+	private static Set<String> findActivePatterns(Element schemaElem, String phase) {
+		if (null != phase && phase.equals("#DEFAULT")) {
+			phase = schemaElem.getAttribute("defaultPhase");
+		}
+		if (null == phase || phase.isEmpty() || phase.equals("#ALL")) {
+			return null;
+		}
+		for (Element phaseElem : childElements(schemaElem)) {
+			if (!Namespaces.SCH.equals(phaseElem.getNamespaceURI()) || !phaseElem.getLocalName().equals("phase")
+					|| !phaseElem.getAttribute("id").equals(phase)) {
+				continue;
+			}
+			Set<String> active = new HashSet<String>();
+			for (Element child : childElements(phaseElem)) {
+				if (child.getLocalName().equals("active")) {
+					active.add(child.getAttribute("pattern"));
+				}
+				else if (child.getLocalName().equals("let")) {
+					active.add(null);
+				}
+			}
+			return active;
+		}
+		throw new IllegalArgumentException("Phase not defined in Schematron schema: " + phase);
+	}
+
+	private void analyzePattern(Pattern pattern) {
+		Element patternElem = pattern.element;
+		if (patternElem.hasAttribute("abstract") || patternElem.hasAttribute("is-a")) {
+			throw new IllegalArgumentException("abstract pattern");
+		}
+		for (Element child : childElements(patternElem)) {
+			String name = child.getLocalName();
+			if (!Namespaces.SCH.equals(child.getNamespaceURI())) {
+				throw new IllegalArgumentException("foreign element " + child.getNodeName());
+			}
+			if (name.equals("rule")) {
+				pattern.rules.add(analyzeRule(pattern, child));
+			}
+			else if (!name.equals("title") && !name.equals("p")) {
+				throw new IllegalArgumentException("pattern contains sch:" + name);
+			}
+		}
+	}
+
+	private Rule analyzeRule(Pattern pattern, Element ruleElem) {
+		String context = ruleElem.getAttribute("context");
+		if (ruleElem.hasAttribute("abstract") || context.isEmpty()) {
+			throw new IllegalArgumentException("abstract rule");
+		}
+		pattern.merge(analyzeExpression(context, true, false));
+		Rule rule = new Rule(context, ruleElem);
+		for (Element child : childElements(ruleElem)) {
+			String name = child.getLocalName();
+			if (!Namespaces.SCH.equals(child.getNamespaceURI())
+					|| !(name.equals("assert") || name.equals("report"))) {
+				throw new IllegalArgumentException("rule contains " + child.getNodeName());
+			}
+			pattern.merge(analyzeExpression(child.getAttribute("test"), false, false));
+			analyzeMessage(pattern, child);
+			rule.checks.add(child);
+		}
+		return rule;
+	}
+
+	private void analyzeMessage(Pattern pattern, Element parent) {
+		for (Element child : childElements(parent)) {
+			if (!Namespaces.SCH.equals(child.getNamespaceURI()) || !MESSAGE_ELEMENTS.contains(child.getLocalName())) {
+				throw new IllegalArgumentException("message contains " + child.getNodeName());
+			}
+			if (child.getLocalName().equals("name") && child.hasAttribute("path")) {
+				pattern.merge(analyzeExpression("name(" + child.getAttribute("path") + ")", false, false));
+			}
+			else if (child.getLocalName().equals("value-of")) {
+				pattern.merge(analyzeExpression(child.getAttribute("select"), false, true));
+			}
+			analyzeMessage(pattern, child);
+		}
+	}
+
+	/**
+	 * Analyzes an XPath expression evaluated in the context of an element.
+	 * @param expr An XPath expression (or a rule context, which is a pattern).
+	 * @param isContext Indicates whether the expression is a rule context.
+	 * @param atomized Indicates whether the value of the expression is atomized.
+	 * @return The names of the nodes accessed at each level beneath the context element
+	 * (level 0 holds the name tests of a rule context).
+	 * @throws IllegalArgumentException If the expression is not streamable.
+	 */
+	Map<Integer, Set<String>> analyzeExpression(String expr, boolean isContext, boolean atomized) {
+		ExpressionWalker walker = new ExpressionWalker(tokenize(expr), isContext);
+		walker.walk(atomized);
+		return walker.levels;
+	}
+
+	/**
+	 * Splits an XPath expression into tokens.
+	 * @param expr An XPath expression.
+	 * @return A List of tokens.
+	 */
+	static List<String> tokenize(String expr) {
+		List<String> tokens = new ArrayList<String>();
+		int i = 0;
+		int length = expr.length();
+		while (i < length) {
+			char c = expr.charAt(i);
+			if (Character.isWhitespace(c)) {
+				i++;
+				continue;
+			}
+			int start = i;
+			if (c == '\'' || c == '"') {
+				i = expr.indexOf(c, i + 1);
+				while (i > 0 && i + 1 < length && expr.charAt(i + 1) == c) {
+					i = expr.indexOf(c, i + 2);
+				}
+				if (i < 0) {
+					throw new IllegalArgumentException("unterminated literal");
+				}
+				i++;
+			}
+			else if (Character.isDigit(c)
+					|| (c == '.' && i + 1 < length && Character.isDigit(expr.charAt(i + 1)))) {
+				while (i < length && (Character.isDigit(expr.charAt(i)) || expr.charAt(i) == '.')) {
+					i++;
+				}
+				if (i < length && (expr.charAt(i) == 'e' || expr.charAt(i) == 'E')) {
+					i++;
+					while (i < length && (Character.isDigit(expr.charAt(i)) || "+-".indexOf(expr.charAt(i)) >= 0)) {
+						i++;
+					}
+				}
+			}
+			else if (isNameStart(c) || (c == '*' && i + 2 < length && expr.charAt(i + 1) == ':'
+					&& isNameStart(expr.charAt(i + 2)))) {
+				i = (c == '*') ? i + 2 : i;
+				i = skipName(expr, i);
+				if (c != '*' && i + 1 < length && expr.charAt(i) == ':' && expr.charAt(i + 1) != ':') {
+					i = (expr.charAt(i + 1) == '*') ? i + 2 : skipName(expr, i + 1);
+				}
+			}
+			else {
+				String pair = (i + 1 < length) ? expr.substring(i, i + 2) : "";
+				i += Arrays.asList("..", "//", "::", "!=", "<=", ">=", "<<", ">>").contains(pair) ? 2 : 1;
+			}
+			tokens.add(expr.substring(start, i));
+		}
+		return tokens;
+	}
+
+	private static boolean isNameStart(char c) {
+		return Character.isLetter(c) || c == '_';
+	}
+
+	private static int skipName(String expr, int i) {
+		while (i < expr.length() && (Character.isLetterOrDigit(expr.charAt(i)) || "._-".indexOf(expr.charAt(i)) >= 0)) {
+			i++;
+		}
+		return i;
+	}
+
+	private static boolean isLiteral(String token) {
+		char c = token.charAt(0);
+		return c == '\'' || c == '"' || Character.isDigit(c)
+				|| (c == '.' && token.length() > 1 && Character.isDigit(token.charAt(1)));
+	}
+
+	private static boolean isName(String token) {
+		return isNameStart(token.charAt(0)) || token.startsWith("*:");
+	}
+
+	static List<Element> childElements(Element parent) {
+		List<Element> children = new ArrayList<Element>();
+		for (Node child = parent.getFirstChild(); null != child; child = child.getNextSibling()) {
+			if (child.getNodeType() == Node.ELEMENT_NODE) {
+				children.add((Element) child);
+			}
+		}
+		return children;
+	}
+
+	/**
+	 * Determines whether an element name satisfies a name test (in the form produced by
+	 * the analyzer: "*", "{uri}*", "{*}local" or "{uri}local").
+	 * @param nameTest A name test.
+	 * @param nsURI The namespace name of the element (empty if none).
+	 * @param localName The local name of the element.
+	 * @return {@code true} if the name matches; {@code false} otherwise.
+	 */
+	static boolean matches(String nameTest, String nsURI, String localName) {
+		if (nameTest.equals(ANY)) {
+			return true;
+		}
+		if (nameTest.equals(TEXT)) {
+			return false;
+		}
+		int end = nameTest.indexOf('}');
+		String testNS = nameTest.substring(1, end);
+		String testLocal = nameTest.substring(end + 1);
+		return (testNS.equals("*") || testNS.equals(nsURI)) && (testLocal.equals("*") || testLocal.equals(localName));
+	}
+
+	/**
+	 * A pattern, along with the outcome of the analysis.
+	 */
+	static class Pattern {
+
+		final String id;
+
+		final Element element;
+
+		final List<Rule> rules = new ArrayList<Rule>();
+
+		/** The names retained at each level beneath the context element (level 0). */
+		final Map<Integer, Set<String>> levels = new TreeMap<Integer, Set<String>>();
+
+		boolean streamable;
+
+		String reason;
+
+		Pattern(String id, Element element) {
+			this.id = id;
+			this.element = element;
+		}
+
+		void merge(Map<Integer, Set<String>> names) {
+			for (Map.Entry<Integer, Set<String>> entry : names.entrySet()) {
+				Set<String> level = levels.get(entry.getKey());
+				if (null == level) {
+					level = new HashSet<String>();
+					levels.put(entry.getKey(), level);
+				}
+				level.addAll(entry.getValue());
+			}
+		}
+
+		/**
+		 * Returns the number of levels retained beneath the context element.
+		 * @return The maximum depth accessed by any rule.
+		 */
+		int getDepth() {
+			return levels.isEmpty() ? 0 : ((TreeMap<Integer, Set<String>>) levels).lastKey();
+		}
+
+		/**
+		 * Determines whether a node at some level beneath the context element is retained.
+		 * @param level The level of the node (1 for a child of the context element).
+		 * @param nsURI The namespace name of the element (empty if none), or {@code null}
+		 * for a text node.
+		 * @param localName The local name of the element.
+		 * @return {@code true} if the node is retained; {@code false} otherwise.
+		 */
+		boolean accepts(int level, String nsURI, String localName) {
+			Set<String> names = levels.get(level);
+			if (null == names) {
+				return false;
+			}
+			if (null == nsURI) {
+				return names.contains(TEXT);
+			}
+			for (String nameTest : names) {
+				if (matches(nameTest, nsURI, localName)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+	}
+
+	/**
+	 * A rule and its assertions (sch:assert and sch:report elements).
+	 */
+	static class Rule {
+
+		final String context;
+
+		final Element element;
+
+		final List<Element> checks = new ArrayList<Element>();
+
+		Rule(String context, Element element) {
+			this.context = context;
+			this.element = element;
+		}
+
+	}
+
+	private static class Frame {
+
+		/** The level of the context node for expressions in this frame. */
+		final int base;
+
+		/** The function name, "(" for a parenthesized expression, or "[" for a predicate. */
+		final String function;
+
+		final Path saved;
+
+		boolean atomizeNext;
+
+		boolean empty = true;
+
+		Frame(int base, String function, Path saved) {
+			this.base = base;
+			this.function = function;
+			this.saved = saved;
+		}
+
+	}
+
+	private static class Path {
+
+		int level;
+
+		boolean element = true;
+
+		final boolean atomized;
+
+		Path(int level, boolean atomized) {
+			this.level = level;
+			this.atomized = atomized;
+		}
+
+	}
+
+	/**
+	 * Walks through the tokens of an expression, keeping track of the level of each
+	 * location step relative to the context element.
+	 */
+	private class ExpressionWalker {
+
+		final List<String> tokens;
+
+		final boolean isContext;
+
+		final Map<Integer, Set<String>> levels = new TreeMap<Integer, Set<String>>();
+
+		final Deque<Frame> frames = new ArrayDeque<Frame>();
+
+		Path path;
+
+		String axis;
+
+		boolean operand;
+
+		boolean expectStep;
+
+		ExpressionWalker(List<String> tokens, boolean isContext) {
+			this.tokens = tokens;
+			this.isContext = isContext;
+			// a rule context is matched against the context element itself (level 0)
+			frames.push(new Frame(isContext ? -1 : 0, "#root", null));
+		}
+
+		void walk(boolean atomized) {
+			if (tokens.isEmpty()) {
+				throw new IllegalArgumentException("empty expression");
+			}
+			for (int pos = 0; pos < tokens.size(); pos++) {
+				String token = tokens.get(pos);
+				String next = (pos + 1 < tokens.size()) ? tokens.get(pos + 1) : "";
+				if (!token.equals(")")) {
+					frames.peek().empty = false;
+				}
+				if (operand) {
+					pos = operator(token, pos);
+				}
+				else if (isLiteral(token)) {
+					checkContext(false);
+					operand = true;
+				}
+				else if (token.equals("*") || (isName(token) && !next.equals("(") && !next.equals("::"))) {
+					step(token);
+				}
+				else if (isName(token) && next.equals("::")) {
+					if (!Arrays.asList("child", "attribute", "self").contains(token)) {
+						throw new IllegalArgumentException("unsupported axis " + token);
+					}
+					axis = token;
+					pos++;
+				}
+				else if (isName(token)) {
+					pos = function(token, pos + 1);
+				}
+				else if (token.equals("@")) {
+					axis = "attribute";
+				}
+				else if (token.equals(".") || token.equals("..")) {
+					startPath();
+					if (token.equals("..") && --path.level < 0) {
+						throw new IllegalArgumentException("expression refers to ancestors");
+					}
+					path.element = true;
+					operand = true;
+					expectStep = false;
+				}
+				else if (token.equals("(")) {
+					if (expectStep) {
+						throw new IllegalArgumentException("unsupported step");
+					}
+					checkContext(false);
+					frames.push(new Frame(frames.peek().base, token, null));
+				}
+				else if (token.equals(")") && frames.peek().empty) {
+					closeFunction();
+				}
+				else if (token.equals("-") || token.equals("+")) {
+					frames.peek().atomizeNext = true;
+				}
+				else {
+					throw new IllegalArgumentException("unsupported expression at '" + token + "'");
+				}
+			}
+			endPath(atomized);
+			if (frames.size() != 1 || !operand) {
+				throw new IllegalArgumentException("incomplete expression");
+			}
+		}
+
+		private int operator(String token, int pos) {
+			if (token.equals("/")) {
+				if (null == path) {
+					throw new IllegalArgumentException("path applied to a value");
+				}
+				expectStep = true;
+			}
+			else if (token.equals("[")) {
+				if (null == path) {
+					throw new IllegalArgumentException("filter expression");
+				}
+				if (isContext && path.level == 0 && frames.size() == 1 && pos + 2 < tokens.size()
+						&& isLiteral(tokens.get(pos + 1)) && tokens.get(pos + 2).equals("]")) {
+					throw new IllegalArgumentException("positional predicate in rule context");
+				}
+				frames.push(new Frame(path.level, token, path));
+				path = null;
+			}
+			else if (token.equals("]")) {
+				Frame frame = frames.peek();
+				if (!frame.function.equals("[")) {
+					throw new IllegalArgumentException("unbalanced predicate");
+				}
+				endPath(false);
+				frames.pop();
+				path = frame.saved;
+				return pos;
+			}
+			else if (token.equals(")")) {
+				closeFunction();
+				return pos;
+			}
+			else if (token.equals(",")) {
+				endPath(!NODE_FUNCTIONS.contains(frames.peek().function));
+				frames.peek().atomizeNext = false;
+			}
+			else if (token.equals("|") || token.equals("union")) {
+				endPath(false);
+			}
+			else if (isContext && frames.size() == 1) {
+				throw new IllegalArgumentException("unsupported rule context");
+			}
+			else if (token.equals("and") || token.equals("or")) {
+				endPath(false);
+				frames.peek().atomizeNext = false;
+			}
+			else if (ATOMIZING_OPERATORS.contains(token)) {
+				endPath(true);
+				frames.peek().atomizeNext = true;
+			}
+			else {
+				throw new IllegalArgumentException("unsupported operator " + token);
+			}
+			operand = false;
+			return pos;
+		}
+
+		private int function(String name, int pos) {
+			String localName = name.startsWith("fn:") ? name.substring(3) : name;
+			if (Arrays.asList("node", "text", "element", "attribute").contains(localName)) {
+				boolean isText = !localName.equals("element") && !localName.equals("attribute");
+				if (localName.equals("attribute")) {
+					axis = "attribute";
+				}
+				boolean onAttribute = "attribute".equals(axis);
+				step(localName.equals("text") ? TEXT : ANY);
+				if (isText && !onAttribute) {
+					record(path.level, TEXT);
+					path.element = localName.equals("node");
+				}
+				int depth = 0;
+				do {
+					String token = tokens.get(pos++);
+					depth += token.equals("(") ? 1 : token.equals(")") ? -1 : 0;
+				}
+				while (depth > 0 && pos < tokens.size());
+				return pos - 1;
+			}
+			if (expectStep) {
+				throw new IllegalArgumentException("unsupported step " + name);
+			}
+			if (DENIED_FUNCTIONS.contains(localName) || (name.contains(":") && !name.startsWith("fn:")
+					&& !name.startsWith("xs:"))) {
+				throw new IllegalArgumentException("function " + name + " is not supported");
+			}
+			checkContext(false);
+			frames.push(new Frame(frames.peek().base, localName, null));
+			return pos;
+		}
+
+		private void closeFunction() {
+			Frame frame = frames.peek();
+			if (frame.function.equals("[") || frame.function.equals("#root")) {
+				throw new IllegalArgumentException("unbalanced parenthesis");
+			}
+			if (frame.empty && CONTEXT_FUNCTIONS.contains(frame.function)) {
+				throw new IllegalArgumentException(frame.function + "() atomizes the context element");
+			}
+			endPath(!NODE_FUNCTIONS.contains(frame.function));
+			frames.pop();
+			operand = true;
+		}
+
+		private void step(String nameTest) {
+			startPath();
+			if ("attribute".equals(axis)) {
+				path.element = false;
+			}
+			else if (!"self".equals(axis)) {
+				path.level++;
+				record(path.level, nameTest.equals(TEXT) ? TEXT : resolve(nameTest));
+				path.element = !nameTest.equals(TEXT);
+			}
+			axis = null;
+			expectStep = false;
+			operand = true;
+		}
+
+		private void startPath() {
+			if (null == path) {
+				checkContext(true);
+				path = new Path(frames.peek().base, frames.peek().atomizeNext);
+			}
+		}
+
+		private void endPath(boolean atomized) {
+			if (null == path) {
+				return;
+			}
+			if ((atomized || path.atomized) && path.element) {
+				throw new IllegalArgumentException("expression requires the string value of an element");
+			}
+			if (isContext && frames.size() == 1 && (path.level != 0 || !path.element)) {
+				throw new IllegalArgumentException("rule context is not a single step");
+			}
+			path = null;
+		}
+
+		private void checkContext(boolean isPath) {
+			if (isContext && frames.size() == 1 && !isPath) {
+				throw new IllegalArgumentException("unsupported rule context");
+			}
+		}
+
+		private void record(int level, String nameTest) {
+			Set<String> names = levels.get(level);
+			if (null == names) {
+				names = new HashSet<String>();
+				levels.put(level, names);
+			}
+			names.add(nameTest);
+		}
+
+		private String resolve(String nameTest) {
+			if (nameTest.equals(ANY)) {
+				return ANY;
+			}
+			if (nameTest.startsWith("*:")) {
+				return "{*}" + nameTest.substring(2);
+			}
+			int colon = nameTest.indexOf(':');
+			if (colon < 0) {
+				return "{}" + nameTest;
+			}
+			String nsURI = namespaces.get(nameTest.substring(0, colon));
+			if (null == nsURI) {
+				throw new IllegalArgumentException("undeclared prefix in " + nameTest);
+			}
+			return "{" + nsURI + "}" + nameTest.substring(colon + 1);
+		}
+
+	}
+
+}
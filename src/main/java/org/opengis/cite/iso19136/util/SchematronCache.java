@@ -0,0 +1,255 @@
+package org.opengis.cite.iso19136.util;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import javax.xml.transform.ErrorListener;
+import javax.xml.transform.Result;
+import javax.xml.transform.Source;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.dom.DOMResult;
+import javax.xml.transform.stream.StreamSource;
+
+import net.sf.saxon.Configuration;
+import net.sf.saxon.dom.NodeOverNodeInfo;
+import net.sf.saxon.s9api.Processor;
+import net.sf.saxon.s9api.QName;
+import net.sf.saxon.s9api.SaxonApiException;
+import net.sf.saxon.s9api.XdmAtomicValue;
+import net.sf.saxon.s9api.XdmDestination;
+import net.sf.saxon.s9api.XdmNode;
+import net.sf.saxon.s9api.XsltCompiler;
+import net.sf.saxon.s9api.XsltExecutable;
+import net.sf.saxon.s9api.XsltTransformer;
+
+import org.opengis.cite.iso19136.Namespaces;
+import org.opengis.cite.validation.SchematronValidator;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * A JVM-wide cache of compiled Schematron schemas, keyed by the schema location and the
+ * phase. A schema is compiled through the ISO Schematron pipeline only once; the
+ * resulting stylesheet is thread-safe and is used for all subsequent validations. The
+ * cache is intended for schemas that do not change while the JVM runs, such as the rule
+ * sets bundled with the test suite.
+ *
+ * <p>
+ * Schemas are compiled by the {@link SaxonXPath#getProcessor() shared Processor}, so a
+ * document presented by {@link SaxonXPath#toXdmNode(Document)} can be validated against
+ * any number of them without being copied or parsed again. The violations must be
+ * counted in the report returned by a validation (see
+ * {@link #countRuleViolations(Result)}).
+ * </p>
+ */
+public class SchematronCache {
+
+	/** The stylesheets of the ISO Schematron pipeline (in the schema-utils library). */
+	private static final String[] PIPELINE = { "iso_dsdl_include.xsl", "iso_abstract_expand.xsl",
+			"iso_svrl_xslt2.xsl" };
+
+	private static final ConcurrentMap<String, XsltExecutable> SCHEMAS = new ConcurrentHashMap<>();
+
+	private static final AtomicLong COMPILED = new AtomicLong();
+
+	private static final AtomicLong REUSED = new AtomicLong();
+
+	private SchematronCache() {
+	}
+
+	/**
+	 * Validates an XML resource against the rules defined in a Schematron schema. The
+	 * resource is read into a new tree; see {@link #validate(URL, String, XdmNode)} to
+	 * validate a document that is already in memory.
+	 * @param schemaRef A URL that denotes the location of a Schematron schema.
+	 * @param phase The name of the phase to invoke; if {@code null} then all patterns are
+	 * active.
+	 * @param xmlSource The XML Source to be validated.
+	 * @return A Result containing the SVRL report.
+	 * @throws IOException If the Schematron schema cannot be read or compiled, or if the
+	 * resource cannot be read.
+	 */
+	public static Result validate(URL schemaRef, String phase, Source xmlSource) throws IOException {
+		XdmNode docNode;
+		try {
+			docNode = SaxonXPath.buildDocument(xmlSource);
+		}
+		catch (SaxonApiException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+		return validate(schemaRef, phase, docNode);
+	}
+
+	/**
+	 * Validates a document against the rules defined in a Schematron schema. The schema
+	 * is compiled only if it has not been compiled before.
+	 * @param schemaRef A URL that denotes the location of a Schematron schema.
+	 * @param phase The name of the phase to invoke; if {@code null} then all patterns are
+	 * active.
+	 * @param docNode The document to be validated; it must belong to a tree that can be
+	 * processed by the shared Processor.
+	 * @return A Result containing the SVRL report.
+	 * @throws IOException If the Schematron schema cannot be read or compiled.
+	 */
+	public static Result validate(URL schemaRef, String phase, XdmNode docNode) throws IOException {
+		String activePhase = (null != phase) ? phase : "#ALL";
+		String key = schemaRef.toString() + '#' + activePhase;
+		XsltExecutable schematron = SCHEMAS.get(key);
+		if (null != schematron) {
+			REUSED.incrementAndGet();
+		}
+		else {
+			schematron = compile(schemaRef, activePhase);
+			COMPILED.incrementAndGet();
+			SCHEMAS.putIfAbsent(key, schematron);
+		}
+		return validate(schematron, docNode);
+	}
+
+	/**
+	 * Compiles a Schematron schema using the ISO Schematron pipeline; the result is not
+	 * cached. The "xslt2" query language binding is supported.
+	 * @param schemaRef A URL that denotes the location of a Schematron schema.
+	 * @param phase The name of the phase to invoke; if {@code null} or empty then all
+	 * patterns are active.
+	 * @return An XsltExecutable that produces an SVRL report for a document.
+	 * @throws IOException If the schema cannot be read or compiled.
+	 */
+	public static XsltExecutable compile(URL schemaRef, String phase) throws IOException {
+		Processor processor = SaxonXPath.getProcessor();
+		ErrorListener listener = new LoggingErrorListener();
+		XsltCompiler compiler = processor.newXsltCompiler();
+		compiler.setErrorListener(listener);
+		XsltExecutable schematron;
+		try {
+			XdmNode schema = processor.newDocumentBuilder().build(new StreamSource(schemaRef.toString()));
+			for (int i = 0; i < PIPELINE.length; i++) {
+				URL stylesheet = SchematronValidator.class.getResource(PIPELINE[i]);
+				XsltTransformer step = compiler.compile(new StreamSource(stylesheet.toString())).load();
+				step.getUnderlyingController().setErrorListener(listener);
+				if (i == PIPELINE.length - 1 && null != phase && !phase.isEmpty()) {
+					step.setParameter(new QName("phase"), new XdmAtomicValue(phase));
+				}
+				step.setInitialContextNode(schema);
+				XdmDestination result = new XdmDestination();
+				step.setDestination(result);
+				step.transform();
+				schema = result.getXdmNode();
+			}
+			schematron = compiler.compile(schema.asSource());
+		}
+		catch (SaxonApiException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+		TestSuiteLogger.log(Level.FINE, String.format("Compiled Schematron schema at %s (phase %s)", schemaRef, phase));
+		return schematron;
+	}
+
+	/**
+	 * Validates a document using a compiled Schematron schema. Recoverable errors that
+	 * occur while the rules are evaluated are ignored.
+	 * @param schematron A Schematron schema (see {@link #compile(URL, String)}).
+	 * @param docNode The document to be validated; it is neither copied nor modified.
+	 * @return A Result containing the SVRL report (as a read-only DOM node).
+	 * @throws IOException If the rules cannot be evaluated.
+	 */
+	public static Result validate(XsltExecutable schematron, XdmNode docNode) throws IOException {
+		XsltTransformer transformer = schematron.load();
+		transformer.getUnderlyingController().setRecoveryPolicy(Configuration.RECOVER_SILENTLY);
+		transformer.setInitialContextNode(docNode);
+		XdmDestination report = new XdmDestination();
+		transformer.setDestination(report);
+		try {
+			transformer.transform();
+		}
+		catch (SaxonApiException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+		return new DOMResult(NodeOverNodeInfo.wrap(report.getXdmNode().getUnderlyingNode()));
+	}
+
+	/**
+	 * Counts the rule violations reported in an SVRL document, that is the failed
+	 * assertions and the successful reports.
+	 * @param svrlReport A Result containing an SVRL report (as a DOM node).
+	 * @return The number of rule violations.
+	 */
+	public static int countRuleViolations(Result svrlReport) {
+		if (!(svrlReport instanceof DOMResult)) {
+			throw new IllegalArgumentException("Expected DOMResult, but was " + svrlReport);
+		}
+		Node node = ((DOMResult) svrlReport).getNode();
+		if (node instanceof Document) {
+			Document doc = (Document) node;
+			return doc.getElementsByTagNameNS(Namespaces.SVRL, "failed-assert").getLength()
+					+ doc.getElementsByTagNameNS(Namespaces.SVRL, "successful-report").getLength();
+		}
+		if (node instanceof Element) {
+			Element elem = (Element) node;
+			return elem.getElementsByTagNameNS(Namespaces.SVRL, "failed-assert").getLength()
+					+ elem.getElementsByTagNameNS(Namespaces.SVRL, "successful-report").getLength();
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns the number of times a Schematron schema was compiled for the cache.
+	 * @return The number of schemas compiled.
+	 */
+	public static long getCompileCount() {
+		return COMPILED.get();
+	}
+
+	/**
+	 * Returns the number of validations that used a previously compiled schema.
+	 * @return The number of times a compiled schema was reused.
+	 */
+	public static long getReuseCount() {
+		return REUSED.get();
+	}
+
+	/**
+	 * Summarizes the cache activity.
+	 * @return A String containing the compile and reuse counts.
+	 */
+	public static String getStatistics() {
+		return String.format("Schematron cache: %d compiled, %d reused (%d schemas)", COMPILED.get(), REUSED.get(),
+				SCHEMAS.size());
+	}
+
+	/**
+	 * Discards all compiled schemas. The counters are not reset.
+	 */
+	public static void clear() {
+		SCHEMAS.clear();
+	}
+
+	/**
+	 * Logs the warnings and errors reported while a schema is compiled, rather than
+	 * writing them to the standard error stream.
+	 */
+	static class LoggingErrorListener implements ErrorListener {
+
+		@Override
+		public void warning(TransformerException exception) {
+			TestSuiteLogger.log(Level.FINE, exception.getMessageAndLocation());
+		}
+
+		@Override
+		public void error(TransformerException exception) {
+			TestSuiteLogger.log(Level.WARNING, exception.getMessageAndLocation());
+		}
+
+		@Override
+		public void fatalError(TransformerException exception) throws TransformerException {
+			throw exception;
+		}
+
+	}
+
+}
@@ -0,0 +1,154 @@
+package org.opengis.cite.iso19136.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * An input stream that inspects the beginning of an XML resource while it is being
+ * read. As soon as the start tag of the document element has arrived, a
+ * {@link DocumentProbe} is created and passed to a handler; the remaining content is
+ * passed through untouched. The consumer of the stream (e.g. a download to disk) is thus
+ * able to proceed while the handler acts on the document type and schema references.
+ *
+ * <p>
+ * At most {@value #MAX_PREFIX_LENGTH} bytes are buffered; if the document element has
+ * not been found by then, the handler is not notified. The buffered content is parsed
+ * again only when it may contain a complete start tag: for plain content, after a
+ * {@code '>'} has arrived; for compressed content, whenever its length has doubled.
+ * </p>
+ *
+ * <p>
+ * A gzip or bzip2 stream is decompressed in order to inspect it. A zip archive is not
+ * inspected, since the entry containing the data cannot be identified until the
+ * central directory at the end of the archive has been read.
+ * </p>
+ */
+public class SniffingInputStream extends FilterInputStream {
+
+	/** The maximum number of bytes inspected. */
+	public static final int MAX_PREFIX_LENGTH = 1 << 20;
+
+	private final String systemId;
+
+	private final Consumer<DocumentProbe> handler;
+
+	private PrefixBuffer prefix = new PrefixBuffer(8 * 1024);
+
+	/** The length of the buffered content when it was last parsed. */
+	private int parsedLength;
+
+	private DocumentProbe probe;
+
+	/**
+	 * Creates a SniffingInputStream.
+	 * @param in The underlying input stream.
+	 * @param systemId The location of the resource, used to resolve relative schema
+	 * references; it may be {@code null}.
+	 * @param handler Receives the DocumentProbe once the document element has been read;
+	 * it may be {@code null}.
+	 */
+	public SniffingInputStream(InputStream in, String systemId, Consumer<DocumentProbe> handler) {
+		super(in);
+		this.systemId = systemId;
+		this.handler = handler;
+	}
+
+	/**
+	 * Returns the probe describing the document element.
+	 * @return A DocumentProbe, or {@code null} if the start tag has not been read (yet).
+	 */
+	public DocumentProbe getProbe() {
+		return probe;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b = super.read();
+		if (b >= 0) {
+			inspect(new byte[] { (byte) b }, 0, 1);
+		}
+		return b;
+	}
+
+	@Override
+	public int read(byte[] bytes, int off, int len) throws IOException {
+		int count = super.read(bytes, off, len);
+		if (count > 0) {
+			inspect(bytes, off, count);
+		}
+		return count;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	private void inspect(byte[] bytes, int off, int len) {
+		if (null == prefix) {
+			return;
+		}
+		prefix.write(bytes, off, len);
+		byte[] content = prefix.getBuffer();
+		int length = prefix.size();
+		Compression format = Compression.detect(content, length);
+		if (format == Compression.ZIP) {
+			prefix = null;
+			return;
+		}
+		boolean mayBeComplete = (format == Compression.NONE) ? contains(bytes, off, len, (byte) '>')
+				: length >= 2 * parsedLength;
+		if (!mayBeComplete && length < MAX_PREFIX_LENGTH) {
+			return;
+		}
+		parsedLength = length;
+		try {
+			InputStream inStream = format.decode(new ByteArrayInputStream(content, 0, length), null);
+			this.probe = DocumentProbe.read(inStream, systemId);
+		}
+		catch (XMLStreamException | IOException e) {
+			// start tag is incomplete, or the compressed content ends prematurely
+			if (prefix.size() >= MAX_PREFIX_LENGTH) {
+				TestSuiteLogger.log(Level.FINE, "Document element not found in initial content of " + systemId);
+				prefix = null;
+			}
+			return;
+		}
+		prefix = null;
+		if (null != handler) {
+			handler.accept(probe);
+		}
+	}
+
+	private static boolean contains(byte[] bytes, int off, int len, byte b) {
+		for (int i = off; i < off + len; i++) {
+			if (bytes[i] == b) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * A buffer whose content can be read without being copied.
+	 */
+	private static final class PrefixBuffer extends ByteArrayOutputStream {
+
+		PrefixBuffer(int size) {
+			super(size);
+		}
+
+		byte[] getBuffer() {
+			return buf;
+		}
+
+	}
+
+}
@@ -0,0 +1,370 @@
+package org.opengis.cite.iso19136.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.opengis.cite.iso19136.GML32;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * A NodeList that reads matching elements from a GML document one subtree at a time.
+ * The document is never parsed as a whole: a StAX reader pulls the next matching element
+ * from the data file and only that subtree is built as a (detached) DOM tree. Elements
+ * of interest nested within it (e.g. the members of a composite geometry) are taken
+ * from the same tree. Memory use is thus bounded by the size of the largest matching
+ * subtree rather than that of the document.
+ *
+ * <p>
+ * The list is intended to be accessed sequentially, from first to last item. Requesting
+ * an item that precedes the current subtree causes the data file to be read again from
+ * the beginning. The length of the list must be known in advance (see
+ * {@link GeometryIndex#count(GeometryKind)}).
+ * </p>
+ *
+ * <p>
+ * Because an element is detached from its ancestors, a CRS reference (srsName) that
+ * would otherwise be inherited from a containing geometry or feature envelope is copied
+ * to the root of the subtree if it has none of its own; likewise, the namespace bindings
+ * in scope are declared on the root. If an index of gml:id values is supplied, it is
+ * attached to each subtree so that same-document references to elements outside of the
+ * subtree can still be resolved (see {@link XMLUtils#getPropertyValue(Node)}).
+ * </p>
+ */
+public class StreamingElementList implements NodeList {
+
+	private static final QName GML_BOUNDED_BY = new QName(GML32.NS_NAME, "boundedBy");
+
+	private static final QName GML_ENVELOPE = new QName(GML32.NS_NAME, GML32.ENVELOPE);
+
+	private final MappedDataSource dataSource;
+
+	private final Set<QName> elementNames;
+
+	private final int length;
+
+	private final GmlIdIndex idIndex;
+
+	private XMLStreamReader reader;
+
+	private InputStream inStream;
+
+	/** Ancestor element names and in-scope srsName values, indexed by depth. */
+	private final List<QName> ancestorNames = new ArrayList<QName>();
+
+	private final List<String> ancestorSrsNames = new ArrayList<String>();
+
+	/** The namespace prefixes declared on ancestor elements, indexed by depth. */
+	private final List<List<String>> ancestorPrefixes = new ArrayList<List<String>>();
+
+	private List<Element> buffer = new ArrayList<Element>();
+
+	/** Index of the first buffered element. */
+	private int bufferStart;
+
+	/**
+	 * Creates a StreamingElementList.
+	 * @param dataFile A File containing GML data.
+	 * @param elementNames The names of the elements to be included in the list.
+	 * @param length The number of matching elements in the document.
+	 */
+	public StreamingElementList(File dataFile, Set<QName> elementNames, int length) {
+		this(new MappedDataSource(dataFile), elementNames, length);
+	}
+
+	/**
+	 * Creates a StreamingElementList that reads the data from the given source.
+	 * @param dataSource A MappedDataSource providing the GML data.
+	 * @param elementNames The names of the elements to be included in the list.
+	 * @param length The number of matching elements in the document.
+	 */
+	public StreamingElementList(MappedDataSource dataSource, Set<QName> elementNames, int length) {
+		this(dataSource, elementNames, length, null);
+	}
+
+	/**
+	 * Creates a StreamingElementList that reads the data from the given source and
+	 * resolves references using an index of the complete document.
+	 * @param dataSource A MappedDataSource providing the GML data.
+	 * @param elementNames The names of the elements to be included in the list.
+	 * @param length The number of matching elements in the document.
+	 * @param idIndex An index of the gml:id values in the document (see
+	 * {@link GeometryIndex#getIdIndex()}); it may be {@code null}.
+	 */
+	public StreamingElementList(MappedDataSource dataSource, Set<QName> elementNames, int length,
+			GmlIdIndex idIndex) {
+		this.dataSource = dataSource;
+		this.elementNames = elementNames;
+		this.length = length;
+		this.idIndex = idIndex;
+	}
+
+	@Override
+	public Node item(int index) {
+		if (index < 0 || index >= length) {
+			return null;
+		}
+		if (index < bufferStart || null == reader) {
+			reset();
+		}
+		while (index >= bufferStart + buffer.size()) {
+			bufferStart += buffer.size();
+			buffer = readNextSubtree();
+			if (buffer.isEmpty()) {
+				return null;
+			}
+		}
+		return buffer.get(index - bufferStart);
+	}
+
+	@Override
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * Stops reading the data file. The file will be read again if another item is
+	 * requested.
+	 */
+	public void close() {
+		if (null != reader) {
+			try {
+				reader.close();
+			}
+			catch (XMLStreamException e) {
+				TestSuiteLogger.log(Level.WARNING, "Failed to close stream reader.", e);
+			}
+			reader = null;
+		}
+		if (null != inStream) {
+			try {
+				inStream.close();
+			}
+			catch (IOException e) {
+				TestSuiteLogger.log(Level.WARNING, "Failed to close " + dataSource.getFile(), e);
+			}
+			inStream = null;
+		}
+		buffer = new ArrayList<Element>();
+		bufferStart = 0;
+		ancestorNames.clear();
+		ancestorSrsNames.clear();
+		ancestorPrefixes.clear();
+	}
+
+	private void reset() {
+		close();
+		try {
+			this.inStream = dataSource.openStream();
+			this.reader = XMLInputFactory.newInstance().createXMLStreamReader(inStream);
+		}
+		catch (IOException | XMLStreamException e) {
+			close();
+			throw new RuntimeException("Failed to read GML data from " + dataSource.getFile(), e);
+		}
+	}
+
+	/**
+	 * Advances the reader to the next matching element and builds its subtree.
+	 * @return A List containing the matching elements in the subtree (in document
+	 * order), or an empty list if the end of the document has been reached.
+	 */
+	private List<Element> readNextSubtree() {
+		List<Element> matches = new ArrayList<Element>();
+		try {
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.END_ELEMENT) {
+					int depth = ancestorNames.size() - 1;
+					ancestorNames.remove(depth);
+					ancestorSrsNames.remove(depth);
+					ancestorPrefixes.remove(depth);
+					continue;
+				}
+				if (event != XMLStreamConstants.START_ELEMENT) {
+					continue;
+				}
+				QName name = reader.getName();
+				String srsName = inheritedSrsName(name);
+				if (elementNames.contains(name)) {
+					Document doc = newDocument();
+					Element root = buildSubtree(doc, matches);
+					if (!root.hasAttribute("srsName") && null != srsName) {
+						root.setAttribute("srsName", srsName);
+					}
+					declareInheritedNamespaces(root);
+					doc.appendChild(root);
+					break;
+				}
+				ancestorNames.add(name);
+				ancestorSrsNames.add(srsName);
+				ancestorPrefixes.add(declaredPrefixes());
+			}
+		}
+		catch (XMLStreamException e) {
+			throw new RuntimeException("Failed to read GML data from " + dataSource.getFile(), e);
+		}
+		if (matches.isEmpty()) {
+			close();
+		}
+		return matches;
+	}
+
+	/**
+	 * Determines the srsName value in scope for the current element. A gml:Envelope
+	 * within gml:boundedBy supplies the CRS reference for the (feature) element that
+	 * contains it.
+	 * @param name The name of the current element.
+	 * @return The srsName value, or {@code null} if there is none.
+	 */
+	private String inheritedSrsName(QName name) {
+		String srsName = reader.getAttributeValue(null, "srsName");
+		int depth = ancestorNames.size();
+		if (null != srsName && name.equals(GML_ENVELOPE) && depth >= 2
+				&& ancestorNames.get(depth - 1).equals(GML_BOUNDED_BY)) {
+			ancestorSrsNames.set(depth - 2, srsName);
+		}
+		if (null == srsName && depth > 0) {
+			srsName = ancestorSrsNames.get(depth - 1);
+		}
+		return srsName;
+	}
+
+	/**
+	 * Returns the namespace prefixes declared on the current element.
+	 * @return A List of prefixes, where the empty string denotes the default namespace.
+	 */
+	private List<String> declaredPrefixes() {
+		int count = reader.getNamespaceCount();
+		if (count == 0) {
+			return Collections.emptyList();
+		}
+		List<String> prefixes = new ArrayList<String>(count);
+		for (int i = 0; i < count; i++) {
+			String prefix = reader.getNamespacePrefix(i);
+			prefixes.add((null != prefix) ? prefix : XMLConstants.DEFAULT_NS_PREFIX);
+		}
+		return prefixes;
+	}
+
+	/**
+	 * Declares on the root of a detached subtree the namespace bindings inherited from
+	 * its ancestors, so that prefixed names in attribute values and text content (such as
+	 * QNames and XPath expressions) can still be resolved. A binding declared on the root
+	 * itself takes precedence.
+	 * @param root The root element of the subtree; the reader is positioned at its end
+	 * tag.
+	 */
+	private void declareInheritedNamespaces(Element root) {
+		NamespaceContext nsContext = reader.getNamespaceContext();
+		for (List<String> prefixes : ancestorPrefixes) {
+			for (String prefix : prefixes) {
+				String attrName = prefix.isEmpty() ? XMLConstants.XMLNS_ATTRIBUTE
+						: XMLConstants.XMLNS_ATTRIBUTE + ":" + prefix;
+				String localName = prefix.isEmpty() ? XMLConstants.XMLNS_ATTRIBUTE : prefix;
+				if (root.hasAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, localName)) {
+					continue;
+				}
+				String nsURI = nsContext.getNamespaceURI(prefix);
+				if (null != nsURI && !nsURI.isEmpty()) {
+					root.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, attrName, nsURI);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Builds a DOM element from the subtree at the current reader position. When this
+	 * method returns the reader is positioned at the corresponding end tag.
+	 * @param doc The Document that will own the new nodes.
+	 * @param matches A List to which matching elements are added (in document order).
+	 * @return The root element of the subtree.
+	 */
+	private Element buildSubtree(Document doc, List<Element> matches) throws XMLStreamException {
+		Element root = createElement(doc, matches);
+		Node parent = root;
+		while (parent != null && reader.hasNext()) {
+			switch (reader.next()) {
+				case XMLStreamConstants.START_ELEMENT:
+					Element elem = createElement(doc, matches);
+					parent.appendChild(elem);
+					parent = elem;
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					parent = (parent == root) ? null : parent.getParentNode();
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.SPACE:
+					parent.appendChild(doc.createTextNode(reader.getText()));
+					break;
+				case XMLStreamConstants.CDATA:
+					parent.appendChild(doc.createCDATASection(reader.getText()));
+					break;
+				default:
+					break;
+			}
+		}
+		return root;
+	}
+
+	private Element createElement(Document doc, List<Element> matches) {
+		QName name = reader.getName();
+		String qualifiedName = name.getPrefix().isEmpty() ? name.getLocalPart()
+				: name.getPrefix() + ":" + name.getLocalPart();
+		String nsURI = name.getNamespaceURI().isEmpty() ? null : name.getNamespaceURI();
+		Element elem = doc.createElementNS(nsURI, qualifiedName);
+		if (elementNames.contains(name)) {
+			matches.add(elem);
+		}
+		for (int i = 0; i < reader.getNamespaceCount(); i++) {
+			String prefix = reader.getNamespacePrefix(i);
+			String attrName = (null == prefix || prefix.isEmpty()) ? XMLConstants.XMLNS_ATTRIBUTE
+					: XMLConstants.XMLNS_ATTRIBUTE + ":" + prefix;
+			elem.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, attrName, reader.getNamespaceURI(i));
+		}
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			QName attrName = reader.getAttributeName(i);
+			String attrNS = attrName.getNamespaceURI().isEmpty() ? null : attrName.getNamespaceURI();
+			String attrQName = attrName.getPrefix().isEmpty() ? attrName.getLocalPart()
+					: attrName.getPrefix() + ":" + attrName.getLocalPart();
+			elem.setAttributeNS(attrNS, attrQName, reader.getAttributeValue(i));
+		}
+		return elem;
+	}
+
+	private Document newDocument() {
+		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware(true);
+		Document doc;
+		try {
+			doc = factory.newDocumentBuilder().newDocument();
+		}
+		catch (ParserConfigurationException e) {
+			throw new RuntimeException(e);
+		}
+		doc.setDocumentURI(dataSource.getSystemId());
+		if (null != idIndex) {
+			idIndex.attachTo(doc, dataSource);
+		}
+		return doc;
+	}
+
+}
@@ -0,0 +1,547 @@
+package org.opengis.cite.iso19136.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.Result;
+import javax.xml.transform.dom.DOMResult;
+import javax.xml.transform.dom.DOMSource;
+
+import net.sf.saxon.s9api.SaxonApiException;
+import net.sf.saxon.s9api.XPathCompiler;
+import net.sf.saxon.s9api.XPathExecutable;
+import net.sf.saxon.s9api.XPathSelector;
+import net.sf.saxon.s9api.XdmItem;
+import net.sf.saxon.s9api.XdmNode;
+import net.sf.saxon.s9api.XdmValue;
+
+import org.opengis.cite.iso19136.Namespaces;
+import org.opengis.cite.validation.SchematronValidator;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+/**
+ * Checks a GML document against a Schematron schema without building the complete
+ * document tree, so that very large documents can be checked with a fixed amount of
+ * memory. The patterns that a {@link SchematronAnalyzer} deems streamable are checked
+ * while the document is read with a StAX parser: whenever an element matches the context
+ * of a rule in such a pattern, a small DOM subtree is built for it, containing only the
+ * levels and elements the rules refer to, and the rules are evaluated against that
+ * subtree. Any remaining patterns are checked against the complete document tree by a
+ * {@link SchematronValidator}.
+ *
+ * <p>
+ * The outcome is presented as an SVRL report, like that of a SchematronValidator, except
+ * that no <code>svrl:fired-rule</code> elements are included for streamable patterns
+ * (one would be produced for nearly every element). The rule violations must be counted
+ * with {@link SchematronCache#countRuleViolations(Result)}. A validator may be used by
+ * several threads at once.
+ * </p>
+ */
+public class StreamingSchematronValidator {
+
+	private static final String SVRL_PREFIX = "svrl";
+
+	private static final ConcurrentMap<String, StreamingSchematronValidator> INSTANCES = new ConcurrentHashMap<>();
+
+	private final URL schemaRef;
+
+	private final Document schema;
+
+	private final SchematronAnalyzer analyzer;
+
+	private final List<StreamablePattern> streamablePatterns = new ArrayList<StreamablePattern>();
+
+	private SchematronValidator fullTreeValidator;
+
+	/**
+	 * Creates a validator for the given Schematron schema.
+	 * @param schemaRef A URL that denotes the location of a Schematron schema.
+	 * @param phase The name of the phase to invoke; if {@code null} then all patterns are
+	 * active.
+	 * @throws IOException If the schema cannot be read, or an expression in a streamable
+	 * pattern cannot be compiled.
+	 */
+	public StreamingSchematronValidator(URL schemaRef, String phase) throws IOException {
+		this.schemaRef = schemaRef;
+		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware(true);
+		try {
+			this.schema = factory.newDocumentBuilder().parse(schemaRef.toString());
+			this.analyzer = new SchematronAnalyzer(schema, phase);
+		}
+		catch (ParserConfigurationException e) {
+			throw new RuntimeException(e);
+		}
+		catch (SAXException | IllegalArgumentException e) {
+			throw new IOException("Invalid Schematron schema at " + schemaRef, e);
+		}
+		XPathCompiler compiler = SaxonXPath.getProcessor().newXPathCompiler();
+		for (Map.Entry<String, String> binding : analyzer.getNamespaces().entrySet()) {
+			compiler.declareNamespace(binding.getKey(), binding.getValue());
+		}
+		try {
+			for (SchematronAnalyzer.Pattern pattern : analyzer.getPatterns()) {
+				if (pattern.streamable) {
+					streamablePatterns.add(new StreamablePattern(pattern, compiler));
+				}
+			}
+		}
+		catch (SaxonApiException e) {
+			throw new IOException("Failed to compile Schematron schema at " + schemaRef, e);
+		}
+	}
+
+	/**
+	 * Returns a validator for a Schematron schema that does not change while the JVM
+	 * runs, such as a schema bundled with the test suite. The validator is created only
+	 * once.
+	 * @param schemaRef A URL that denotes the location of a Schematron schema.
+	 * @param phase The name of the phase to invoke; if {@code null} then all patterns are
+	 * active.
+	 * @return A (shared) StreamingSchematronValidator.
+	 * @throws IOException If the schema cannot be read or compiled.
+	 */
+	public static StreamingSchematronValidator getInstance(URL schemaRef, String phase) throws IOException {
+		String key = schemaRef.toString() + '#' + ((null != phase) ? phase : "#ALL");
+		StreamingSchematronValidator validator = INSTANCES.get(key);
+		if (null == validator) {
+			validator = new StreamingSchematronValidator(schemaRef, phase);
+			StreamingSchematronValidator existing = INSTANCES.putIfAbsent(key, validator);
+			validator = (null != existing) ? existing : validator;
+		}
+		return validator;
+	}
+
+	/**
+	 * Returns the analysis of the schema.
+	 * @return A SchematronAnalyzer that identifies the streamable patterns.
+	 */
+	public SchematronAnalyzer getAnalyzer() {
+		return analyzer;
+	}
+
+	/**
+	 * Checks the given GML data against the active patterns. The data is read once as a
+	 * stream for the streamable patterns, and once more (as a complete tree) only if
+	 * there are other patterns.
+	 * @param dataSource The source of the GML data.
+	 * @return A DOMResult containing an SVRL report.
+	 * @throws IOException If the data cannot be read or is not well-formed.
+	 */
+	public Result validate(MappedDataSource dataSource) throws IOException {
+		DocumentBuilder builder;
+		try {
+			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+			factory.setNamespaceAware(true);
+			builder = factory.newDocumentBuilder();
+		}
+		catch (ParserConfigurationException e) {
+			throw new RuntimeException(e);
+		}
+		Document report = builder.newDocument();
+		Element root = report.createElementNS(Namespaces.SVRL, SVRL_PREFIX + ":schematron-output");
+		root.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, "xmlns:" + SVRL_PREFIX, Namespaces.SVRL);
+		report.appendChild(root);
+		if (!streamablePatterns.isEmpty()) {
+			new StreamingRun(dataSource, builder, report).run();
+		}
+		if (!analyzer.getFullTreePatterns().isEmpty()) {
+			Result result = validateFullTree(dataSource);
+			Node fullTreeReport = ((DOMResult) result).getNode();
+			Element fullTreeRoot = (fullTreeReport instanceof Document)
+					? ((Document) fullTreeReport).getDocumentElement() : (Element) fullTreeReport;
+			for (Node child = fullTreeRoot.getFirstChild(); null != child; child = child.getNextSibling()) {
+				root.appendChild(report.importNode(child, true));
+			}
+		}
+		return new DOMResult(report, dataSource.getSystemId());
+	}
+
+	/**
+	 * Checks the GML data against the patterns that are not streamable, using a copy of
+	 * the schema from which the other patterns (and the phases) have been removed.
+	 */
+	private synchronized Result validateFullTree(MappedDataSource dataSource) throws IOException {
+		if (null == fullTreeValidator) {
+			Document reduced = (Document) schema.cloneNode(true);
+			Element schemaElem = reduced.getDocumentElement();
+			schemaElem.removeAttribute("defaultPhase");
+			List<String> fullTreePatterns = analyzer.getFullTreePatterns();
+			int index = 0;
+			for (Element child : SchematronAnalyzer.childElements(schemaElem)) {
+				if (!Namespaces.SCH.equals(child.getNamespaceURI())) {
+					continue;
+				}
+				if (child.getLocalName().equals("phase")) {
+					schemaElem.removeChild(child);
+				}
+				else if (child.getLocalName().equals("pattern")) {
+					index++;
+					String id = child.getAttribute("id").isEmpty() ? "pattern-" + index : child.getAttribute("id");
+					if (!fullTreePatterns.contains(id)) {
+						schemaElem.removeChild(child);
+					}
+				}
+			}
+			try {
+				fullTreeValidator = new SchematronValidator(new DOMSource(reduced, schemaRef.toString()), "#ALL");
+			}
+			catch (Exception e) {
+				throw new IOException("Failed to compile Schematron schema at " + schemaRef, e);
+			}
+		}
+		return fullTreeValidator.validate(dataSource.getSource());
+	}
+
+	/**
+	 * A streamable pattern with its compiled expressions.
+	 */
+	private static class StreamablePattern {
+
+		final SchematronAnalyzer.Pattern pattern;
+
+		final List<XPathExecutable> contexts = new ArrayList<XPathExecutable>();
+
+		final Map<Element, XPathExecutable> expressions = new HashMap<Element, XPathExecutable>();
+
+		StreamablePattern(SchematronAnalyzer.Pattern pattern, XPathCompiler compiler) throws SaxonApiException {
+			this.pattern = pattern;
+			for (SchematronAnalyzer.Rule rule : pattern.rules) {
+				// evaluated with the (document node of the) subtree as the context item
+				contexts.add(compiler.compile("exists(" + rule.context + ")"));
+				for (Element check : rule.checks) {
+					expressions.put(check, compiler.compile("boolean(" + check.getAttribute("test") + ")"));
+					compileMessage(check, compiler);
+				}
+			}
+		}
+
+		private void compileMessage(Element parent, XPathCompiler compiler) throws SaxonApiException {
+			for (Element child : SchematronAnalyzer.childElements(parent)) {
+				if (child.getLocalName().equals("name")) {
+					String path = child.getAttribute("path");
+					expressions.put(child, compiler.compile("name(" + (path.isEmpty() ? "." : path) + ")"));
+				}
+				else if (child.getLocalName().equals("value-of")) {
+					String select = child.getAttribute("select");
+					expressions.put(child,
+							compiler.compile("string-join(for $v in (" + select + ") return string($v), ' ')"));
+				}
+				compileMessage(child, compiler);
+			}
+		}
+
+	}
+
+	/**
+	 * A subtree being built for an element that matches a rule context.
+	 */
+	private static class Capture {
+
+		final StreamablePattern target;
+
+		final Document doc;
+
+		final String location;
+
+		Node current;
+
+		int level;
+
+		int skipped;
+
+		Capture(StreamablePattern target, Document doc, String location) {
+			this.target = target;
+			this.doc = doc;
+			this.location = location;
+		}
+
+	}
+
+	/**
+	 * Reads the GML data once and checks all streamable patterns.
+	 */
+	private class StreamingRun {
+
+		private final MappedDataSource dataSource;
+
+		private final DocumentBuilder builder;
+
+		private final Document report;
+
+		/** The failures for each pattern, in the order the context elements end. */
+		private final List<List<Element>> failures = new ArrayList<List<Element>>();
+
+		private final List<Capture> captures = new ArrayList<Capture>();
+
+		/** The location step of each open element. */
+		private final List<String> locationSteps = new ArrayList<String>();
+
+		/** The number of child elements of each open element, by name. */
+		private final List<Map<QName, Integer>> childCounts = new ArrayList<Map<QName, Integer>>();
+
+		/** The namespace declarations in scope: prefix and namespace name. */
+		private final List<String[]> namespaces = new ArrayList<String[]>();
+
+		private final List<Integer> namespaceCounts = new ArrayList<Integer>();
+
+		private XMLStreamReader reader;
+
+		StreamingRun(MappedDataSource dataSource, DocumentBuilder builder, Document report) {
+			this.dataSource = dataSource;
+			this.builder = builder;
+			this.report = report;
+			for (int i = 0; i < streamablePatterns.size(); i++) {
+				failures.add(new ArrayList<Element>());
+			}
+		}
+
+		void run() throws IOException {
+			childCounts.add(new HashMap<QName, Integer>());
+			try (InputStream inStream = dataSource.openStream()) {
+				XMLInputFactory factory = XMLInputFactory.newInstance();
+				factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+				reader = factory.createXMLStreamReader(dataSource.getSystemId(), inStream);
+				try {
+					while (reader.hasNext()) {
+						switch (reader.next()) {
+							case XMLStreamConstants.START_ELEMENT:
+								startElement();
+								break;
+							case XMLStreamConstants.END_ELEMENT:
+								endElement();
+								break;
+							case XMLStreamConstants.CHARACTERS:
+							case XMLStreamConstants.CDATA:
+							case XMLStreamConstants.SPACE:
+								characters();
+								break;
+							default:
+								break;
+						}
+					}
+				}
+				finally {
+					reader.close();
+				}
+			}
+			catch (XMLStreamException e) {
+				throw new IOException("Failed to read GML data from " + dataSource.getSystemId(), e);
+			}
+			catch (SaxonApiException e) {
+				throw new IOException("Failed to evaluate Schematron rule in " + schemaRef, e);
+			}
+			Element root = report.getDocumentElement();
+			for (int i = 0; i < streamablePatterns.size(); i++) {
+				SchematronAnalyzer.Pattern pattern = streamablePatterns.get(i).pattern;
+				Element activePattern = report.createElementNS(Namespaces.SVRL, SVRL_PREFIX + ":active-pattern");
+				activePattern.setAttribute("id", pattern.id);
+				if (pattern.element.hasAttribute("name")) {
+					activePattern.setAttribute("name", pattern.element.getAttribute("name"));
+				}
+				root.appendChild(activePattern);
+				for (Element failure : failures.get(i)) {
+					root.appendChild(failure);
+				}
+			}
+		}
+
+		private void startElement() {
+			QName name = reader.getName();
+			Map<QName, Integer> siblings = childCounts.get(childCounts.size() - 1);
+			Integer position = siblings.merge(name, 1, Integer::sum);
+			locationSteps.add(String.format("*:%s[namespace-uri()='%s'][%d]", name.getLocalPart(),
+					name.getNamespaceURI(), position));
+			childCounts.add(new HashMap<QName, Integer>());
+			namespaceCounts.add(namespaces.size());
+			for (int i = 0; i < reader.getNamespaceCount(); i++) {
+				String prefix = reader.getNamespacePrefix(i);
+				String nsURI = reader.getNamespaceURI(i);
+				namespaces.add(new String[] { (null != prefix) ? prefix : "", (null != nsURI) ? nsURI : "" });
+			}
+			for (Capture capture : captures) {
+				if (capture.skipped > 0) {
+					capture.skipped++;
+				}
+				else if (capture.target.pattern.accepts(capture.level + 1, name.getNamespaceURI(),
+						name.getLocalPart())) {
+					Element elem = createElement(capture.doc, false);
+					capture.current.appendChild(elem);
+					capture.current = elem;
+					capture.level++;
+				}
+				else {
+					capture.skipped = 1;
+				}
+			}
+			for (StreamablePattern target : streamablePatterns) {
+				if (target.pattern.accepts(0, name.getNamespaceURI(), name.getLocalPart())) {
+					Document doc = builder.newDocument();
+					doc.setDocumentURI(dataSource.getSystemId());
+					Element elem = createElement(doc, true);
+					doc.appendChild(elem);
+					Capture capture = new Capture(target, doc, "/" + String.join("/", locationSteps));
+					capture.current = elem;
+					captures.add(capture);
+				}
+			}
+		}
+
+		private void endElement() throws SaxonApiException {
+			List<Capture> completed = new ArrayList<Capture>();
+			for (Capture capture : captures) {
+				if (capture.skipped > 0) {
+					capture.skipped--;
+				}
+				else if (capture.level == 0) {
+					completed.add(capture);
+				}
+				else {
+					capture.current = capture.current.getParentNode();
+					capture.level--;
+				}
+			}
+			captures.removeAll(completed);
+			for (Capture capture : completed) {
+				evaluate(capture);
+			}
+			locationSteps.remove(locationSteps.size() - 1);
+			childCounts.remove(childCounts.size() - 1);
+			int count = namespaceCounts.remove(namespaceCounts.size() - 1);
+			namespaces.subList(count, namespaces.size()).clear();
+		}
+
+		private void characters() {
+			for (Capture capture : captures) {
+				if (capture.skipped == 0 && capture.target.pattern.accepts(capture.level + 1, null, null)) {
+					capture.current.appendChild(capture.doc.createTextNode(reader.getText()));
+				}
+			}
+		}
+
+		/**
+		 * Evaluates the rules of a pattern against a completed subtree. As in any
+		 * Schematron pattern, only the first rule whose context matches is applied.
+		 */
+		private void evaluate(Capture capture) throws SaxonApiException {
+			StreamablePattern target = capture.target;
+			XdmNode docNode = SaxonXPath.getProcessor().newDocumentBuilder().wrap(capture.doc);
+			for (int i = 0; i < target.contexts.size(); i++) {
+				if (!isTrue(target.contexts.get(i), docNode)) {
+					continue;
+				}
+				XdmItem contextElem = SaxonXPath.evaluate(docNode, "*", null).itemAt(0);
+				SchematronAnalyzer.Rule rule = target.pattern.rules.get(i);
+				for (Element check : rule.checks) {
+					boolean isReport = check.getLocalName().equals("report");
+					if (isTrue(target.expressions.get(check), contextElem) == isReport) {
+						failures.get(streamablePatterns.indexOf(target))
+							.add(createFailure(check, rule, target, capture.location, contextElem));
+					}
+				}
+				break;
+			}
+		}
+
+		private boolean isTrue(XPathExecutable expr, XdmItem context) throws SaxonApiException {
+			XPathSelector selector = expr.load();
+			selector.setContextItem(context);
+			XdmValue value = selector.evaluate();
+			return value.size() > 0 && value.itemAt(0).getStringValue().equals("true");
+		}
+
+		private Element createFailure(Element check, SchematronAnalyzer.Rule rule, StreamablePattern target,
+				String location, XdmItem contextElem) throws SaxonApiException {
+			boolean isReport = check.getLocalName().equals("report");
+			Element failure = report.createElementNS(Namespaces.SVRL,
+					SVRL_PREFIX + (isReport ? ":successful-report" : ":failed-assert"));
+			failure.setAttribute("test", check.getAttribute("test"));
+			for (String attrName : new String[] { "id", "role", "flag" }) {
+				String value = check.hasAttribute(attrName) ? check.getAttribute(attrName)
+						: rule.element.getAttribute(attrName);
+				if (!value.isEmpty()) {
+					failure.setAttribute(attrName, value);
+				}
+			}
+			failure.setAttribute("location", location);
+			Element text = report.createElementNS(Namespaces.SVRL, SVRL_PREFIX + ":text");
+			StringBuilder message = new StringBuilder();
+			appendMessage(check, target, contextElem, message);
+			text.setTextContent(message.toString().replaceAll("\\s+", " ").trim());
+			failure.appendChild(text);
+			return failure;
+		}
+
+		private void appendMessage(Node parent, StreamablePattern target, XdmItem contextElem,
+				StringBuilder message) throws SaxonApiException {
+			for (Node child = parent.getFirstChild(); null != child; child = child.getNextSibling()) {
+				if (child.getNodeType() == Node.TEXT_NODE || child.getNodeType() == Node.CDATA_SECTION_NODE) {
+					message.append(child.getNodeValue());
+				}
+				else if (child.getNodeType() == Node.ELEMENT_NODE) {
+					XPathExecutable expr = target.expressions.get(child);
+					if (null != expr) {
+						XPathSelector selector = expr.load();
+						selector.setContextItem(contextElem);
+						XdmValue value = selector.evaluate();
+						message.append((value.size() > 0) ? value.itemAt(0).getStringValue() : "");
+					}
+					else {
+						appendMessage(child, target, contextElem, message);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Creates a DOM element for the current start tag.
+		 * @param doc The Document that will own the element.
+		 * @param isRoot Indicates whether the element is the root of a subtree, in which
+		 * case all namespace declarations in scope are copied to it.
+		 * @return A new Element (with its attributes).
+		 */
+		private Element createElement(Document doc, boolean isRoot) {
+			QName name = reader.getName();
+			String qualifiedName = name.getPrefix().isEmpty() ? name.getLocalPart()
+					: name.getPrefix() + ":" + name.getLocalPart();
+			String nsURI = name.getNamespaceURI().isEmpty() ? null : name.getNamespaceURI();
+			Element elem = doc.createElementNS(nsURI, qualifiedName);
+			int first = isRoot ? 0 : namespaceCounts.get(namespaceCounts.size() - 1);
+			for (int i = first; i < namespaces.size(); i++) {
+				String prefix = namespaces.get(i)[0];
+				String attrName = prefix.isEmpty() ? XMLConstants.XMLNS_ATTRIBUTE
+						: XMLConstants.XMLNS_ATTRIBUTE + ":" + prefix;
+				elem.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, attrName, namespaces.get(i)[1]);
+			}
+			for (int i = 0; i < reader.getAttributeCount(); i++) {
+				QName attrName = reader.getAttributeName(i);
+				String attrNS = attrName.getNamespaceURI().isEmpty() ? null : attrName.getNamespaceURI();
+				String attrQName = attrName.getPrefix().isEmpty() ? attrName.getLocalPart()
+						: attrName.getPrefix() + ":" + attrName.getLocalPart();
+				elem.setAttributeNS(attrNS, attrQName, reader.getAttributeValue(i));
+			}
+			return elem;
+		}
+
+	}
+
+}
@@ -1,25 +1,19 @@
 package org.opengis.cite.iso19136.util;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.URI;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 
 import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 
-import jakarta.ws.rs.client.Client;
-import jakarta.ws.rs.client.ClientBuilder;
-import jakarta.ws.rs.client.WebTarget;
-import jakarta.ws.rs.core.Response;
-
 /**
  * Provides a collection of utility methods for manipulating or resolving URI references.
  */
@@ -62,10 +56,13 @@ public class URIUtils {
 
 	/**
 	 * Resolves the given URI and stores the resulting resource representation in a local
-	 * file. The file will be located in the default temporary file directory.
+	 * file. A remote resource is obtained through the {@link EntityCache#getDefault()
+	 * default entity cache}, so it is only downloaded again if it has changed since it
+	 * was last retrieved; if a {@link LocalSchemaCatalog#getDefault() local schema
+	 * catalog} holds a copy of the resource, that copy is used instead.
 	 * @param uriRef An absolute URI specifying the location of some resource.
 	 * @return A File containing the content of the resource; it may be empty if
-	 * resolution failed for any reason.
+	 * resolution failed for any reason. The file must not be modified.
 	 * @throws IOException If an IO error occurs.
 	 */
 	public static File resolveURIAsFile(URI uriRef) throws IOException {
@@ -75,32 +72,51 @@ public class URIUtils {
 		if (uriRef.getScheme().equalsIgnoreCase("file")) {
 			return new File(uriRef);
 		}
-		Client client = ClientBuilder.newClient();
-		WebTarget target = client.target(uriRef);
-		Response rsp = target.request().get();
-		File destFile = File.createTempFile("entity-", ".xml");
-		if (rsp.hasEntity()) {
-			Object entity = rsp.getEntity();
-			if (entity instanceof InputStream) {
-				InputStream is = (InputStream) entity;
-				OutputStream os = new FileOutputStream(destFile);
-				byte[] buffer = new byte[8 * 1024];
-				int bytesRead;
-				while ((bytesRead = is.read(buffer)) != -1) {
-					os.write(buffer, 0, bytesRead);
+		LocalSchemaCatalog catalog = LocalSchemaCatalog.getDefault();
+		File localCopy = (null != catalog) ? catalog.resolve(uriRef.toString()) : null;
+		if (null != localCopy) {
+			return localCopy;
+		}
+		return EntityCache.getDefault().resolve(uriRef);
+	}
+
+	/**
+	 * Resolves the given URI and stores the resulting resource representation in a local
+	 * file, inspecting the document element as it is read. For a remote resource the
+	 * handler is notified as soon as the start tag of the document element has been
+	 * received, before the rest of the content has arrived.
+	 * @param uriRef An absolute URI specifying the location of some resource.
+	 * @param probeHandler Receives a description of the document element; it may be
+	 * {@code null}. It is not notified if the resource is not an XML document.
+	 * @return A File containing the content of the resource. The file must not be
+	 * modified.
+	 * @throws IOException If an IO error occurs.
+	 */
+	public static File resolveURIAsFile(URI uriRef, Consumer<DocumentProbe> probeHandler) throws IOException {
+		if ((null == uriRef) || !uriRef.isAbsolute()) {
+			throw new IllegalArgumentException("Absolute URI is required, but received " + uriRef);
+		}
+		if (uriRef.getScheme().equalsIgnoreCase("file")) {
+			File file = new File(uriRef);
+			if (null != probeHandler && file.isFile()) {
+				try {
+					probeHandler.accept(DocumentProbe.read(file));
+				}
+				catch (XMLStreamException e) {
+					TestSuiteLogger.log(Level.FINE, "Document element not found in " + file);
 				}
-				is.close();
-				os.flush();
-				os.close();
 			}
+			return file;
 		}
-		TestSuiteLogger.log(Level.FINE,
-				"Wrote " + destFile.length() + " bytes to file at " + destFile.getAbsolutePath());
-		return destFile;
+		return EntityCache.getDefault().resolve(uriRef, probeHandler);
 	}
 
 	/**
-	 * Constructs an absolute URI from a relative reference and a base URI reference.
+	 * Constructs an absolute URI from a relative reference and a base URI reference. If
+	 * the base URI refers to an entry in an archive (e.g.
+	 * <code>jar:file:/data/delivery.zip!/data.gml</code>), the reference is resolved
+	 * against the entry path so that the result refers to another entry in the same
+	 * archive.
 	 * @param baseURI The base URI; it must contain at least the scheme component.
 	 * @param path A URI reference (path) that is relative to the given base URI.
 	 * @return The resulting URI (with a scheme component).
@@ -112,6 +128,15 @@ public class URIUtils {
 		if (null == uri.getScheme()) {
 			throw new IllegalArgumentException("Base URI has no scheme component: " + baseURI);
 		}
+		int separator = baseURI.indexOf("!/");
+		if (uri.isOpaque() && uri.getScheme().equalsIgnoreCase("jar") && separator > 0) {
+			URI ref = URI.create(path);
+			if (ref.isAbsolute()) {
+				return ref;
+			}
+			URI entryURI = URI.create(baseURI.substring(separator + 1)).resolve(ref);
+			return URI.create(baseURI.substring(0, separator + 1) + entryURI.toString());
+		}
 		return uri.resolve(path);
 	}
 
@@ -76,7 +76,9 @@ public class ValidationUtils {
 
 	/**
 	 * Extracts a set of XML Schema references from a source XML document. The document
-	 * element is expected to include the standard xsi:schemaLocation attribute.
+	 * element is expected to include the standard xsi:schemaLocation attribute. If the
+	 * document was read from a zip archive (its system id is a 'jar' URI), relative
+	 * references are resolved to entries in the same archive.
 	 * @param source The source instance to read from; its base URI (systemId) should be
 	 * set.
 	 * @param baseURI An alternative base URI to use if the source does not have a system
@@ -93,10 +95,28 @@ public class ValidationUtils {
 		StartElement docElem = reader.nextTag().asStartElement();
 		Attribute schemaLoc = docElem
 			.getAttributeByName(new QName(XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI, "schemaLocation"));
-		if (null == schemaLoc) {
+		return resolveSchemaReferences((null != schemaLoc) ? schemaLoc.getValue() : null, source.getSystemId(),
+				baseURI);
+	}
+
+	/**
+	 * Resolves the schema references given in the value of an xsi:schemaLocation
+	 * attribute.
+	 * @param schemaLocation The attribute value: one or more pairs of the form
+	 * [namespace name] [schema location].
+	 * @param systemId The location of the instance document, against which relative
+	 * references are resolved; it may be null.
+	 * @param baseURI An alternative base URI that is used if a relative reference
+	 * resolved against a local system identifier does not refer to an existing file; it
+	 * may be null.
+	 * @return A Set containing absolute URI references that specify the locations of XML
+	 * Schema resources.
+	 */
+	public static Set<URI> resolveSchemaReferences(String schemaLocation, String systemId, String baseURI) {
+		if (null == schemaLocation) {
 			throw new RuntimeException("No xsi:schemaLocation attribute found. See ISO 19136, A.3.1.");
 		}
-		String[] uriValues = schemaLoc.getValue().split("\\s+");
+		String[] uriValues = schemaLocation.trim().split("\\s+");
 		if (uriValues.length % 2 != 0) {
 			throw new RuntimeException("xsi:schemaLocation attribute contains an odd number of URI values:\n"
 					+ Arrays.toString(uriValues));
@@ -105,8 +125,8 @@ public class ValidationUtils {
 		// one or more pairs of [namespace name] [schema location]
 		for (int i = 0; i < uriValues.length; i += 2) {
 			URI schemaURI = null;
-			if (!URI.create(uriValues[i + 1]).isAbsolute() && (null != source.getSystemId())) {
-				String schemaRef = URIUtils.resolveRelativeURI(source.getSystemId(), uriValues[i + 1]).toString();
+			if (!URI.create(uriValues[i + 1]).isAbsolute() && (null != systemId)) {
+				String schemaRef = URIUtils.resolveRelativeURI(systemId, uriValues[i + 1]).toString();
 				if (schemaRef.startsWith("file") && !new File(schemaRef).exists() && (null != baseURI)) {
 					schemaRef = URIUtils.resolveRelativeURI(baseURI, uriValues[i + 1]).toString();
 				}
@@ -1,13 +1,14 @@
 package org.opengis.cite.iso19136.util;
 
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import javax.xml.namespace.QName;
 
@@ -19,7 +20,6 @@ import org.apache.xerces.xs.XSModel;
 import org.apache.xerces.xs.XSModelGroup;
 import org.apache.xerces.xs.XSNamedMap;
 import org.apache.xerces.xs.XSObject;
-import org.apache.xerces.xs.XSObjectList;
 import org.apache.xerces.xs.XSParticle;
 import org.apache.xerces.xs.XSTerm;
 import org.apache.xerces.xs.XSTypeDefinition;
@@ -119,26 +119,15 @@ public class XMLSchemaModelUtils {
 	 * having the specified value domain. The list is empty if none are found.
 	 */
 	public static List<XSElementDeclaration> getImplicitProperties(XSModel model, XSElementDeclaration headElem) {
-
-		List<XSComplexTypeDefinition> typeDefs = new ArrayList<XSComplexTypeDefinition>();
+		SchemaModelIndex index = SchemaModelIndex.forModel(model);
 		// find complex types with element-only content type
-		for (String nsName : getApplicationNamespaces(model)) {
-			XSNamedMap types = model.getComponentsByNamespace(XSTypeDefinition.COMPLEX_TYPE, nsName);
-			for (int i = 0; i < types.getLength(); i++) {
-				XSComplexTypeDefinition type = (XSComplexTypeDefinition) types.item(i);
-				if (type.getContentType() == XSComplexTypeDefinition.CONTENTTYPE_ELEMENT) {
-					typeDefs.add(type);
-				}
-			}
-		}
-		List<XSElementDeclaration> props = new ArrayList<XSElementDeclaration>();
-		for (XSComplexTypeDefinition typeDef : typeDefs) {
-			if (propertyHasValueDomain(typeDef, headElem)) {
-				props.addAll(getGlobalElementsByType(model, typeDef));
-				props.addAll(getLocalElementsByType(model, typeDef, new GMLObjectTypeFilter()));
-			}
-		}
-		return props;
+		return streamComponents(model, XSTypeDefinition.COMPLEX_TYPE)
+			.map(XSComplexTypeDefinition.class::cast)
+			.filter(type -> type.getContentType() == XSComplexTypeDefinition.CONTENTTYPE_ELEMENT)
+			.filter(type -> propertyHasValueDomain(type, headElem))
+			.flatMap(type -> Stream.concat(index.getGlobalElementsByType(type).stream(),
+					index.getLocalElementsByType(type, new GMLObjectTypeFilter()).stream()))
+			.collect(Collectors.toList());
 	}
 
 	/**
@@ -297,16 +286,7 @@ public class XMLSchemaModelUtils {
 	 * if the head element is null.
 	 */
 	public static List<XSElementDeclaration> getElementsByAffiliation(XSModel model, XSElementDeclaration head) {
-		List<XSElementDeclaration> elemDecls = new ArrayList<XSElementDeclaration>();
-		if (null == head) {
-			return elemDecls;
-		}
-		XSObjectList subGroupMembers = model.getSubstitutionGroup(head);
-		for (Object xsObject : subGroupMembers) {
-			XSElementDeclaration subGroupMember = (XSElementDeclaration) xsObject;
-			elemDecls.add(subGroupMember);
-		}
-		return elemDecls;
+		return new ArrayList<XSElementDeclaration>(SchemaModelIndex.forModel(model).getSubstitutionGroup(head));
 	}
 
 	/**
@@ -319,20 +299,7 @@ public class XMLSchemaModelUtils {
 	 * namespace. The list is empty if no matching declarations are found.
 	 */
 	public static List<XSElementDeclaration> getGlobalElementsByType(XSModel model, XSTypeDefinition typeDef) {
-		List<XSElementDeclaration> elems = new ArrayList<XSElementDeclaration>();
-		Set<String> nsNames = getApplicationNamespaces(model);
-		for (String nsName : nsNames) {
-			// Globally scoped element declarations
-			XSNamedMap elemDecls = model.getComponentsByNamespace(XSConstants.ELEMENT_DECLARATION, nsName);
-			for (int i = 0; i < elemDecls.getLength(); i++) {
-				XSElementDeclaration elemDecl = (XSElementDeclaration) elemDecls.item(i);
-				if (elemDecl.getTypeDefinition().equals(typeDef)
-						|| elemDecl.getTypeDefinition().derivedFromType(typeDef, XSConstants.DERIVATION_EXTENSION)) {
-					elems.add(elemDecl);
-				}
-			}
-		}
-		return elems;
+		return SchemaModelIndex.forModel(model).getGlobalElementsByType(typeDef);
 	}
 
 	/**
@@ -351,43 +318,9 @@ public class XMLSchemaModelUtils {
 	 * @return A List containing locally-scoped element declarations in an application
 	 * namespace. The list is empty if no matching declarations are found.
 	 */
-	@SuppressWarnings("unchecked")
 	public static List<XSElementDeclaration> getLocalElementsByType(XSModel model, XSTypeDefinition typeDef,
 			SchemaComponentFilter typeFilter) {
-		List<XSElementDeclaration> elemsByType = new ArrayList<XSElementDeclaration>();
-		Set<String> nsNames = getApplicationNamespaces(model);
-		for (String nsName : nsNames) {
-			Map<QName, XSObject> complexTypes = new HashMap<QName, XSObject>();
-			complexTypes.putAll(model.getComponentsByNamespace(XSTypeDefinition.COMPLEX_TYPE, nsName));
-			// Add anonymous complex types from global element declarations
-			XSNamedMap globalElemDecls = model.getComponentsByNamespace(XSConstants.ELEMENT_DECLARATION, nsName);
-			for (int i = 0; i < globalElemDecls.getLength(); i++) {
-				XSElementDeclaration elemDecl = (XSElementDeclaration) globalElemDecls.item(i);
-				if (elemDecl.getTypeDefinition().getTypeCategory() == XSTypeDefinition.SIMPLE_TYPE) {
-					continue;
-				}
-				if (elemDecl.getTypeDefinition().getAnonymous()) {
-					complexTypes.put(new QName(nsName, "anon-" + i), elemDecl.getTypeDefinition());
-				}
-			}
-			if (null != typeFilter) {
-				complexTypes = typeFilter.doFilter(complexTypes);
-			}
-			for (XSObject xsObj : complexTypes.values()) {
-				XSComplexTypeDefinition type = (XSComplexTypeDefinition) xsObj;
-				List<XSElementDeclaration> childElems = getAllElementsInParticle(type.getParticle());
-				for (XSElementDeclaration elemDecl : childElems) {
-					if (elemDecl.getTypeDefinition().equals(typeDef) || elemDecl.getTypeDefinition()
-						.derivedFromType(typeDef, XSConstants.DERIVATION_EXTENSION)) {
-						if (elemDecl.getScope() == XSConstants.SCOPE_GLOBAL) {
-							continue; // refers to global element declaration
-						}
-						elemsByType.add(elemDecl);
-					}
-				}
-			}
-		}
-		return elemsByType;
+		return SchemaModelIndex.forModel(model).getLocalElementsByType(typeDef, typeFilter);
 	}
 
 	/**
@@ -458,19 +391,11 @@ public class XMLSchemaModelUtils {
 	 * @return A Set containing XSComplexTypeDefinition components.
 	 */
 	public static Set<XSComplexTypeDefinition> getReferencedComplexTypeDefinitions(XSModel model) {
-		Set<XSComplexTypeDefinition> typeDefs = new HashSet<XSComplexTypeDefinition>();
-		Set<String> appNamespaces = getApplicationNamespaces(model);
-		for (String nsName : appNamespaces) {
-			XSNamedMap elemDecls = model.getComponentsByNamespace(XSConstants.ELEMENT_DECLARATION, nsName);
-			for (int i = 0; i < elemDecls.getLength(); i++) {
-				XSElementDeclaration elemDecl = (XSElementDeclaration) elemDecls.item(i);
-				XSTypeDefinition typeDef = elemDecl.getTypeDefinition();
-				if (typeDef.getTypeCategory() == XSTypeDefinition.COMPLEX_TYPE) {
-					typeDefs.add((XSComplexTypeDefinition) typeDef);
-				}
-			}
-		}
-		return typeDefs;
+		return streamComponents(model, XSConstants.ELEMENT_DECLARATION)
+			.map(elemDecl -> ((XSElementDeclaration) elemDecl).getTypeDefinition())
+			.filter(typeDef -> typeDef.getTypeCategory() == XSTypeDefinition.COMPLEX_TYPE)
+			.map(XSComplexTypeDefinition.class::cast)
+			.collect(Collectors.toCollection(HashSet::new));
 	}
 
 	/**
@@ -479,15 +404,9 @@ public class XMLSchemaModelUtils {
 	 * @param model An XSModel object.
 	 * @return A Set containing XSComplexTypeDefinition components.
 	 */
-	@SuppressWarnings("unchecked")
 	public static Set<XSComplexTypeDefinition> getGlobalComplexTypeDefinitions(XSModel model) {
-		Set<XSComplexTypeDefinition> typeDefs = new HashSet<XSComplexTypeDefinition>();
-		for (String nsName : getApplicationNamespaces(model)) {
-			XSNamedMap components = model.getComponentsByNamespace(XSTypeDefinition.COMPLEX_TYPE, nsName);
-			Collection<XSComplexTypeDefinition> values = components.values();
-			typeDefs.addAll(values);
-		}
-		return typeDefs;
+		return streamComponents(model, XSTypeDefinition.COMPLEX_TYPE).map(XSComplexTypeDefinition.class::cast)
+			.collect(Collectors.toCollection(HashSet::new));
 	}
 
 	/**
@@ -523,17 +442,7 @@ public class XMLSchemaModelUtils {
 	 */
 	public static Set<XSTypeDefinition> getDerivedTypeDefinitions(XSModel model, XSTypeDefinition baseType,
 			short derivationMethod) {
-		Set<XSTypeDefinition> typeDefs = new HashSet<XSTypeDefinition>();
-		for (String nsName : getApplicationNamespaces(model)) {
-			XSNamedMap components = model.getComponentsByNamespace(XSConstants.TYPE_DEFINITION, nsName);
-			for (int i = 0; i < components.getLength(); i++) {
-				XSTypeDefinition typeDef = (XSTypeDefinition) components.item(i);
-				if (typeDef.derivedFromType(baseType, derivationMethod)) {
-					typeDefs.add(typeDef);
-				}
-			}
-		}
-		return typeDefs;
+		return SchemaModelIndex.forModel(model).getDerivedTypeDefinitions(baseType, derivationMethod);
 	}
 
 	/**
@@ -554,6 +463,24 @@ public class XMLSchemaModelUtils {
 		return elemDecls;
 	}
 
+	/**
+	 * Returns a parallel stream of the top-level components of the given type in all
+	 * application namespaces. The work is divided by namespace (in lexical order) and then
+	 * by ranges of components within a namespace; the stream is ordered, so results
+	 * collected from it are the same in every run and do not depend on the number of
+	 * threads.
+	 * @param model An XSModel object (it is prepared for concurrent access, if necessary).
+	 * @param objectType The type of component (e.g. XSConstants.ELEMENT_DECLARATION).
+	 * @return A Stream of schema components.
+	 */
+	static Stream<XSObject> streamComponents(XSModel model, short objectType) {
+		SchemaModelIndex.forModel(model);
+		return new TreeSet<String>(getApplicationNamespaces(model)).parallelStream().flatMap(nsName -> {
+			XSNamedMap components = model.getComponentsByNamespace(objectType, nsName);
+			return IntStream.range(0, components.getLength()).parallel().mapToObj(components::item);
+		});
+	}
+
 	/**
 	 * Gets the name of the given XML Schema component.
 	 * @param xsObject An XSObject representing a schema component.
@@ -31,17 +31,14 @@ import javax.xml.transform.sax.SAXSource;
 import javax.xml.transform.stax.StAXSource;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
-import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 
+import net.sf.saxon.dom.NodeOverNodeInfo;
 import net.sf.saxon.s9api.DOMDestination;
 import net.sf.saxon.s9api.DocumentBuilder;
 import net.sf.saxon.s9api.Processor;
 import net.sf.saxon.s9api.SaxonApiException;
-import net.sf.saxon.s9api.XPathCompiler;
-import net.sf.saxon.s9api.XPathSelector;
 import net.sf.saxon.s9api.XdmNode;
 import net.sf.saxon.s9api.XdmValue;
 import net.sf.saxon.s9api.XsltCompiler;
@@ -63,13 +60,6 @@ public class XMLUtils {
 
 	private static final Logger LOGR = Logger.getLogger(XMLUtils.class.getPackage().getName());
 
-	private static final XPathFactory XPATH_FACTORY = initXPathFactory();
-
-	private static XPathFactory initXPathFactory() {
-		XPathFactory factory = XPathFactory.newInstance();
-		return factory;
-	}
-
 	/**
 	 * Writes the content of a DOM Node to a string. The XML declaration is omitted and
 	 * the character encoding is set to "US-ASCII" (any character outside of this set is
@@ -204,6 +194,11 @@ public class XMLUtils {
 	 * <strong>Note:</strong> The Saxon implementation supports XPath 2.0 expressions when
 	 * using the JAXP XPath APIs (the default implementation will throw an exception).
 	 * </p>
+	 *
+	 * <p>
+	 * If the context node belongs to a Saxon tree (see {@link DocumentModel#TINYTREE}),
+	 * the expression is evaluated natively using {@link SaxonXPath}.
+	 * </p>
 	 * @param context The context node.
 	 * @param expr An XPath expression.
 	 * @param namespaceBindings A collection of namespace bindings for the XPath
@@ -217,14 +212,11 @@ public class XMLUtils {
 	 */
 	public static Object evaluateXPath(Node context, String expr, Map<String, String> namespaceBindings,
 			QName returnType) throws XPathExpressionException {
-		NamespaceBindings bindings = NamespaceBindings.withStandardBindings();
-		bindings.addAllBindings(namespaceBindings);
-		XPathFactory factory = XPATH_FACTORY;
-		// WARNING: If context node is Saxon NodeOverNodeInfo, the factory must
-		// use the same Configuration object to avoid IllegalArgumentException
-		XPath xpath = factory.newXPath();
-		xpath.setNamespaceContext(bindings);
-		Object result = xpath.evaluate(expr, context, returnType);
+		if (SaxonXPath.isSaxonNode(context)) {
+			return SaxonXPath.evaluate(context, expr, namespaceBindings, returnType);
+		}
+		// compiled only once per thread (see XPathCache)
+		Object result = XPathCache.compile(expr, namespaceBindings).evaluate(context, returnType);
 		return result;
 	}
 
@@ -262,15 +254,12 @@ public class XMLUtils {
 			xmlSource = saxSource.getInputSource();
 			xmlSource.setSystemId(source.getSystemId());
 		}
-		NamespaceBindings bindings = NamespaceBindings.withStandardBindings();
-		bindings.addAllBindings(namespaceBindings);
-		XPath xpath = XPATH_FACTORY.newXPath();
-		xpath.setNamespaceContext(bindings);
-		return xpath.evaluate(expr, xmlSource, returnType);
+		return XPathCache.compile(expr, namespaceBindings).evaluate(xmlSource, returnType);
 	}
 
 	/**
-	 * Evaluates an XPath 2.0 expression using the Saxon s9api interfaces.
+	 * Evaluates an XPath 2.0 expression using the Saxon s9api interfaces. The expression
+	 * is compiled only once (see {@link SaxonXPath#compile(String, Map)}).
 	 * @param xmlSource The XML Source.
 	 * @param expr The XPath expression to be evaluated.
 	 * @param nsBindings A collection of namespace bindings required to evaluate the XPath
@@ -284,25 +273,17 @@ public class XMLUtils {
 	 */
 	public static XdmValue evaluateXPath2(Source xmlSource, String expr, Map<String, String> nsBindings)
 			throws SaxonApiException {
-		Processor proc = new Processor(false);
-		XPathCompiler compiler = proc.newXPathCompiler();
-		if (null != nsBindings) {
-			for (String nsURI : nsBindings.keySet()) {
-				compiler.declareNamespace(nsBindings.get(nsURI), nsURI);
-			}
-		}
-		XPathSelector xpath = compiler.compile(expr).load();
-		DocumentBuilder builder = proc.newDocumentBuilder();
+		DocumentBuilder builder = SaxonXPath.getProcessor().newDocumentBuilder();
 		XdmNode node = null;
 		if (DOMSource.class.isInstance(xmlSource)) {
-			DOMSource domSource = (DOMSource) xmlSource;
-			node = builder.wrap(domSource.getNode());
+			Node domNode = ((DOMSource) xmlSource).getNode();
+			node = SaxonXPath.isSaxonNode(domNode)
+					? SaxonXPath.wrapNode(((NodeOverNodeInfo) domNode).getUnderlyingNodeInfo()) : builder.wrap(domNode);
 		}
 		else {
 			node = builder.build(xmlSource);
 		}
-		xpath.setContextItem(node);
-		return xpath.evaluate();
+		return SaxonXPath.evaluate(node, expr, nsBindings);
 	}
 
 	/**
@@ -387,6 +368,12 @@ public class XMLUtils {
 	 * the XLink referent. If the xlink:href attribute is present an attempt will be made
 	 * to dereference the URI value, which may contain a fragment identifier (a string
 	 * that adheres to the XPointer syntax).
+	 *
+	 * <p>
+	 * A reference to an element in the same document is resolved using the
+	 * {@link GmlIdIndex} of the owner document; the referent is returned as is (it is not
+	 * copied), and must not be modified.
+	 * </p>
 	 * @param propertyNode A property node; the value is supplied in-line or by reference.
 	 * @return A DOM Node representing the property value, or {@code null} if it cannot be
 	 * accessed or parsed.
@@ -403,10 +390,14 @@ public class XMLUtils {
 			try {
 				Document referent = null;
 				uriRef = URI.create(href);
+				Document ownerDoc = propertyNode.getOwnerDocument();
 				if (!uriRef.isAbsolute()) {
-					String baseURI = propertyNode.getOwnerDocument().getBaseURI();
+					String baseURI = ownerDoc.getBaseURI();
 					uriRef = URIUtils.resolveRelativeURI(baseURI, uriRef.toString());
 				}
+				if (null != uriRef.getFragment() && isSameDocumentReference(href, uriRef, ownerDoc)) {
+					return GmlIdIndex.forDocument(ownerDoc).findElement(ownerDoc, uriRef.getFragment());
+				}
 				referent = URIUtils.parseURI(uriRef);
 				if (null == uriRef.getFragment()) {
 					value = referent.getDocumentElement();
@@ -423,6 +414,30 @@ public class XMLUtils {
 		return value;
 	}
 
+	/**
+	 * Determines whether a URI reference refers to the given document.
+	 * @param href The original reference value.
+	 * @param uriRef The resolved (absolute) URI reference.
+	 * @param doc The document containing the reference.
+	 * @return {@code true} if the reference is a same-document reference; {@code false}
+	 * otherwise.
+	 */
+	static boolean isSameDocumentReference(String href, URI uriRef, Document doc) {
+		if (href.startsWith("#")) {
+			return true;
+		}
+		String docURI = doc.getDocumentURI();
+		if (null == docURI || docURI.isEmpty()) {
+			return false;
+		}
+		String refDoc = uriRef.toString();
+		int hash = refDoc.indexOf('#');
+		if (hash >= 0) {
+			refDoc = refDoc.substring(0, hash);
+		}
+		return refDoc.equals(docURI);
+	}
+
 	/**
 	 * Extracts the specified fragment from the given XML source document. The fragment
 	 * identifier is expected to conform to the W3C XPointer framework. However, only
@@ -432,7 +447,8 @@ public class XMLUtils {
 	 * In GML documents such pointers refer to the element that has a matching gml:id
 	 * attribute value; this attribute is a <a target="_blank" href=
 	 * "http://www.w3.org/TR/xptr-framework/#term-sdi">schema-determined ID</a> as defined
-	 * in the XPointer specification.
+	 * in the XPointer specification. The element is found using the {@link GmlIdIndex}
+	 * of the document.
 	 * </p>
 	 * @param doc A DOM Document.
 	 * @param fragmentId A fragment identifier that adheres to the XPointer syntax.
@@ -447,18 +463,8 @@ public class XMLUtils {
 		if (fragmentId.indexOf('(') > 0) {
 			throw new UnsupportedOperationException("Scheme-based pointers are not currently supported.");
 		}
-		Element fragment = null;
-		String expr = String.format("//*[@gml:id='%s']", fragmentId);
-		try {
-			NodeList nodeList = evaluateXPath(doc, expr, null);
-			if (nodeList.getLength() > 0) {
-				fragment = (Element) nodeList.item(0).cloneNode(true);
-			}
-		}
-		catch (XPathExpressionException xpe) {
-			throw new RuntimeException(xpe);
-		}
-		return fragment;
+		Element fragment = GmlIdIndex.forDocument(doc).findElement(doc, fragmentId);
+		return (null != fragment) ? (Element) fragment.cloneNode(true) : null;
 	}
 
 }
@@ -0,0 +1,128 @@
+package org.opengis.cite.iso19136.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+
+/**
+ * A cache of compiled (JAXP) XPath expressions, keyed by the expression and the
+ * namespace bindings it is compiled with. Since an XPathExpression object is not
+ * thread-safe, each thread has its own cache; within a thread the least recently used
+ * expression is discarded once {@link #MAX_SIZE} expressions have been cached.
+ *
+ * <p>
+ * Hit and miss counts are accumulated for all threads, and include those of the Saxon
+ * expression cache (see {@link SaxonXPath#compile}); they are logged at the end of a
+ * test run (see {@link #getStatistics()}).
+ * </p>
+ */
+public class XPathCache {
+
+	/** The maximum number of expressions cached per thread. */
+	public static final int MAX_SIZE = 256;
+
+	private static final XPathFactory XPATH_FACTORY = XPathFactory.newInstance();
+
+	private static final AtomicLong HITS = new AtomicLong();
+
+	private static final AtomicLong MISSES = new AtomicLong();
+
+	private static final ThreadLocal<Map<String, XPathExpression>> EXPRESSIONS = ThreadLocal
+		.withInitial(() -> new LinkedHashMap<String, XPathExpression>(64, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, XPathExpression> eldest) {
+				return size() > MAX_SIZE;
+			}
+		});
+
+	private XPathCache() {
+	}
+
+	/**
+	 * Returns a compiled XPath expression for use by the current thread. The expression
+	 * is compiled only if it is not already in the cache of the current thread.
+	 * @param expr An XPath expression.
+	 * @param namespaceBindings A collection of namespace bindings for the XPath
+	 * expression, where each entry maps a namespace URI (key) to a prefix (value); it
+	 * may be {@code null}. Standard bindings do not need to be declared (see
+	 * {@link NamespaceBindings#withStandardBindings()}).
+	 * @return A compiled XPathExpression; it must not be shared with other threads.
+	 * @throws XPathExpressionException If the expression cannot be compiled.
+	 */
+	public static XPathExpression compile(String expr, Map<String, String> namespaceBindings)
+			throws XPathExpressionException {
+		String key = (null == namespaceBindings || namespaceBindings.isEmpty()) ? expr
+				: expr + '\u0000' + new TreeMap<String, String>(namespaceBindings);
+		Map<String, XPathExpression> expressions = EXPRESSIONS.get();
+		XPathExpression xpathExpr = expressions.get(key);
+		if (null != xpathExpr) {
+			recordHit();
+			return xpathExpr;
+		}
+		recordMiss();
+		NamespaceBindings bindings = NamespaceBindings.withStandardBindings();
+		bindings.addAllBindings(namespaceBindings);
+		XPath xpath;
+		synchronized (XPATH_FACTORY) {
+			xpath = XPATH_FACTORY.newXPath();
+		}
+		xpath.setNamespaceContext(bindings);
+		xpathExpr = xpath.compile(expr);
+		expressions.put(key, xpathExpr);
+		return xpathExpr;
+	}
+
+	static void recordHit() {
+		HITS.incrementAndGet();
+	}
+
+	static void recordMiss() {
+		MISSES.incrementAndGet();
+	}
+
+	/**
+	 * Returns the number of requests satisfied from a cache (for all threads).
+	 * @return The number of cache hits.
+	 */
+	public static long getHitCount() {
+		return HITS.get();
+	}
+
+	/**
+	 * Returns the number of requests that required an expression to be compiled (for
+	 * all threads).
+	 * @return The number of cache misses.
+	 */
+	public static long getMissCount() {
+		return MISSES.get();
+	}
+
+	/**
+	 * Summarizes the cache activity.
+	 * @return A String containing the hit and miss counts and the hit ratio.
+	 */
+	public static String getStatistics() {
+		long hits = HITS.get();
+		long misses = MISSES.get();
+		long total = hits + misses;
+		return String.format("XPath cache: %d hits, %d misses (hit ratio %.1f%%)", hits, misses,
+				(total > 0) ? 100.0 * hits / total : 0.0);
+	}
+
+	/**
+	 * Discards the expressions cached by the current thread. The counters are not reset.
+	 */
+	public static void clear() {
+		EXPRESSIONS.remove();
+	}
+
+}
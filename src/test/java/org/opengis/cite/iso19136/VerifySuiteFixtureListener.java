@@ -56,4 +56,27 @@ public class VerifySuiteFixtureListener {
 		assertFalse("Expected non-empty set of URIs.", uriSet.getValue().isEmpty());
 	}
 
+	@Test
+	public void compileTimeLimits() {
+		Map<String, String> params = new HashMap<String, String>();
+		params.put(TestRunArg.COMPILE_TIMEOUT.toString(), "120");
+		params.put(TestRunArg.COMPILE_IDLE_TIMEOUT.toString(), "soon");
+		SuiteFixtureListener iut = new SuiteFixtureListener();
+		assertEquals(120000, iut.getTimeLimit(params, TestRunArg.COMPILE_TIMEOUT, 60000));
+		assertEquals(30000, iut.getTimeLimit(params, TestRunArg.COMPILE_IDLE_TIMEOUT, 30000));
+	}
+
+	@Test
+	public void validationThreads() {
+		Map<String, String> params = new HashMap<String, String>();
+		SuiteFixtureListener iut = new SuiteFixtureListener();
+		assertEquals(1, iut.getValidationThreads(params));
+		params.put(TestRunArg.VALIDATION_THREADS.toString(), "4");
+		assertEquals(4, iut.getValidationThreads(params));
+		params.put(TestRunArg.VALIDATION_THREADS.toString(), "0");
+		assertEquals(Runtime.getRuntime().availableProcessors(), iut.getValidationThreads(params));
+		params.put(TestRunArg.VALIDATION_THREADS.toString(), "-2");
+		assertEquals(1, iut.getValidationThreads(params));
+	}
+
 }
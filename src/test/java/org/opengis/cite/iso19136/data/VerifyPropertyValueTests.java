@@ -1,15 +1,17 @@
 package org.opengis.cite.iso19136.data;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.net.MalformedURLException;
+import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import javax.xml.parsers.DocumentBuilderFactory;
+import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.opengis.cite.iso19136.util.GmlDocument;
+import org.opengis.cite.iso19136.util.MemoryPolicy;
 
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -42,8 +44,7 @@ public class VerifyPropertyValueTests {
 	}
 
 	@Test
-	public void locationReference_notTextEntity()
-			throws URISyntaxException, FileNotFoundException, MalformedURLException {
+	public void locationReference_notTextEntity() throws URISyntaxException, IOException {
 		thrown.expect(AssertionError.class);
 		thrown.expectMessage("Response entity has unexpected media type");
 		URL url = this.getClass().getResource("/SimpleFeature-1.xml");
@@ -54,8 +55,7 @@ public class VerifyPropertyValueTests {
 	}
 
 	@Test
-	public void locationReference_missingHref()
-			throws URISyntaxException, FileNotFoundException, MalformedURLException {
+	public void locationReference_missingHref() throws URISyntaxException, IOException {
 		thrown.expect(AssertionError.class);
 		thrown.expectMessage("Infoset item is missing or empty");
 		URL url = this.getClass().getResource("/SimpleFeature-2.xml");
@@ -66,7 +66,7 @@ public class VerifyPropertyValueTests {
 	}
 
 	@Test
-	public void locationName_noCodeList() throws URISyntaxException, FileNotFoundException, MalformedURLException {
+	public void locationName_noCodeList() throws URISyntaxException, IOException {
 		thrown.expect(AssertionError.class);
 		thrown.expectMessage("Failed to connect");
 		URL url = this.getClass().getResource("/SimpleFeature-2.xml");
@@ -76,4 +76,19 @@ public class VerifyPropertyValueTests {
 		iut.validateLocationName();
 	}
 
+	@Test
+	public void locationName_streamedWithoutParsing() throws URISyntaxException, IOException {
+		URL url = this.getClass().getResource("/SimpleFeature-2.xml");
+		PropertyValueTests iut = new PropertyValueTests();
+		iut.gmlDocument = new GmlDocument(new File(url.toURI()), MemoryPolicy.STREAM);
+		try {
+			iut.validateLocationName();
+			Assert.fail("Expected AssertionError (code list not available).");
+		}
+		catch (AssertionError e) {
+			Assert.assertTrue(e.getMessage(), e.getMessage().contains("Failed to connect"));
+		}
+		Assert.assertEquals("Unexpected parse count.", 0, iut.gmlDocument.getParseCount());
+	}
+
 }
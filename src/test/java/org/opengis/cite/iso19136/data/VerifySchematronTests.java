@@ -1,6 +1,7 @@
 package org.opengis.cite.iso19136.data;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.Map;
@@ -12,6 +13,10 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.opengis.cite.iso19136.util.DocumentModel;
+import org.opengis.cite.iso19136.util.GmlDocument;
+import org.opengis.cite.iso19136.util.MappedDataSource;
+import org.opengis.cite.iso19136.util.MemoryPolicy;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -64,7 +69,7 @@ public class VerifySchematronTests {
 	}
 
 	@Test
-	public void checkForDeprecatedGMLElements_envelopeWithPosChildren() throws URISyntaxException {
+	public void checkForDeprecatedGMLElements_envelopeWithPosChildren() throws URISyntaxException, IOException {
 		thrown.expect(AssertionError.class);
 		String fileName = "/SimpleFeature-1.xml";
 		URL url = this.getClass().getResource(fileName);
@@ -74,4 +79,50 @@ public class VerifySchematronTests {
 		iut.checkForDeprecatedGMLElements();
 	}
 
+	@Test
+	public void ruleSetsShareParsedDocument() throws URISyntaxException, IOException {
+		URL url = this.getClass().getResource("/SimpleFeature-1.xml");
+		SchematronTests iut = new SchematronTests();
+		iut.setDataFile(new File(url.toURI()));
+		try {
+			iut.checkGMLSchematronConstraints();
+		}
+		catch (AssertionError e) {
+			// rule violations do not matter here
+		}
+		try {
+			iut.checkForDeprecatedGMLElements();
+		}
+		catch (AssertionError e) {
+			// deprecated elements are present
+		}
+		Assert.assertEquals("Unexpected parse count.", 1, iut.gmlDocument.getParseCount());
+		Assert.assertSame("Expected same tree.", iut.getSchematronTree().getUnderlyingNode(),
+				iut.getSchematronTree().getUnderlyingNode());
+	}
+
+	@Test
+	public void ruleSetsShareTinyTree() throws URISyntaxException, IOException {
+		URL url = this.getClass().getResource("/SimpleFeature-1.xml");
+		SchematronTests iut = new SchematronTests();
+		iut.gmlDocument = new GmlDocument(new MappedDataSource(new File(url.toURI())), MemoryPolicy.KEEP,
+				DocumentModel.TINYTREE);
+		try {
+			iut.checkForDeprecatedGMLElements();
+			Assert.fail("Expected AssertionError (deprecated elements are present).");
+		}
+		catch (AssertionError e) {
+			Assert.assertTrue(e.getMessage(), e.getMessage().contains("gml:pos"));
+		}
+		try {
+			iut.checkGMLSchematronConstraints();
+		}
+		catch (AssertionError e) {
+			// rule violations do not matter here
+		}
+		Assert.assertEquals("Unexpected parse count.", 1, iut.gmlDocument.getParseCount());
+		Assert.assertSame("Expected same tree.", iut.getSchematronTree().getUnderlyingNode(),
+				iut.getSchematronTree().getUnderlyingNode());
+	}
+
 }
@@ -0,0 +1,64 @@
+package org.opengis.cite.iso19136.data.spatial;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Unmarshaller;
+
+import org.junit.Test;
+
+/**
+ * Verifies the behavior of the UnmarshallerLease class.
+ */
+public class VerifyUnmarshallerLease {
+
+	@Test
+	public void nestedLeaseIsReused() throws JAXBException {
+		int active = UnmarshallerLease.getActiveCount();
+		long released = UnmarshallerLease.getReleaseCount();
+		try (UnmarshallerLease outer = UnmarshallerLease.acquire()) {
+			assertEquals("Unexpected active count.", active + 1, UnmarshallerLease.getActiveCount());
+			try (UnmarshallerLease inner = UnmarshallerLease.acquire()) {
+				assertSame(outer, inner);
+				assertSame(outer.getUnmarshaller(), inner.getUnmarshaller());
+			}
+			assertEquals("Unexpected release count.", released, UnmarshallerLease.getReleaseCount());
+			assertNotNull(outer.getUnmarshaller());
+		}
+		assertEquals("Unexpected active count.", active, UnmarshallerLease.getActiveCount());
+		assertEquals("Unexpected release count.", released + 1, UnmarshallerLease.getReleaseCount());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void closedLeaseIsUnusable() throws JAXBException {
+		UnmarshallerLease lease = UnmarshallerLease.acquire();
+		lease.close();
+		lease.close();
+		lease.getUnmarshaller();
+	}
+
+	@Test
+	public void threadsHaveSeparateLeases() throws Exception {
+		AtomicReference<Unmarshaller> other = new AtomicReference<Unmarshaller>();
+		try (UnmarshallerLease lease = UnmarshallerLease.acquire()) {
+			Thread thread = new Thread(() -> {
+				try (UnmarshallerLease otherLease = UnmarshallerLease.acquire()) {
+					other.set(otherLease.getUnmarshaller());
+				}
+				catch (JAXBException e) {
+					throw new RuntimeException(e);
+				}
+			});
+			thread.start();
+			thread.join();
+			assertNotNull(other.get());
+			assertNotSame(lease.getUnmarshaller(), other.get());
+		}
+	}
+
+}
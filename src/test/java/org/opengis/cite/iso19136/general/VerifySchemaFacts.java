@@ -0,0 +1,83 @@
+package org.opengis.cite.iso19136.general;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+
+import org.apache.xerces.xs.XSElementDeclaration;
+import org.apache.xerces.xs.XSModel;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opengis.cite.iso19136.GML32;
+import org.opengis.cite.validation.XSModelBuilder;
+import org.opengis.cite.validation.XmlSchemaCompiler;
+
+/**
+ * Verifies the behavior of the SchemaFacts class.
+ */
+public class VerifySchemaFacts {
+
+	private static final String CITIES_NS = "http://www.interactive-instruments.de/namespaces/demo/cities/2.0/cities";
+
+	private static XSModel model;
+
+	@BeforeClass
+	public static void buildModel() throws Exception {
+		URL schemaCatalog = VerifySchemaFacts.class.getResource("/schema-catalog.xml");
+		URL url = VerifySchemaFacts.class.getResource("/xsd/cities.xsd");
+		Schema xsd = new XmlSchemaCompiler(schemaCatalog)
+			.compileXmlSchema(new StreamSource(url.openStream(), url.toString()));
+		model = XSModelBuilder.buildXMLSchemaModel(xsd, CITIES_NS);
+	}
+
+	@Test
+	public void factsAreDeterminedOncePerModel() {
+		SchemaFacts iut = SchemaFacts.forModel(model);
+		assertSame(iut, SchemaFacts.forModel(model));
+		List<XSElementDeclaration> features = iut.getDeclarations(GMLObjectType.FEATURE_TYPE);
+		assertFalse("Expected feature declarations.", features.isEmpty());
+		assertSame(features, iut.getDeclarations(GMLObjectType.FEATURE_TYPE));
+		assertSame(iut.getImplicitProperties(GML32.ABSTRACT_GEOMETRY),
+				iut.getImplicitProperties(GML32.ABSTRACT_GEOMETRY));
+	}
+
+	@Test
+	public void knownDeclarations() {
+		SchemaFacts iut = SchemaFacts.forModel(model);
+		iut.getDeclarations(GMLObjectType.FEATURE_TYPE);
+		Map<String, List<XSElementDeclaration>> known = iut.getKnownDeclarations();
+		assertTrue(known.containsKey(GMLObjectType.FEATURE_TYPE.name()));
+		assertFalse(known.containsKey(GMLObjectType.VALUE.name()));
+	}
+
+	@Test
+	public void declarationsFoundPreviouslyAreUsed() throws Exception {
+		URL url = getClass().getResource("/xsd/cities.xsd");
+		Schema xsd = new XmlSchemaCompiler(getClass().getResource("/schema-catalog.xml"))
+			.compileXmlSchema(new StreamSource(url.openStream(), url.toString()));
+		XSModel otherModel = XSModelBuilder.buildXMLSchemaModel(xsd, CITIES_NS);
+		SchemaFacts iut = SchemaFacts.forModel(otherModel);
+		iut.putDeclarations(GMLObjectType.COVERAGE, Collections.<XSElementDeclaration>emptyList());
+		iut.putDeclarations(GMLObjectType.COVERAGE, iut.getDeclarations(GMLObjectType.FEATURE_TYPE));
+		assertTrue(iut.getDeclarations(GMLObjectType.COVERAGE).isEmpty());
+	}
+
+	@Test
+	public void schemaInfoConforms() {
+		AppSchemaInfo schemaInfo = new AppSchemaInfo(SchemaFacts.forModel(model));
+		assertTrue(schemaInfo.conforms());
+		assertTrue(schemaInfo.declares(GMLObjectType.FEATURE_TYPE));
+		assertEquals(SchemaFacts.forModel(model).getDeclarations(GMLObjectType.FEATURE_TYPE),
+				schemaInfo.getFeatureTypes());
+	}
+
+}
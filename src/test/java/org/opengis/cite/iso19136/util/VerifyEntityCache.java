@@ -0,0 +1,203 @@
+package org.opengis.cite.iso19136.util;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Verifies the behavior of the EntityCache class. An embedded HTTP server stands in for
+ * a remote service.
+ */
+public class VerifyEntityCache {
+
+	private static final byte[] ENTITY = "<note><to>Tove</to></note>".getBytes(StandardCharsets.UTF_8);
+
+	@Rule
+	public TemporaryFolder tempDir = new TemporaryFolder();
+
+	private HttpServer server;
+
+	private final AtomicInteger fullResponses = new AtomicInteger();
+
+	private final AtomicBoolean failing = new AtomicBoolean();
+
+	private URI baseURI;
+
+	@Before
+	public void startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		// resources under /same/ all have the same representation
+		server.createContext("/", exchange -> {
+			String path = exchange.getRequestURI().getPath();
+			byte[] entity = path.startsWith("/same/") ? ENTITY
+					: ("<note path='" + path + "'/>").getBytes(StandardCharsets.UTF_8);
+			String etag = "\"" + entity.length + "\"";
+			if (failing.get()) {
+				byte[] errorPage = "<html><body>Internal Server Error</body></html>".getBytes(StandardCharsets.UTF_8);
+				exchange.getResponseHeaders().add("ETag", "\"error\"");
+				exchange.sendResponseHeaders(500, errorPage.length);
+				try (OutputStream os = exchange.getResponseBody()) {
+					os.write(errorPage);
+				}
+			}
+			else if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+				exchange.sendResponseHeaders(304, -1);
+			}
+			else {
+				fullResponses.incrementAndGet();
+				exchange.getResponseHeaders().add("ETag", etag);
+				exchange.getResponseHeaders().add("Content-Type", "application/xml");
+				exchange.sendResponseHeaders(200, entity.length);
+				try (OutputStream os = exchange.getResponseBody()) {
+					os.write(entity);
+				}
+			}
+			exchange.close();
+		});
+		server.start();
+		baseURI = URI.create("http://localhost:" + server.getAddress().getPort() + "/");
+	}
+
+	@After
+	public void stopServer() {
+		server.stop(0);
+	}
+
+	@Test
+	public void revalidateCachedEntity() throws IOException {
+		EntityCache iut = new EntityCache(tempDir.getRoot(), EntityCache.DEFAULT_MAX_SIZE);
+		URI uri = baseURI.resolve("same/wfs?request=GetFeature");
+		File first = iut.resolve(uri);
+		assertArrayEquals("Unexpected content.", ENTITY, Files.readAllBytes(first.toPath()));
+		File second = iut.resolve(uri);
+		assertEquals("Expected same file.", first, second);
+		assertEquals("Unexpected number of downloads.", 1, iut.getDownloadCount());
+		assertEquals("Unexpected number of full responses.", 1, fullResponses.get());
+	}
+
+	@Test
+	public void entriesPersistAcrossInstances() throws IOException {
+		URI uri = baseURI.resolve("note.xml");
+		new EntityCache(tempDir.getRoot(), EntityCache.DEFAULT_MAX_SIZE).resolve(uri);
+		EntityCache iut = new EntityCache(tempDir.getRoot(), EntityCache.DEFAULT_MAX_SIZE);
+		iut.resolve(uri);
+		assertEquals("Unexpected number of downloads.", 0, iut.getDownloadCount());
+	}
+
+	@Test
+	public void identicalContentIsStoredOnce() throws IOException {
+		EntityCache iut = new EntityCache(tempDir.getRoot(), EntityCache.DEFAULT_MAX_SIZE);
+		File first = iut.resolve(baseURI.resolve("same/a.xml"));
+		File second = iut.resolve(baseURI.resolve("same/b.xml"));
+		assertEquals("Expected same content file.", first, second);
+	}
+
+	@Test
+	public void evictLeastRecentlyUsed() throws IOException {
+		// limit is smaller than a single entity: only the latest entry is retained
+		URI uri = baseURI.resolve("a.xml");
+		try (EntityCache previousRun = new EntityCache(tempDir.getRoot(), 1)) {
+			previousRun.resolve(uri);
+			previousRun.resolve(uri);
+			assertEquals("Unexpected number of downloads.", 1, previousRun.getDownloadCount());
+		}
+		EntityCache iut = new EntityCache(tempDir.getRoot(), 1);
+		File latest = iut.resolve(baseURI.resolve("b.xml"));
+		File[] entries = tempDir.getRoot().listFiles((dir, name) -> name.endsWith(".entry"));
+		assertEquals("Unexpected number of cache entries.", 1, entries.length);
+		assertTrue("Latest content should be retained.", latest.isFile());
+		iut.resolve(uri);
+		assertEquals("Unexpected number of downloads.", 2, iut.getDownloadCount());
+		iut.close();
+	}
+
+	@Test
+	public void keepEntriesResolvedInCurrentRun() throws IOException {
+		// the first entity alone exceeds the limit
+		EntityCache iut = new EntityCache(tempDir.getRoot(), 1);
+		File first = iut.resolve(baseURI.resolve("a.xml"));
+		byte[] content = Files.readAllBytes(first.toPath());
+		iut.resolve(baseURI.resolve("b.xml"));
+		assertTrue("First content should be retained.", first.isFile());
+		assertArrayEquals("Unexpected content.", content, Files.readAllBytes(first.toPath()));
+		assertEquals("Expected same file.", first, iut.resolve(baseURI.resolve("a.xml")));
+		iut.close();
+	}
+
+	@Test
+	public void keepEntriesUsedByOtherProcess() throws IOException {
+		File first;
+		try (EntityCache otherRun = new EntityCache(tempDir.getRoot(), 1)) {
+			first = otherRun.resolve(baseURI.resolve("a.xml"));
+		}
+		// simulates the run file of another process that is reading the content
+		File runFile = tempDir.newFile("other.run");
+		Files.write(runFile.toPath(), (first.getName() + "\n").getBytes(StandardCharsets.UTF_8));
+		try (FileChannel channel = FileChannel.open(runFile.toPath(), StandardOpenOption.WRITE);
+				FileLock lock = channel.lock(Long.MAX_VALUE - 1, 1, false)) {
+			EntityCache iut = new EntityCache(tempDir.getRoot(), 1);
+			iut.resolve(baseURI.resolve("b.xml"));
+			assertTrue("Content in use by another process should be retained.", first.isFile());
+			iut.close();
+		}
+	}
+
+	@Test
+	public void releaseDefaultEntriesWhenRunsEnd() throws IOException {
+		EntityCache iut = EntityCache.getDefault();
+		EntityCache.beginRun();
+		EntityCache.beginRun();
+		iut.resolve(baseURI.resolve("run.xml"));
+		EntityCache.endRun();
+		assertTrue("Entries should be kept while a run is in progress.", iut.hasEntriesInUse());
+		EntityCache.endRun();
+		assertFalse("Entries should be released.", iut.hasEntriesInUse());
+		// the cache remains usable once its entries have been released
+		iut.resolve(baseURI.resolve("run.xml"));
+		assertTrue("Expected entries in use.", iut.hasEntriesInUse());
+		iut.close();
+	}
+
+	@Test
+	public void errorResponseDoesNotReplaceCachedEntity() throws IOException {
+		URI uri = baseURI.resolve("note.xml");
+		EntityCache iut = new EntityCache(tempDir.getRoot(), EntityCache.DEFAULT_MAX_SIZE);
+		File cached = iut.resolve(uri);
+		byte[] content = Files.readAllBytes(cached.toPath());
+		failing.set(true);
+		File file = iut.resolve(uri);
+		assertEquals("Expected cached file.", cached, file);
+		assertArrayEquals("Unexpected content.", content, Files.readAllBytes(file.toPath()));
+		assertEquals("Unexpected number of downloads.", 1, iut.getDownloadCount());
+		// the entry still holds the original validators
+		failing.set(false);
+		iut.resolve(uri);
+		assertEquals("Unexpected number of full responses.", 1, fullResponses.get());
+	}
+
+	@Test(expected = IOException.class)
+	public void errorResponseWithoutCachedEntity() throws IOException {
+		failing.set(true);
+		new EntityCache(tempDir.getRoot(), EntityCache.DEFAULT_MAX_SIZE).resolve(baseURI.resolve("missing.xml"));
+	}
+
+}
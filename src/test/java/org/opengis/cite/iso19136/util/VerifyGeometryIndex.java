@@ -0,0 +1,54 @@
+package org.opengis.cite.iso19136.util;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.Test;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Verifies the behavior of the GeometryIndex class.
+ */
+public class VerifyGeometryIndex {
+
+	public VerifyGeometryIndex() {
+	}
+
+	@Test
+	public void indexMultiPoint() throws URISyntaxException, XMLStreamException, IOException {
+		URL url = this.getClass().getResource("/geom/MultiPoint-1.xml");
+		GeometryIndex iut = GeometryIndex.build(new File(url.toURI()), null);
+		assertEquals("Unexpected number of points.", 2, iut.count(GeometryKind.POINT));
+		assertEquals("Unexpected number of curves.", 0, iut.count(GeometryKind.CURVE));
+		assertEquals("Unexpected index size.", 2, iut.size());
+	}
+
+	@Test
+	public void findCurvesInCompositeCurve() throws URISyntaxException, XMLStreamException, IOException {
+		URL url = this.getClass().getResource("/geom/CompositeCurve.xml");
+		File dataFile = new File(url.toURI());
+		GeometryIndex iut = GeometryIndex.build(dataFile, null);
+		assertEquals("Unexpected number of composite curves.", 1, iut.count(GeometryKind.COMPOSITE_CURVE));
+		NodeList curves = iut.findElements(new GmlDocument(dataFile).getDocument(), GeometryKind.CURVE);
+		assertEquals("Unexpected number of curves.", 2, curves.getLength());
+		Element curve = (Element) curves.item(1);
+		assertEquals("Element has unexpected [local name].", "Curve", curve.getLocalName());
+	}
+
+	@Test
+	public void entryHasLocation() throws URISyntaxException, XMLStreamException, IOException {
+		URL url = this.getClass().getResource("/geom/MultiPoint-1.xml");
+		GeometryIndex iut = GeometryIndex.build(new File(url.toURI()), null);
+		GeometryIndex.Entry entry = iut.getEntries(GeometryKind.POINT).get(1);
+		assertEquals("Unexpected ordinal.", 1, entry.getOrdinal());
+		assertTrue("Expected positive line number.", entry.getLineNumber() > 0);
+	}
+
+}
@@ -0,0 +1,56 @@
+package org.opengis.cite.iso19136.util;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.net.URL;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+/**
+ * Verifies the behavior of the GmlDocument class.
+ */
+public class VerifyGmlDocument {
+
+	public VerifyGmlDocument() {
+	}
+
+	@Test
+	public void parseOnlyOnce() throws URISyntaxException {
+		URL url = this.getClass().getResource("/geom/MultiPoint-1.xml");
+		GmlDocument iut = new GmlDocument(new File(url.toURI()));
+		Document doc = iut.getDocument();
+		assertSame("Expected same document instance.", doc, iut.getDocument());
+		assertEquals("Unexpected parse count.", 1, iut.getParseCount());
+		assertEquals("Document element has unexpected [local name].", "MultiPoint",
+				doc.getDocumentElement().getLocalName());
+	}
+
+	@Test
+	public void parseAgainAfterRelease() throws URISyntaxException {
+		URL url = this.getClass().getResource("/geom/MultiPoint-1.xml");
+		GmlDocument iut = new GmlDocument(new File(url.toURI()), MemoryPolicy.DROP);
+		iut.getDocument();
+		iut.release();
+		assertFalse("Document should not be loaded.", iut.isLoaded());
+		assertNotNull(iut.getDocument());
+		assertEquals("Unexpected parse count.", 2, iut.getParseCount());
+	}
+
+	@Test
+	public void documentURIRefersToDataFile() throws URISyntaxException {
+		URL url = this.getClass().getResource("/geom/MultiPoint-1.xml");
+		File dataFile = new File(url.toURI());
+		GmlDocument iut = new GmlDocument(dataFile, MemoryPolicy.SPILL);
+		Document doc = iut.getDocument();
+		assertEquals("Unexpected document URI.", dataFile.toURI().toString(), doc.getDocumentURI());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unknownMemoryPolicy() {
+		MemoryPolicy.fromString("forget");
+	}
+
+}
@@ -0,0 +1,109 @@
+package org.opengis.cite.iso19136.util;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Collections;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.transform.stream.StreamSource;
+
+import net.sf.saxon.s9api.SaxonApiException;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * Verifies the behavior of the GmlIdIndex class.
+ */
+public class VerifyGmlIdIndex {
+
+	private static final String GML_NS = "http://www.opengis.net/gml/3.2";
+
+	private static final String XLINK_NS = "http://www.w3.org/1999/xlink";
+
+	private static DocumentBuilder docBuilder;
+
+	public VerifyGmlIdIndex() {
+	}
+
+	@BeforeClass
+	public static void initParser() throws ParserConfigurationException {
+		DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+		dbf.setNamespaceAware(true);
+		docBuilder = dbf.newDocumentBuilder();
+	}
+
+	@Test
+	public void buildFromDocument() throws SAXException, IOException {
+		String xml = "<gml:Bag xmlns:gml='" + GML_NS + "' xmlns:xlink='" + XLINK_NS + "' gml:id='b1'>"
+				+ "<gml:member><gml:Point gml:id='p1'/></gml:member>"
+				+ "<gml:member><gml:Point gml:id='p2'/></gml:member>"
+				+ "<gml:member><gml:LineString gml:id='p1'/></gml:member>"
+				+ "<gml:member xlink:href='#p2'/><gml:member xlink:href='#p3'/></gml:Bag>";
+		Document doc = docBuilder.parse(new InputSource(new StringReader(xml)));
+		GmlIdIndex iut = GmlIdIndex.build(doc);
+		assertEquals("Unexpected index size.", 3, iut.size());
+		assertEquals("Unexpected duplicate ids.", Collections.singleton("p1"), iut.getDuplicateIds());
+		assertEquals("Unexpected dangling references.", Collections.singleton("p3"), iut.getDanglingReferences());
+		Element elem = iut.findElement(doc, "p1");
+		assertNotNull("Expected matching element.", elem);
+		assertEquals("Element has unexpected local name.", "Point", elem.getLocalName());
+		assertNull("Expected no matching element.", iut.findElement(doc, "p3"));
+	}
+
+	@Test
+	public void buildFromStream() throws URISyntaxException, XMLStreamException, IOException, SAXException {
+		URL url = this.getClass().getResource("/features/FZK-Haus-LoD2-KIT.xml");
+		File dataFile = new File(url.toURI());
+		GmlIdIndex iut = GeometryIndex.build(dataFile, null).getIdIndex();
+		assertTrue("Expected no duplicate ids.", iut.getDuplicateIds().isEmpty());
+		assertEquals("Unexpected dangling references.", Collections.singleton("PolyID7356_612_880782_415367_INVALID"),
+				iut.getDanglingReferences());
+		GmlIdIndex.Entry entry = iut.getEntry("PolyID7353_166_774155_320806");
+		assertNotNull("Expected index entry.", entry);
+		assertTrue("Expected line number.", entry.getLineNumber() > 0);
+		Element elem = iut.findElement(docBuilder.parse(dataFile), "PolyID7353_166_774155_320806");
+		assertNotNull("Expected matching element.", elem);
+		assertEquals("Element has unexpected gml:id.", "PolyID7353_166_774155_320806",
+				elem.getAttributeNS(GML_NS, "id"));
+	}
+
+	@Test
+	public void indexIsKeptWithDocument() throws SAXException, IOException {
+		String xml = "<gml:Point xmlns:gml='" + GML_NS + "' gml:id='p1'/>";
+		Document doc = docBuilder.parse(new InputSource(new StringReader(xml)));
+		GmlIdIndex iut = GmlIdIndex.forDocument(doc);
+		assertSame("Expected the same index.", iut, GmlIdIndex.forDocument(doc));
+		assertEquals("Unexpected index size.", 1, iut.size());
+	}
+
+	@Test
+	public void indexIsKeptWithTinyTree() throws SaxonApiException {
+		String xml = "<gml:Bag xmlns:gml='" + GML_NS + "' gml:id='b1'>"
+				+ "<gml:member><gml:Point gml:id='p1'/></gml:member></gml:Bag>";
+		Document doc = SaxonXPath.toDocument(SaxonXPath.buildDocument(new StreamSource(new StringReader(xml))));
+		GmlIdIndex iut = GmlIdIndex.forDocument(doc);
+		assertEquals("Unexpected index size.", 2, iut.size());
+		Element elem = iut.findElement(doc, "p1");
+		assertNotNull("Expected matching element.", elem);
+		assertEquals("Element has unexpected local name.", "Point", elem.getLocalName());
+		// each owner document is a new view of the same tree
+		Document ownerDoc = elem.getOwnerDocument();
+		assertNotSame("Expected a new view.", doc, ownerDoc);
+		assertSame("Expected the same index.", iut, GmlIdIndex.forDocument(ownerDoc));
+		assertTrue("Expected the same node.", elem.isSameNode(iut.findElement(ownerDoc, "p1")));
+	}
+
+}
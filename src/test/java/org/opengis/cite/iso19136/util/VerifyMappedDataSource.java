@@ -0,0 +1,155 @@
+package org.opengis.cite.iso19136.util;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.transform.Source;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Verifies the behavior of the MappedDataSource class.
+ */
+public class VerifyMappedDataSource {
+
+	@Rule
+	public TemporaryFolder tempDir = new TemporaryFolder();
+
+	public VerifyMappedDataSource() {
+	}
+
+	@Test
+	public void readEntireContent() throws URISyntaxException, IOException {
+		URL url = this.getClass().getResource("/geom/CompositeCurve.xml");
+		File file = new File(url.toURI());
+		MappedDataSource iut = new MappedDataSource(file);
+		assertArrayEquals("Unexpected content.", Files.readAllBytes(file.toPath()), readAll(iut.openStream()));
+	}
+
+	@Test
+	public void readContentInSeveralSegments() throws URISyntaxException, IOException {
+		URL url = this.getClass().getResource("/geom/CompositeCurve.xml");
+		File file = new File(url.toURI());
+		MappedDataSource iut = new MappedDataSource(file, 100);
+		byte[] expected = Files.readAllBytes(file.toPath());
+		assertArrayEquals("Unexpected content.", expected, readAll(iut.openStream()));
+		InputStream inStream = iut.openStream();
+		assertEquals("Unexpected number of bytes skipped.", 150, inStream.skip(150));
+		assertEquals("Unexpected byte value.", expected[150], inStream.read());
+	}
+
+	@Test
+	public void streamsAreIndependent() throws URISyntaxException, IOException {
+		URL url = this.getClass().getResource("/geom/MultiPoint-1.xml");
+		MappedDataSource iut = new MappedDataSource(new File(url.toURI()));
+		InputStream first = iut.openStream();
+		first.skip(10);
+		InputStream second = iut.openStream();
+		assertEquals("Expected second stream to start at beginning.", '<', second.read());
+	}
+
+	@Test
+	public void resetToMark() throws URISyntaxException, IOException {
+		URL url = this.getClass().getResource("/geom/CompositeCurve.xml");
+		MappedDataSource iut = new MappedDataSource(new File(url.toURI()), 64);
+		InputStream inStream = iut.openStream();
+		inStream.skip(60);
+		inStream.mark(100);
+		byte[] expected = new byte[20];
+		assertEquals(4, inStream.read(expected));
+		inStream.reset();
+		byte[] actual = new byte[4];
+		assertEquals(4, inStream.read(actual));
+		assertArrayEquals("Unexpected content after reset.", Arrays.copyOf(expected, 4), actual);
+	}
+
+	@Test
+	public void sourceHasSystemId() throws URISyntaxException, IOException {
+		URL url = this.getClass().getResource("/geom/MultiPoint-1.xml");
+		File file = new File(url.toURI());
+		Source src = new MappedDataSource(file).getSource();
+		assertEquals("Unexpected system id.", file.toURI().toString(), src.getSystemId());
+	}
+
+	@Test
+	public void readGzipContent() throws URISyntaxException, IOException {
+		File file = new File(this.getClass().getResource("/geom/CompositeCurve.xml").toURI());
+		byte[] expected = Files.readAllBytes(file.toPath());
+		File gzFile = tempDir.newFile("CompositeCurve.xml.gz");
+		try (OutputStream out = new GZIPOutputStream(new FileOutputStream(gzFile))) {
+			out.write(expected);
+		}
+		MappedDataSource iut = new MappedDataSource(gzFile, 100);
+		assertEquals("Unexpected compression.", Compression.GZIP, iut.getCompression());
+		assertArrayEquals("Unexpected content.", expected, readAll(iut.openStream()));
+		assertEquals("Unexpected system id.", gzFile.toURI().toString(), iut.getSystemId());
+	}
+
+	@Test
+	public void readBzip2Content() throws URISyntaxException, IOException {
+		File file = new File(this.getClass().getResource("/geom/MultiPoint-1.xml").toURI());
+		byte[] expected = Files.readAllBytes(file.toPath());
+		File bz2File = tempDir.newFile("MultiPoint-1.xml.bz2");
+		try (OutputStream out = new BZip2CompressorOutputStream(new FileOutputStream(bz2File))) {
+			out.write(expected);
+		}
+		MappedDataSource iut = new MappedDataSource(bz2File);
+		assertEquals("Unexpected compression.", Compression.BZIP2, iut.getCompression());
+		assertArrayEquals("Unexpected content.", expected, readAll(iut.openStream()));
+	}
+
+	@Test
+	public void readDataEntryFromZipArchive() throws URISyntaxException, IOException, XMLStreamException {
+		File file = new File(this.getClass().getResource("/Alpha-1.xml").toURI());
+		byte[] expected = Files.readAllBytes(file.toPath());
+		File zipFile = tempDir.newFile("delivery.zip");
+		try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zipFile))) {
+			out.putNextEntry(new ZipEntry("xsd/alpha.xsd"));
+			Files.copy(new File(file.getParentFile(), "xsd/alpha.xsd").toPath(), out);
+			out.putNextEntry(new ZipEntry("Alpha 1.xml"));
+			out.write(expected);
+		}
+		MappedDataSource iut = new MappedDataSource(zipFile);
+		assertEquals("Unexpected compression.", Compression.ZIP, iut.getCompression());
+		assertArrayEquals("Unexpected content.", expected, readAll(iut.openStream()));
+		String systemId = iut.getSystemId();
+		assertEquals("Unexpected system id.", "jar:" + zipFile.toURI() + "!/Alpha%201.xml", systemId);
+		Set<URI> schemaRefs = ValidationUtils.extractSchemaReferences(iut.getSource(), null);
+		URI schemaRef = schemaRefs.iterator().next();
+		assertEquals("Unexpected schema reference.", "jar:" + zipFile.toURI() + "!/xsd/alpha.xsd",
+				schemaRef.toString());
+		try (InputStream schemaStream = schemaRef.toURL().openStream()) {
+			assertTrue("Expected schema content.", schemaStream.read() > 0);
+		}
+	}
+
+	private static byte[] readAll(InputStream inStream) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buf = new byte[37];
+		int n;
+		while ((n = inStream.read(buf)) > 0) {
+			out.write(buf, 0, n);
+		}
+		return out.toByteArray();
+	}
+
+}
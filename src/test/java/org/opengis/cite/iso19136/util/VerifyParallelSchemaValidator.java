@@ -0,0 +1,215 @@
+package org.opengis.cite.iso19136.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.Validator;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+/**
+ * Verifies the behavior of the ParallelSchemaValidator class. A small schema stands in
+ * for a GML application schema.
+ */
+public class VerifyParallelSchemaValidator {
+
+	private static final String GML_NS = "http://www.opengis.net/gml/3.2";
+
+	private static Schema schema;
+
+	@Rule
+	public TemporaryFolder tempDir = new TemporaryFolder();
+
+	@BeforeClass
+	public static void compileSchema() throws SAXException {
+		String xsd = "<xs:schema xmlns:xs='" + XMLConstants.W3C_XML_SCHEMA_NS_URI + "' xmlns:gml='" + GML_NS
+				+ "' targetNamespace='" + GML_NS + "' elementFormDefault='qualified'>"
+				+ "<xs:element name='FeatureCollection'><xs:complexType><xs:sequence>"
+				+ "<xs:element name='name' type='xs:string'/>"
+				+ "<xs:element name='member' minOccurs='0' maxOccurs='unbounded'><xs:complexType><xs:sequence>"
+				+ "<xs:element ref='gml:Item'/></xs:sequence></xs:complexType></xs:element>"
+				+ "<xs:element name='featureMembers' minOccurs='0'><xs:complexType><xs:sequence>"
+				+ "<xs:element ref='gml:Item' maxOccurs='unbounded'/></xs:sequence></xs:complexType></xs:element>"
+				+ "</xs:sequence><xs:attribute name='count' type='xs:int' use='required'/>"
+				+ "</xs:complexType></xs:element>"
+				+ "<xs:element name='Item'><xs:complexType><xs:sequence>"
+				+ "<xs:element name='value' type='xs:int'/></xs:sequence>"
+				+ "<xs:attribute name='id' type='xs:ID' form='qualified' use='required'/>"
+				+ "<xs:attribute name='ref' type='xs:IDREF' form='qualified'/>"
+				+ "</xs:complexType></xs:element></xs:schema>";
+		SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+		schema = factory.newSchema(new StreamSource(new StringReader(xsd)));
+	}
+
+	@Test
+	public void sameErrorsAsSequential() throws SAXException, IOException {
+		File dataFile = writeCollection("count='4'", "<gml:name>c</gml:name>", "<gml:value>1</gml:value>",
+				"<gml:value>x</gml:value>", "<gml:value>3</gml:value>", "<gml:value>4.5</gml:value>");
+		List<SAXParseException> expected = validateSequentially(dataFile);
+		List<SAXParseException> errors = validateInParallel(dataFile);
+		assertEquals("Unexpected number of errors.", expected.size(), errors.size());
+		for (int i = 0; i < errors.size(); i++) {
+			assertEquals(expected.get(i).getMessage(), errors.get(i).getMessage());
+			assertEquals(expected.get(i).getLineNumber(), errors.get(i).getLineNumber());
+			assertEquals(expected.get(i).getColumnNumber(), errors.get(i).getColumnNumber());
+		}
+	}
+
+	@Test
+	public void documentElementErrorsReportedOnce() throws SAXException, IOException {
+		File dataFile = writeCollection("", "", "<gml:value>1</gml:value>", "<gml:value>2</gml:value>",
+				"<gml:value>3</gml:value>");
+		List<SAXParseException> errors = validateInParallel(dataFile);
+		// missing count attribute, missing name element (detected at the first member)
+		assertEquals("Unexpected number of errors: " + errors, validateSequentially(dataFile).size(), errors.size());
+		assertEquals(5, errors.get(errors.size() - 1).getLineNumber());
+	}
+
+	@Test
+	public void duplicateIdsInDifferentChunks() throws SAXException, IOException {
+		String item = "<gml:member><gml:Item gml:id='%s'%s><gml:value>1</gml:value></gml:Item></gml:member>";
+		String data = "<gml:FeatureCollection xmlns:gml='" + GML_NS + "' count='3'>\n<gml:name>c</gml:name>\n"
+				+ String.format(item, "i1", " gml:ref='i3'") + "\n" + String.format(item, "i2", "") + "\n"
+				+ String.format(item, "i1", "") + "\n" + "</gml:FeatureCollection>";
+		File dataFile = tempDir.newFile("ids.xml");
+		Files.write(dataFile.toPath(), data.getBytes(StandardCharsets.UTF_8));
+		List<SAXParseException> errors = validateInParallel(dataFile);
+		// IDREF to i3 is not resolved anywhere
+		assertEquals("Unexpected number of errors: " + errors, 2, errors.size());
+		assertTrue(errors.get(0).getMessage(), errors.get(0).getMessage().startsWith("cvc-id.2"));
+		assertEquals(5, errors.get(0).getLineNumber());
+		assertTrue(errors.get(1).getMessage(), errors.get(1).getMessage().startsWith("cvc-id.1"));
+		List<SAXParseException> expected = validateSequentially(dataFile);
+		assertEquals(expected.get(expected.size() - 1).getLineNumber(), errors.get(1).getLineNumber());
+	}
+
+	@Test
+	public void idRefResolvedInOtherChunk() throws SAXException, IOException {
+		String item = "<gml:member><gml:Item gml:id='%s'%s><gml:value>1</gml:value></gml:Item></gml:member>";
+		String data = "<gml:FeatureCollection xmlns:gml='" + GML_NS + "' count='2'><gml:name>c</gml:name>"
+				+ String.format(item, "i1", " gml:ref='i2'") + String.format(item, "i2", "")
+				+ "</gml:FeatureCollection>";
+		File dataFile = tempDir.newFile("idref.xml");
+		Files.write(dataFile.toPath(), data.getBytes(StandardCharsets.UTF_8));
+		assertEquals("Unexpected errors.", 0, validateInParallel(dataFile).size());
+	}
+
+	@Test
+	public void cutWithinFeatureMembers() throws SAXException, IOException {
+		StringBuilder data = new StringBuilder("<?xml version='1.0'?>\n");
+		data.append("<gml:FeatureCollection xmlns:gml='").append(GML_NS).append("' count='4'>\n");
+		data.append("  <gml:name>c</gml:name>\n  <gml:featureMembers>\n");
+		String[] values = { "1", "x", "3", "4.5" };
+		for (int i = 0; i < values.length; i++) {
+			data.append("    <gml:Item gml:id='f").append(i).append("'>\n      <gml:value>").append(values[i]);
+			data.append("</gml:value>\n    </gml:Item>\n");
+		}
+		data.append("  </gml:featureMembers>\n</gml:FeatureCollection>\n");
+		File dataFile = tempDir.newFile("featureMembers.xml");
+		Files.write(dataFile.toPath(), data.toString().getBytes(StandardCharsets.UTF_8));
+		ParallelSchemaValidator iut = new ParallelSchemaValidator(schema, 2);
+		iut.setChunkSize(1);
+		RecordingHandler handler = new RecordingHandler();
+		iut.validate(new MappedDataSource(dataFile), handler);
+		assertEquals("Unexpected number of chunks.", values.length, iut.getChunkCount());
+		assertSameErrors(validateSequentially(dataFile), handler.errors);
+	}
+
+	@Test
+	public void validateWholeDocumentWithoutMembers() throws SAXException, IOException {
+		StringBuilder data = new StringBuilder("<?xml version='1.0'?>\n");
+		data.append("<gml:Item xmlns:gml='").append(GML_NS).append("' gml:id='i1'>\n");
+		data.append("  <gml:value>x</gml:value>\n");
+		for (int i = 0; i < 50; i++) {
+			data.append("  <!-- padding -->\n");
+		}
+		data.append("  <gml:value>2</gml:value>\n</gml:Item>\n");
+		File dataFile = tempDir.newFile("item.xml");
+		Files.write(dataFile.toPath(), data.toString().getBytes(StandardCharsets.UTF_8));
+		ParallelSchemaValidator iut = new ParallelSchemaValidator(schema, 2);
+		iut.setChunkSize(1);
+		iut.setMaxChunkSize(64);
+		RecordingHandler handler = new RecordingHandler();
+		iut.validate(new MappedDataSource(dataFile), handler);
+		assertEquals("Expected document to be validated as a whole.", 0, iut.getChunkCount());
+		assertSameErrors(validateSequentially(dataFile), handler.errors);
+	}
+
+	private static void assertSameErrors(List<SAXParseException> expected, List<SAXParseException> errors) {
+		assertEquals("Unexpected number of errors: " + errors, expected.size(), errors.size());
+		for (int i = 0; i < errors.size(); i++) {
+			assertEquals(expected.get(i).getMessage(), errors.get(i).getMessage());
+			assertEquals(expected.get(i).getLineNumber(), errors.get(i).getLineNumber());
+			assertEquals(expected.get(i).getColumnNumber(), errors.get(i).getColumnNumber());
+		}
+	}
+
+	private File writeCollection(String attributes, String header, String... values) throws IOException {
+		StringBuilder data = new StringBuilder("<?xml version='1.0'?>\n");
+		data.append("<gml:FeatureCollection xmlns:gml='").append(GML_NS).append("'\n  ").append(attributes);
+		data.append(">\n  ").append(header).append('\n');
+		for (int i = 0; i < values.length; i++) {
+			data.append("  <gml:member>\n    <gml:Item\n      gml:id='f").append(i).append("'>");
+			data.append(values[i]).append("</gml:Item>\n  </gml:member>\n");
+		}
+		data.append("</gml:FeatureCollection>\n");
+		File dataFile = tempDir.newFile("collection.xml");
+		Files.write(dataFile.toPath(), data.toString().getBytes(StandardCharsets.UTF_8));
+		return dataFile;
+	}
+
+	private List<SAXParseException> validateInParallel(File dataFile) throws SAXException, IOException {
+		ParallelSchemaValidator validator = new ParallelSchemaValidator(schema, 2);
+		validator.setChunkSize(1);
+		RecordingHandler handler = new RecordingHandler();
+		validator.validate(new MappedDataSource(dataFile), handler);
+		return handler.errors;
+	}
+
+	private List<SAXParseException> validateSequentially(File dataFile) throws SAXException, IOException {
+		Validator validator = schema.newValidator();
+		RecordingHandler handler = new RecordingHandler();
+		validator.setErrorHandler(handler);
+		validator.validate(new StreamSource(dataFile));
+		return handler.errors;
+	}
+
+	private static class RecordingHandler implements ErrorHandler {
+
+		final List<SAXParseException> errors = new ArrayList<SAXParseException>();
+
+		@Override
+		public void warning(SAXParseException exception) {
+		}
+
+		@Override
+		public void error(SAXParseException exception) {
+			errors.add(exception);
+		}
+
+		@Override
+		public void fatalError(SAXParseException exception) throws SAXException {
+			throw exception;
+		}
+
+	}
+
+}
@@ -0,0 +1,86 @@
+package org.opengis.cite.iso19136.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+
+import javax.xml.validation.Schema;
+
+import org.apache.xerces.xs.XSConstants;
+import org.apache.xerces.xs.XSModel;
+import org.junit.Test;
+import org.opengis.cite.iso19136.GML32;
+import org.opengis.cite.validation.XSModelBuilder;
+import org.xml.sax.SAXException;
+
+/**
+ * Verifies the behavior of the PooledSchemaCompiler class.
+ */
+public class VerifyPooledSchemaCompiler {
+
+	private static final String CITIES_NS = "http://www.interactive-instruments.de/namespaces/demo/cities/2.0/cities";
+
+	@Test
+	public void compileSchemaImportingFullGML() throws URISyntaxException, SAXException, IOException {
+		URI xsdURI = getClass().getResource("/xsd/cities.xsd").toURI();
+		for (int i = 0; i < 2; i++) {
+			PooledSchemaCompiler iut = new PooledSchemaCompiler(GmlVersion.V322);
+			Schema schema = iut.compileXmlSchema(new URI[] { xsdURI });
+			assertNotNull(schema);
+			assertFalse(iut.getErrorHandler().toString(), iut.getErrorHandler().errorsDetected());
+			XSModel model = XSModelBuilder.buildXMLSchemaModel(schema, CITIES_NS);
+			assertEquals("Unexpected number of GML elements.", GML32.TOTAL_GLOBAL_ELEMS,
+					model.getComponentsByNamespace(XSConstants.ELEMENT_DECLARATION, GML32.NS_NAME).getLength());
+		}
+	}
+
+	@Test
+	public void compileSchemaWithoutGML() throws URISyntaxException, SAXException, IOException {
+		URI xsdURI = getClass().getResource("/xsd/alpha.xsd").toURI();
+		PooledSchemaCompiler iut = new PooledSchemaCompiler(GmlVersion.V322);
+		Schema schema = iut.compileXmlSchema(new URI[] { xsdURI });
+		assertNotNull(schema);
+		XSModel model = XSModelBuilder.buildXMLSchemaModel(schema, "http://www.example.net/alpha");
+		assertEquals("Unexpected number of GML elements.", 0,
+				model.getComponentsByNamespace(XSConstants.ELEMENT_DECLARATION, GML32.NS_NAME).getLength());
+	}
+
+	@Test
+	public void compileIndependentSchemas() throws URISyntaxException, SAXException, IOException {
+		URI[] xsdRefs = { getClass().getResource("/xsd/alpha.xsd").toURI(),
+				getClass().getResource("/xsd/cities.xsd").toURI() };
+		PooledSchemaCompiler iut = new PooledSchemaCompiler(GmlVersion.V322);
+		Schema schema = iut.compileXmlSchema(xsdRefs);
+		assertNotNull(schema);
+		assertFalse(iut.getErrorHandler().toString(), iut.getErrorHandler().errorsDetected());
+		XSModel model = XSModelBuilder.buildXMLSchemaModel(schema, CITIES_NS);
+		assertNotNull(model.getElementDeclaration("City", CITIES_NS));
+		assertNotNull(XSModelBuilder.buildXMLSchemaModel(schema, "http://www.example.net/alpha")
+			.getElementDeclaration("Alpha", "http://www.example.net/alpha"));
+		assertEquals("Unexpected number of GML elements.", GML32.TOTAL_GLOBAL_ELEMS,
+				model.getComponentsByNamespace(XSConstants.ELEMENT_DECLARATION, GML32.NS_NAME).getLength());
+	}
+
+	@Test
+	public void reportProgress() throws URISyntaxException, SAXException, IOException {
+		URI xsdURI = getClass().getResource("/xsd/alpha.xsd").toURI();
+		PooledSchemaCompiler iut = new PooledSchemaCompiler(GmlVersion.V322);
+		iut.compileXmlSchema(new URI[] { xsdURI });
+		CompileProgress progress = iut.getProgress();
+		assertEquals("Unexpected number of documents.", 3, progress.getDocumentCount());
+		assertEquals("Unexpected number of grammars.", 3, progress.getGrammarCount());
+		assertTrue(progress.getByteCount() > 0);
+	}
+
+	@Test
+	public void bundledSchemaSystemIds() throws SAXException, IOException {
+		assertEquals("Unexpected number of bundled schemas.", 8,
+				GrammarPools.getSchemaSystemIds(GmlVersion.V322.getSchemaCatalog()).size());
+	}
+
+}
@@ -0,0 +1,73 @@
+package org.opengis.cite.iso19136.util;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.net.URL;
+
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpressionException;
+
+import net.sf.saxon.s9api.SaxonApiException;
+import net.sf.saxon.s9api.XPathExecutable;
+
+import org.junit.Test;
+import org.opengis.cite.iso19136.GML32;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Verifies the behavior of the SaxonXPath class.
+ */
+public class VerifySaxonXPath {
+
+	public VerifySaxonXPath() {
+	}
+
+	@Test
+	public void compileOnlyOnce() throws SaxonApiException {
+		XPathExecutable first = SaxonXPath.compile("//gml:Curve", null);
+		assertSame("Expected cached expression.", first, SaxonXPath.compile("//gml:Curve", null));
+	}
+
+	@Test
+	public void evaluateOverTinyTree() throws URISyntaxException, XPathExpressionException {
+		Document doc = loadTinyTree("/geom/CompositeCurve.xml");
+		assertTrue("Expected Saxon node.", SaxonXPath.isSaxonNode(doc));
+		NodeList curves = XMLUtils.evaluateXPath(doc, "//gml:Curve", null);
+		assertEquals("Unexpected number of curves.", 2, curves.getLength());
+		Element curve = (Element) curves.item(1);
+		assertEquals("Unexpected gml:id.", "Curve-3", curve.getAttributeNS(GML32.NS_NAME, "id"));
+		NodeList segments = XMLUtils.evaluateXPath(curve, "gml:segments/*", null);
+		assertEquals("Unexpected number of segments.", 2, segments.getLength());
+		assertEquals("Unexpected srsName.", "urn:ogc:def:crs:EPSG::4326",
+				XMLUtils.evaluateXPath(curve, "@srsName", null, XPathConstants.STRING));
+		assertEquals("Unexpected count.", 5.0,
+				XMLUtils.evaluateXPath(doc, "count(//gml:pos | //gml:posList)", null, XPathConstants.NUMBER));
+		assertEquals("Unexpected boolean value.", Boolean.TRUE,
+				XMLUtils.evaluateXPath(doc, "//gml:OrientableCurve", null, XPathConstants.BOOLEAN));
+	}
+
+	@Test
+	public void gmlDocumentWithTinyTree() throws URISyntaxException {
+		URL url = this.getClass().getResource("/geom/CompositeCurve.xml");
+		File dataFile = new File(url.toURI());
+		GmlDocument iut = new GmlDocument(new MappedDataSource(dataFile), MemoryPolicy.KEEP,
+				DocumentModel.TINYTREE);
+		Document doc = iut.getDocument();
+		assertTrue("Expected Saxon node.", SaxonXPath.isSaxonNode(doc));
+		assertEquals("Unexpected document URI.", dataFile.toURI().toString(), doc.getDocumentURI());
+		NodeList curves = doc.getElementsByTagNameNS(GML32.NS_NAME, "Curve");
+		assertEquals("Unexpected number of curves.", 2, curves.getLength());
+	}
+
+	private Document loadTinyTree(String resource) throws URISyntaxException {
+		URL url = this.getClass().getResource(resource);
+		GmlDocument gmlDoc = new GmlDocument(new MappedDataSource(new File(url.toURI())), null,
+				DocumentModel.TINYTREE);
+		return gmlDoc.getDocument();
+	}
+
+}
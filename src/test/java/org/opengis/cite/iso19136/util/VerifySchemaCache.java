@@ -0,0 +1,140 @@
+package org.opengis.cite.iso19136.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Set;
+
+import javax.xml.validation.Schema;
+
+import org.apache.xerces.jaxp.validation.XSGrammarPoolContainer;
+import org.apache.xerces.xni.grammars.Grammar;
+import org.apache.xerces.xni.grammars.XMLGrammarDescription;
+import org.apache.xerces.xs.XSModel;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.opengis.cite.validation.XSModelBuilder;
+import org.xml.sax.SAXException;
+
+/**
+ * Verifies the behavior of the SchemaCache class. The test schemas are copied to a
+ * temporary directory so that they can be modified.
+ */
+public class VerifySchemaCache {
+
+	private static final String ALPHA_NS = "http://www.example.net/alpha";
+
+	private static final String BETA_NS = "http://www.example.net/beta";
+
+	private static final String GAMMA_NS = "http://www.example.net/gamma";
+
+	@Rule
+	public TemporaryFolder tempDir = new TemporaryFolder();
+
+	private Set<URI> schemaLocations;
+
+	@Before
+	public void copySchemas() throws IOException {
+		for (String name : new String[] { "alpha.xsd", "beta.xsd", "gamma.xsd" }) {
+			try (InputStream in = getClass().getResourceAsStream("/xsd/" + name)) {
+				Files.copy(in, new File(tempDir.getRoot(), name).toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		this.schemaLocations = Collections.singleton(new File(tempDir.getRoot(), "alpha.xsd").toURI());
+	}
+
+	@Test
+	public void cachedSchemaIsReused() throws SAXException, IOException {
+		SchemaCache iut = new SchemaCache(4);
+		Schema schema = iut.getOrCompile(schemaLocations, GmlVersion.V322, new PooledSchemaCompiler(GmlVersion.V322));
+		assertNotNull(schema);
+		assertSame(schema, iut.getOrCompile(schemaLocations, GmlVersion.V322,
+				new PooledSchemaCompiler(GmlVersion.V322)));
+		assertEquals("Unexpected number of entries.", 1, iut.size());
+	}
+
+	@Test
+	public void modifiedDependencyIsRecompiled() throws SAXException, IOException {
+		SchemaCache iut = new SchemaCache(4);
+		Schema schema = iut.getOrCompile(schemaLocations, GmlVersion.V322, new PooledSchemaCompiler(GmlVersion.V322));
+		Files.write(new File(tempDir.getRoot(), "gamma.xsd").toPath(),
+				"<!-- modified -->\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+		assertNull(iut.getSchema(schemaLocations, GmlVersion.V322));
+		assertNotSame(schema, iut.getOrCompile(schemaLocations, GmlVersion.V322,
+				new PooledSchemaCompiler(GmlVersion.V322)));
+	}
+
+	@Test
+	public void unaffectedGrammarsAreReused() throws SAXException, IOException {
+		SchemaCache iut = new SchemaCache(4);
+		Schema schema = iut.getOrCompile(schemaLocations, GmlVersion.V322, new PooledSchemaCompiler(GmlVersion.V322));
+		Files.write(new File(tempDir.getRoot(), "alpha.xsd").toPath(),
+				"<!-- modified -->\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+		PooledSchemaCompiler compiler = new PooledSchemaCompiler(GmlVersion.V322);
+		Schema newSchema = iut.getOrCompile(schemaLocations, GmlVersion.V322, compiler);
+		assertFalse(compiler.getErrorHandler().errorsDetected());
+		assertNotSame(getGrammar(schema, ALPHA_NS), getGrammar(newSchema, ALPHA_NS));
+		// beta.xsd imports gamma.xsd, neither of which has changed
+		assertSame(getGrammar(schema, BETA_NS), getGrammar(newSchema, BETA_NS));
+		assertSame(getGrammar(schema, GAMMA_NS), getGrammar(newSchema, GAMMA_NS));
+	}
+
+	@Test
+	public void importingGrammarsAreRebuilt() throws SAXException, IOException {
+		SchemaCache iut = new SchemaCache(4);
+		Schema schema = iut.getOrCompile(schemaLocations, GmlVersion.V322, new PooledSchemaCompiler(GmlVersion.V322));
+		Files.write(new File(tempDir.getRoot(), "beta.xsd").toPath(),
+				"<!-- modified -->\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+		Schema newSchema = iut.getOrCompile(schemaLocations, GmlVersion.V322,
+				new PooledSchemaCompiler(GmlVersion.V322));
+		assertNotSame(getGrammar(schema, ALPHA_NS), getGrammar(newSchema, ALPHA_NS));
+		assertNotSame(getGrammar(schema, BETA_NS), getGrammar(newSchema, BETA_NS));
+		assertSame(getGrammar(schema, GAMMA_NS), getGrammar(newSchema, GAMMA_NS));
+		assertNotNull(XSModelBuilder.buildXMLSchemaModel(newSchema, ALPHA_NS).getElementDeclaration("Beta", BETA_NS));
+	}
+
+	@Test
+	public void invalidateRemovesEntry() throws SAXException, IOException {
+		SchemaCache iut = new SchemaCache(4);
+		iut.getOrCompile(schemaLocations, GmlVersion.V322, new PooledSchemaCompiler(GmlVersion.V322));
+		iut.invalidate(schemaLocations);
+		assertEquals("Unexpected number of entries.", 0, iut.size());
+		assertNull(iut.getSchema(schemaLocations, GmlVersion.V322));
+	}
+
+	@Test
+	public void cachedModelIsReused() throws SAXException, IOException {
+		SchemaCache iut = new SchemaCache(4);
+		Schema schema = iut.getOrCompile(schemaLocations, GmlVersion.V322, new PooledSchemaCompiler(GmlVersion.V322));
+		assertNull(iut.getModel(schema, ALPHA_NS));
+		XSModel model = XSModelBuilder.buildXMLSchemaModel(schema, ALPHA_NS);
+		iut.putModel(schema, ALPHA_NS, model);
+		assertSame(model, iut.getModel(schema, ALPHA_NS));
+	}
+
+	private static Grammar getGrammar(Schema schema, String namespace) {
+		for (Grammar grammar : ((XSGrammarPoolContainer) schema).getGrammarPool()
+			.retrieveInitialGrammarSet(XMLGrammarDescription.XML_SCHEMA)) {
+			if (namespace.equals(grammar.getGrammarDescription().getNamespace())) {
+				return grammar;
+			}
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,172 @@
+package org.opengis.cite.iso19136.util;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.xml.validation.Schema;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Verifies the behavior of the SchemaCompilation class.
+ */
+public class VerifySchemaCompilation {
+
+	private ServerSocket server;
+
+	private final List<Socket> connections = Collections.synchronizedList(new ArrayList<Socket>());
+
+	@Rule
+	public TemporaryFolder tempDir = new TemporaryFolder();
+
+	@Before
+	public void startServer() throws IOException {
+		// accepts connections but never responds
+		server = new ServerSocket(0);
+		Thread acceptor = new Thread(() -> {
+			try {
+				while (true) {
+					connections.add(server.accept());
+				}
+			}
+			catch (IOException e) {
+				// server closed
+			}
+		});
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	@After
+	public void stopServer() throws IOException {
+		server.close();
+		for (Socket socket : connections) {
+			socket.close();
+		}
+	}
+
+	@Test
+	public void abandonStalledCompilation() throws Exception {
+		File xsdFile = tempDir.newFile("stalled.xsd");
+		String xsd = "<xs:schema xmlns:xs='http://www.w3.org/2001/XMLSchema' targetNamespace='http://example.org/ns1'>"
+				+ "<xs:include schemaLocation='http://localhost:" + server.getLocalPort() + "/ns1.xsd'/></xs:schema>";
+		Files.write(xsdFile.toPath(), xsd.getBytes(StandardCharsets.UTF_8));
+		SchemaCompilation iut = SchemaCompilation.start(Collections.singleton(xsdFile.toURI()), GmlVersion.V322);
+		long start = System.currentTimeMillis();
+		try {
+			iut.getSchema(new CompileBudget(60000, 500));
+			fail("Expected TimeoutException.");
+		}
+		catch (TimeoutException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("no progress"));
+		}
+		assertTrue("Compilation not abandoned early.", System.currentTimeMillis() - start < 30000);
+		assertTrue(iut.getProgress().isAborted());
+	}
+
+	@Test
+	public void unresponsiveServerTimesOut() throws IOException {
+		CompileProgress progress = new CompileProgress();
+		progress.setBudget(new CompileBudget(60000, 500));
+		long start = System.currentTimeMillis();
+		try (InputStream in = progress.open("http://localhost:" + server.getLocalPort() + "/ns1.xsd")) {
+			in.read();
+			fail("Expected SocketTimeoutException.");
+		}
+		catch (SocketTimeoutException e) {
+			assertTrue("Read not abandoned early.", System.currentTimeMillis() - start < 30000);
+		}
+	}
+
+	@Test
+	public void compileSchemaWhileDataIsTransferred() throws Exception {
+		// serves the data slowly, and delays the first response for the schema
+		HttpServer httpServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		ExecutorService executor = Executors.newCachedThreadPool();
+		httpServer.setExecutor(executor);
+		String baseURI = "http://localhost:" + httpServer.getAddress().getPort() + "/";
+		CountDownLatch schemaServed = new CountDownLatch(1);
+		AtomicBoolean servedInTime = new AtomicBoolean();
+		AtomicInteger schemaRequests = new AtomicInteger();
+		httpServer.createContext("/ns1.xsd", exchange -> {
+			byte[] xsd = ("<xs:schema xmlns:xs='http://www.w3.org/2001/XMLSchema' "
+					+ "targetNamespace='http://example.org/ns1'><xs:element name='Data' type='xs:string'/>"
+					+ "</xs:schema>")
+				.getBytes(StandardCharsets.UTF_8);
+			try {
+				if (schemaRequests.incrementAndGet() == 1) {
+					Thread.sleep(1000);
+				}
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			exchange.sendResponseHeaders(200, xsd.length);
+			try (OutputStream os = exchange.getResponseBody()) {
+				os.write(xsd);
+			}
+			schemaServed.countDown();
+		});
+		httpServer.createContext("/data.xml", exchange -> {
+			exchange.sendResponseHeaders(200, 0);
+			try (OutputStream os = exchange.getResponseBody()) {
+				os.write(("<Data xmlns='http://example.org/ns1' "
+						+ "xmlns:xsi='http://www.w3.org/2001/XMLSchema-instance' "
+						+ "xsi:schemaLocation='http://example.org/ns1 " + baseURI + "ns1.xsd'>")
+					.getBytes(StandardCharsets.UTF_8));
+				os.flush();
+				// the rest of the data follows once the schema has been fetched
+				servedInTime.set(schemaServed.await(10, TimeUnit.SECONDS));
+				os.write("text</Data>".getBytes(StandardCharsets.UTF_8));
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		httpServer.start();
+		try {
+			AtomicReference<SchemaCompilation> compilation = new AtomicReference<SchemaCompilation>();
+			URIUtils.resolveURIAsFile(URI.create(baseURI + "data.xml"), probe -> compilation
+				.set(SchemaCompilation.start(probe.getSchemaReferences(null), GmlVersion.V322)));
+			assertNotNull("Expected compilation to start.", compilation.get());
+			assertTrue("Schema not fetched while the data was transferred.", servedInTime.get());
+			Schema schema = compilation.get().getSchema(new CompileBudget(60000, 500));
+			assertNotNull("Expected schema.", schema);
+		}
+		finally {
+			httpServer.stop(0);
+			executor.shutdownNow();
+		}
+	}
+
+}
@@ -0,0 +1,38 @@
+package org.opengis.cite.iso19136.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Verifies the behavior of the SchemaDependencyGraph class.
+ */
+public class VerifySchemaDependencyGraph {
+
+	private final SchemaDependencyGraph iut = new SchemaDependencyGraph(
+			GrammarPools.newCatalogResolver(GmlVersion.V322.getSchemaCatalog()));
+
+	@Test
+	public void independentSchemas() throws URISyntaxException {
+		URI[] xsdRefs = { getClass().getResource("/xsd/alpha.xsd").toURI(),
+				getClass().getResource("/xsd/cities.xsd").toURI() };
+		List<List<URI>> groups = iut.partition(xsdRefs);
+		assertEquals("Unexpected number of groups.", 2, groups.size());
+		assertEquals(Arrays.asList(xsdRefs[0]), groups.get(0));
+	}
+
+	@Test
+	public void schemasImportingCommonSchema() throws URISyntaxException {
+		URI[] xsdRefs = { getClass().getResource("/xsd/cities.xsd").toURI(),
+				getClass().getResource("/xsd/alpha.xsd").toURI(), getClass().getResource("/xsd/gamma.xsd").toURI() };
+		List<List<URI>> groups = iut.partition(xsdRefs);
+		assertEquals("Unexpected number of groups.", 2, groups.size());
+		assertEquals(Arrays.asList(xsdRefs[1], xsdRefs[2]), groups.get(1));
+	}
+
+}
@@ -0,0 +1,100 @@
+package org.opengis.cite.iso19136.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+
+import org.apache.xerces.xs.XSConstants;
+import org.apache.xerces.xs.XSElementDeclaration;
+import org.apache.xerces.xs.XSModel;
+import org.apache.xerces.xs.XSTypeDefinition;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opengis.cite.iso19136.GML32;
+import org.opengis.cite.validation.XSModelBuilder;
+import org.opengis.cite.validation.XmlSchemaCompiler;
+
+/**
+ * Verifies the behavior of the SchemaModelIndex class.
+ */
+public class VerifySchemaModelIndex {
+
+	private static final String CITIES_NS = "http://www.interactive-instruments.de/namespaces/demo/cities/2.0/cities";
+
+	private static XSModel model;
+
+	@BeforeClass
+	public static void buildModel() throws Exception {
+		URL schemaCatalog = VerifySchemaModelIndex.class.getResource("/schema-catalog.xml");
+		URL url = VerifySchemaModelIndex.class.getResource("/xsd/cities.xsd");
+		Schema xsd = new XmlSchemaCompiler(schemaCatalog)
+			.compileXmlSchema(new StreamSource(url.openStream(), url.toString()));
+		model = XSModelBuilder.buildXMLSchemaModel(xsd, CITIES_NS);
+	}
+
+	@Test
+	public void indexIsBuiltOncePerModel() {
+		assertSame(SchemaModelIndex.forModel(model), SchemaModelIndex.forModel(model));
+	}
+
+	@Test
+	public void substitutionGroupMembership() {
+		SchemaModelIndex iut = SchemaModelIndex.forModel(model);
+		XSElementDeclaration feature = model.getElementDeclaration(GML32.ABSTRACT_FEATURE, GML32.NS_NAME);
+		XSElementDeclaration city = model.getElementDeclaration("City", CITIES_NS);
+		assertTrue(iut.isSubstitutableFor(city, feature));
+		assertFalse(iut.isSubstitutableFor(feature, feature));
+		assertEquals(model.getSubstitutionGroup(feature).getLength(), iut.getSubstitutionGroup(feature).size());
+	}
+
+	@Test
+	public void globalElementsByAncestorType() {
+		XSTypeDefinition featureType = model.getTypeDefinition(GML32.ABSTRACT_FEATURE_TYPE, GML32.NS_NAME);
+		List<XSElementDeclaration> features = SchemaModelIndex.forModel(model).getGlobalElementsByType(featureType);
+		assertEquals("Unexpected number of feature declarations.", 4, features.size());
+	}
+
+	@Test
+	public void concurrentAnalysesAgree() throws Exception {
+		XSElementDeclaration geometry = model.getElementDeclaration(GML32.ABSTRACT_GEOMETRY, GML32.NS_NAME);
+		List<XSElementDeclaration> expected = XMLSchemaModelUtils.getImplicitProperties(model, geometry);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<List<XSElementDeclaration>>> results = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				results.add(executor.submit(() -> XMLSchemaModelUtils.getImplicitProperties(model, geometry)));
+			}
+			for (Future<List<XSElementDeclaration>> result : results) {
+				assertEquals(expected, result.get());
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+		assertEquals(XMLSchemaModelUtils.getGlobalComplexTypeDefinitions(model).size(),
+				model.getComponentsByNamespace(XSTypeDefinition.COMPLEX_TYPE, CITIES_NS).getLength());
+	}
+
+	@Test
+	public void allTypesDerivedFromAnyType() {
+		XSTypeDefinition anyType = model.getTypeDefinition("anyType", XMLConstants.W3C_XML_SCHEMA_NS_URI);
+		Set<XSTypeDefinition> typeDefs = SchemaModelIndex.forModel(model)
+			.getDerivedTypeDefinitions(anyType, XSConstants.DERIVATION_RESTRICTION);
+		assertEquals(model.getComponentsByNamespace(XSConstants.TYPE_DEFINITION, CITIES_NS).getLength(),
+				typeDefs.size());
+	}
+
+}
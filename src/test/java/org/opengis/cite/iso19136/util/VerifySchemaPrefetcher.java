@@ -0,0 +1,134 @@
+package org.opengis.cite.iso19136.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.validation.Schema;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Verifies the behavior of the SchemaPrefetcher and LocalSchemaCatalog classes. An
+ * embedded HTTP server stands in for a remote schema repository.
+ */
+public class VerifySchemaPrefetcher {
+
+	private static final String XSD_NS = "http://www.w3.org/2001/XMLSchema";
+
+	@Rule
+	public TemporaryFolder tempDir = new TemporaryFolder();
+
+	private HttpServer server;
+
+	private final Map<String, String> schemas = new HashMap<String, String>();
+
+	private final AtomicInteger requests = new AtomicInteger();
+
+	private URI baseURI;
+
+	@Before
+	public void startServer() throws IOException {
+		schemas.put("/schemas/a.xsd", "<xs:schema xmlns:xs='" + XSD_NS + "' targetNamespace='urn:a'>"
+				+ "<xs:import namespace='urn:b' schemaLocation='sub/b.xsd'/>"
+				+ "<xs:import namespace='http://www.opengis.net/gml/3.2' "
+				+ "schemaLocation='http://schemas.opengis.net/gml/3.2.1/gml.xsd'/>"
+				+ "<xs:element name='A' type='xs:string'/></xs:schema>");
+		schemas.put("/schemas/sub/b.xsd", "<xs:schema xmlns:xs='" + XSD_NS + "' targetNamespace='urn:b'>"
+				+ "<xs:import namespace='urn:a' schemaLocation='../a.xsd'/>"
+				+ "<xs:element name='B' type='xs:string'/></xs:schema>");
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", exchange -> {
+			requests.incrementAndGet();
+			String schema = schemas.get(exchange.getRequestURI().getPath());
+			if (null == schema) {
+				exchange.sendResponseHeaders(404, -1);
+			}
+			else {
+				byte[] entity = schema.getBytes(StandardCharsets.UTF_8);
+				exchange.getResponseHeaders().add("Content-Type", "application/xml");
+				exchange.sendResponseHeaders(200, entity.length);
+				try (OutputStream os = exchange.getResponseBody()) {
+					os.write(entity);
+				}
+			}
+			exchange.close();
+		});
+		server.start();
+		baseURI = URI.create("http://localhost:" + server.getAddress().getPort() + "/");
+	}
+
+	@After
+	public void stopServer() {
+		server.stop(0);
+		System.clearProperty(LocalSchemaCatalog.CATALOG_DIR_PROPERTY);
+	}
+
+	@Test
+	public void prefetchImportClosure() throws IOException {
+		File appSchema = writeAppSchema();
+		LocalSchemaCatalog catalog = new LocalSchemaCatalog(tempDir.newFolder("catalog"));
+		List<URI> stored = new SchemaPrefetcher(catalog).prefetch(Collections.singleton(appSchema.toURI()));
+		assertEquals("Unexpected number of documents stored.", 2, stored.size());
+		assertEquals("Unexpected number of catalog entries.", 2, catalog.getEntries().size());
+		File localCopy = catalog.resolve(baseURI.resolve("schemas/sub/b.xsd").toString());
+		assertNotNull("Expected local copy.", localCopy);
+		assertTrue(new String(Files.readAllBytes(localCopy.toPath()), StandardCharsets.UTF_8).contains("'B'"));
+		// bundled schemas are not stored
+		assertNull(catalog.resolve("http://schemas.opengis.net/gml/3.2.1/gml.xsd"));
+	}
+
+	@Test
+	public void compileWithoutNetwork() throws Exception {
+		File appSchema = writeAppSchema();
+		File catalogDir = tempDir.newFolder("catalog");
+		new SchemaPrefetcher(new LocalSchemaCatalog(catalogDir)).prefetch(Collections.singleton(appSchema.toURI()));
+		server.stop(0);
+		int requestCount = requests.get();
+		System.setProperty(LocalSchemaCatalog.CATALOG_DIR_PROPERTY, catalogDir.getAbsolutePath());
+		PooledSchemaCompiler compiler = new PooledSchemaCompiler(GmlVersion.V322);
+		Schema schema = compiler.compileXmlSchema(new URI[] { appSchema.toURI() });
+		assertNotNull(schema);
+		assertFalse(compiler.getErrorHandler().toString(), compiler.getErrorHandler().errorsDetected());
+		assertEquals("Unexpected requests.", requestCount, requests.get());
+	}
+
+	@Test
+	public void localPathMirrorsLocation() {
+		assertEquals("example.org_8080/schemas/a.xsd",
+				SchemaPrefetcher.getLocalPath(URI.create("http://example.org:8080/schemas/a.xsd")));
+		String path = SchemaPrefetcher.getLocalPath(URI.create("http://example.org/wfs?request=DescribeFeatureType"));
+		assertTrue(path, path.matches("example\\.org/[0-9a-f]{64}\\.xsd"));
+	}
+
+	private File writeAppSchema() throws IOException {
+		File xsdFile = tempDir.newFile("app.xsd");
+		String xsd = "<xs:schema xmlns:xs='" + XSD_NS + "' targetNamespace='urn:app'>"
+				+ "<xs:import namespace='urn:a' schemaLocation='" + baseURI.resolve("schemas/a.xsd") + "'/>"
+				+ "<xs:element name='App' type='xs:string'/></xs:schema>";
+		Files.write(xsdFile.toPath(), xsd.getBytes(StandardCharsets.UTF_8));
+		return xsdFile;
+	}
+
+}
@@ -0,0 +1,80 @@
+package org.opengis.cite.iso19136.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.validation.Schema;
+
+import org.apache.xerces.xs.XSElementDeclaration;
+import org.apache.xerces.xs.XSModel;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.opengis.cite.iso19136.GML32;
+import org.opengis.cite.validation.XSModelBuilder;
+import org.xml.sax.SAXException;
+
+/**
+ * Verifies the behavior of the SchemaSnapshot class.
+ */
+public class VerifySchemaSnapshot {
+
+	private static final String CITIES_NS = "http://www.interactive-instruments.de/namespaces/demo/cities/2.0/cities";
+
+	private static Schema schema;
+
+	private static XSModel model;
+
+	@Rule
+	public TemporaryFolder tempDir = new TemporaryFolder();
+
+	@BeforeClass
+	public static void buildModel() throws URISyntaxException, SAXException, IOException {
+		Set<URI> schemaLocations = Collections
+			.singleton(VerifySchemaSnapshot.class.getResource("/xsd/cities.xsd").toURI());
+		schema = new SchemaCache(1).getOrCompile(schemaLocations, GmlVersion.V322,
+				new PooledSchemaCompiler(GmlVersion.V322));
+		model = XSModelBuilder.buildXMLSchemaModel(schema, CITIES_NS);
+	}
+
+	@Test
+	public void readSnapshot() throws IOException {
+		List<XSElementDeclaration> features = XMLSchemaModelUtils.getFeatureDeclarations(model);
+		File file = new File(tempDir.getRoot(), "cities.snapshot");
+		SchemaSnapshot.create(Collections.singletonMap("features", features)).write(file);
+		SchemaSnapshot iut = SchemaSnapshot.read(file);
+		assertNotNull(iut);
+		assertEquals(features, iut.getElementDeclarations("features", model));
+		assertNull(iut.getElementDeclarations("geometries", model));
+	}
+
+	@Test
+	public void readCorruptSnapshot() throws IOException {
+		File file = new File(tempDir.getRoot(), "corrupt.snapshot");
+		Files.write(file.toPath(), "not a snapshot".getBytes(StandardCharsets.US_ASCII));
+		assertNull(SchemaSnapshot.read(file));
+	}
+
+	@Test
+	public void snapshotFileDependsOnNamespace() {
+		String fingerprint = new SchemaCache(1).getFingerprint(schema);
+		assertNull("Schema should not be in a new cache.", fingerprint);
+		File dir = tempDir.getRoot();
+		assertFalse(SchemaSnapshot.getSnapshotFile(dir, "abc", CITIES_NS)
+			.equals(SchemaSnapshot.getSnapshotFile(dir, "abc", GML32.NS_NAME)));
+	}
+
+}
@@ -0,0 +1,113 @@
+package org.opengis.cite.iso19136.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * Verifies the behavior of the SchematronAnalyzer class.
+ */
+public class VerifySchematronAnalyzer {
+
+	private static final String GML_NS = "http://www.opengis.net/gml/3.2";
+
+	private static DocumentBuilder docBuilder;
+
+	@BeforeClass
+	public static void initParser() throws ParserConfigurationException {
+		DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+		dbf.setNamespaceAware(true);
+		docBuilder = dbf.newDocumentBuilder();
+	}
+
+	@Test
+	public void builtInRuleSetsAreStreamable() throws SAXException, IOException {
+		for (String sch : new String[] { "gml-3.2.1.sch", "gml-deprecated-3.2.1.sch" }) {
+			Document schema = docBuilder
+				.parse(getClass().getResource("/org/opengis/cite/iso19136/sch/" + sch).toString());
+			SchematronAnalyzer analyzer = new SchematronAnalyzer(schema, null);
+			assertEquals(sch, Collections.emptyList(), analyzer.getFullTreePatterns());
+			assertFalse(sch, analyzer.getStreamablePatterns().isEmpty());
+		}
+	}
+
+	@Test
+	public void retainedLevelsOfValueArray() throws SAXException, IOException {
+		Document schema = docBuilder
+			.parse(getClass().getResource("/org/opengis/cite/iso19136/sch/gml-3.2.1.sch").toString());
+		Map<Integer, Set<String>> levels = new SchematronAnalyzer(schema, null).getLevels("ValueArray");
+		assertEquals(Collections.singleton("{" + GML_NS + "}ValueArray"), levels.get(0));
+		assertEquals(new HashSet<String>(Arrays.asList("{" + GML_NS + "}valueComponent",
+				"{" + GML_NS + "}valueComponents")), levels.get(1));
+		assertEquals(Collections.singleton(SchematronAnalyzer.ANY), levels.get(2));
+		assertEquals(3, levels.size());
+	}
+
+	@Test
+	public void nonLocalRulesNeedFullTree() throws SAXException, IOException {
+		String[] tests = { "not(//gml:Point)", "ancestor::gml:Bag", "gml:name = 'x'", "position() = 1",
+				"../gml:name", "id('p1')", "gml:a/gml:b = 'x'" };
+		StringBuilder sch = new StringBuilder();
+		for (int i = 0; i < tests.length; i++) {
+			sch.append("<sch:pattern id='p").append(i).append("'><sch:rule context='gml:Bag'>");
+			sch.append("<sch:assert test=\"").append(tests[i]).append("\">msg</sch:assert></sch:rule></sch:pattern>");
+		}
+		sch.append("<sch:pattern id='local'><sch:rule context='gml:Bag'>");
+		sch.append("<sch:assert test=\"count(gml:member) = 1 and gml:name/text() = 'x'\">");
+		sch.append("<sch:value-of select='@gml:id'/></sch:assert></sch:rule></sch:pattern>");
+		SchematronAnalyzer analyzer = new SchematronAnalyzer(parseSchema(sch.toString()), null);
+		assertEquals(Collections.singletonList("local"), analyzer.getStreamablePatterns());
+		assertEquals(tests.length, analyzer.getFullTreePatterns().size());
+		Map<Integer, Set<String>> levels = analyzer.getLevels("local");
+		assertTrue(levels.get(2).contains(SchematronAnalyzer.TEXT));
+	}
+
+	@Test
+	public void contextMustBeSingleStep() throws SAXException, IOException {
+		String sch = "<sch:pattern id='p'><sch:rule context='gml:Bag/gml:member'>"
+				+ "<sch:assert test='@gml:id'>msg</sch:assert></sch:rule></sch:pattern>";
+		SchematronAnalyzer analyzer = new SchematronAnalyzer(parseSchema(sch), null);
+		assertEquals(Collections.singletonList("p"), analyzer.getFullTreePatterns());
+	}
+
+	@Test
+	public void inactivePatternsAreIgnored() throws SAXException, IOException {
+		String sch = "<sch:phase id='quick'><sch:active pattern='a'/></sch:phase>"
+				+ "<sch:pattern id='a'><sch:rule context='gml:Bag'><sch:assert test='@gml:id'>msg</sch:assert>"
+				+ "</sch:rule></sch:pattern><sch:pattern id='b'><sch:rule context='gml:Bag'>"
+				+ "<sch:assert test='//gml:Point'>msg</sch:assert></sch:rule></sch:pattern>";
+		SchematronAnalyzer analyzer = new SchematronAnalyzer(parseSchema(sch), "quick");
+		assertEquals(Collections.singletonList("a"), analyzer.getStreamablePatterns());
+		assertEquals(Collections.emptyList(), analyzer.getFullTreePatterns());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unknownPhase() throws SAXException, IOException {
+		new SchematronAnalyzer(parseSchema(""), "missing");
+	}
+
+	private Document parseSchema(String content) throws SAXException, IOException {
+		String sch = "<sch:schema xmlns:sch='http://purl.oclc.org/dsdl/schematron' queryBinding='xslt2'>"
+				+ "<sch:ns prefix='gml' uri='" + GML_NS + "'/>" + content + "</sch:schema>";
+		return docBuilder.parse(new InputSource(new StringReader(sch)));
+	}
+
+}
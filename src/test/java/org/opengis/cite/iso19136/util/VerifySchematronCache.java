@@ -0,0 +1,77 @@
+package org.opengis.cite.iso19136.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URL;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.Result;
+import javax.xml.transform.stream.StreamSource;
+
+import net.sf.saxon.s9api.XdmNode;
+
+import org.junit.After;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+/**
+ * Verifies the behavior of the SchematronCache class.
+ */
+public class VerifySchematronCache {
+
+	private static final String DEPRECATED_SCH = "/org/opengis/cite/iso19136/sch/gml-deprecated-3.2.1.sch";
+
+	private static final String GML_NS = "http://www.opengis.net/gml/3.2";
+
+	@After
+	public void clearCache() {
+		SchematronCache.clear();
+	}
+
+	@Test
+	public void compileOnlyOnce() throws IOException {
+		URL schRef = getClass().getResource(DEPRECATED_SCH);
+		long compiled = SchematronCache.getCompileCount();
+		long reused = SchematronCache.getReuseCount();
+		SchematronCache.validate(schRef, null, newSource(""));
+		SchematronCache.validate(schRef, "#ALL", newSource(""));
+		assertEquals("Unexpected compile count.", compiled + 1, SchematronCache.getCompileCount());
+		assertEquals("Unexpected reuse count.", reused + 1, SchematronCache.getReuseCount());
+	}
+
+	@Test
+	public void violationsAreCountedPerValidation() throws IOException {
+		URL schRef = getClass().getResource(DEPRECATED_SCH);
+		Result result = SchematronCache.validate(schRef, null,
+				newSource("<gml:metaDataProperty/><gml:location/>"));
+		assertEquals("Unexpected number of rule violations.", 2, SchematronCache.countRuleViolations(result));
+		result = SchematronCache.validate(schRef, null, newSource(""));
+		assertEquals("Unexpected number of rule violations.", 0, SchematronCache.countRuleViolations(result));
+	}
+
+	@Test
+	public void validateTreeInMemory() throws Exception {
+		URL schRef = getClass().getResource(DEPRECATED_SCH);
+		String content = "<gml:metaDataProperty/><gml:location/>";
+		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware(true);
+		Document dom = factory.newDocumentBuilder().parse(new InputSource(newSource(content).getReader()));
+		XdmNode domNode = SaxonXPath.toXdmNode(dom);
+		assertSame("Expected same wrapper.", domNode, SaxonXPath.toXdmNode(dom));
+		assertEquals("Unexpected number of rule violations.", 2,
+				SchematronCache.countRuleViolations(SchematronCache.validate(schRef, null, domNode)));
+		Document tinyTree = SaxonXPath.toDocument(SaxonXPath.buildDocument(newSource(content)));
+		assertEquals("Unexpected number of rule violations.", 2, SchematronCache
+			.countRuleViolations(SchematronCache.validate(schRef, null, SaxonXPath.toXdmNode(tinyTree))));
+	}
+
+	private StreamSource newSource(String content) {
+		String xml = "<gml:Bag xmlns:gml='" + GML_NS + "' gml:id='b1'>" + content + "</gml:Bag>";
+		return new StreamSource(new StringReader(xml), "urn:test:bag");
+	}
+
+}
@@ -0,0 +1,99 @@
+package org.opengis.cite.iso19136.util;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.XMLConstants;
+
+import org.junit.Test;
+
+/**
+ * Verifies the behavior of the SniffingInputStream class.
+ */
+public class VerifySniffingInputStream {
+
+	@Test
+	public void sniffInstanceDocumentInSmallChunks() throws Exception {
+		URL url = getClass().getResource("/Alpha-1.xml");
+		byte[] content = Files.readAllBytes(Paths.get(url.toURI()));
+		List<DocumentProbe> probes = new ArrayList<>();
+		ByteArrayOutputStream copy = new ByteArrayOutputStream();
+		try (InputStream in = new SniffingInputStream(Files.newInputStream(Paths.get(url.toURI())),
+				url.toString(), probes::add)) {
+			byte[] buf = new byte[16];
+			int len;
+			while ((len = in.read(buf)) > 0) {
+				copy.write(buf, 0, len);
+			}
+		}
+		assertArrayEquals("Content was altered.", content, copy.toByteArray());
+		assertEquals("Unexpected number of notifications.", 1, probes.size());
+		DocumentProbe probe = probes.get(0);
+		assertFalse("Not an XML Schema.", probe.isXMLSchema());
+		assertEquals("Unexpected document element.", "Alpha", probe.getRootName().getLocalPart());
+		Set<URI> schemaRefs = probe.getSchemaReferences(null);
+		assertEquals("Unexpected number of schema references.", 1, schemaRefs.size());
+		assertTrue("Expected absolute URI.", schemaRefs.iterator().next().toString().endsWith("/xsd/alpha.xsd"));
+	}
+
+	@Test
+	public void sniffXMLSchemaByteByByte() throws IOException {
+		List<DocumentProbe> probes = new ArrayList<>();
+		try (InputStream in = new SniffingInputStream(getClass().getResourceAsStream("/xsd/alpha.xsd"), null,
+				probes::add)) {
+			while (in.read() >= 0) {
+				if (!probes.isEmpty()) {
+					break;
+				}
+			}
+		}
+		assertEquals("Unexpected number of notifications.", 1, probes.size());
+		assertTrue("Expected an XML Schema.", probes.get(0).isXMLSchema());
+		assertEquals("Unexpected namespace.", XMLConstants.W3C_XML_SCHEMA_NS_URI,
+				probes.get(0).getRootName().getNamespaceURI());
+	}
+
+	@Test
+	public void sniffCompressedDocumentInSmallChunks() throws Exception {
+		URL url = getClass().getResource("/Alpha-1.xml");
+		ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+		try (OutputStream out = new GZIPOutputStream(gzipped)) {
+			Files.copy(Paths.get(url.toURI()), out);
+		}
+		List<DocumentProbe> probes = new ArrayList<>();
+		try (InputStream in = new SniffingInputStream(new ByteArrayInputStream(gzipped.toByteArray()),
+				url.toString(), probes::add)) {
+			byte[] buf = new byte[16];
+			while (in.read(buf) > 0) {
+			}
+		}
+		assertEquals("Unexpected number of notifications.", 1, probes.size());
+		assertEquals("Unexpected document element.", "Alpha", probes.get(0).getRootName().getLocalPart());
+	}
+
+	@Test
+	public void noDocumentElement() throws IOException {
+		List<DocumentProbe> probes = new ArrayList<>();
+		try (SniffingInputStream in = new SniffingInputStream(getClass().getResourceAsStream("/Jabberwocky.txt"),
+				null, probes::add)) {
+			while (in.read(new byte[64]) > 0) {
+			}
+			assertNull("Expected no probe.", in.getProbe());
+		}
+		assertTrue("Expected no notifications.", probes.isEmpty());
+	}
+
+}
@@ -0,0 +1,113 @@
+package org.opengis.cite.iso19136.util;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.Test;
+import org.opengis.cite.iso19136.GML32;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Verifies the behavior of the StreamingElementList class.
+ */
+public class VerifyStreamingElementList {
+
+	private static final Set<QName> POINT = Collections.singleton(new QName(GML32.NS_NAME, GML32.POINT));
+
+	private static final Set<QName> CURVE = Collections.singleton(new QName(GML32.NS_NAME, GML32.CURVE));
+
+	private static final Set<QName> POLYGON = Collections.singleton(new QName(GML32.NS_NAME, GML32.POLYGON));
+
+	public VerifyStreamingElementList() {
+	}
+
+	@Test
+	public void readCurvesInOrder() throws URISyntaxException {
+		URL url = this.getClass().getResource("/geom/CompositeCurve.xml");
+		StreamingElementList iut = new StreamingElementList(new File(url.toURI()), CURVE, 2);
+		Element curve = (Element) iut.item(0);
+		assertEquals("Unexpected gml:id.", "Curve-1", curve.getAttributeNS(GML32.NS_NAME, "id"));
+		curve = (Element) iut.item(1);
+		assertEquals("Unexpected gml:id.", "Curve-3", curve.getAttributeNS(GML32.NS_NAME, "id"));
+		assertNull(iut.item(2));
+		curve = (Element) iut.item(0);
+		assertEquals("Unexpected gml:id.", "Curve-1", curve.getAttributeNS(GML32.NS_NAME, "id"));
+	}
+
+	@Test
+	public void subtreeIsDetached() throws URISyntaxException {
+		URL url = this.getClass().getResource("/geom/CompositeCurve.xml");
+		StreamingElementList iut = new StreamingElementList(new File(url.toURI()), CURVE, 2);
+		Element curve = (Element) iut.item(1);
+		assertSame("Expected curve to be document element.", curve, curve.getOwnerDocument().getDocumentElement());
+		assertEquals("Unexpected number of segments.", 2,
+				curve.getElementsByTagNameNS(GML32.NS_NAME, "LineStringSegment").getLength());
+	}
+
+	@Test
+	public void inheritSrsNameFromAggregate() throws URISyntaxException {
+		URL url = this.getClass().getResource("/geom/MultiPoint-1.xml");
+		StreamingElementList iut = new StreamingElementList(new File(url.toURI()), POINT, 2);
+		assertEquals("Unexpected srsName.", "urn:ogc:def:crs:EPSG::4326",
+				((Element) iut.item(0)).getAttribute("srsName"));
+		assertEquals("Unexpected srsName.", "urn:ogc:def:crs:EPSG::32610",
+				((Element) iut.item(1)).getAttribute("srsName"));
+	}
+
+	@Test
+	public void inheritSrsNameFromFeatureEnvelope() throws URISyntaxException {
+		URL url = this.getClass().getResource("/geom/Point-inheritedCRS.xml");
+		StreamingElementList iut = new StreamingElementList(new File(url.toURI()), POINT, 1);
+		Element point = (Element) iut.item(0);
+		assertEquals("Unexpected srsName.", "urn:ogc:def:crs:EPSG::32610", point.getAttribute("srsName"));
+	}
+
+	@Test
+	public void inheritNamespaceBindings() throws URISyntaxException {
+		URL url = this.getClass().getResource("/geom/Point-inheritedCRS.xml");
+		StreamingElementList iut = new StreamingElementList(new File(url.toURI()), POINT, 1);
+		Element point = (Element) iut.item(0);
+		assertEquals("Unexpected namespace for prefix 'gml'.", GML32.NS_NAME, point.lookupNamespaceURI("gml"));
+		assertEquals("Unexpected default namespace.", "http://example.org/ns1", point.lookupNamespaceURI(null));
+	}
+
+	@Test
+	public void resolveRingOutsideSubtree() throws URISyntaxException, XMLStreamException, IOException {
+		URL url = this.getClass().getResource("/geom/Polygon-RingReference.xml");
+		File dataFile = new File(url.toURI());
+		GmlIdIndex idIndex = GeometryIndex.build(dataFile, null).getIdIndex();
+		StreamingElementList iut = new StreamingElementList(new MappedDataSource(dataFile), POLYGON, 1, idIndex);
+		Element polygon = (Element) iut.item(0);
+		Node interior = polygon.getElementsByTagNameNS(GML32.NS_NAME, "interior").item(0);
+		Node ring = XMLUtils.getPropertyValue(interior);
+		assertNotNull("Expected referenced ring.", ring);
+		assertEquals("Element has unexpected local name.", "LinearRing", ring.getLocalName());
+		assertEquals("Unexpected gml:id.", "Ring-1", ((Element) ring).getAttributeNS(GML32.NS_NAME, "id"));
+		assertEquals("Unexpected number of positions.", 1,
+				((Element) ring).getElementsByTagNameNS(GML32.NS_NAME, "posList").getLength());
+	}
+
+	@Test
+	public void referentOutsideSubtreeIsReadOnce() throws URISyntaxException, XMLStreamException, IOException {
+		URL url = this.getClass().getResource("/geom/Polygon-RingReference.xml");
+		File dataFile = new File(url.toURI());
+		GmlIdIndex idIndex = GeometryIndex.build(dataFile, null).getIdIndex();
+		StreamingElementList iut = new StreamingElementList(new MappedDataSource(dataFile), POLYGON, 1, idIndex);
+		Element polygon = (Element) iut.item(0);
+		Node interior = polygon.getElementsByTagNameNS(GML32.NS_NAME, "interior").item(0);
+		Node ring = XMLUtils.getPropertyValue(interior);
+		assertNotNull("Expected referenced ring.", ring);
+		assertSame("Expected the same referent.", ring, XMLUtils.getPropertyValue(interior));
+	}
+
+}
@@ -0,0 +1,70 @@
+package org.opengis.cite.iso19136.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import javax.xml.transform.Result;
+import javax.xml.transform.dom.DOMResult;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.opengis.cite.iso19136.Namespaces;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Verifies the behavior of the StreamingSchematronValidator class.
+ */
+public class VerifyStreamingSchematronValidator {
+
+	private static final String DEPRECATED_SCH = "/org/opengis/cite/iso19136/sch/gml-deprecated-3.2.1.sch";
+
+	private static final String GML_NS = "http://www.opengis.net/gml/3.2";
+
+	@Rule
+	public TemporaryFolder tempDir = new TemporaryFolder();
+
+	@Test
+	public void reportDeprecatedElements() throws IOException {
+		URL schRef = getClass().getResource(DEPRECATED_SCH);
+		StreamingSchematronValidator validator = new StreamingSchematronValidator(schRef, null);
+		Result result = validator.validate(newDataSource("<gml:metaDataProperty/><gml:location/>"));
+		assertEquals("Unexpected number of rule violations.", 2, SchematronCache.countRuleViolations(result));
+		Document report = (Document) ((DOMResult) result).getNode();
+		Element failure = (Element) report.getElementsByTagNameNS(Namespaces.SVRL, "successful-report").item(0);
+		assertEquals("/*:Bag[namespace-uri()='" + GML_NS + "'][1]", failure.getAttribute("location"));
+		assertEquals("warning", failure.getAttribute("flag"));
+	}
+
+	@Test
+	public void sameOutcomeAsFullTree() throws IOException {
+		URL schRef = getClass().getResource(DEPRECATED_SCH);
+		File dataFile = new File(getClass().getResource("/SimpleFeature-1.xml").getFile());
+		MappedDataSource dataSource = new MappedDataSource(dataFile);
+		Result streamed = StreamingSchematronValidator.getInstance(schRef, null).validate(dataSource);
+		Result full = SchematronCache.validate(schRef, null, dataSource.getSource());
+		assertEquals("Unexpected number of rule violations.", SchematronCache.countRuleViolations(full),
+				SchematronCache.countRuleViolations(streamed));
+	}
+
+	@Test
+	public void noViolations() throws IOException {
+		URL schRef = getClass().getResource(DEPRECATED_SCH);
+		Result result = StreamingSchematronValidator.getInstance(schRef, null).validate(newDataSource(""));
+		assertEquals("Unexpected number of rule violations.", 0, SchematronCache.countRuleViolations(result));
+	}
+
+	private MappedDataSource newDataSource(String content) throws IOException {
+		File dataFile = tempDir.newFile("bag.xml");
+		String xml = "<gml:Bag xmlns:gml='" + GML_NS + "' gml:id='b1'>" + content + "</gml:Bag>";
+		Files.write(dataFile.toPath(), xml.getBytes(StandardCharsets.UTF_8));
+		return new MappedDataSource(dataFile);
+	}
+
+}
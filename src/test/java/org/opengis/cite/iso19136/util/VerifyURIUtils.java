@@ -65,6 +65,12 @@ public class VerifyURIUtils {
 		assertEquals("Expected element {http://www.example.net/gamma}Gamma", 1, nodes.getLength());
 	}
 
+	@Test
+	public void resolveRelativeURIInArchive() {
+		URI uri = URIUtils.resolveRelativeURI("jar:file:/data/delivery.zip!/gml/data.gml", "../xsd/alpha.xsd");
+		assertEquals("Unexpected URI.", "jar:file:/data/delivery.zip!/xsd/alpha.xsd", uri.toString());
+	}
+
 	@Test(expected = IllegalArgumentException.class)
 	public void resolveMissingClasspathResource() throws SAXException, URISyntaxException, IOException {
 		URL url = this.getClass().getResource("/alpha.xml");
@@ -6,8 +6,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URL;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
+
 import javax.xml.namespace.QName;
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
@@ -17,6 +20,7 @@ import org.apache.xerces.xs.XSConstants;
 import org.apache.xerces.xs.XSElementDeclaration;
 import org.apache.xerces.xs.XSModel;
 import org.apache.xerces.xs.XSNamedMap;
+import org.apache.xerces.xs.XSObject;
 import org.apache.xerces.xs.XSParticle;
 import org.apache.xerces.xs.XSTypeDefinition;
 import org.junit.AfterClass;
@@ -75,6 +79,18 @@ public class VerifyXMLSchemaModelUtils {
 		assertNotNull("Top-level element declaration 'Beta' not found", model.getElementDeclaration("Beta", BETA_NS));
 	}
 
+	@Test
+	public void streamComponentsInNamespaceOrder() throws IOException, SAXException {
+		URL url = this.getClass().getResource("/xsd/alpha.xsd");
+		Schema xsd = xsdCompiler.compileXmlSchema(new StreamSource(url.openStream(), url.toString()));
+		XSModel model = XSModelBuilder.buildXMLSchemaModel(xsd, ALPHA_NS);
+		List<String> namespaces = XMLSchemaModelUtils.streamComponents(model, XSConstants.ELEMENT_DECLARATION)
+			.map(XSObject::getNamespace)
+			.distinct()
+			.collect(Collectors.toList());
+		assertEquals("Unexpected namespace order.", Arrays.asList(ALPHA_NS, BETA_NS, GAMMA_NS), namespaces);
+	}
+
 	@Test
 	public void findFeatures_simpleFeatures() throws IOException, SAXException {
 		URL url = this.getClass().getResource("/xsd/simple.xsd");
@@ -0,0 +1,71 @@
+package org.opengis.cite.iso19136.util;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Verifies the behavior of the XPathCache class.
+ */
+public class VerifyXPathCache {
+
+	public VerifyXPathCache() {
+	}
+
+	@After
+	public void clearCache() {
+		XPathCache.clear();
+	}
+
+	@Test
+	public void compileOnlyOnce() throws XPathExpressionException {
+		long misses = XPathCache.getMissCount();
+		long hits = XPathCache.getHitCount();
+		XPathExpression first = XPathCache.compile("gml:segments/*", null);
+		assertSame("Expected cached expression.", first, XPathCache.compile("gml:segments/*", null));
+		assertEquals("Unexpected miss count.", misses + 1, XPathCache.getMissCount());
+		assertEquals("Unexpected hit count.", hits + 1, XPathCache.getHitCount());
+	}
+
+	@Test
+	public void keyIncludesNamespaceBindings() throws XPathExpressionException {
+		Map<String, String> alpha = Collections.singletonMap("http://www.example.net/alpha", "ns1");
+		Map<String, String> beta = Collections.singletonMap("http://www.example.net/beta", "ns1");
+		XPathExpression first = XPathCache.compile("//ns1:name", alpha);
+		assertNotSame("Expected different expression.", first, XPathCache.compile("//ns1:name", beta));
+		assertSame("Expected cached expression.", first, XPathCache.compile("//ns1:name", alpha));
+	}
+
+	@Test
+	public void evictLeastRecentlyUsed() throws XPathExpressionException {
+		XPathExpression first = XPathCache.compile("count(//*)", null);
+		for (int i = 0; i < XPathCache.MAX_SIZE; i++) {
+			XPathCache.compile("count(//*) > " + i, null);
+		}
+		assertNotSame("Expected expression to be evicted.", first, XPathCache.compile("count(//*)", null));
+	}
+
+	@Test
+	public void threadsHaveSeparateCaches() throws Exception {
+		XPathExpression first = XPathCache.compile("//gml:Point", null);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<XPathExpression> other = executor.submit(() -> XPathCache.compile("//gml:Point", null));
+			assertNotSame("Expected a separate expression.", first, other.get());
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+}